@@ -0,0 +1,260 @@
+package uniandes.dpoo.taller1.interfaz;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.swing.AbstractAction;
+import javax.swing.BorderFactory;
+import javax.swing.DefaultListModel;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+/**
+ * Diálogo para pedirle un texto al usuario mostrándole, mientras escribe, sugerencias para completarlo. Las flechas mueven la selección entre las sugerencias, Enter acepta la sugerencia
+ * seleccionada (o el texto escrito, si no hay ninguna seleccionada) y Escape cancela.
+ */
+@SuppressWarnings("serial")
+public class DialogoBusqueda extends JDialog implements ActionListener, DocumentListener
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * La mayor cantidad de sugerencias que se muestran
+	 */
+	public static final int MAXIMO_SUGERENCIAS = 8;
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * La función que calcula las sugerencias para el texto escrito
+	 */
+	private Function<String, ? extends List<String>> sugerencias;
+
+	/**
+	 * El texto que aceptó el usuario, o null si canceló
+	 */
+	private String resultado;
+
+	// ************************************************************************
+	// Componentes gráficos
+	// ************************************************************************
+
+	private JTextField txtTexto;
+
+	private DefaultListModel<String> modeloSugerencias;
+
+	private JList<String> listaSugerencias;
+
+	private JButton btnAceptar;
+
+	private JButton btnCancelar;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye el diálogo
+	 *
+	 * @param ventana      La ventana sobre la que se muestra el diálogo
+	 * @param titulo       El título del diálogo
+	 * @param mensaje      El mensaje que se muestra sobre el campo de texto
+	 * @param textoInicial El texto con el que empieza el campo
+	 * @param sugerencias  La función que calcula las sugerencias para un texto. Recibe el texto escrito y retorna a lo sumo MAXIMO_SUGERENCIAS sugerencias.
+	 */
+	public DialogoBusqueda(JFrame ventana, String titulo, String mensaje, String textoInicial, Function<String, ? extends List<String>> sugerencias)
+	{
+		super(ventana, titulo, true);
+		this.sugerencias = sugerencias;
+
+		JPanel panel = new JPanel(new BorderLayout(0, 5));
+		panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+		setContentPane(panel);
+
+		JPanel panelTexto = new JPanel(new BorderLayout(0, 5));
+		panelTexto.add(new JLabel(mensaje), BorderLayout.NORTH);
+		txtTexto = new JTextField(textoInicial, 30);
+		txtTexto.addActionListener(this);
+		panelTexto.add(txtTexto, BorderLayout.CENTER);
+		panel.add(panelTexto, BorderLayout.NORTH);
+
+		modeloSugerencias = new DefaultListModel<String>();
+		listaSugerencias = new JList<String>(modeloSugerencias);
+		listaSugerencias.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		listaSugerencias.setVisibleRowCount(MAXIMO_SUGERENCIAS);
+		listaSugerencias.setFocusable(false);
+		listaSugerencias.addMouseListener(new MouseAdapter()
+		{
+			@Override
+			public void mouseClicked(MouseEvent e)
+			{
+				if (e.getClickCount() == 2 && listaSugerencias.getSelectedValue() != null)
+					aceptar(listaSugerencias.getSelectedValue());
+			}
+		});
+		panel.add(new JScrollPane(listaSugerencias), BorderLayout.CENTER);
+
+		JPanel panelBotones = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+		btnAceptar = new JButton("Aceptar");
+		btnAceptar.addActionListener(this);
+		panelBotones.add(btnAceptar);
+		btnCancelar = new JButton("Cancelar");
+		btnCancelar.addActionListener(this);
+		panelBotones.add(btnCancelar);
+		panel.add(panelBotones, BorderLayout.SOUTH);
+
+		// Las flechas se manejan desde el campo de texto para que el foco no salga de él
+		txtTexto.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), "siguiente");
+		txtTexto.getActionMap().put("siguiente", new AbstractAction()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				moverSeleccion(1);
+			}
+		});
+		txtTexto.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, 0), "anterior");
+		txtTexto.getActionMap().put("anterior", new AbstractAction()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				moverSeleccion(-1);
+			}
+		});
+		panel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "cancelar");
+		panel.getActionMap().put("cancelar", new AbstractAction()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				dispose();
+			}
+		});
+
+		txtTexto.getDocument().addDocumentListener(this);
+		actualizarSugerencias();
+		pack();
+		setLocationRelativeTo(ventana);
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Muestra un diálogo de búsqueda y espera a que el usuario lo cierre
+	 *
+	 * @param ventana      La ventana sobre la que se muestra el diálogo
+	 * @param titulo       El título del diálogo
+	 * @param mensaje      El mensaje que se muestra sobre el campo de texto
+	 * @param textoInicial El texto con el que empieza el campo
+	 * @param sugerencias  La función que calcula las sugerencias para un texto
+	 * @return El texto que aceptó el usuario, o null si canceló
+	 */
+	public static String pedirTexto(JFrame ventana, String titulo, String mensaje, String textoInicial, Function<String, ? extends List<String>> sugerencias)
+	{
+		DialogoBusqueda dialogo = new DialogoBusqueda(ventana, titulo, mensaje, textoInicial, sugerencias);
+		dialogo.setVisible(true);
+		return dialogo.resultado;
+	}
+
+	/**
+	 * Vuelve a calcular las sugerencias para el texto escrito. Ninguna queda seleccionada.
+	 */
+	private void actualizarSugerencias()
+	{
+		modeloSugerencias.clear();
+		for (String sugerencia : sugerencias.apply(txtTexto.getText()))
+		{
+			modeloSugerencias.addElement(sugerencia);
+		}
+	}
+
+	/**
+	 * Mueve la selección de la lista de sugerencias
+	 *
+	 * @param cambio 1 para bajar y -1 para subir. Al subir desde la primera sugerencia se quita la selección.
+	 */
+	private void moverSeleccion(int cambio)
+	{
+		int posicion = listaSugerencias.getSelectedIndex() + cambio;
+		if (posicion < 0)
+		{
+			listaSugerencias.clearSelection();
+		}
+		else if (posicion < modeloSugerencias.size())
+		{
+			listaSugerencias.setSelectedIndex(posicion);
+			listaSugerencias.ensureIndexIsVisible(posicion);
+		}
+	}
+
+	private void aceptar(String texto)
+	{
+		resultado = texto;
+		dispose();
+	}
+
+	// ************************************************************************
+	// Métodos implementados de la interfaz ActionListener
+	// ************************************************************************
+
+	/**
+	 * Se invoca cuando se presiona Enter en el campo de texto o se hace click sobre un botón
+	 */
+	@Override
+	public void actionPerformed(ActionEvent e)
+	{
+		if (e.getSource() == btnCancelar)
+			dispose();
+		else if (listaSugerencias.getSelectedValue() != null)
+			aceptar(listaSugerencias.getSelectedValue());
+		else
+			aceptar(txtTexto.getText());
+	}
+
+	// ************************************************************************
+	// Métodos implementados de la interfaz DocumentListener
+	// ************************************************************************
+
+	@Override
+	public void insertUpdate(DocumentEvent e)
+	{
+		actualizarSugerencias();
+	}
+
+	@Override
+	public void removeUpdate(DocumentEvent e)
+	{
+		actualizarSugerencias();
+	}
+
+	@Override
+	public void changedUpdate(DocumentEvent e)
+	{
+		actualizarSugerencias();
+	}
+}
@@ -5,10 +5,19 @@ import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFrame;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
@@ -16,13 +25,19 @@ import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.UnsupportedLookAndFeelException;
 
 import com.formdev.flatlaf.FlatLightLaf;
 
+import uniandes.dpoo.taller1.modelo.CambiosCatalogo;
 import uniandes.dpoo.taller1.modelo.Categoria;
+import uniandes.dpoo.taller1.modelo.FotoCatalogo;
 import uniandes.dpoo.taller1.modelo.Libreria;
 import uniandes.dpoo.taller1.modelo.Libro;
+import uniandes.dpoo.taller1.modelo.ObservadorCarga;
+import uniandes.dpoo.taller1.modelo.VigilanteCatalogo;
 
 /**
  * Esta clase representa a la ventana principal de la aplicación
@@ -40,6 +55,46 @@ public class InterfazLibreria extends JFrame
 	 */
 	public Libreria libreria;
 
+	/**
+	 * La carga de librería que está en curso, o null si no se está cargando ninguna
+	 */
+	private CargaLibreria carga;
+
+	/**
+	 * Mientras se carga una librería, los libros que ya se leyeron de cada categoría. Es null cuando no se está cargando.
+	 */
+	private HashMap<Categoria, ArrayList<Libro>> librosEnCarga;
+
+	/**
+	 * La categoría cuyos libros se están mostrando en el panel panelLibros
+	 */
+	private Categoria categoriaActual;
+
+	/**
+	 * El archivo de categorías de la librería actual
+	 */
+	private File archivoCategorias;
+
+	/**
+	 * El archivo de libros de la librería actual
+	 */
+	private File archivoLibros;
+
+	/**
+	 * El vigilante de los archivos de la librería actual, o null si no se están vigilando
+	 */
+	private VigilanteCatalogo vigilante;
+
+	/**
+	 * El cálculo de cambios que está en curso, o null si no hay ninguno
+	 */
+	private RecargaCambios recarga;
+
+	/**
+	 * Indica si los archivos volvieron a cambiar mientras se calculaban los cambios anteriores
+	 */
+	private boolean recargaPendiente;
+
 	// ************************************************************************
 	// Elementos de la interfaz
 	// ************************************************************************
@@ -61,6 +116,12 @@ public class InterfazLibreria extends JFrame
 	 */
 	private JMenuItem menuAbrir; //ESTO ES UN CAMBIO
 
+	/**
+	 * Este componente corresponde a la opción para recargar automáticamente los
+	 * cambios que otros programas hagan sobre los archivos de la librería
+	 */
+	private JCheckBoxMenuItem menuVigilar;
+
 	/**
 	 * Este componente corresponde a la opción para salir de la aplicación
 	 */
@@ -89,6 +150,11 @@ public class InterfazLibreria extends JFrame
 	 */
 	private PanelBotones panelBotones;
 
+	/**
+	 * Este componente corresponde al panel que muestra el avance de la carga de una librería
+	 */
+	private PanelCarga panelCarga;
+
 	// ************************************************************************
 	// Constructores
 	// ************************************************************************
@@ -112,6 +178,20 @@ public class InterfazLibreria extends JFrame
 		menuAbrir.addActionListener(new ListenerMenu(this));
 		menuArchivo.add(menuAbrir);
 
+		menuVigilar = new JCheckBoxMenuItem("Recargar cambios de los archivos", true);
+		menuVigilar.addActionListener(new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				if (menuVigilar.isSelected())
+					iniciarVigilancia();
+				else
+					detenerVigilancia();
+			}
+		});
+		menuArchivo.add(menuVigilar);
+
 		menuSalir = new JMenuItem("Salir", KeyEvent.VK_Q);
 		menuSalir.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Q, ActionEvent.CTRL_MASK));
 		menuSalir.addActionListener(new ActionListener()
@@ -119,6 +199,7 @@ public class InterfazLibreria extends JFrame
 			@Override
 			public void actionPerformed(ActionEvent e)
 			{
+				cerrarLibreria();
 				System.exit(0);
 			}
 		});
@@ -143,10 +224,21 @@ public class InterfazLibreria extends JFrame
 
 		JPanel panelAbajo = new JPanel(new BorderLayout());
 		panelBotones = new PanelBotones(this);
+		panelBotones.habilitarBotones(false);
 		panelAbajo.add(panelBotones, BorderLayout.CENTER);
+		panelCarga = new PanelCarga(this);
+		panelAbajo.add(panelCarga, BorderLayout.NORTH);
 		add(panelAbajo, BorderLayout.SOUTH);
 
 		setDefaultCloseOperation(EXIT_ON_CLOSE);
+		addWindowListener(new WindowAdapter()
+		{
+			@Override
+			public void windowClosing(WindowEvent e)
+			{
+				cerrarLibreria();
+			}
+		});
 		setTitle("Librería");
 		setSize(1000, 700);
 		setVisible(true);
@@ -157,9 +249,14 @@ public class InterfazLibreria extends JFrame
 	// ************************************************************************
 
 	/**
-	 * Carga la información de una librería a partir de los archivos datos,
-	 * construye un objeto Librería con esa información y lo deja en el atributo
-	 * llamado 'libreria'
+	 * Empieza a cargar la información de una librería a partir de los archivos
+	 * datos. Cuando la carga termina, el objeto Librería queda en el atributo
+	 * llamado 'libreria'.
+	 * 
+	 * La carga se hace en otro hilo: las categorías se muestran apenas se leen y
+	 * los libros van apareciendo en los paneles a medida que se leen. Mientras
+	 * tanto, el usuario puede recorrer las categorías, pero los botones de
+	 * acciones quedan deshabilitados hasta que la carga termine.
 	 * 
 	 * @param archivo_categorias El archivo que tiene la información de las
 	 *                           categorías que se usarán para los libros
@@ -167,18 +264,151 @@ public class InterfazLibreria extends JFrame
 	 */
 	public void cargarArchivos(File archivo_categorias, File archivo_libros)
 	{
+		CargaLibreria anterior = carga;
+		if (anterior != null)
+		{
+			anterior.cancel(false);
+		}
+
+		detenerVigilancia();
+		this.archivoCategorias = archivo_categorias;
+		this.archivoLibros = archivo_libros;
+		cerrarLibreria();
+		librosEnCarga = new HashMap<Categoria, ArrayList<Libro>>();
+		categoriaActual = null;
+		panelBotones.habilitarBotones(false);
+		panelLibros.actualizarLibros(new ArrayList<Libro>());
+		panelCategorias.actualizarCategorias(new Categoria[0]);
+		panelCarga.iniciar();
+
+		carga = new CargaLibreria(archivo_categorias, archivo_libros, anterior);
+		carga.execute();
+	}
+
+	/**
+	 * Cierra la librería actual, para que los cambios que estén pendientes en su
+	 * bitácora queden guardados, y la quita de la ventana
+	 */
+	private void cerrarLibreria()
+	{
+		if (libreria == null)
+			return;
+
 		try
 		{
-			libreria = new Libreria(archivo_categorias.getPath(), archivo_libros.getPath());
-			panelCategorias.actualizarCategorias(libreria.darCategorias());
+			libreria.cerrar();
 		}
-		catch (Exception e)
+		catch (IOException e)
 		{
-			JOptionPane.showMessageDialog(this, "Hubo un error leyendo los archivos", "Error de lectura",
-					JOptionPane.ERROR_MESSAGE);
-			e.printStackTrace();
+			JOptionPane.showMessageDialog(this, "No se pudieron guardar los últimos cambios de la librería", "Error", JOptionPane.ERROR_MESSAGE);
 		}
+		libreria = null;
+	}
 
+	/**
+	 * Cancela la carga de librería que esté en curso
+	 */
+	public void cancelarCarga()
+	{
+		if (carga != null)
+		{
+			carga.cancel(false);
+		}
+	}
+
+	/**
+	 * Empieza a vigilar los archivos de la librería actual, si la opción está
+	 * activa. Cada vez que otro programa los modifica, se calculan las diferencias
+	 * en otro hilo y se aplican a la librería sin volver a cargarla.
+	 */
+	private void iniciarVigilancia()
+	{
+		if (vigilante != null || libreria == null || !menuVigilar.isSelected())
+			return;
+
+		try
+		{
+			vigilante = new VigilanteCatalogo(archivoCategorias.getPath(), archivoLibros.getPath(), () -> SwingUtilities.invokeLater(this::recargarCambios));
+		}
+		catch (IOException e)
+		{
+			JOptionPane.showMessageDialog(this, "No se pueden vigilar los archivos de la librería", "Error", JOptionPane.ERROR_MESSAGE);
+		}
+	}
+
+	/**
+	 * Deja de vigilar los archivos de la librería
+	 */
+	private void detenerVigilancia()
+	{
+		if (vigilante != null)
+		{
+			try
+			{
+				vigilante.close();
+			}
+			catch (IOException e)
+			{
+				// El vigilante ya no se va a usar
+			}
+			vigilante = null;
+		}
+		recargaPendiente = false;
+	}
+
+	/**
+	 * Calcula en otro hilo las diferencias entre los archivos y la librería. Si ya
+	 * se estaban calculando, se vuelven a calcular cuando termine el cálculo en
+	 * curso.
+	 */
+	private void recargarCambios()
+	{
+		if (libreria == null || vigilante == null)
+			return;
+
+		if (recarga != null)
+		{
+			recargaPendiente = true;
+		}
+		else
+		{
+			recarga = new RecargaCambios();
+			recarga.execute();
+		}
+	}
+
+	/**
+	 * Actualiza las listas de la ventana después de aplicar cambios a la librería:
+	 * agrega las categorías nuevas y vuelve a mostrar los libros de la categoría
+	 * actual sólo si cambiaron
+	 */
+	private void mostrarCambios(CambiosCatalogo cambios)
+	{
+		for (Categoria categoria : cambios.darCategoriasAgregadas())
+		{
+			panelCategorias.agregarCategoria(categoria);
+		}
+		if (categoriaActual != null && cambios.darCategoriasAfectadas().contains(categoriaActual))
+		{
+			cambiarCategoria(categoriaActual);
+		}
+	}
+
+	/**
+	 * Le informa al usuario cuáles categorías nuevas aparecieron en el archivo de
+	 * libros, y actualiza el archivo de categorías.
+	 */
+	private void informarCategoriasNuevas()
+	{
+		try
+		{
+			String mensaje = libreria.nuevasCategorias();
+			JOptionPane.showMessageDialog(this, mensaje);
+		}
+		catch (IOException e)
+		{
+			JOptionPane.showMessageDialog(this, "No se pudieron agregar las categorías nuevas.");
+		}
 	}
 
 	/**
@@ -189,9 +419,23 @@ public class InterfazLibreria extends JFrame
 	 */
 	public void cambiarCategoria(Categoria categoria)
 	{
-		ArrayList<Libro> libros = libreria.darLibros(categoria.darNombre());
+		categoriaActual = categoria;
+
+		ArrayList<Libro> libros = new ArrayList<Libro>();
+		if (libreria != null)
+		{
+			libros = libreria.darLibros(categoria.darNombre());
+		}
+		else if (librosEnCarga != null && librosEnCarga.containsKey(categoria))
+		{
+			libros = librosEnCarga.get(categoria);
+		}
+
 		panelLibros.actualizarLibros(libros);
-		mostrarLibro(libros.get(0));
+		if (!libros.isEmpty())
+		{
+			mostrarLibro(libros.get(0));
+		}
 	}
 
 	/**
@@ -213,14 +457,33 @@ public class InterfazLibreria extends JFrame
 	 */
 	public void buscarLibro()
 	{
-		String titulo = JOptionPane.showInputDialog(this, "Escriba el título del libro que busca", "titulo");
+		String titulo = DialogoBusqueda.pedirTexto(this, "Buscar libro", "Escriba el título del libro que busca", "",
+				prefijo -> libreria.completarTitulo(prefijo, DialogoBusqueda.MAXIMO_SUGERENCIAS));
 		if (titulo != null)
 		{
 			Libro libro = libreria.buscarLibro(titulo);
 			if (libro == null)
 			{
-				JOptionPane.showMessageDialog(this, "No se encontró un libro con ese título", "No hay libro",
-						JOptionPane.INFORMATION_MESSAGE);
+				// Si no hay un libro con ese título exacto, se ofrecen los títulos parecidos por si el título tiene errores
+				ArrayList<Libro> parecidos = libreria.buscarLibrosAproximados(titulo, titulo.trim().length() <= 4 ? 1 : 2, 10);
+				if (parecidos.isEmpty())
+				{
+					JOptionPane.showMessageDialog(this, "No se encontró un libro con ese título", "No hay libro",
+							JOptionPane.INFORMATION_MESSAGE);
+					return;
+				}
+				String[] opciones = new String[parecidos.size()];
+				for (int i = 0; i < opciones.length; i++)
+				{
+					opciones[i] = parecidos.get(i).darTitulo() + " - " + parecidos.get(i).darAutor();
+				}
+				Object elegido = JOptionPane.showInputDialog(this, "No se encontró un libro con ese título. ¿Quiso decir...?", "Libros parecidos",
+						JOptionPane.QUESTION_MESSAGE, null, opciones, opciones[0]);
+				for (int i = 0; i < opciones.length; i++)
+				{
+					if (opciones[i] == elegido)
+						mostrarLibro(parecidos.get(i));
+				}
 			}
 			else
 			{
@@ -231,20 +494,35 @@ public class InterfazLibreria extends JFrame
 
 	/**
 	 * Busca los libros de un autor a partir de una parte del nombre del autor que
-	 * haya dado el usuario.
+	 * haya dado el usuario. El usuario también puede escribir una consulta con
+	 * filtros, como autor:verne cat:Fiction rating&gt;=4 (ver
+	 * ConsultaLibros.interpretar).
 	 * 
 	 * La lista de libros que correspondan al autor dado se muestra en el panel
 	 * panelLibros.
 	 */
 	public void buscarLibrosAutor()
 	{
-		String autor = JOptionPane.showInputDialog(this, "Escriba al menos una parte del autor que busca", "autor");
+		// Sólo se sugieren autores mientras lo escrito no sea una consulta con filtros
+		String autor = DialogoBusqueda.pedirTexto(this, "Buscar libros por autor",
+				"<html>Escriba al menos una parte del autor que busca,<br>o una consulta como autor:verne cat:Fiction rating&gt;=4</html>", "",
+				prefijo -> prefijo.matches(".*[:=<>].*") ? new ArrayList<String>() : libreria.completarAutor(prefijo, DialogoBusqueda.MAXIMO_SUGERENCIAS));
 		if (autor != null)
 		{
-			ArrayList<Libro> libros = libreria.buscarLibrosAutor(autor);
+			ArrayList<Libro> libros;
+			try
+			{
+				libros = libreria.consultar(autor);
+			}
+			catch (IllegalArgumentException e)
+			{
+				JOptionPane.showMessageDialog(this, e.getMessage(), "Consulta inválida", JOptionPane.ERROR_MESSAGE);
+				return;
+			}
+
 			if (libros.isEmpty())
 			{
-				JOptionPane.showMessageDialog(this, "No hay ningún autor con ese nombre", "No hay libro",
+				JOptionPane.showMessageDialog(this, "No hay ningún libro que cumpla la búsqueda", "No hay libro",
 						JOptionPane.INFORMATION_MESSAGE);
 			}
 			else
@@ -334,22 +612,42 @@ public class InterfazLibreria extends JFrame
 
 	/**
 	 * Le informa al usuario si hay un autor que tenga libros en más de una
-	 * categoría.
+	 * categoría, y le muestra los primeros de esos autores con sus categorías.
 	 */
 	public void hayAutorEnVariasCategorias()
 	{
-		boolean hay = libreria.hayAutorEnVariasCategorias();
 		String mensaje = "No hay ningún autor con al menos un libro en dos categorías diferentes.";
-		if (hay)
+		if (libreria.hayAutorEnVariasCategorias())
 		{
-			mensaje = "Hay al menos un autor con al menos un libro en dos categorías diferentes.";
+			Map<String, ArrayList<Categoria>> autores = libreria.darAutoresEnVariasCategorias();
+			StringBuilder texto = new StringBuilder();
+			texto.append("Hay ").append(autores.size()).append(" autores con al menos un libro en dos categorías diferentes");
+			int mostrados = 0;
+			for (Map.Entry<String, ArrayList<Categoria>> autor : autores.entrySet())
+			{
+				if (mostrados == 10)
+				{
+					texto.append("\n ...");
+					break;
+				}
+				texto.append(mostrados == 0 ? ":\n" : "\n").append(" ").append(autor.getKey()).append(": ");
+				for (int i = 0; i < autor.getValue().size(); i++)
+				{
+					texto.append(i == 0 ? "" : ", ").append(autor.getValue().get(i).darNombre());
+				}
+				mostrados++;
+			}
+			mensaje = texto.toString();
 		}
 		JOptionPane.showMessageDialog(this, mensaje, "Consulta", JOptionPane.INFORMATION_MESSAGE);
 	}
 	
 	public void cambiarNombreCategoria()
 	{
-		String nombreActual = JOptionPane.showInputDialog(this,"Ingrese el nombre de la categoría que desea cambiar: ");
+		String nombreActual = DialogoBusqueda.pedirTexto(this, "Cambiar nombre de categoría", "Ingrese el nombre de la categoría que desea cambiar: ", "",
+				prefijo -> libreria.completarCategoria(prefijo, DialogoBusqueda.MAXIMO_SUGERENCIAS));
+		if (nombreActual == null)
+			return;
 		String nuevoNombre = JOptionPane.showInputDialog(this,"Ingrese el nuevo nombre de la categoría: ");
 		
 		try {
@@ -370,6 +668,318 @@ public class InterfazLibreria extends JFrame
 		}
 	}
 
+	// ************************************************************************
+	// Clases anidadas
+	// ************************************************************************
+
+	/**
+	 * Avance de la carga que se le entrega al hilo de la interfaz: o bien las
+	 * categorías iniciales o bien un lote de libros
+	 */
+	private static class AvanceCarga
+	{
+		private Categoria[] categorias;
+
+		private List<Libro> lote;
+
+		private double progreso;
+	}
+
+	/**
+	 * Carga una librería en un hilo aparte y va mostrando en la ventana las
+	 * categorías y los libros a medida que se leen. El archivo de libros se lee
+	 * con un hilo por procesador, y los libros llegan en el orden del archivo.
+	 */
+	private class CargaLibreria extends SwingWorker<Libreria, AvanceCarga> implements ObservadorCarga
+	{
+		private File archivoCategorias;
+
+		private File archivoLibros;
+
+		/**
+		 * Las categorías que ya se agregaron al panel de categorías
+		 */
+		private HashSet<Categoria> categoriasMostradas;
+
+		/**
+		 * Cantidad de libros que ya se mostraron
+		 */
+		private int librosLeidos;
+
+		/**
+		 * La carga a la que reemplaza esta, o null si no reemplaza ninguna. Antes de abrir la bitácora hay que esperar a que esa carga cierre la suya.
+		 */
+		private CargaLibreria anterior;
+
+		/**
+		 * Se abre cuando la librería de esta carga ya se cerró o ya quedó en la ventana, o cuando la carga terminó sin producir una
+		 */
+		private CountDownLatch liberada;
+
+		/**
+		 * La librería que se cargó, mientras no se haya entregado a la ventana ni cerrado
+		 */
+		private Libreria resultado;
+
+		/**
+		 * Indica si la ventana ya descartó esta carga, en cuyo caso la librería que se produzca se debe cerrar
+		 */
+		private boolean descartada;
+
+		CargaLibreria(File archivoCategorias, File archivoLibros, CargaLibreria anterior)
+		{
+			this.archivoCategorias = archivoCategorias;
+			this.archivoLibros = archivoLibros;
+			this.anterior = anterior;
+			this.categoriasMostradas = new HashSet<Categoria>();
+			this.liberada = new CountDownLatch(1);
+		}
+
+		@Override
+		protected Libreria doInBackground() throws Exception
+		{
+			Libreria cargada;
+			try
+			{
+				if (anterior != null)
+				{
+					anterior.liberada.await();
+					anterior = null;
+				}
+				cargada = Libreria.cargar(archivoCategorias.getPath(), archivoLibros.getPath(), Runtime.getRuntime().availableProcessors(), this);
+			}
+			catch (Exception e)
+			{
+				liberada.countDown();
+				throw e;
+			}
+
+			// Si la ventana descartó la carga antes de que terminara, nadie más va a cerrar la librería
+			synchronized (this)
+			{
+				if (!descartada)
+				{
+					resultado = cargada;
+					return cargada;
+				}
+			}
+			cerrarDescartada(cargada);
+			return null;
+		}
+
+		/**
+		 * Cierra una librería que la ventana ya no va a mostrar y deja seguir a la carga siguiente
+		 */
+		private void cerrarDescartada(Libreria descartada)
+		{
+			try
+			{
+				descartada.cerrar();
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+			liberada.countDown();
+		}
+
+		@Override
+		public void categoriasCargadas(Categoria[] categorias)
+		{
+			AvanceCarga avance = new AvanceCarga();
+			avance.categorias = categorias;
+			publish(avance);
+		}
+
+		@Override
+		public void librosCargados(List<Libro> lote, double progreso)
+		{
+			AvanceCarga avance = new AvanceCarga();
+			avance.lote = lote;
+			avance.progreso = progreso;
+			publish(avance);
+		}
+
+		@Override
+		public boolean cancelado()
+		{
+			return isCancelled();
+		}
+
+		@Override
+		protected void process(List<AvanceCarga> avances)
+		{
+			if (isCancelled() || carga != this)
+				return;
+
+			for (AvanceCarga avance : avances)
+			{
+				if (avance.categorias != null)
+				{
+					categoriasMostradas.addAll(Arrays.asList(avance.categorias));
+					panelCategorias.actualizarCategorias(avance.categorias);
+				}
+				else
+				{
+					mostrarLote(avance.lote);
+					panelCarga.actualizar(avance.progreso, librosLeidos);
+				}
+			}
+		}
+
+		/**
+		 * Agrega los libros de un lote a las listas de sus categorías, y al panel
+		 * de libros si son de la categoría que se está mostrando
+		 */
+		private void mostrarLote(List<Libro> lote)
+		{
+			ArrayList<Libro> visibles = new ArrayList<Libro>();
+			for (Libro libro : lote)
+			{
+				Categoria categoria = libro.darCategoria();
+				ArrayList<Libro> libros = librosEnCarga.get(categoria);
+				if (libros == null)
+				{
+					libros = new ArrayList<Libro>();
+					librosEnCarga.put(categoria, libros);
+				}
+				libros.add(libro);
+
+				if (categoria == categoriaActual)
+				{
+					visibles.add(libro);
+				}
+			}
+			librosLeidos += lote.size();
+
+			boolean panelVacio = panelLibros.estaVacio();
+			panelLibros.agregarLibros(visibles);
+			if (panelVacio && !visibles.isEmpty())
+			{
+				mostrarLibro(visibles.get(0));
+			}
+
+			// Las categorías que no estaban en el archivo de categorías se agregan al final
+			for (Libro libro : lote)
+			{
+				if (categoriasMostradas.add(libro.darCategoria()))
+				{
+					panelCategorias.agregarCategoria(libro.darCategoria());
+				}
+			}
+		}
+
+		@Override
+		protected void done()
+		{
+			if (carga != this || isCancelled())
+			{
+				Libreria cargada;
+				synchronized (this)
+				{
+					descartada = true;
+					cargada = resultado;
+					resultado = null;
+				}
+				if (cargada != null)
+					cerrarDescartada(cargada);
+				if (carga != this)
+					return;
+			}
+
+			carga = null;
+			panelCarga.terminar();
+			if (isCancelled())
+			{
+				librosEnCarga = null;
+				JOptionPane.showMessageDialog(InterfazLibreria.this, "Se canceló la carga de la librería", "Carga cancelada", JOptionPane.INFORMATION_MESSAGE);
+				return;
+			}
+
+			try
+			{
+				libreria = get();
+				resultado = null;
+				liberada.countDown();
+				librosEnCarga = null;
+				panelBotones.habilitarBotones(true);
+				informarCategoriasNuevas();
+				iniciarVigilancia();
+			}
+			catch (Exception e)
+			{
+				librosEnCarga = null;
+				JOptionPane.showMessageDialog(InterfazLibreria.this, "Hubo un error leyendo los archivos", "Error de lectura",
+						JOptionPane.ERROR_MESSAGE);
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Calcula en un hilo aparte las diferencias entre los archivos y la librería, y
+	 * las aplica en el hilo de la interfaz
+	 */
+	private class RecargaCambios extends SwingWorker<CambiosCatalogo, Void>
+	{
+		/**
+		 * La librería para la que se calculan los cambios
+		 */
+		private Libreria destino;
+
+		/**
+		 * La copia del catálogo que se compara con los archivos
+		 */
+		private FotoCatalogo foto;
+
+		/**
+		 * Se construye en el hilo de la interfaz, para copiar el catálogo antes de
+		 * que otro hilo lo lea
+		 */
+		RecargaCambios()
+		{
+			this.destino = libreria;
+			this.foto = libreria.tomarFoto();
+		}
+
+		/**
+		 * Retorna null si los archivos no cambiaron, o si los cambió la
+		 * compactación de la bitácora de la librería
+		 */
+		@Override
+		protected CambiosCatalogo doInBackground() throws Exception
+		{
+			if (destino.darBitacora() != null && !destino.darBitacora().cambiaronArchivos())
+				return null;
+			return CambiosCatalogo.calcular(foto, archivoCategorias.getPath(), archivoLibros.getPath(), destino.darIndicePortadas());
+		}
+
+		@Override
+		protected void done()
+		{
+			recarga = null;
+			try
+			{
+				CambiosCatalogo cambios = get();
+				if (destino == libreria && cambios != null && !cambios.estaVacio())
+				{
+					libreria.aplicarCambios(cambios);
+					mostrarCambios(cambios);
+				}
+			}
+			catch (Exception e)
+			{
+				// Lo más probable es que el archivo se estuviera escribiendo: el siguiente evento lo vuelve a intentar
+			}
+
+			if (recargaPendiente)
+			{
+				recargaPendiente = false;
+				recargarCambios();
+			}
+		}
+	}
+
 	// ************************************************************************
 	// Main
 	// ************************************************************************
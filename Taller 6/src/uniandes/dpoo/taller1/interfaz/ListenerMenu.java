@@ -3,10 +3,8 @@ package uniandes.dpoo.taller1.interfaz;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
-import java.io.IOException;
 
 import javax.swing.JFileChooser;
-import javax.swing.JOptionPane;
 import javax.swing.filechooser.FileFilter;
 
 /**
@@ -72,16 +70,6 @@ public class ListenerMenu implements ActionListener
 					archivo_libros = fc.getSelectedFile();
 
 					ventana.cargarArchivos(archivo_categorias, archivo_libros);
-					
-					String mensaje;
-					try {
-						mensaje = ventana.libreria.nuevasCategorias();
-						JOptionPane.showMessageDialog(ventana, mensaje);
-					} catch (IOException e1) {
-						JOptionPane.showMessageDialog(ventana, "No se pudieron agregar las categorías nuevas.");
-					}
-					
-					
 				}
 			}
 		}
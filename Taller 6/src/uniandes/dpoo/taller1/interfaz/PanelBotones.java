@@ -1,5 +1,6 @@
 package uniandes.dpoo.taller1.interfaz;
 
+import java.awt.Component;
 import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -103,6 +104,19 @@ public class PanelBotones extends JPanel implements ActionListener
 		this.add(boton);
 	}
 
+	/**
+	 * Habilita o deshabilita todos los botones del panel
+	 * 
+	 * @param habilitados Indica si los botones deben quedar habilitados
+	 */
+	public void habilitarBotones(boolean habilitados)
+	{
+		for (Component componente : getComponents())
+		{
+			componente.setEnabled(habilitados);
+		}
+	}
+
 	// ************************************************************************
 	// Métodos implementados de la interfaz ActionListener
 	// ************************************************************************
@@ -0,0 +1,115 @@
+package uniandes.dpoo.taller1.interfaz;
+
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.JButton;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.border.TitledBorder;
+
+/**
+ * Panel donde se muestra el avance de la carga de una librería, con un botón para cancelarla. Sólo es visible mientras se está cargando una librería.
+ */
+@SuppressWarnings("serial")
+public class PanelCarga extends JPanel implements ActionListener
+{
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * Ventana que contiene al panel
+	 */
+	private InterfazLibreria ventana;
+
+	// ************************************************************************
+	// Componentes gráficos
+	// ************************************************************************
+
+	/**
+	 * Barra con el avance de la carga
+	 */
+	private JProgressBar barraProgreso;
+
+	/**
+	 * Botón para cancelar la carga
+	 */
+	private JButton btnCancelar;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye el panel, inicialmente oculto
+	 *
+	 * @param interfazLibreria La ventana dentro de la que se encuentra el panel
+	 */
+	public PanelCarga(InterfazLibreria interfazLibreria)
+	{
+		ventana = interfazLibreria;
+		setBorder(new TitledBorder("Cargando librería"));
+		setLayout(new BorderLayout());
+
+		barraProgreso = new JProgressBar(0, 100);
+		barraProgreso.setStringPainted(true);
+		add(barraProgreso, BorderLayout.CENTER);
+
+		btnCancelar = new JButton("Cancelar");
+		btnCancelar.addActionListener(this);
+		add(btnCancelar, BorderLayout.EAST);
+
+		setVisible(false);
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Muestra el panel con el avance en cero
+	 */
+	public void iniciar()
+	{
+		barraProgreso.setValue(0);
+		barraProgreso.setString(null);
+		btnCancelar.setEnabled(true);
+		setVisible(true);
+	}
+
+	/**
+	 * Actualiza el avance que se muestra en la barra
+	 *
+	 * @param progreso     Fracción del archivo que ya se leyó, entre 0 y 1
+	 * @param librosLeidos Cantidad de libros leídos hasta el momento
+	 */
+	public void actualizar(double progreso, int librosLeidos)
+	{
+		barraProgreso.setValue((int) Math.round(progreso * 100));
+		barraProgreso.setString(librosLeidos + " libros");
+	}
+
+	/**
+	 * Oculta el panel
+	 */
+	public void terminar()
+	{
+		setVisible(false);
+	}
+
+	// ************************************************************************
+	// Métodos implementados de la interfaz ActionListener
+	// ************************************************************************
+
+	/**
+	 * Se invoca cuando se hace click sobre el botón de cancelar
+	 */
+	@Override
+	public void actionPerformed(ActionEvent e)
+	{
+		btnCancelar.setEnabled(false);
+		ventana.cancelarCarga();
+	}
+}
@@ -72,6 +72,16 @@ public class PanelCategorias extends JPanel implements ItemListener
 		}
 	}
 
+	/**
+	 * Agrega una categoría al final del combo box
+	 * 
+	 * @param categoria La categoría que se debe agregar
+	 */
+	public void agregarCategoria(Categoria categoria)
+	{
+		cbbCategorias.addItem(categoria);
+	}
+
 	// ************************************************************************
 	// Métodos implementados de la interfaz ItemListener
 	// ************************************************************************
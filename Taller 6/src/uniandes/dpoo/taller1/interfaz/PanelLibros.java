@@ -2,6 +2,7 @@ package uniandes.dpoo.taller1.interfaz;
 
 import java.awt.BorderLayout;
 import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.DefaultListModel;
 import javax.swing.JList;
@@ -86,6 +87,29 @@ public class PanelLibros extends JPanel implements ListSelectionListener
 		}
 	}
 
+	/**
+	 * Consulta si la lista de libros está vacía
+	 * 
+	 * @return Retorna true si no se está mostrando ningún libro
+	 */
+	public boolean estaVacio()
+	{
+		return modeloLibros.isEmpty();
+	}
+
+	/**
+	 * Agrega libros al final de la lista que se muestra al usuario, sin quitar los que ya estaban
+	 * 
+	 * @param libros Los libros que se deben agregar
+	 */
+	public void agregarLibros(List<Libro> libros)
+	{
+		for (Libro libro : libros)
+		{
+			modeloLibros.addElement(libro);
+		}
+	}
+
 	// ************************************************************************
 	// Métodos implementados de la interfaz ListSelectionListener
 	// ************************************************************************
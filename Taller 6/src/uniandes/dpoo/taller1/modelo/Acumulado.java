@@ -0,0 +1,163 @@
+package uniandes.dpoo.taller1.modelo;
+
+/**
+ * Esta clase lleva los totales de un grupo de libros a medida que se agregan, se retiran o cambian: la suma de las calificaciones, la cantidad de libros y la cantidad de libros sin portada.
+ *
+ * La suma de calificaciones es compensada (algoritmo de Neumaier): además de la suma se guarda el error de redondeo acumulado, para que después de millones de sumas y restas el promedio siga siendo
+ * prácticamente el mismo que si se calculara desde cero.
+ */
+final class Acumulado
+{
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * Suma de las calificaciones, sin la compensación
+	 */
+	private double suma;
+
+	/**
+	 * Error de redondeo acumulado en la suma
+	 */
+	private double compensacion;
+
+	/**
+	 * Cantidad de libros
+	 */
+	private int cantidad;
+
+	/**
+	 * Cantidad de libros sin portada
+	 */
+	private int sinPortada;
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Consulta la cantidad de libros
+	 *
+	 * @return cantidad
+	 */
+	int darCantidad()
+	{
+		return cantidad;
+	}
+
+	/**
+	 * Consulta la cantidad de libros sin portada
+	 *
+	 * @return sinPortada
+	 */
+	int darSinPortada()
+	{
+		return sinPortada;
+	}
+
+	/**
+	 * Calcula el promedio de las calificaciones
+	 *
+	 * @return El promedio, o 0 si no hay libros
+	 */
+	double darPromedio()
+	{
+		return cantidad == 0 ? 0 : (suma + compensacion) / cantidad;
+	}
+
+	/**
+	 * Retorna una copia de estos totales, que no cambia cuando cambian ellos
+	 *
+	 * @return La copia
+	 */
+	Acumulado copiar()
+	{
+		Acumulado copia = new Acumulado();
+		copia.suma = suma;
+		copia.compensacion = compensacion;
+		copia.cantidad = cantidad;
+		copia.sinPortada = sinPortada;
+		return copia;
+	}
+
+	/**
+	 * Cuenta un libro más
+	 *
+	 * @param calificacion La calificación del libro
+	 * @param tienePortada Indica si el libro tiene portada
+	 */
+	void agregar(double calificacion, boolean tienePortada)
+	{
+		sumar(calificacion);
+		cantidad++;
+		if (!tienePortada)
+			sinPortada++;
+	}
+
+	/**
+	 * Descuenta un libro que se había contado con los mismos valores
+	 *
+	 * @param calificacion La calificación con la que se contó el libro
+	 * @param tienePortada Indica si el libro tenía portada cuando se contó
+	 */
+	void retirar(double calificacion, boolean tienePortada)
+	{
+		cantidad--;
+		if (!tienePortada)
+			sinPortada--;
+
+		if (cantidad == 0)
+		{
+			// Sin libros no debe quedar ningún residuo de redondeo
+			suma = 0;
+			compensacion = 0;
+		}
+		else
+		{
+			sumar(-calificacion);
+		}
+	}
+
+	/**
+	 * Actualiza los totales cuando cambia la calificación o la portada de un libro que ya estaba contado
+	 *
+	 * @param calificacionAnterior La calificación con la que se contó el libro
+	 * @param teniaPortada         Indica si el libro tenía portada cuando se contó
+	 * @param calificacionNueva    La calificación que tiene ahora el libro
+	 * @param tienePortada         Indica si el libro tiene portada ahora
+	 */
+	void cambiar(double calificacionAnterior, boolean teniaPortada, double calificacionNueva, boolean tienePortada)
+	{
+		if (Double.compare(calificacionAnterior, calificacionNueva) != 0)
+		{
+			sumar(-calificacionAnterior);
+			sumar(calificacionNueva);
+		}
+		if (teniaPortada != tienePortada)
+			sinPortada += tienePortada ? -1 : 1;
+	}
+
+	/**
+	 * Suma a estos totales los de otro grupo de libros
+	 *
+	 * @param otro Los totales del otro grupo
+	 */
+	void agregarTodo(Acumulado otro)
+	{
+		sumar(otro.suma);
+		sumar(otro.compensacion);
+		cantidad += otro.cantidad;
+		sinPortada += otro.sinPortada;
+	}
+
+	private void sumar(double valor)
+	{
+		double total = suma + valor;
+		if (Math.abs(suma) >= Math.abs(valor))
+			compensacion += (suma - total) + valor;
+		else
+			compensacion += (valor - total) + suma;
+		suma = total;
+	}
+}
@@ -0,0 +1,77 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class AcumuladoTest
+{
+
+	@Test
+	void testSumaCompensada()
+	{
+		// Con una suma sin compensar, el 1.0 se pierde al sumarle 1e100 y el resultado sería 1.0 / 2
+		Acumulado acumulado = new Acumulado();
+		acumulado.agregar(1.0, true);
+		acumulado.agregar(1e100, true);
+		acumulado.agregar(1.0, false);
+		acumulado.retirar(1e100, true);
+		assertEquals(2, acumulado.darCantidad());
+		assertEquals(1.0, acumulado.darPromedio());
+
+		// Muchas sumas y restas de valores que no se pueden representar exactamente
+		acumulado = new Acumulado();
+		acumulado.agregar(1.0, true);
+		acumulado.agregar(1.0, false);
+		for (int i = 0; i < 1_000_000; i++)
+		{
+			acumulado.agregar(0.1, true);
+			acumulado.cambiar(0.1, true, 0.7, true);
+		}
+		for (int i = 0; i < 1_000_000; i++)
+		{
+			acumulado.retirar(0.7, true);
+		}
+		assertEquals(1.0, acumulado.darPromedio());
+		assertEquals(1, acumulado.darSinPortada());
+	}
+
+	@Test
+	void testSinLibros()
+	{
+		Acumulado acumulado = new Acumulado();
+		assertEquals(0, acumulado.darPromedio());
+
+		acumulado.agregar(0.1, false);
+		acumulado.agregar(0.2, true);
+		acumulado.retirar(0.1, false);
+		acumulado.retirar(0.2, true);
+		assertEquals(0, acumulado.darCantidad());
+		assertEquals(0, acumulado.darSinPortada());
+		assertEquals(0, acumulado.darPromedio());
+		assertFalse(Double.isNaN(acumulado.darPromedio()));
+	}
+
+	@Test
+	void testAgregarTodoYCopiar()
+	{
+		Acumulado categoria = new Acumulado();
+		categoria.agregar(4.5, false);
+		categoria.agregar(3.0, true);
+		categoria.cambiar(3.0, true, 3.5, false);
+
+		Acumulado total = new Acumulado();
+		total.agregar(5.0, true);
+		total.agregarTodo(categoria);
+		assertEquals(3, total.darCantidad());
+		assertEquals(2, total.darSinPortada());
+		assertEquals(13.0 / 3, total.darPromedio(), 1e-12);
+
+		// La copia no cambia cuando cambian los totales originales
+		Acumulado copia = categoria.copiar();
+		categoria.retirar(4.5, false);
+		assertEquals(2, copia.darCantidad());
+		assertEquals(4.0, copia.darPromedio());
+		assertEquals(3.5, categoria.darPromedio());
+	}
+}
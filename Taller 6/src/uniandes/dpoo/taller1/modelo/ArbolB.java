@@ -0,0 +1,328 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Esta clase es un árbol B+ guardado en las páginas de un ArchivoPaginado, que asocia llaves de texto con valores de tipo long. Una llave puede aparecer varias veces; las parejas se ordenan por
+ * llave y luego por valor.
+ *
+ * Cada página es un nodo. Una hoja tiene el tipo HOJA, la cantidad de parejas, el número de la hoja siguiente (o -1) y las parejas. Un nodo interno tiene el tipo INTERNO, la cantidad de
+ * separadores, el número de su primer hijo y, por cada separador, la primera pareja de un hijo y el número de ese hijo. Cada llave se guarda como su largo en bytes seguido de sus bytes en UTF-8.
+ *
+ * Las llaves de más de LARGO_MAXIMO_LLAVE bytes se recortan, así que varias llaves largas pueden quedar iguales en el árbol: quien busca debe revisar los valores que encuentra.
+ *
+ * El árbol no se modifica después de construirlo. Se construye de abajo hacia arriba con la clase Constructor, a partir de las parejas ya ordenadas.
+ */
+class ArbolB
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	static final byte HOJA = 1;
+
+	static final byte INTERNO = 2;
+
+	/**
+	 * La mayor cantidad de bytes de una llave dentro del árbol
+	 */
+	static final int LARGO_MAXIMO_LLAVE = 256;
+
+	/**
+	 * La cantidad de bytes del encabezado de cada nodo: tipo, cantidad y número de página
+	 */
+	private static final int ENCABEZADO = 7;
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	private ArchivoPaginado archivo;
+
+	/**
+	 * El número de la página de la raíz
+	 */
+	private int raiz;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Abre un árbol que ya está en el archivo
+	 *
+	 * @param archivo El archivo
+	 * @param raiz    El número de la página de la raíz
+	 */
+	ArbolB(ArchivoPaginado archivo, int raiz)
+	{
+		this.archivo = archivo;
+		this.raiz = raiz;
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Busca los valores asociados a una llave
+	 *
+	 * @param llave La llave. Si es muy larga se recorta igual que al construir el árbol.
+	 * @param maximo La mayor cantidad de valores que se quieren
+	 * @return Los valores asociados a la llave, de menor a mayor. Si la llave no está, la lista es vacía.
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo
+	 */
+	ArrayList<Long> buscar(String llave, int maximo) throws IOException
+	{
+		String buscada = recortar(llave);
+		ArrayList<Long> valores = new ArrayList<Long>();
+
+		// Bajar hasta la hoja más a la izquierda donde puede estar la llave
+		ByteBuffer pagina = archivo.leerPagina(raiz);
+		while (pagina.get(0) == INTERNO)
+		{
+			int cantidad = Short.toUnsignedInt(pagina.getShort(1));
+			int hijo = pagina.getInt(3);
+			pagina.position(ENCABEZADO);
+			for (int i = 0; i < cantidad; i++)
+			{
+				String separador = leerLlave(pagina);
+				pagina.getLong();
+				int siguienteHijo = pagina.getInt();
+				if (separador.compareTo(buscada) >= 0)
+					break;
+				hijo = siguienteHijo;
+			}
+			pagina = archivo.leerPagina(hijo);
+		}
+
+		// Recorrer las hojas mientras la llave sea la buscada
+		while (pagina != null && valores.size() < maximo)
+		{
+			int cantidad = Short.toUnsignedInt(pagina.getShort(1));
+			int siguiente = pagina.getInt(3);
+			pagina.position(ENCABEZADO);
+			for (int i = 0; i < cantidad && valores.size() < maximo; i++)
+			{
+				int comparacion = leerLlave(pagina).compareTo(buscada);
+				long valor = pagina.getLong();
+				if (comparacion > 0)
+					return valores;
+				if (comparacion == 0)
+					valores.add(valor);
+			}
+			pagina = siguiente < 0 ? null : archivo.leerPagina(siguiente);
+		}
+		return valores;
+	}
+
+	/**
+	 * Recorre todas las parejas del árbol en orden, leyendo sólo las hojas
+	 *
+	 * @param visitante El objeto al que se le entrega cada pareja
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo
+	 */
+	void recorrer(Visitante visitante) throws IOException
+	{
+		ByteBuffer pagina = archivo.leerPagina(raiz);
+		while (pagina.get(0) == INTERNO)
+		{
+			pagina = archivo.leerPagina(pagina.getInt(3));
+		}
+		while (pagina != null)
+		{
+			int cantidad = Short.toUnsignedInt(pagina.getShort(1));
+			int siguiente = pagina.getInt(3);
+			pagina.position(ENCABEZADO);
+			for (int i = 0; i < cantidad; i++)
+			{
+				String llave = leerLlave(pagina);
+				visitante.visitar(llave, pagina.getLong());
+			}
+			pagina = siguiente < 0 ? null : archivo.leerPagina(siguiente);
+		}
+	}
+
+	/**
+	 * Recorta una llave a LARGO_MAXIMO_LLAVE bytes en UTF-8, sin partir ningún carácter
+	 *
+	 * @param llave La llave
+	 * @return La llave recortada, o la misma llave si no era muy larga
+	 */
+	static String recortar(String llave)
+	{
+		if (llave.length() * 3 <= LARGO_MAXIMO_LLAVE)
+			return llave;
+		byte[] bytes = llave.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length <= LARGO_MAXIMO_LLAVE)
+			return llave;
+		int largo = LARGO_MAXIMO_LLAVE;
+		while ((bytes[largo] & 0xC0) == 0x80)
+		{
+			largo--;
+		}
+		return new String(bytes, 0, largo, StandardCharsets.UTF_8);
+	}
+
+	private static String leerLlave(ByteBuffer pagina)
+	{
+		byte[] bytes = new byte[Short.toUnsignedInt(pagina.getShort())];
+		pagina.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// ************************************************************************
+	// Clases internas
+	// ************************************************************************
+
+	/**
+	 * Recibe las parejas de un árbol durante un recorrido
+	 */
+	interface Visitante
+	{
+		void visitar(String llave, long valor) throws IOException;
+	}
+
+	/**
+	 * Construye un árbol a partir de parejas que llegan ordenadas. Se llena una página por nivel a la vez: cuando se llena una página de un nivel, se escribe y su primera pareja se agrega al nivel
+	 * de arriba como separador.
+	 */
+	static class Constructor
+	{
+		private EscritorPaginas escritor;
+
+		/**
+		 * La página que se está llenando en cada nivel, empezando por las hojas
+		 */
+		private ArrayList<Nivel> niveles;
+
+		/**
+		 * Prepara la construcción de un árbol
+		 *
+		 * @param escritor El escritor del archivo donde quedará el árbol
+		 */
+		Constructor(EscritorPaginas escritor)
+		{
+			this.escritor = escritor;
+			this.niveles = new ArrayList<Nivel>();
+		}
+
+		/**
+		 * Agrega una pareja al árbol. Las parejas deben llegar en orden.
+		 *
+		 * @param llave La llave. Si es muy larga se recorta.
+		 * @param valor El valor
+		 * @throws IOException Se lanza esta excepción si hay algún problema escribiendo el archivo
+		 */
+		void agregar(String llave, long valor) throws IOException
+		{
+			agregar(0, recortar(llave).getBytes(StandardCharsets.UTF_8), valor, -1);
+		}
+
+		/**
+		 * Termina de escribir el árbol
+		 *
+		 * @return El número de la página de la raíz
+		 * @throws IOException Se lanza esta excepción si hay algún problema escribiendo el archivo
+		 */
+		int terminar() throws IOException
+		{
+			if (niveles.isEmpty())
+				niveles.add(new Nivel(escritor.reservar(1)));
+
+			for (int i = 0;; i++)
+			{
+				Nivel nivel = niveles.get(i);
+				if (i == niveles.size() - 1)
+				{
+					escribir(nivel, i, -1);
+					return nivel.numero;
+				}
+				cerrar(nivel, i, -1);
+			}
+		}
+
+		private void agregar(int altura, byte[] llave, long valor, int hijo) throws IOException
+		{
+			if (altura == niveles.size())
+				niveles.add(new Nivel(escritor.reservar(1)));
+			Nivel nivel = niveles.get(altura);
+			int largo = 2 + llave.length + 8 + (altura > 0 ? 4 : 0);
+
+			if (!nivel.vacio && nivel.pagina.remaining() < largo)
+			{
+				int nueva = escritor.reservar(1);
+				cerrar(nivel, altura, nueva);
+				nivel = new Nivel(nueva);
+				niveles.set(altura, nivel);
+			}
+
+			if (nivel.vacio)
+			{
+				nivel.vacio = false;
+				nivel.primeraLlave = llave;
+				nivel.primerValor = valor;
+				if (altura > 0)
+				{
+					// El primer hijo de un nodo interno no lleva separador
+					nivel.referencia = hijo;
+					return;
+				}
+			}
+			nivel.pagina.putShort((short) llave.length);
+			nivel.pagina.put(llave);
+			nivel.pagina.putLong(valor);
+			if (altura > 0)
+				nivel.pagina.putInt(hijo);
+			nivel.cantidad++;
+		}
+
+		/**
+		 * Escribe la página de un nivel y agrega su primera pareja al nivel de arriba
+		 */
+		private void cerrar(Nivel nivel, int altura, int siguiente) throws IOException
+		{
+			escribir(nivel, altura, siguiente);
+			agregar(altura + 1, nivel.primeraLlave, nivel.primerValor, nivel.numero);
+		}
+
+		private void escribir(Nivel nivel, int altura, int siguiente) throws IOException
+		{
+			nivel.pagina.put(0, altura == 0 ? HOJA : INTERNO);
+			nivel.pagina.putShort(1, (short) nivel.cantidad);
+			nivel.pagina.putInt(3, altura == 0 ? siguiente : nivel.referencia);
+			escritor.escribirPagina(nivel.numero, nivel.pagina);
+		}
+	}
+
+	private static final class Nivel
+	{
+		private final int numero;
+
+		private final ByteBuffer pagina;
+
+		private int cantidad;
+
+		private boolean vacio;
+
+		/**
+		 * El primer hijo, si el nivel es de nodos internos
+		 */
+		private int referencia;
+
+		private byte[] primeraLlave;
+
+		private long primerValor;
+
+		private Nivel(int numero)
+		{
+			this.numero = numero;
+			this.pagina = ByteBuffer.allocate(ArchivoPaginado.TAMANO_PAGINA);
+			this.pagina.position(ENCABEZADO);
+			this.vacio = true;
+		}
+	}
+}
@@ -0,0 +1,444 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+/**
+ * Esta clase guarda un conjunto de textos con un peso cada uno, para completar lo que el usuario está escribiendo: dado un prefijo, retorna los textos de mayor peso que empiezan por él.
+ *
+ * Los textos se comparan normalizados (ver IndiceTitulos.normalizarTitulo) y se guardan en un árbol de prefijos compacto (radix): cada arco lleva una cadena en lugar de un solo caracter, y los
+ * nodos que no terminan ningún texto y tienen un solo hijo se fusionan con él. Cada nodo sabe cuál es el mayor peso de los textos que hay debajo de él, así que para completar un prefijo no hace
+ * falta recorrer todos los textos que empiezan por él: se visitan los nodos en orden de ese peso y se termina cuando se tienen los textos pedidos.
+ *
+ * Un mismo texto se puede agregar varias veces (por ejemplo, un autor con varios libros). El árbol lleva la cuenta de las veces y suma los pesos, y el texto sólo desaparece cuando se retira tantas
+ * veces como se agregó.
+ */
+public class ArbolPrefijos
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	private static final Nodo[] SIN_HIJOS = new Nodo[0];
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * La raíz del árbol. Su etiqueta es vacía.
+	 */
+	private Nodo raiz;
+
+	/**
+	 * Cantidad de textos distintos en el árbol
+	 */
+	private int cantidad;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye un árbol vacío
+	 */
+	public ArbolPrefijos()
+	{
+		raiz = new Nodo("");
+	}
+
+	// ************************************************************************
+	// Métodos para modificar el árbol
+	// ************************************************************************
+
+	/**
+	 * Agrega una vez un texto al árbol. Si el texto ya estaba, se suma el peso al que tenía.
+	 *
+	 * @param texto El texto. Si el texto ya estaba escrito de otra forma (por ejemplo, con otras mayúsculas), se sigue mostrando como estaba.
+	 * @param peso  El peso que se suma al texto
+	 */
+	public void agregar(String texto, double peso)
+	{
+		String llave = IndiceTitulos.normalizarTitulo(texto);
+		ArrayList<Nodo> camino = new ArrayList<Nodo>();
+		Nodo nodo = raiz;
+		camino.add(nodo);
+		int i = 0;
+		while (i < llave.length())
+		{
+			int posicion = buscarHijo(nodo, llave.charAt(i));
+			if (posicion < 0)
+			{
+				Nodo hoja = new Nodo(llave.substring(i));
+				insertarHijo(nodo, -posicion - 1, hoja);
+				nodo = hoja;
+				camino.add(nodo);
+				break;
+			}
+
+			Nodo hijo = nodo.hijos[posicion];
+			int comun = contarComunes(hijo.etiqueta, llave, i);
+			if (comun < hijo.etiqueta.length())
+				partir(hijo, comun);
+			nodo = hijo;
+			camino.add(nodo);
+			i += comun;
+		}
+
+		if (nodo.veces == 0)
+		{
+			nodo.texto = texto;
+			cantidad++;
+		}
+		nodo.veces++;
+		nodo.peso += peso;
+		recalcular(camino, camino.size() - 1);
+	}
+
+	/**
+	 * Retira una vez un texto del árbol, restando el peso al que tenía. El texto desaparece cuando se retira tantas veces como se agregó.
+	 *
+	 * @param texto El texto
+	 * @param peso  El peso que se resta al texto
+	 * @return true si el texto estaba en el árbol
+	 */
+	public boolean retirar(String texto, double peso)
+	{
+		ArrayList<Nodo> camino = buscarCamino(IndiceTitulos.normalizarTitulo(texto));
+		if (camino == null)
+			return false;
+
+		int ultimo = camino.size() - 1;
+		Nodo nodo = camino.get(ultimo);
+		nodo.veces--;
+		nodo.peso -= peso;
+		if (nodo.veces == 0)
+		{
+			nodo.texto = null;
+			nodo.peso = 0;
+			cantidad--;
+
+			// Se deja el árbol compacto: sin hojas vacías y sin nodos vacíos con un solo hijo
+			if (nodo.hijos.length == 0 && ultimo > 0)
+			{
+				quitarHijo(camino.get(ultimo - 1), nodo);
+				ultimo--;
+				nodo = camino.get(ultimo);
+			}
+			if (ultimo > 0 && nodo.veces == 0 && nodo.hijos.length == 1)
+				fusionar(nodo);
+		}
+		recalcular(camino, ultimo);
+		return true;
+	}
+
+	/**
+	 * Suma una cantidad al peso de un texto que ya está en el árbol
+	 *
+	 * @param texto  El texto
+	 * @param cambio La cantidad que se suma al peso. Puede ser negativa.
+	 * @return true si el texto estaba en el árbol
+	 */
+	public boolean cambiarPeso(String texto, double cambio)
+	{
+		ArrayList<Nodo> camino = buscarCamino(IndiceTitulos.normalizarTitulo(texto));
+		if (camino == null)
+			return false;
+
+		camino.get(camino.size() - 1).peso += cambio;
+		recalcular(camino, camino.size() - 1);
+		return true;
+	}
+
+	// ************************************************************************
+	// Consultas
+	// ************************************************************************
+
+	/**
+	 * Consulta la cantidad de textos distintos en el árbol
+	 *
+	 * @return cantidad
+	 */
+	public int darCantidad()
+	{
+		return cantidad;
+	}
+
+	/**
+	 * Consulta el peso de un texto
+	 *
+	 * @param texto El texto
+	 * @return El peso del texto, o Double.NaN si no está en el árbol
+	 */
+	public double darPeso(String texto)
+	{
+		ArrayList<Nodo> camino = buscarCamino(IndiceTitulos.normalizarTitulo(texto));
+		return camino == null ? Double.NaN : camino.get(camino.size() - 1).peso;
+	}
+
+	/**
+	 * Busca los textos de mayor peso que empiezan por un prefijo
+	 *
+	 * @param prefijo  El prefijo. Se normaliza igual que los textos, pero si termina en un espacio el espacio se conserva.
+	 * @param cantidad La mayor cantidad de textos que se retornan
+	 * @return Los textos, de mayor a menor peso
+	 */
+	public ArrayList<String> completar(String prefijo, int cantidad)
+	{
+		ArrayList<String> textos = new ArrayList<String>();
+		String llave = IndiceTitulos.normalizarTitulo(prefijo);
+		if (!llave.isEmpty() && Character.isWhitespace(prefijo.charAt(prefijo.length() - 1)))
+			llave += ' ';
+
+		// Se busca el nodo debajo del cual están todos los textos que empiezan por el prefijo
+		Nodo nodo = raiz;
+		int i = 0;
+		while (i < llave.length())
+		{
+			int posicion = buscarHijo(nodo, llave.charAt(i));
+			if (posicion < 0)
+				return textos;
+			nodo = nodo.hijos[posicion];
+			int comun = contarComunes(nodo.etiqueta, llave, i);
+			if (i + comun < llave.length() && comun < nodo.etiqueta.length())
+				return textos;
+			i += comun;
+		}
+		if (cantidad <= 0 || nodo.mejorPeso == Double.NEGATIVE_INFINITY)
+			return textos;
+
+		// En la cola hay nodos por visitar, con el mayor peso de su subárbol, y textos encontrados, con su peso. Un texto sale de la cola cuando ningún nodo pendiente puede tener uno más pesado.
+		PriorityQueue<Pendiente> cola = new PriorityQueue<Pendiente>();
+		cola.add(new Pendiente(nodo, false, nodo.mejorPeso));
+		while (!cola.isEmpty() && textos.size() < cantidad)
+		{
+			Pendiente pendiente = cola.poll();
+			if (pendiente.esTexto)
+			{
+				textos.add(pendiente.nodo.texto);
+				continue;
+			}
+			Nodo actual = pendiente.nodo;
+			if (actual.veces > 0)
+				cola.add(new Pendiente(actual, true, actual.peso));
+			for (Nodo hijo : actual.hijos)
+			{
+				if (hijo.mejorPeso != Double.NEGATIVE_INFINITY)
+					cola.add(new Pendiente(hijo, false, hijo.mejorPeso));
+			}
+		}
+		return textos;
+	}
+
+	// ************************************************************************
+	// Métodos auxiliares
+	// ************************************************************************
+
+	/**
+	 * Busca el camino desde la raíz hasta el nodo que termina el texto indicado
+	 *
+	 * @param llave El texto normalizado
+	 * @return Los nodos del camino, o null si el texto no está en el árbol
+	 */
+	private ArrayList<Nodo> buscarCamino(String llave)
+	{
+		ArrayList<Nodo> camino = new ArrayList<Nodo>();
+		Nodo nodo = raiz;
+		camino.add(nodo);
+		int i = 0;
+		while (i < llave.length())
+		{
+			int posicion = buscarHijo(nodo, llave.charAt(i));
+			if (posicion < 0)
+				return null;
+			nodo = nodo.hijos[posicion];
+			if (!llave.startsWith(nodo.etiqueta, i))
+				return null;
+			camino.add(nodo);
+			i += nodo.etiqueta.length();
+		}
+		return nodo.veces > 0 ? camino : null;
+	}
+
+	/**
+	 * Actualiza el mayor peso de los nodos del camino, desde el nodo en la posición indicada hasta la raíz
+	 */
+	private static void recalcular(ArrayList<Nodo> camino, int desde)
+	{
+		for (int i = desde; i >= 0; i--)
+		{
+			Nodo nodo = camino.get(i);
+			double mejor = nodo.veces > 0 ? nodo.peso : Double.NEGATIVE_INFINITY;
+			for (Nodo hijo : nodo.hijos)
+			{
+				mejor = Math.max(mejor, hijo.mejorPeso);
+			}
+			nodo.mejorPeso = mejor;
+		}
+	}
+
+	/**
+	 * Busca el hijo cuya etiqueta empieza por el caracter indicado. Los hijos están ordenados por el primer caracter de su etiqueta.
+	 *
+	 * @return La posición del hijo, o (-(posición donde debería estar) - 1) si no hay ninguno
+	 */
+	private static int buscarHijo(Nodo nodo, char c)
+	{
+		int inicio = 0;
+		int fin = nodo.hijos.length - 1;
+		while (inicio <= fin)
+		{
+			int medio = (inicio + fin) >>> 1;
+			char otro = nodo.hijos[medio].etiqueta.charAt(0);
+			if (otro < c)
+				inicio = medio + 1;
+			else if (otro > c)
+				fin = medio - 1;
+			else
+				return medio;
+		}
+		return -inicio - 1;
+	}
+
+	private static void insertarHijo(Nodo nodo, int posicion, Nodo hijo)
+	{
+		Nodo[] hijos = new Nodo[nodo.hijos.length + 1];
+		System.arraycopy(nodo.hijos, 0, hijos, 0, posicion);
+		hijos[posicion] = hijo;
+		System.arraycopy(nodo.hijos, posicion, hijos, posicion + 1, nodo.hijos.length - posicion);
+		nodo.hijos = hijos;
+	}
+
+	private static void quitarHijo(Nodo nodo, Nodo hijo)
+	{
+		int posicion = buscarHijo(nodo, hijo.etiqueta.charAt(0));
+		Nodo[] hijos = nodo.hijos.length == 1 ? SIN_HIJOS : new Nodo[nodo.hijos.length - 1];
+		System.arraycopy(nodo.hijos, 0, hijos, 0, posicion);
+		System.arraycopy(nodo.hijos, posicion + 1, hijos, posicion, hijos.length - posicion);
+		nodo.hijos = hijos;
+	}
+
+	/**
+	 * Cuenta cuántos caracteres de la etiqueta coinciden con la llave a partir de la posición indicada
+	 */
+	private static int contarComunes(String etiqueta, String llave, int desde)
+	{
+		int limite = Math.min(etiqueta.length(), llave.length() - desde);
+		int i = 0;
+		while (i < limite && etiqueta.charAt(i) == llave.charAt(desde + i))
+		{
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Parte la etiqueta de un nodo en la posición indicada: el nodo se queda con el principio de la etiqueta, y el resto (con el texto y los hijos del nodo) pasa a un hijo nuevo. El nodo conserva
+	 * su posición dentro de su padre.
+	 */
+	private static void partir(Nodo nodo, int posicion)
+	{
+		Nodo resto = new Nodo(nodo.etiqueta.substring(posicion));
+		resto.hijos = nodo.hijos;
+		resto.texto = nodo.texto;
+		resto.veces = nodo.veces;
+		resto.peso = nodo.peso;
+		resto.mejorPeso = nodo.mejorPeso;
+
+		nodo.etiqueta = nodo.etiqueta.substring(0, posicion);
+		nodo.hijos = new Nodo[] { resto };
+		nodo.texto = null;
+		nodo.veces = 0;
+		nodo.peso = 0;
+	}
+
+	/**
+	 * Fusiona un nodo que no termina ningún texto con su único hijo. El nodo conserva su posición dentro de su padre.
+	 */
+	private static void fusionar(Nodo nodo)
+	{
+		Nodo hijo = nodo.hijos[0];
+		nodo.etiqueta = nodo.etiqueta + hijo.etiqueta;
+		nodo.hijos = hijo.hijos;
+		nodo.texto = hijo.texto;
+		nodo.veces = hijo.veces;
+		nodo.peso = hijo.peso;
+		nodo.mejorPeso = hijo.mejorPeso;
+	}
+
+	// ************************************************************************
+	// Clases anidadas
+	// ************************************************************************
+
+	/**
+	 * Un nodo del árbol
+	 */
+	private static class Nodo
+	{
+		/**
+		 * La parte de la llave que corresponde al arco que llega al nodo
+		 */
+		private String etiqueta;
+
+		/**
+		 * Los hijos del nodo, ordenados por el primer caracter de su etiqueta
+		 */
+		private Nodo[] hijos = SIN_HIJOS;
+
+		/**
+		 * El texto que termina en el nodo, tal como se agregó la primera vez, o null si no termina ninguno
+		 */
+		private String texto;
+
+		/**
+		 * Cantidad de veces que se ha agregado el texto que termina en el nodo, sin contar las que se ha retirado
+		 */
+		private int veces;
+
+		/**
+		 * El peso del texto que termina en el nodo
+		 */
+		private double peso;
+
+		/**
+		 * El mayor peso de los textos que terminan en el nodo o debajo de él, o Double.NEGATIVE_INFINITY si no hay ninguno
+		 */
+		private double mejorPeso = Double.NEGATIVE_INFINITY;
+
+		private Nodo(String etiqueta)
+		{
+			this.etiqueta = etiqueta;
+		}
+	}
+
+	/**
+	 * Un nodo por visitar o un texto encontrado, en la cola de la búsqueda de los textos de mayor peso
+	 */
+	private static class Pendiente implements Comparable<Pendiente>
+	{
+		private Nodo nodo;
+
+		private boolean esTexto;
+
+		private double peso;
+
+		private Pendiente(Nodo nodo, boolean esTexto, double peso)
+		{
+			this.nodo = nodo;
+			this.esTexto = esTexto;
+			this.peso = peso;
+		}
+
+		@Override
+		public int compareTo(Pendiente otro)
+		{
+			int comparacion = Double.compare(otro.peso, peso);
+			if (comparacion != 0)
+				return comparacion;
+			// Con el mismo peso, los textos salen antes que los nodos para no visitar nodos de más
+			if (esTexto != otro.esTexto)
+				return esTexto ? -1 : 1;
+			return esTexto ? nodo.texto.compareTo(otro.nodo.texto) : 0;
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class ArbolPrefijosTest
+{
+
+	@Test
+	void testCompletarPorPeso()
+	{
+		ArbolPrefijos arbol = new ArbolPrefijos();
+		arbol.agregar("Dune", 4.5);
+		arbol.agregar("Dune Messiah", 3.9);
+		arbol.agregar("Dublineses", 4.1);
+		arbol.agregar("Drácula", 4);
+		arbol.agregar("El principito", 4.8);
+
+		assertEquals(Arrays.asList("Dune", "Dublineses", "Drácula", "Dune Messiah"), arbol.completar("d", 10));
+		assertEquals(Arrays.asList("Dune", "Dublineses"), arbol.completar("DU", 2));
+		assertEquals(Arrays.asList("Dune Messiah"), arbol.completar("dune ", 10));
+		assertEquals(Arrays.asList("El principito", "Dune"), arbol.completar("", 2));
+		assertTrue(arbol.completar("dx", 10).isEmpty());
+		assertTrue(arbol.completar("dune messiahs", 10).isEmpty());
+
+		arbol.cambiarPeso("Dune Messiah", 1);
+		assertEquals(Arrays.asList("Dune Messiah", "Dune"), arbol.completar("dun", 10));
+	}
+
+	@Test
+	void testAgregarYRetirarVariasVeces()
+	{
+		ArbolPrefijos arbol = new ArbolPrefijos();
+		arbol.agregar("Julio Verne", 1);
+		arbol.agregar("julio verne", 1);
+		arbol.agregar("Julio Cortázar", 1);
+		assertEquals(2, arbol.darCantidad());
+		assertEquals(2, arbol.darPeso("JULIO VERNE"));
+		assertEquals(Arrays.asList("Julio Verne", "Julio Cortázar"), arbol.completar("julio", 10));
+
+		assertTrue(arbol.retirar("Julio Verne", 1));
+		assertEquals(Arrays.asList("Julio Cortázar", "Julio Verne"), arbol.completar("julio", 10));
+		assertTrue(arbol.retirar("Julio Verne", 1));
+		assertFalse(arbol.retirar("Julio Verne", 1));
+		assertEquals(1, arbol.darCantidad());
+		assertEquals(Arrays.asList("Julio Cortázar"), arbol.completar("j", 10));
+		assertTrue(Double.isNaN(arbol.darPeso("Julio")));
+	}
+}
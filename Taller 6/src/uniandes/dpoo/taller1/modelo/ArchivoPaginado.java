@@ -0,0 +1,211 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Esta clase lee un archivo dividido en páginas de TAMANO_PAGINA bytes y guarda en memoria las últimas páginas que se usaron.
+ *
+ * El cache tiene una capacidad fija en páginas: cuando se llena, se descarta la página que lleva más tiempo sin usarse. Así, la memoria que ocupa el archivo no depende de su tamaño.
+ *
+ * Los métodos son sincronizados, así que varios hilos pueden leer del mismo archivo.
+ */
+class ArchivoPaginado implements Closeable
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * La cantidad de bytes de cada página
+	 */
+	static final int TAMANO_PAGINA = 4096;
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	private FileChannel canal;
+
+	/**
+	 * Las páginas que están en memoria, de la menos a la más recientemente usada
+	 */
+	private LinkedHashMap<Integer, ByteBuffer> paginas;
+
+	/**
+	 * La mayor cantidad de páginas que se guardan en memoria
+	 */
+	private int capacidad;
+
+	/**
+	 * La cantidad de páginas que se han tenido que leer del disco
+	 */
+	private long lecturas;
+
+	/**
+	 * La cantidad de veces que se pidió una página que ya estaba en memoria
+	 */
+	private long aciertos;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Abre un archivo paginado para leerlo
+	 *
+	 * @param archivo   El archivo
+	 * @param capacidad La mayor cantidad de páginas que se guardan en memoria. Debe ser al menos 1.
+	 * @throws IOException Se lanza esta excepción si no se puede abrir el archivo
+	 */
+	ArchivoPaginado(Path archivo, int capacidad) throws IOException
+	{
+		if (capacidad < 1)
+			throw new IllegalArgumentException("El cache debe tener al menos una página");
+		this.canal = FileChannel.open(archivo, StandardOpenOption.READ);
+		this.capacidad = capacidad;
+		this.paginas = new LinkedHashMap<Integer, ByteBuffer>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, ByteBuffer> mayor)
+			{
+				return size() > ArchivoPaginado.this.capacidad;
+			}
+		};
+	}
+
+	// ************************************************************************
+	// Consultas
+	// ************************************************************************
+
+	/**
+	 * Consulta cuántas páginas se han leído del disco
+	 *
+	 * @return lecturas
+	 */
+	synchronized long darLecturas()
+	{
+		return lecturas;
+	}
+
+	/**
+	 * Consulta cuántas veces se encontró en memoria una página pedida
+	 *
+	 * @return aciertos
+	 */
+	synchronized long darAciertos()
+	{
+		return aciertos;
+	}
+
+	/**
+	 * Consulta la capacidad del cache
+	 *
+	 * @return capacidad
+	 */
+	synchronized int darCapacidad()
+	{
+		return capacidad;
+	}
+
+	/**
+	 * Consulta cuántas páginas hay en memoria
+	 *
+	 * @return La cantidad de páginas en el cache
+	 */
+	synchronized int darPaginasEnMemoria()
+	{
+		return paginas.size();
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Retorna una página del archivo, leyéndola del disco si no está en memoria
+	 *
+	 * @param numero El número de la página
+	 * @return Un buffer de sólo lectura con el contenido de la página, en la posición 0. Cada llamado retorna un buffer distinto, así que quien lo recibe puede cambiar su posición.
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo o si la página no existe
+	 */
+	synchronized ByteBuffer leerPagina(int numero) throws IOException
+	{
+		ByteBuffer pagina = paginas.get(numero);
+		if (pagina != null)
+		{
+			aciertos++;
+		}
+		else
+		{
+			ByteBuffer leida = ByteBuffer.allocate(TAMANO_PAGINA);
+			long posicion = (long) numero * TAMANO_PAGINA;
+			while (leida.hasRemaining())
+			{
+				if (canal.read(leida, posicion + leida.position()) < 0)
+					throw new EOFException("La página " + numero + " no está completa en el archivo");
+			}
+			lecturas++;
+			pagina = leida.asReadOnlyBuffer();
+			paginas.put(numero, pagina);
+		}
+		ByteBuffer copia = pagina.duplicate();
+		copia.clear();
+		return copia;
+	}
+
+	/**
+	 * Lee bytes seguidos del archivo, que pueden ocupar varias páginas
+	 *
+	 * @param posicion La posición del primer byte en el archivo
+	 * @param largo    La cantidad de bytes
+	 * @return Los bytes leídos
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo
+	 */
+	byte[] leer(long posicion, int largo) throws IOException
+	{
+		byte[] datos = new byte[largo];
+		int leidos = 0;
+		while (leidos < largo)
+		{
+			long actual = posicion + leidos;
+			ByteBuffer pagina = leerPagina((int) (actual / TAMANO_PAGINA));
+			pagina.position((int) (actual % TAMANO_PAGINA));
+			int cantidad = Math.min(pagina.remaining(), largo - leidos);
+			pagina.get(datos, leidos, cantidad);
+			leidos += cantidad;
+		}
+		return datos;
+	}
+
+	/**
+	 * Cambia la capacidad del cache. Si hay más páginas que la nueva capacidad, se descartan las que llevan más tiempo sin usarse.
+	 *
+	 * @param nuevaCapacidad La nueva capacidad, en páginas. Debe ser al menos 1.
+	 */
+	synchronized void cambiarCapacidad(int nuevaCapacidad)
+	{
+		if (nuevaCapacidad < 1)
+			throw new IllegalArgumentException("El cache debe tener al menos una página");
+		capacidad = nuevaCapacidad;
+		while (paginas.size() > capacidad)
+		{
+			paginas.remove(paginas.keySet().iterator().next());
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException
+	{
+		paginas.clear();
+		canal.close();
+	}
+}
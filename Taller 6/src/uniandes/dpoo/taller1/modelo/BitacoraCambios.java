@@ -0,0 +1,807 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Esta clase lleva la bitácora de los cambios que se le hacen a una librería (categorías renombradas y libros eliminados), para no tener que reescribir los archivos CSV cada vez que cambia algo.
+ *
+ * Cada cambio se agrega al final del archivo de la bitácora, que queda en la misma carpeta que el archivo de libros con la extensión EXTENSION. Los cambios se escriben y se sincronizan con el disco
+ * en un hilo aparte y en grupos: todos los que llegan durante ESPERA_SINCRONIZACION milisegundos comparten una sola sincronización. Al cargar la librería se vuelven a aplicar los cambios de la
+ * bitácora sobre lo que se leyó de los archivos CSV.
+ *
+ * Cuando la bitácora crece demasiado se compacta: en el mismo hilo se escriben archivos CSV nuevos con el contenido de la librería, y la bitácora se queda sólo con los cambios que llegaron después.
+ * Los archivos nuevos se escriben primero con otro nombre y la bitácora nueva queda lista antes de reemplazar los CSV, así que si el programa se interrumpe a la mitad, la siguiente vez que se abre
+ * la bitácora se terminan los reemplazos que faltaban.
+ *
+ * Formato (todos los números en big-endian):
+ *
+ * <pre>
+ * int MAGIA, int VERSION
+ * {int largo, byte tipo, datos, int CRC32C del tipo y los datos}*
+ *
+ * RENOMBRAR_CATEGORIA: texto nombreAnterior, texto nombreNuevo
+ * ELIMINAR_LIBROS:     int #libros, {texto titulo, texto autor}*
+ * </pre>
+ *
+ * Cada texto se guarda como un int con la cantidad de bytes seguido de los bytes en UTF-8. Si el último registro quedó incompleto o su CRC no coincide (porque el programa se interrumpió mientras se
+ * escribía), se descarta junto con lo que le siga.
+ */
+public class BitacoraCambios implements Closeable
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * Valor con el que empieza todo archivo de bitácora ("LBIT")
+	 */
+	private static final int MAGIA = 0x4C424954;
+
+	/**
+	 * Versión del formato. Se debe cambiar cada vez que cambie el formato.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Bytes que ocupan la magia y la versión al comienzo del archivo
+	 */
+	private static final int CABECERA = 8;
+
+	/**
+	 * Extensión de los archivos de bitácora
+	 */
+	public static final String EXTENSION = ".bitacora";
+
+	/**
+	 * Milisegundos que se esperan después de un cambio antes de sincronizarlo con el disco, para sincronizar juntos los que lleguen mientras tanto
+	 */
+	public static final long ESPERA_SINCRONIZACION = 20;
+
+	/**
+	 * El tamaño a partir del cual se debe compactar la bitácora, si no se indica otro: 4 MB
+	 */
+	public static final long LIMITE_POR_DEFECTO = 4L * 1024 * 1024;
+
+	static final byte RENOMBRAR_CATEGORIA = 1;
+
+	static final byte ELIMINAR_LIBROS = 2;
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	private Path archivo;
+
+	private Path archivoCategorias;
+
+	private Path archivoLibros;
+
+	/**
+	 * El canal con el que se escribe la bitácora. Sólo se usa desde el hilo de la bitácora.
+	 */
+	private FileChannel canal;
+
+	/**
+	 * El hilo en el que se escriben y sincronizan los cambios y se compacta la bitácora
+	 */
+	private ScheduledExecutorService hilo;
+
+	/**
+	 * Los registros que todavía no se han escrito en el archivo
+	 */
+	private ByteArrayOutputStream pendientes = new ByteArrayOutputStream();
+
+	/**
+	 * Indica si ya hay una sincronización programada para los registros pendientes
+	 */
+	private boolean sincronizacionProgramada;
+
+	/**
+	 * Los cambios que están en la bitácora, es decir, los que todavía no se han llevado a los archivos CSV
+	 */
+	private ArrayList<Registro> registros = new ArrayList<Registro>();
+
+	/**
+	 * La cantidad de bytes de registros que se han agregado desde que se abrió la bitácora, incluyendo los que ya estaban en el archivo. Sirve para ubicar cada registro aunque la bitácora se compacte.
+	 */
+	private long registrados;
+
+	/**
+	 * El valor que tenía registrados al comienzo del primer registro que está en el archivo
+	 */
+	private long inicioArchivo;
+
+	/**
+	 * El tamaño a partir del cual se debe compactar la bitácora
+	 */
+	private long limite = LIMITE_POR_DEFECTO;
+
+	/**
+	 * Indica si hay una compactación programada o en curso
+	 */
+	private boolean compactando;
+
+	/**
+	 * El primer error que ocurrió escribiendo la bitácora en el otro hilo, o null si no ha ocurrido ninguno
+	 */
+	private IOException error;
+
+	/**
+	 * La suma de verificación (la de InstantaneaCatalogo) de los archivos CSV sobre los que se aplican los cambios de la bitácora
+	 */
+	private volatile long sumaBase;
+
+	/**
+	 * Indica si en este momento se están reemplazando los archivos CSV
+	 */
+	private volatile boolean escribiendoArchivos;
+
+	private volatile int sincronizaciones;
+
+	private volatile int compactaciones;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Abre la bitácora que corresponde a los archivos indicados, o la crea si no existe.
+	 *
+	 * Si una compactación anterior se interrumpió después de dejar lista la bitácora nueva, primero se terminan de reemplazar los archivos. Luego se leen los registros completos y se descarta lo que
+	 * haya después del último. Se debe abrir la bitácora antes de leer los archivos CSV.
+	 *
+	 * @param nombreArchivoCategorias El nombre del archivo CSV con las categorías
+	 * @param nombreArchivoLibros     El nombre del archivo CSV con los libros
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo o escribiendo los archivos, o si el archivo de la bitácora no es una bitácora
+	 */
+	public BitacoraCambios(String nombreArchivoCategorias, String nombreArchivoLibros) throws IOException
+	{
+		this.archivo = Paths.get(darNombreArchivo(nombreArchivoLibros));
+		this.archivoCategorias = Paths.get(nombreArchivoCategorias);
+		this.archivoLibros = Paths.get(nombreArchivoLibros);
+
+		recuperar();
+
+		canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try
+		{
+			leer();
+		}
+		catch (IOException e)
+		{
+			canal.close();
+			throw e;
+		}
+
+		hilo = Executors.newSingleThreadScheduledExecutor(tarea -> {
+			Thread nuevo = new Thread(tarea, "Bitácora " + archivo.getFileName());
+			nuevo.setDaemon(true);
+			return nuevo;
+		});
+	}
+
+	// ************************************************************************
+	// Consultas
+	// ************************************************************************
+
+	/**
+	 * Calcula el nombre del archivo de bitácora que corresponde a un archivo de libros. La bitácora queda en la misma carpeta, con el mismo nombre y la extensión EXTENSION.
+	 *
+	 * @param nombreArchivoLibros El nombre del archivo CSV con los libros
+	 * @return El nombre del archivo de bitácora
+	 */
+	public static String darNombreArchivo(String nombreArchivoLibros)
+	{
+		String base = nombreArchivoLibros;
+		if (base.toLowerCase().endsWith(".csv"))
+			base = base.substring(0, base.length() - 4);
+		return base + EXTENSION;
+	}
+
+	/**
+	 * Retorna los cambios que están en la bitácora, en el orden en que se hicieron
+	 *
+	 * @return Una copia de la lista de registros
+	 */
+	synchronized ArrayList<Registro> darRegistros()
+	{
+		return new ArrayList<Registro>(registros);
+	}
+
+	/**
+	 * Consulta cuántos cambios hay en la bitácora, incluyendo los que todavía no se han escrito
+	 *
+	 * @return Cantidad de registros
+	 */
+	public synchronized int darCantidadRegistros()
+	{
+		return registros.size();
+	}
+
+	/**
+	 * Consulta cuántos bytes de registros hay en la bitácora, incluyendo los que todavía no se han escrito
+	 *
+	 * @return tamaño
+	 */
+	public synchronized long darTamano()
+	{
+		return registrados - inicioArchivo;
+	}
+
+	/**
+	 * Consulta cuántas veces se ha sincronizado la bitácora con el disco
+	 *
+	 * @return sincronizaciones
+	 */
+	public int darSincronizaciones()
+	{
+		return sincronizaciones;
+	}
+
+	/**
+	 * Consulta cuántas veces se ha compactado la bitácora
+	 *
+	 * @return compactaciones
+	 */
+	public int darCompactaciones()
+	{
+		return compactaciones;
+	}
+
+	public synchronized long darLimite()
+	{
+		return limite;
+	}
+
+	/**
+	 * Cambia el tamaño a partir del cual se debe compactar la bitácora
+	 *
+	 * @param nuevoLimite El nuevo límite, en bytes
+	 */
+	public synchronized void cambiarLimite(long nuevoLimite)
+	{
+		this.limite = nuevoLimite;
+	}
+
+	/**
+	 * Indica si la bitácora pasó del límite y no se está compactando
+	 *
+	 * @return Retorna true si se debe compactar
+	 */
+	synchronized boolean debeCompactar()
+	{
+		return !compactando && registrados - inicioArchivo > limite;
+	}
+
+	/**
+	 * Indica la suma de verificación de los archivos CSV sobre los que se aplican los cambios de la bitácora
+	 *
+	 * @param suma La suma calculada con InstantaneaCatalogo.calcularSumaVerificacion
+	 */
+	void cambiarSumaBase(long suma)
+	{
+		this.sumaBase = suma;
+	}
+
+	/**
+	 * Revisa si otro programa modificó los archivos CSV. Los cambios que hace la compactación no cuentan: mientras se reemplazan los archivos, y después si quedaron con el contenido que escribió la
+	 * compactación, se considera que no cambiaron. Si cambiaron, su contenido actual pasa a ser la base sobre la que se aplican los cambios de la bitácora.
+	 *
+	 * Se puede llamar desde cualquier hilo.
+	 *
+	 * @return Retorna true si otro programa modificó los archivos
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo los archivos
+	 */
+	public boolean cambiaronArchivos() throws IOException
+	{
+		if (escribiendoArchivos)
+			return false;
+		long suma = InstantaneaCatalogo.calcularSumaVerificacion(archivoCategorias.toString(), archivoLibros.toString());
+		if (escribiendoArchivos || suma == sumaBase)
+			return false;
+		sumaBase = suma;
+		return true;
+	}
+
+	// ************************************************************************
+	// Métodos para registrar cambios
+	// ************************************************************************
+
+	/**
+	 * Registra que se cambió el nombre de una categoría
+	 *
+	 * @param nombreAnterior El nombre que tenía la categoría
+	 * @param nombreNuevo    El nombre nuevo
+	 * @throws IOException Se lanza esta excepción si antes falló la escritura de la bitácora
+	 */
+	void registrarRenombre(String nombreAnterior, String nombreNuevo) throws IOException
+	{
+		Registro registro = new Registro(RENOMBRAR_CATEGORIA);
+		registro.nombreAnterior = nombreAnterior;
+		registro.nombreNuevo = nombreNuevo;
+		registrar(registro);
+	}
+
+	/**
+	 * Registra que se eliminaron libros. Cada libro se identifica por su título y su autor.
+	 *
+	 * @param libros Los libros eliminados
+	 * @throws IOException Se lanza esta excepción si antes falló la escritura de la bitácora
+	 */
+	void registrarEliminados(Iterable<Libro> libros) throws IOException
+	{
+		ArrayList<String> titulos = new ArrayList<String>();
+		ArrayList<String> autores = new ArrayList<String>();
+		for (Libro libro : libros)
+		{
+			titulos.add(libro.darTitulo());
+			autores.add(libro.darAutor());
+		}
+		Registro registro = new Registro(ELIMINAR_LIBROS);
+		registro.titulos = titulos.toArray(new String[0]);
+		registro.autores = autores.toArray(new String[0]);
+		registrar(registro);
+	}
+
+	/**
+	 * Agrega un registro a los pendientes y programa su sincronización, si no había una programada
+	 */
+	private synchronized void registrar(Registro registro) throws IOException
+	{
+		if (error != null)
+			throw new IOException("No se pudo escribir la bitácora", error);
+
+		byte[] bytes = codificar(registro);
+		pendientes.write(bytes, 0, bytes.length);
+		registrados += bytes.length;
+		registro.fin = registrados;
+		registros.add(registro);
+		if (!sincronizacionProgramada)
+		{
+			sincronizacionProgramada = true;
+			hilo.schedule(this::sincronizarPendientes, ESPERA_SINCRONIZACION, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Escribe los registros pendientes y espera a que queden sincronizados con el disco, sin esperar a que se cumpla ESPERA_SINCRONIZACION. Como el hilo de la bitácora hace las tareas en orden,
+	 * también espera a que termine la compactación que esté en curso.
+	 *
+	 * @throws IOException Se lanza esta excepción si hubo algún problema escribiendo la bitácora
+	 */
+	public void sincronizar() throws IOException
+	{
+		try
+		{
+			hilo.submit(this::sincronizarPendientes).get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Se interrumpió la sincronización de la bitácora", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IOException("No se pudo sincronizar la bitácora", e.getCause());
+		}
+		synchronized (this)
+		{
+			if (error != null)
+				throw new IOException("No se pudo escribir la bitácora", error);
+		}
+	}
+
+	/**
+	 * Sincroniza los registros pendientes y cierra la bitácora
+	 *
+	 * @throws IOException Se lanza esta excepción si hubo algún problema escribiendo la bitácora
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			sincronizar();
+		}
+		finally
+		{
+			hilo.shutdown();
+			try
+			{
+				hilo.awaitTermination(1, TimeUnit.MINUTES);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			canal.close();
+		}
+	}
+
+	// ************************************************************************
+	// Compactación
+	// ************************************************************************
+
+	/**
+	 * Programa la compactación de la bitácora en el hilo de la bitácora. Los archivos CSV se reemplazan por el contenido de la foto, y de la bitácora se quitan los cambios que ya están incluidos en
+	 * ella, es decir, todos los que se registraron antes de tomarla.
+	 *
+	 * @param foto Una foto de la librería tomada justo antes de llamar este método, después del último cambio registrado
+	 * @return Retorna false si ya había una compactación programada o si hubo un error escribiendo la bitácora, en cuyo caso no se programa otra
+	 */
+	synchronized boolean compactar(FotoCatalogo foto)
+	{
+		if (compactando || error != null)
+			return false;
+		compactando = true;
+		long corte = registrados;
+		hilo.execute(() -> compactarHasta(foto, corte));
+		return true;
+	}
+
+	/**
+	 * Compacta la bitácora. Se ejecuta en el hilo de la bitácora.
+	 *
+	 * @param foto  La foto de la librería
+	 * @param corte El valor que tenía registrados cuando se tomó la foto
+	 */
+	private void compactarHasta(FotoCatalogo foto, long corte)
+	{
+		Path temporalCategorias = Paths.get(archivoCategorias + ".tmp");
+		Path temporalLibros = Paths.get(archivoLibros + ".tmp");
+		Path temporalBitacora = Paths.get(archivo + ".tmp");
+		Path bitacoraNueva = Paths.get(archivo + ".nueva");
+		boolean preparada = false;
+		try
+		{
+			// Lo que se registró después de la foto tiene que quedar en el archivo para pasarlo a la bitácora nueva
+			escribirPendientes();
+
+			EscritorCatalogo.escribir(temporalCategorias, foto, true);
+			EscritorCatalogo.escribir(temporalLibros, foto, false);
+			long sumaNueva = InstantaneaCatalogo.calcularSumaVerificacion(temporalCategorias.toString(), temporalLibros.toString());
+
+			long inicioCola;
+			synchronized (this)
+			{
+				inicioCola = CABECERA + corte - inicioArchivo;
+			}
+			try (FileChannel nuevo = FileChannel.open(temporalBitacora, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+			{
+				escribirCabecera(nuevo);
+				canal.transferTo(inicioCola, canal.size() - inicioCola, nuevo);
+				nuevo.force(true);
+			}
+			Files.move(temporalBitacora, bitacoraNueva, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			preparada = true;
+
+			// Desde aquí, si el programa se interrumpe, la siguiente apertura termina los reemplazos
+			escribiendoArchivos = true;
+			sumaBase = sumaNueva;
+			Files.move(temporalLibros, archivoLibros, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			Files.move(temporalCategorias, archivoCategorias, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			canal.close();
+			Files.move(bitacoraNueva, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			canal.position(canal.size());
+
+			synchronized (this)
+			{
+				inicioArchivo = corte;
+				registros.removeIf(registro -> registro.fin <= corte);
+			}
+			compactaciones++;
+		}
+		catch (IOException e)
+		{
+			// Si los CSV no se alcanzaron a tocar, se deshace la compactación para que la siguiente apertura no cambie la bitácora por la nueva. Si ya se tocaron, la bitácora nueva se deja para
+			// que la siguiente apertura termine los reemplazos. En los dos casos se registra el error, y con eso la bitácora deja de aceptar cambios.
+			if (!escribiendoArchivos)
+			{
+				try
+				{
+					if (preparada)
+						Files.deleteIfExists(bitacoraNueva);
+					Files.deleteIfExists(temporalBitacora);
+					Files.deleteIfExists(temporalLibros);
+					Files.deleteIfExists(temporalCategorias);
+				}
+				catch (IOException otro)
+				{
+					e.addSuppressed(otro);
+				}
+			}
+			synchronized (this)
+			{
+				if (error == null)
+					error = e;
+			}
+		}
+		finally
+		{
+			escribiendoArchivos = false;
+			synchronized (this)
+			{
+				compactando = false;
+			}
+		}
+	}
+
+	// ************************************************************************
+	// Métodos auxiliares
+	// ************************************************************************
+
+	/**
+	 * Escribe los registros pendientes y los sincroniza con el disco. Se ejecuta en el hilo de la bitácora.
+	 */
+	private void sincronizarPendientes()
+	{
+		try
+		{
+			if (escribirPendientes())
+			{
+				canal.force(false);
+				sincronizaciones++;
+			}
+		}
+		catch (IOException e)
+		{
+			synchronized (this)
+			{
+				if (error == null)
+					error = e;
+			}
+		}
+	}
+
+	/**
+	 * Escribe al final del archivo los registros pendientes, sin sincronizarlos. Se ejecuta en el hilo de la bitácora. Si ya hubo un error no escribe nada: una compactación que falló puede haber
+	 * dejado una bitácora nueva, y lo que se escriba en esta se perdería cuando la siguiente apertura la reemplace.
+	 *
+	 * @return Retorna true si había registros pendientes
+	 */
+	private boolean escribirPendientes() throws IOException
+	{
+		byte[] bytes;
+		synchronized (this)
+		{
+			sincronizacionProgramada = false;
+			if (error != null)
+				throw new IOException("No se pudo escribir la bitácora", error);
+			if (pendientes.size() == 0)
+				return false;
+			bytes = pendientes.toByteArray();
+			pendientes.reset();
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while (buffer.hasRemaining())
+		{
+			canal.write(buffer);
+		}
+		return true;
+	}
+
+	/**
+	 * Termina una compactación que se interrumpió: si la bitácora nueva quedó lista, reemplaza los archivos que falten. Si no, borra los archivos temporales, porque los CSV no se alcanzaron a tocar.
+	 */
+	private void recuperar() throws IOException
+	{
+		Path bitacoraNueva = Paths.get(archivo + ".nueva");
+		Path[] temporales = { Paths.get(archivoLibros + ".tmp"), Paths.get(archivoCategorias + ".tmp") };
+		Path[] destinos = { archivoLibros, archivoCategorias };
+		if (Files.exists(bitacoraNueva))
+		{
+			for (int i = 0; i < temporales.length; i++)
+			{
+				if (Files.exists(temporales[i]))
+					Files.move(temporales[i], destinos[i], StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			Files.move(bitacoraNueva, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		else
+		{
+			for (Path temporal : temporales)
+			{
+				Files.deleteIfExists(temporal);
+			}
+		}
+		Files.deleteIfExists(Paths.get(archivo + ".tmp"));
+	}
+
+	/**
+	 * Lee los registros del archivo y deja el canal al final del último registro completo. Si el archivo está vacío, le escribe la cabecera.
+	 */
+	private void leer() throws IOException
+	{
+		long tamano = canal.size();
+		if (tamano == 0)
+		{
+			escribirCabecera(canal);
+			canal.force(true);
+			return;
+		}
+		if (tamano > Integer.MAX_VALUE)
+			throw new IOException("La bitácora es demasiado grande: " + archivo);
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) tamano);
+		while (buffer.hasRemaining() && canal.read(buffer) >= 0)
+		{
+		}
+		buffer.flip();
+		if (buffer.remaining() < CABECERA || buffer.getInt() != MAGIA || buffer.getInt() != VERSION)
+			throw new IOException("El archivo no es una bitácora válida: " + archivo);
+
+		CRC32C crc = new CRC32C();
+		while (buffer.remaining() >= 4)
+		{
+			int inicio = buffer.position();
+			int largo = buffer.getInt();
+			if (largo < 1 || buffer.remaining() < largo + 4)
+				break;
+
+			crc.reset();
+			ByteBuffer contenido = buffer.slice();
+			contenido.limit(largo);
+			crc.update(contenido);
+			if (buffer.getInt(inicio + 4 + largo) != (int) crc.getValue())
+				break;
+
+			Registro registro;
+			try
+			{
+				registro = decodificar(buffer.slice().limit(largo));
+			}
+			catch (RuntimeException e)
+			{
+				break;
+			}
+			buffer.position(inicio + 4 + largo + 4);
+			registrados += buffer.position() - inicio;
+			registro.fin = registrados;
+			registros.add(registro);
+		}
+
+		// Lo que quedó después del último registro completo es un registro a medio escribir
+		long fin = CABECERA + registrados;
+		if (fin < tamano)
+		{
+			canal.truncate(fin);
+			canal.force(true);
+		}
+		canal.position(fin);
+	}
+
+	private static void escribirCabecera(FileChannel destino) throws IOException
+	{
+		ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+		cabecera.putInt(MAGIA).putInt(VERSION).flip();
+		while (cabecera.hasRemaining())
+		{
+			destino.write(cabecera);
+		}
+	}
+
+	/**
+	 * Convierte un registro en los bytes que se escriben en el archivo, con su largo y su CRC
+	 */
+	private static byte[] codificar(Registro registro) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream salida = new DataOutputStream(bytes);
+		salida.writeInt(0);
+		salida.writeByte(registro.tipo);
+		if (registro.tipo == RENOMBRAR_CATEGORIA)
+		{
+			escribirTexto(salida, registro.nombreAnterior);
+			escribirTexto(salida, registro.nombreNuevo);
+		}
+		else
+		{
+			salida.writeInt(registro.titulos.length);
+			for (int i = 0; i < registro.titulos.length; i++)
+			{
+				escribirTexto(salida, registro.titulos[i]);
+				escribirTexto(salida, registro.autores[i]);
+			}
+		}
+		salida.writeInt(0);
+
+		ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+		int largo = buffer.capacity() - 8;
+		CRC32C crc = new CRC32C();
+		crc.update(buffer.array(), 4, largo);
+		buffer.putInt(0, largo);
+		buffer.putInt(4 + largo, (int) crc.getValue());
+		return buffer.array();
+	}
+
+	/**
+	 * Lee un registro a partir de su tipo y sus datos
+	 */
+	private static Registro decodificar(ByteBuffer buffer)
+	{
+		Registro registro = new Registro(buffer.get());
+		if (registro.tipo == RENOMBRAR_CATEGORIA)
+		{
+			registro.nombreAnterior = leerTexto(buffer);
+			registro.nombreNuevo = leerTexto(buffer);
+		}
+		else if (registro.tipo == ELIMINAR_LIBROS)
+		{
+			int cantidad = buffer.getInt();
+			registro.titulos = new String[cantidad];
+			registro.autores = new String[cantidad];
+			for (int i = 0; i < cantidad; i++)
+			{
+				registro.titulos[i] = leerTexto(buffer);
+				registro.autores[i] = leerTexto(buffer);
+			}
+		}
+		else
+		{
+			throw new IllegalArgumentException("Tipo de registro desconocido: " + registro.tipo);
+		}
+		return registro;
+	}
+
+	private static void escribirTexto(DataOutputStream salida, String texto) throws IOException
+	{
+		byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+		salida.writeInt(bytes.length);
+		salida.write(bytes);
+	}
+
+	private static String leerTexto(ByteBuffer buffer)
+	{
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// ************************************************************************
+	// Clases anidadas
+	// ************************************************************************
+
+	/**
+	 * Un cambio de la bitácora
+	 */
+	static class Registro
+	{
+		byte tipo;
+
+		String nombreAnterior;
+
+		String nombreNuevo;
+
+		String[] titulos;
+
+		String[] autores;
+
+		/**
+		 * El valor que tenía registrados justo después de agregar este registro
+		 */
+		long fin;
+
+		Registro(byte tipo)
+		{
+			this.tipo = tipo;
+		}
+	}
+}
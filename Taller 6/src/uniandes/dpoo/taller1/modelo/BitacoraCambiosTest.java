@@ -0,0 +1,174 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BitacoraCambiosTest
+{
+	@TempDir
+	Path carpeta;
+
+	private String archivoCategorias;
+
+	private String archivoLibros;
+
+	@BeforeEach
+	void setUp() throws IOException
+	{
+		archivoCategorias = CatalogoPrueba.darArchivoCategorias(carpeta);
+		archivoLibros = CatalogoPrueba.darArchivoLibros(carpeta);
+		CatalogoPrueba.escribirCatalogo(carpeta, "Novela,true\n" + "Poesía,false\n", "Cien años de soledad,Gabriel García Márquez,4.5,Novela,./imagenes/a.jpg,100,150\n"
+				+ "Rayuela,Julio Cortázar,4.2,Novela,./imagenes/b.jpg,100,150\n" + "Veinte poemas de amor,Pablo Neruda,4.0,Poesía,./imagenes/c.jpg,100,150\n"
+				+ "Rayuela,Julio Cortázar,3.9,Poesía,./imagenes/d.jpg,100,150\n");
+	}
+
+	@Test
+	void testReaplicarAlCargar() throws Exception
+	{
+		byte[] libros = Files.readAllBytes(Path.of(archivoLibros));
+
+		Libreria libreria = CatalogoPrueba.cargar(carpeta);
+		libreria.cambiarCategoria("Poesía", "Poemas");
+		assertThrows(Exception.class, () -> libreria.eliminarLibros("Cortázar"));
+		assertEquals(2, libreria.darLibros().size());
+		libreria.cerrar();
+
+		// Los cambios quedan en la bitácora, no en los archivos CSV
+		assertArrayEquals(libros, Files.readAllBytes(Path.of(archivoLibros)));
+		BitacoraCambios bitacora = new BitacoraCambios(archivoCategorias, archivoLibros);
+		assertEquals(2, bitacora.darCantidadRegistros());
+		bitacora.close();
+
+		Libreria otra = CatalogoPrueba.cargar(carpeta);
+		assertEquals(2, otra.darLibros().size());
+		assertNull(otra.buscarLibro("Rayuela"));
+		assertEquals("Poemas", otra.buscarLibro("Veinte poemas de amor").darCategoria().darNombre());
+		otra.cerrar();
+	}
+
+	@Test
+	void testRegistroIncompleto() throws Exception
+	{
+		String archivo = BitacoraCambios.darNombreArchivo(archivoLibros);
+		BitacoraCambios bitacora = new BitacoraCambios(archivoCategorias, archivoLibros);
+		bitacora.registrarRenombre("Novela", "Narrativa");
+		bitacora.registrarRenombre("Poesía", "Poemas");
+		bitacora.close();
+		long completo = Files.size(Path.of(archivo));
+
+		// Se pierde el último byte, como si el programa se hubiera interrumpido mientras escribía
+		try (RandomAccessFile datos = new RandomAccessFile(archivo, "rw"))
+		{
+			datos.setLength(completo - 1);
+		}
+		bitacora = new BitacoraCambios(archivoCategorias, archivoLibros);
+		assertEquals(1, bitacora.darCantidadRegistros());
+		assertEquals("Narrativa", bitacora.darRegistros().get(0).nombreNuevo);
+		bitacora.registrarRenombre("Poesía", "Versos");
+		bitacora.close();
+
+		// Un byte dañado invalida el registro por su CRC
+		try (RandomAccessFile datos = new RandomAccessFile(archivo, "rw"))
+		{
+			datos.seek(Files.size(Path.of(archivo)) - 6);
+			datos.write('X');
+		}
+		bitacora = new BitacoraCambios(archivoCategorias, archivoLibros);
+		assertEquals(1, bitacora.darCantidadRegistros());
+		bitacora.close();
+	}
+
+	@Test
+	void testCompactar() throws Exception
+	{
+		Libreria libreria = CatalogoPrueba.cargar(carpeta);
+		libreria.cambiarCategoria("Novela", "Narrativa");
+		assertThrows(Exception.class, () -> libreria.eliminarLibros("Neruda"));
+		libreria.compactarBitacora();
+		libreria.darBitacora().sincronizar();
+
+		assertEquals(1, libreria.darBitacora().darCompactaciones());
+		assertEquals(0, libreria.darBitacora().darCantidadRegistros());
+		assertFalse(libreria.darBitacora().cambiaronArchivos());
+		String libros = new String(Files.readAllBytes(Path.of(archivoLibros)), StandardCharsets.UTF_8);
+		assertFalse(libros.contains("Neruda"));
+		assertTrue(libros.contains("Rayuela,Julio Cortázar,4.2,Narrativa"));
+
+		// Los cambios posteriores a la compactación siguen en la bitácora
+		libreria.cambiarCategoria("Poesía", "Poemas");
+		libreria.cerrar();
+
+		Libreria otra = CatalogoPrueba.cargar(carpeta);
+		assertEquals(1, otra.darBitacora().darCantidadRegistros());
+		assertEquals(3, otra.darLibros().size());
+		assertEquals(2, otra.darLibros("Narrativa").size());
+		assertEquals("Poemas", otra.buscarLibros("Rayuela").get(1).darCategoria().darNombre());
+		otra.cerrar();
+	}
+
+	@Test
+	void testCompactacionFallida() throws Exception
+	{
+		byte[] libros = Files.readAllBytes(Path.of(archivoLibros));
+		byte[] categorias = Files.readAllBytes(Path.of(archivoCategorias));
+
+		Libreria libreria = CatalogoPrueba.cargar(carpeta);
+		libreria.cambiarCategoria("Novela", "Narrativa");
+
+		// Una carpeta con el nombre de la bitácora nueva hace que la compactación falle antes de tocar los CSV
+		Files.createDirectories(Path.of(BitacoraCambios.darNombreArchivo(archivoLibros) + ".nueva", "ocupada"));
+		libreria.compactarBitacora();
+
+		assertThrows(IOException.class, () -> libreria.darBitacora().sincronizar());
+		assertThrows(IOException.class, () -> libreria.cambiarCategoria("Poesía", "Poemas"));
+		assertEquals(2, libreria.darLibros("Poesía").size());
+		assertEquals(0, libreria.darBitacora().darCompactaciones());
+		assertThrows(IOException.class, () -> libreria.cerrar());
+
+		// Los CSV quedan como estaban y no quedan archivos temporales
+		assertArrayEquals(libros, Files.readAllBytes(Path.of(archivoLibros)));
+		assertArrayEquals(categorias, Files.readAllBytes(Path.of(archivoCategorias)));
+		assertFalse(Files.exists(Path.of(archivoLibros + ".tmp")));
+		assertFalse(Files.exists(Path.of(archivoCategorias + ".tmp")));
+	}
+
+	@Test
+	void testCargaCancelada() throws Exception
+	{
+		ObservadorCarga cancelado = new ObservadorCarga()
+		{
+			@Override
+			public void categoriasCargadas(Categoria[] categorias)
+			{
+				fail("Una carga cancelada no debe informar nada");
+			}
+
+			@Override
+			public void librosCargados(List<Libro> lote, double progreso)
+			{
+				fail("Una carga cancelada no debe informar nada");
+			}
+
+			@Override
+			public boolean cancelado()
+			{
+				return true;
+			}
+		};
+		assertThrows(CancellationException.class, () -> Libreria.cargar(archivoCategorias, archivoLibros, 1, cancelado));
+
+		// Una carga cancelada ni siquiera abre la bitácora
+		assertFalse(Files.exists(Path.of(BitacoraCambios.darNombreArchivo(archivoLibros))));
+	}
+}
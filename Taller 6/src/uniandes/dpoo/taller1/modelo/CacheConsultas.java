@@ -0,0 +1,359 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Esta clase guarda los resultados de las consultas que se repiten (libros de un autor, libros de una categoría, categorías de un autor) para no tener que volver a calcularlos.
+ *
+ * La memoria que ocupan los resultados se estima a partir de su tamaño, y cuando pasa del límite se descartan los resultados que hace más tiempo no se usan. Cada categoría tiene un número de
+ * versión que aumenta cada vez que cambian sus libros o su nombre, y cada resultado recuerda la versión de las categorías de las que depende: si alguna cambió, el resultado ya no es válido y se
+ * descarta la próxima vez que se pida. Así, un cambio en una categoría sólo invalida los resultados que dependen de ella. Aparte hay dos versiones globales, una que aumenta cada vez que se agregan
+ * libros (porque un libro nuevo puede aparecer en un resultado que no tenía libros de su categoría) y otra que aumenta cada vez que se crea o se renombra una categoría.
+ *
+ * Los resultados se entregan como copias, para que quien los recibe pueda modificarlos sin dañar los que están guardados.
+ */
+public class CacheConsultas
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * El límite de memoria que se usa si no se indica otro: 16 MB
+	 */
+	public static final long LIMITE_POR_DEFECTO = 16L * 1024 * 1024;
+
+	/**
+	 * Estimación de los bytes que ocupa una entrada sin contar la llave, el resultado ni las dependencias
+	 */
+	private static final int BYTES_ENTRADA = 120;
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * Los resultados guardados, del que hace más tiempo no se usa al que se usó más recientemente
+	 */
+	private LinkedHashMap<String, Entrada> entradas;
+
+	/**
+	 * La versión actual de cada categoría, indexada por su ordinal
+	 */
+	private int[] versiones;
+
+	/**
+	 * Versión que aumenta cada vez que se agregan libros
+	 */
+	private int versionAltas;
+
+	/**
+	 * Versión que aumenta cada vez que se crea o se renombra una categoría
+	 */
+	private int versionNombres;
+
+	/**
+	 * La mayor cantidad de bytes que pueden ocupar los resultados guardados
+	 */
+	private long limite;
+
+	/**
+	 * Los bytes que ocupan los resultados guardados, según la estimación
+	 */
+	private long bytes;
+
+	private long aciertos;
+
+	private long fallos;
+
+	private long invalidadas;
+
+	private long desalojadas;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye un cache vacío
+	 *
+	 * @param limite La mayor cantidad de bytes que pueden ocupar los resultados guardados
+	 */
+	public CacheConsultas(long limite)
+	{
+		this.entradas = new LinkedHashMap<String, Entrada>(64, 0.75f, true);
+		this.versiones = new int[16];
+		this.limite = limite;
+	}
+
+	// ************************************************************************
+	// Consultas
+	// ************************************************************************
+
+	/**
+	 * Busca el resultado guardado para una consulta
+	 *
+	 * @param llave La llave de la consulta
+	 * @return Una copia del resultado, o null si no está guardado o ya no es válido
+	 */
+	@SuppressWarnings("unchecked")
+	<T> ArrayList<T> buscar(String llave)
+	{
+		Entrada entrada = entradas.get(llave);
+		if (entrada != null && !esValida(entrada))
+		{
+			entradas.remove(llave);
+			bytes -= entrada.bytes;
+			invalidadas++;
+			entrada = null;
+		}
+		if (entrada == null)
+		{
+			fallos++;
+			return null;
+		}
+		aciertos++;
+		return new ArrayList<T>((ArrayList<T>) entrada.resultado);
+	}
+
+	/**
+	 * Guarda el resultado de una consulta. Si el resultado es tan grande que ocuparía más de la cuarta parte del límite, no se guarda.
+	 *
+	 * @param llave            La llave de la consulta
+	 * @param resultado        El resultado. Se guarda una copia.
+	 * @param categorias       Los ordinales de las categorías de las que depende el resultado, sin repetir
+	 * @param dependeDeAltas   Indica si el resultado puede cambiar cuando se agregan libros a cualquier categoría
+	 * @param dependeDeNombres Indica si el resultado puede cambiar cuando se crea o se renombra una categoría
+	 */
+	void guardar(String llave, ArrayList<?> resultado, int[] categorias, boolean dependeDeAltas, boolean dependeDeNombres)
+	{
+		Entrada entrada = new Entrada();
+		entrada.resultado = new ArrayList<Object>(resultado);
+		entrada.categorias = categorias;
+		entrada.versiones = new int[categorias.length];
+		for (int i = 0; i < categorias.length; i++)
+		{
+			entrada.versiones[i] = darVersion(categorias[i]);
+		}
+		entrada.versionAltas = dependeDeAltas ? versionAltas : -1;
+		entrada.versionNombres = dependeDeNombres ? versionNombres : -1;
+		entrada.bytes = BYTES_ENTRADA + 2L * llave.length() + 4L * resultado.size() + 8L * categorias.length;
+		if (entrada.bytes > limite / 4)
+			return;
+
+		Entrada anterior = entradas.put(llave, entrada);
+		if (anterior != null)
+			bytes -= anterior.bytes;
+		bytes += entrada.bytes;
+		desalojar();
+	}
+
+	// ************************************************************************
+	// Métodos para avisar cambios
+	// ************************************************************************
+
+	/**
+	 * Avisa que cambiaron los libros o el nombre de una categoría. Se invalidan los resultados que dependen de ella.
+	 *
+	 * @param categoria La categoría
+	 */
+	void categoriaCambiada(Categoria categoria)
+	{
+		int ordinal = categoria.darOrdinal();
+		if (ordinal >= versiones.length)
+			versiones = Arrays.copyOf(versiones, Math.max(ordinal + 1, versiones.length * 2));
+		versiones[ordinal]++;
+	}
+
+	/**
+	 * Avisa que se agregaron libros. Se invalidan los resultados que pueden incluir libros de cualquier categoría.
+	 */
+	void librosAgregados()
+	{
+		versionAltas++;
+	}
+
+	/**
+	 * Avisa que se creó o se renombró una categoría. Se invalidan los resultados que dependen del nombre de las categorías.
+	 */
+	void nombresCambiados()
+	{
+		versionNombres++;
+	}
+
+	/**
+	 * Descarta todos los resultados guardados. Las estadísticas se conservan.
+	 */
+	public void limpiar()
+	{
+		entradas.clear();
+		bytes = 0;
+	}
+
+	// ************************************************************************
+	// Configuración y estadísticas
+	// ************************************************************************
+
+	/**
+	 * Cambia el límite de memoria. Si los resultados guardados ocupan más, se descartan los que hace más tiempo no se usan.
+	 *
+	 * @param nuevoLimite La mayor cantidad de bytes que pueden ocupar los resultados guardados
+	 */
+	public void cambiarLimite(long nuevoLimite)
+	{
+		this.limite = nuevoLimite;
+		desalojar();
+	}
+
+	public long darLimite()
+	{
+		return limite;
+	}
+
+	/**
+	 * Consulta cuántos bytes ocupan los resultados guardados, según la estimación
+	 *
+	 * @return bytes
+	 */
+	public long darBytes()
+	{
+		return bytes;
+	}
+
+	/**
+	 * Consulta cuántos resultados hay guardados, incluyendo los que ya no son válidos pero todavía no se han descartado
+	 *
+	 * @return Cantidad de resultados
+	 */
+	public int darCantidad()
+	{
+		return entradas.size();
+	}
+
+	public long darAciertos()
+	{
+		return aciertos;
+	}
+
+	public long darFallos()
+	{
+		return fallos;
+	}
+
+	/**
+	 * Consulta cuántos resultados se descartaron porque cambió alguna de las categorías de las que dependían
+	 *
+	 * @return invalidadas
+	 */
+	public long darInvalidadas()
+	{
+		return invalidadas;
+	}
+
+	/**
+	 * Consulta cuántos resultados se descartaron para no pasar del límite de memoria
+	 *
+	 * @return desalojadas
+	 */
+	public long darDesalojadas()
+	{
+		return desalojadas;
+	}
+
+	/**
+	 * Calcula la fracción de las consultas que se respondieron con un resultado guardado
+	 *
+	 * @return La tasa de aciertos, entre 0 y 1, o 0 si no se ha hecho ninguna consulta
+	 */
+	public double darTasaAciertos()
+	{
+		long consultas = aciertos + fallos;
+		return consultas == 0 ? 0 : (double) aciertos / consultas;
+	}
+
+	/**
+	 * Vuelve a cero las estadísticas
+	 */
+	public void reiniciarEstadisticas()
+	{
+		aciertos = 0;
+		fallos = 0;
+		invalidadas = 0;
+		desalojadas = 0;
+	}
+
+	// ************************************************************************
+	// Métodos auxiliares
+	// ************************************************************************
+
+	private int darVersion(int ordinal)
+	{
+		return ordinal < versiones.length ? versiones[ordinal] : 0;
+	}
+
+	private boolean esValida(Entrada entrada)
+	{
+		if (entrada.versionAltas >= 0 && entrada.versionAltas != versionAltas)
+			return false;
+		if (entrada.versionNombres >= 0 && entrada.versionNombres != versionNombres)
+			return false;
+		for (int i = 0; i < entrada.categorias.length; i++)
+		{
+			if (darVersion(entrada.categorias[i]) != entrada.versiones[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Descarta los resultados que hace más tiempo no se usan hasta que los demás quepan en el límite
+	 */
+	private void desalojar()
+	{
+		Iterator<Map.Entry<String, Entrada>> iterador = entradas.entrySet().iterator();
+		while (bytes > limite && iterador.hasNext())
+		{
+			bytes -= iterador.next().getValue().bytes;
+			iterador.remove();
+			desalojadas++;
+		}
+	}
+
+	// ************************************************************************
+	// Clases anidadas
+	// ************************************************************************
+
+	/**
+	 * Un resultado guardado, con las versiones de las que depende
+	 */
+	private static class Entrada
+	{
+		private ArrayList<Object> resultado;
+
+		/**
+		 * Los ordinales de las categorías de las que depende el resultado
+		 */
+		private int[] categorias;
+
+		/**
+		 * La versión que tenía cada una de esas categorías cuando se calculó el resultado
+		 */
+		private int[] versiones;
+
+		/**
+		 * La versión de las altas cuando se calculó el resultado, o -1 si el resultado no depende de ella
+		 */
+		private int versionAltas;
+
+		/**
+		 * La versión de los nombres cuando se calculó el resultado, o -1 si el resultado no depende de ella
+		 */
+		private int versionNombres;
+
+		private long bytes;
+	}
+}
@@ -0,0 +1,69 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class CacheConsultasTest
+{
+
+	@Test
+	void testInvalidacionPorCategoria()
+	{
+		RegistroCategorias registro = new RegistroCategorias();
+		Categoria novela = new Categoria("Novela", true);
+		Categoria poesia = new Categoria("Poesía", false);
+		registro.agregar(novela);
+		registro.agregar(poesia);
+
+		CacheConsultas cache = new CacheConsultas(CacheConsultas.LIMITE_POR_DEFECTO);
+		cache.guardar("a", new ArrayList<String>(Arrays.asList("uno", "dos")), new int[] { novela.darOrdinal() }, false, false);
+		cache.guardar("b", new ArrayList<String>(Arrays.asList("tres")), new int[] { poesia.darOrdinal() }, true, false);
+
+		// Los resultados se entregan como copias
+		ArrayList<String> a = cache.buscar("a");
+		a.clear();
+		assertEquals(Arrays.asList("uno", "dos"), cache.buscar("a"));
+
+		// Un cambio en una categoría sólo invalida los resultados que dependen de ella
+		cache.categoriaCambiada(novela);
+		assertNull(cache.buscar("a"));
+		assertEquals(Arrays.asList("tres"), cache.buscar("b"));
+
+		cache.librosAgregados();
+		assertNull(cache.buscar("b"));
+		assertEquals(0, cache.darCantidad());
+		assertEquals(2, cache.darInvalidadas());
+		assertEquals(3, cache.darAciertos());
+		assertEquals(2, cache.darFallos());
+		assertEquals(0.6, cache.darTasaAciertos(), 1e-9);
+	}
+
+	@Test
+	void testDesalojoPorMemoria()
+	{
+		CacheConsultas cache = new CacheConsultas(10_000);
+		ArrayList<Integer> resultado = new ArrayList<Integer>();
+		for (int i = 0; i < 100; i++)
+		{
+			resultado.add(i);
+		}
+		for (int i = 0; i < 30; i++)
+		{
+			cache.guardar("consulta " + i, resultado, new int[0], false, false);
+			// La primera consulta se sigue usando, así que no se descarta
+			assertNotNull(cache.buscar("consulta 0"));
+		}
+		assertTrue(cache.darBytes() <= 10_000);
+		assertTrue(cache.darDesalojadas() > 0);
+		assertNull(cache.buscar("consulta 1"));
+		assertNotNull(cache.buscar("consulta 29"));
+
+		cache.cambiarLimite(0);
+		assertEquals(0, cache.darCantidad());
+		assertEquals(0, cache.darBytes());
+	}
+}
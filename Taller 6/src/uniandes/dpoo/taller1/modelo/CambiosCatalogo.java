@@ -0,0 +1,328 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * Esta clase representa las diferencias entre el contenido actual de los archivos de una librería y los libros y categorías que la librería tiene en memoria.
+ *
+ * Las diferencias se calculan leyendo el archivo de libros registro por registro y cruzándolo contra una tabla de hash con los libros actuales, así que no hace falta construir otra librería. Un
+ * libro se identifica por su título; si hay varios libros con el mismo título, el primero del archivo corresponde al primero del catálogo, el segundo al segundo, etc.
+ *
+ * Las diferencias se pueden calcular en cualquier hilo a partir de una foto del catálogo (Libreria.tomarFoto), y luego se aplican con Libreria.aplicarCambios en el hilo dueño de la librería.
+ */
+public class CambiosCatalogo
+{
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * Libros que aparecieron en el archivo y no estaban en el catálogo
+	 */
+	private ArrayList<FilaLibro> insertados;
+
+	/**
+	 * Libros del catálogo que ya no están en el archivo
+	 */
+	private ArrayList<Libro> eliminados;
+
+	/**
+	 * Libros del catálogo cuya información cambió en el archivo
+	 */
+	private ArrayList<Libro> modificados;
+
+	/**
+	 * La información nueva de cada libro de la lista modificados, en el mismo orden
+	 */
+	private ArrayList<FilaLibro> filasModificadas;
+
+	/**
+	 * Categorías del archivo de categorías que no existían o que cambiaron. La llave es el nombre y el valor indica si la categoría es de ficción.
+	 */
+	private LinkedHashMap<String, Boolean> categorias;
+
+	/**
+	 * Categorías cuyos libros cambiaron al aplicar los cambios. Se llena en Libreria.aplicarCambios.
+	 */
+	private ArrayList<Categoria> categoriasAfectadas;
+
+	/**
+	 * Categorías que se crearon al aplicar los cambios. Se llena en Libreria.aplicarCambios.
+	 */
+	private ArrayList<Categoria> categoriasAgregadas;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	private CambiosCatalogo()
+	{
+		insertados = new ArrayList<FilaLibro>();
+		eliminados = new ArrayList<Libro>();
+		modificados = new ArrayList<Libro>();
+		filasModificadas = new ArrayList<FilaLibro>();
+		categorias = new LinkedHashMap<String, Boolean>();
+		categoriasAfectadas = new ArrayList<Categoria>();
+		categoriasAgregadas = new ArrayList<Categoria>();
+	}
+
+	// ************************************************************************
+	// Métodos para consultar los atributos
+	// ************************************************************************
+
+	/**
+	 * Consulta la cantidad de libros nuevos
+	 *
+	 * @return Cantidad de libros insertados
+	 */
+	public int darCantidadInsertados()
+	{
+		return insertados.size();
+	}
+
+	/**
+	 * Consulta la cantidad de libros que ya no están en el archivo
+	 *
+	 * @return Cantidad de libros eliminados
+	 */
+	public int darCantidadEliminados()
+	{
+		return eliminados.size();
+	}
+
+	/**
+	 * Consulta la cantidad de libros cuya información cambió
+	 *
+	 * @return Cantidad de libros modificados
+	 */
+	public int darCantidadModificados()
+	{
+		return modificados.size();
+	}
+
+	/**
+	 * Consulta si no hay ninguna diferencia entre los archivos y la librería
+	 *
+	 * @return Retorna true si no hay cambios. Retorna false en caso contrario.
+	 */
+	public boolean estaVacio()
+	{
+		return insertados.isEmpty() && eliminados.isEmpty() && modificados.isEmpty() && categorias.isEmpty();
+	}
+
+	/**
+	 * Retorna las categorías cuyos libros cambiaron. Sólo tiene sentido después de aplicar los cambios.
+	 *
+	 * @return Las categorías afectadas, sin repeticiones
+	 */
+	public ArrayList<Categoria> darCategoriasAfectadas()
+	{
+		return categoriasAfectadas;
+	}
+
+	/**
+	 * Retorna las categorías que se crearon. Sólo tiene sentido después de aplicar los cambios.
+	 *
+	 * @return Las categorías agregadas a la librería
+	 */
+	public ArrayList<Categoria> darCategoriasAgregadas()
+	{
+		return categoriasAgregadas;
+	}
+
+	ArrayList<FilaLibro> darInsertados()
+	{
+		return insertados;
+	}
+
+	ArrayList<Libro> darEliminados()
+	{
+		return eliminados;
+	}
+
+	ArrayList<Libro> darModificados()
+	{
+		return modificados;
+	}
+
+	ArrayList<FilaLibro> darFilasModificadas()
+	{
+		return filasModificadas;
+	}
+
+	LinkedHashMap<String, Boolean> darCategorias()
+	{
+		return categorias;
+	}
+
+	// ************************************************************************
+	// Otros métodos
+	// ************************************************************************
+
+	/**
+	 * Calcula las diferencias entre los archivos y la foto del catálogo que se recibe.
+	 *
+	 * Sólo se consultan los valores copiados en la foto, nunca los objetos de la librería, así que este método se puede invocar desde un hilo distinto al dueño de la librería. Si la librería cambia
+	 * mientras tanto, Libreria.aplicarCambios ignora los cambios que ya no tengan sentido y la siguiente comparación corrige el resto.
+	 *
+	 * @param foto              La foto del catálogo actual, tomada en el hilo dueño de la librería
+	 * @param archivoCategorias El nombre del archivo CSV con las categorías
+	 * @param archivoLibros     El nombre del archivo CSV con los libros
+	 * @param indicePortadas    El índice con el que se averigua cuáles portadas existen. Se le hace olvidar lo que sabía antes de empezar.
+	 * @return Las diferencias encontradas
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo los archivos
+	 */
+	public static CambiosCatalogo calcular(FotoCatalogo foto, String archivoCategorias, String archivoLibros, IndicePortadas indicePortadas) throws IOException
+	{
+		CambiosCatalogo cambios = new CambiosCatalogo();
+		cambios.compararCategorias(foto, archivoCategorias);
+		indicePortadas.olvidar();
+		cambios.compararLibros(foto, archivoLibros, indicePortadas);
+		return cambios;
+	}
+
+	/**
+	 * Lee el archivo de categorías y guarda las que no existen o cambiaron de tipo. Las categorías que desaparecieron del archivo se conservan, porque pueden tener libros.
+	 */
+	private void compararCategorias(FotoCatalogo foto, String archivoCategorias) throws IOException
+	{
+		HashMap<String, Boolean> porNombre = new HashMap<String, Boolean>();
+		for (int i = 0; i < foto.contarCategorias(); i++)
+		{
+			porNombre.put(foto.darNombreCategoria(i), foto.esFiccion(i));
+		}
+
+		try (LectorCSV lector = new LectorCSV(archivoCategorias))
+		{
+			lector.siguienteRegistro(); // Ignorar la primera línea porque tiene los títulos
+			while (lector.siguienteRegistro())
+			{
+				String nombre = lector.darCampo(0);
+				boolean ficcion = lector.campoIgual(1, "true");
+				Boolean actual = porNombre.get(nombre);
+				if (actual == null || actual.booleanValue() != ficcion)
+					categorias.put(nombre, ficcion);
+			}
+		}
+	}
+
+	/**
+	 * Lee el archivo de libros y lo cruza contra los libros de la foto.
+	 */
+	private void compararLibros(FotoCatalogo foto, String archivoLibros, IndicePortadas indicePortadas) throws IOException
+	{
+		// Para cada título, las posiciones de sus libros en el catálogo. La primera casilla cuenta cuántas ya se emparejaron.
+		int cantidad = foto.contarLibros();
+		HashMap<String, int[]> posiciones = new HashMap<String, int[]>(cantidad * 4 / 3 + 16);
+		for (int i = 0; i < cantidad; i++)
+		{
+			int[] anterior = posiciones.get(foto.darTitulo(i));
+			int[] nuevas;
+			if (anterior == null)
+			{
+				nuevas = new int[] { 0, i };
+			}
+			else
+			{
+				nuevas = new int[anterior.length + 1];
+				System.arraycopy(anterior, 0, nuevas, 0, anterior.length);
+				nuevas[anterior.length] = i;
+			}
+			posiciones.put(foto.darTitulo(i), nuevas);
+		}
+
+		boolean[] emparejados = new boolean[cantidad];
+
+		try (LectorCSV lector = new LectorCSV(archivoLibros))
+		{
+			lector.siguienteRegistro(); // Ignorar la primera línea porque tiene los títulos
+			while (lector.siguienteRegistro())
+			{
+				FilaLibro fila = new FilaLibro(lector, indicePortadas);
+				int[] posicionesTitulo = posiciones.get(fila.titulo);
+				if (posicionesTitulo == null || posicionesTitulo[0] == posicionesTitulo.length - 1)
+				{
+					insertados.add(fila);
+				}
+				else
+				{
+					posicionesTitulo[0]++;
+					int posicion = posicionesTitulo[posicionesTitulo[0]];
+					emparejados[posicion] = true;
+					if (!fila.coincide(foto, posicion))
+					{
+						modificados.add(foto.darLibro(posicion));
+						filasModificadas.add(fila);
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < cantidad; i++)
+		{
+			if (!emparejados[i])
+				eliminados.add(foto.darLibro(i));
+		}
+	}
+
+	/**
+	 * Crea una descripción corta de los cambios, para mostrarle al usuario
+	 */
+	@Override
+	public String toString()
+	{
+		return insertados.size() + " libros nuevos, " + eliminados.size() + " eliminados y " + modificados.size() + " modificados";
+	}
+
+	// ************************************************************************
+	// Clases anidadas
+	// ************************************************************************
+
+	/**
+	 * La información de un registro del archivo de libros. La portada es null si el archivo de la portada no existe; portadaArchivo es la que indica el registro, exista o no.
+	 */
+	static final class FilaLibro
+	{
+		final String titulo;
+
+		final String autor;
+
+		final double calificacion;
+
+		final String categoria;
+
+		final Imagen portada;
+
+		final Imagen portadaArchivo;
+
+		FilaLibro(LectorCSV lector, IndicePortadas indicePortadas)
+		{
+			titulo = lector.darCampo(0);
+			autor = lector.darCampo(1);
+			calificacion = lector.darDouble(2);
+			categoria = lector.darCampo(3);
+			portadaArchivo = new Imagen(lector.darCampo(4), lector.darEntero(5), lector.darEntero(6));
+			portada = indicePortadas.existe(portadaArchivo.darRutaArchivo()) ? portadaArchivo : null;
+		}
+
+		/**
+		 * Indica si un libro de la foto tiene exactamente la información de este registro
+		 */
+		boolean coincide(FotoCatalogo foto, int libro)
+		{
+			if (!autor.equals(foto.darAutor(libro)) || Double.compare(calificacion, foto.darCalificacion(libro)) != 0 || !categoria.equals(foto.darCategoria(libro)))
+				return false;
+
+			if ((portada == null) == foto.tienePortada(libro))
+				return false;
+
+			Imagen actual = foto.darPortadaArchivo(libro);
+			return actual != null && portadaArchivo.darRutaArchivo().equals(actual.darRutaArchivo()) && portadaArchivo.darAncho() == actual.darAncho()
+					&& portadaArchivo.darAlto() == actual.darAlto();
+		}
+	}
+
+}
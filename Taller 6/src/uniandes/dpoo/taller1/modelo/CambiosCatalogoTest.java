@@ -0,0 +1,42 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CambiosCatalogoTest
+{
+	@TempDir
+	Path carpeta;
+
+	@Test
+	void testModificadoEliminadoMientrasSeCalcula() throws Exception
+	{
+		CatalogoPrueba.escribirCatalogo(carpeta, "Novela,true\n" + "Poesía,false\n", "Ficciones,Jorge Luis Borges,4.8,Novela,./imagenes/a.jpg,1,1\n"
+				+ "Rayuela,Julio Cortázar,4.2,Novela,./imagenes/b.jpg,1,1\n" + "Emma,Jane Austen,4.0,Novela,./imagenes/c.jpg,1,1\n");
+		Libreria libreria = CatalogoPrueba.cargar(carpeta);
+
+		// Otro programa cambia la calificación de Rayuela y la categoría de Emma
+		CatalogoPrueba.escribirLibros(carpeta, "Ficciones,Jorge Luis Borges,4.8,Novela,./imagenes/a.jpg,1,1\n" + "Rayuela,Julio Cortázar,1.0,Novela,./imagenes/b.jpg,1,1\n"
+				+ "Emma,Jane Austen,4.0,Poesía,./imagenes/c.jpg,1,1\n");
+		CambiosCatalogo cambios = CambiosCatalogo.calcular(libreria.tomarFoto(), CatalogoPrueba.darArchivoCategorias(carpeta), CatalogoPrueba.darArchivoLibros(carpeta),
+				libreria.darIndicePortadas());
+		assertEquals(2, cambios.darCantidadModificados());
+
+		// Mientras se calculaban las diferencias, el usuario eliminó los dos libros modificados
+		assertThrows(Exception.class, () -> libreria.eliminarLibros("Cortázar,Austen"));
+		libreria.aplicarCambios(cambios);
+
+		assertEquals(1, libreria.darLibros().size());
+		assertTrue(libreria.buscarLibrosAutor("Austen").isEmpty());
+		assertTrue(libreria.darLibros("Poesía").isEmpty());
+		assertEquals(1, libreria.darLibros("Novela").size());
+		assertEquals(4.8, libreria.buscarLibro("Ficciones").darCalificacion());
+		assertEquals(4.8, libreria.darCategorias()[0].calificacionPromedio());
+		assertEquals(4.8, libreria.calificacionPromedio());
+		libreria.cerrar();
+	}
+}
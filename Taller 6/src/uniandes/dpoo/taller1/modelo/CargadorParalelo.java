@@ -0,0 +1,401 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Esta clase lee el archivo de libros con varios hilos. El archivo se divide en rangos de bytes que terminan en un cambio de línea y cada rango se lee con su propio LectorCSV dentro de un
+ * ForkJoinPool.
+ *
+ * Como los rangos se cortan en los cambios de línea, esta carga supone que ningún campo entre comillas tiene saltos de línea (el archivo de la librería nunca los tiene). Para archivos con ese tipo de
+ * campos se debe usar la carga secuencial.
+ */
+class CargadorParalelo
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * Tamaño mínimo en bytes de un rango. Los archivos más pequeños se leen en un solo rango.
+	 */
+	private static final long TAMANO_MINIMO_RANGO = 1024 * 1024;
+
+	/**
+	 * Cantidad de rangos que se crean por cada hilo, para repartir mejor el trabajo
+	 */
+	private static final int RANGOS_POR_HILO = 4;
+
+	/**
+	 * Cantidad de campos que debe tener cada registro del archivo de libros
+	 */
+	private static final int CAMPOS_POR_LIBRO = 7;
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * Nombre del archivo de libros
+	 */
+	private String nombreArchivo;
+
+	/**
+	 * Cantidad de hilos que se usarán
+	 */
+	private int paralelismo;
+
+	/**
+	 * Índice con el que se averigua cuáles portadas existen
+	 */
+	private IndicePortadas indicePortadas;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye un nuevo cargador
+	 *
+	 * @param nombreArchivo El nombre del archivo CSV con los libros
+	 * @param paralelismo   La cantidad de hilos que se usarán
+	 * @param indicePortadas Índice con el que se averigua cuáles portadas existen
+	 */
+	CargadorParalelo(String nombreArchivo, int paralelismo, IndicePortadas indicePortadas)
+	{
+		this.indicePortadas = indicePortadas;
+		this.nombreArchivo = nombreArchivo;
+		this.paralelismo = Math.max(1, paralelismo);
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Lee todo el archivo de libros.
+	 *
+	 * @return Los bloques con los registros de cada rango, en el mismo orden en el que aparecen en el archivo
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo
+	 */
+	ArrayList<BloqueLibros> cargar() throws IOException
+	{
+		ArrayList<BloqueLibros> bloques = new ArrayList<BloqueLibros>();
+		cargar((bloque, progreso) -> bloques.add(bloque));
+		return bloques;
+	}
+
+	/**
+	 * Lee todo el archivo de libros y le entrega al receptor cada bloque apenas están listos él y todos los anteriores, de modo que los recibe en el orden del archivo. Mientras el receptor procesa
+	 * un bloque, los hilos siguen leyendo los demás rangos.
+	 *
+	 * Si el receptor lanza una excepción, se deja de leer el archivo y la excepción se propaga.
+	 *
+	 * @param receptor El objeto al que se le entregan los bloques
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo
+	 */
+	void cargar(ReceptorBloques receptor) throws IOException
+	{
+		try (FileChannel canal = FileChannel.open(Paths.get(nombreArchivo), StandardOpenOption.READ))
+		{
+			long[] limites = calcularLimites(canal);
+
+			ForkJoinPool pool = new ForkJoinPool(paralelismo);
+			try
+			{
+				ArrayList<ForkJoinTask<BloqueLibros>> tareas = new ArrayList<ForkJoinTask<BloqueLibros>>();
+				for (int i = 0; i + 1 < limites.length; i++)
+				{
+					tareas.add(pool.submit(new TareaRango(canal, limites[i], limites[i + 1], indicePortadas)));
+				}
+
+				// Se esperan los resultados en el orden del archivo
+				long tamano = limites[limites.length - 1];
+				for (int i = 0; i < tareas.size(); i++)
+				{
+					receptor.bloqueLeido(tareas.get(i).join(), tamano == 0 ? 1 : limites[i + 1] / (double) tamano);
+				}
+			}
+			catch (UncheckedIOException e)
+			{
+				// ForkJoinTask puede envolver la excepción original al relanzarla en otro hilo
+				Throwable causa = e;
+				while (!(causa instanceof IOException) && causa.getCause() != null)
+				{
+					causa = causa.getCause();
+				}
+				throw causa instanceof IOException ? (IOException) causa : new IOException(e);
+			}
+			finally
+			{
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Calcula los límites de los rangos en los que se va a dividir el archivo. El primer rango empieza después de la línea de títulos y todos los demás empiezan justo después de un cambio de línea.
+	 *
+	 * @param canal El canal con el archivo
+	 * @return Un arreglo con las posiciones en las que empieza cada rango; la última posición es el tamaño del archivo
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo
+	 */
+	private long[] calcularLimites(FileChannel canal) throws IOException
+	{
+		long tamano = canal.size();
+		long inicio = siguienteLinea(canal, 0);
+
+		long cantidadRangos = Math.max(1, Math.min((long) paralelismo * RANGOS_POR_HILO, (tamano - inicio) / TAMANO_MINIMO_RANGO));
+
+		ArrayList<Long> limites = new ArrayList<Long>();
+		limites.add(inicio);
+		for (long i = 1; i < cantidadRangos; i++)
+		{
+			long limite = siguienteLinea(canal, inicio + (tamano - inicio) * i / cantidadRangos);
+			if (limite > limites.get(limites.size() - 1) && limite < tamano)
+				limites.add(limite);
+		}
+		limites.add(tamano);
+
+		long[] arreglo = new long[limites.size()];
+		for (int i = 0; i < arreglo.length; i++)
+		{
+			arreglo[i] = limites.get(i);
+		}
+		return arreglo;
+	}
+
+	/**
+	 * Busca la posición en la que empieza la línea siguiente a la posición indicada
+	 *
+	 * @param canal    El canal con el archivo
+	 * @param posicion La posición desde la que se busca el cambio de línea
+	 * @return La posición del byte siguiente al primer '\n' encontrado, o el final del archivo si no hay más cambios de línea
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo
+	 */
+	private static long siguienteLinea(FileChannel canal, long posicion) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long actual = posicion;
+		long tamano = canal.size();
+		while (actual < tamano)
+		{
+			buffer.clear();
+			int leidos = canal.read(buffer, actual);
+			if (leidos < 0)
+				return actual; // El archivo se recortó mientras se leía
+			for (int i = 0; i < leidos; i++)
+			{
+				if (buffer.get(i) == '\n')
+					return actual + i + 1;
+			}
+			actual += leidos;
+		}
+		return tamano;
+	}
+
+	// ************************************************************************
+	// Clases anidadas
+	// ************************************************************************
+
+	/**
+	 * Esta interfaz la implementan los objetos que reciben los bloques a medida que se leen
+	 */
+	interface ReceptorBloques
+	{
+		/**
+		 * Se invoca una vez por cada bloque, en el orden del archivo, desde el hilo que llamó a cargar
+		 *
+		 * @param bloque   El bloque leído
+		 * @param progreso Fracción del archivo que ya se entregó, entre 0 y 1
+		 */
+		void bloqueLeido(BloqueLibros bloque, double progreso);
+	}
+
+	/**
+	 * Registros leídos de un rango del archivo, guardados por columnas
+	 */
+	static final class BloqueLibros
+	{
+		String[] titulos = new String[64];
+
+		String[] autores = new String[64];
+
+		double[] calificaciones = new double[64];
+
+		String[] categorias = new String[64];
+
+		String[] portadas = new String[64];
+
+		int[] anchos = new int[64];
+
+		int[] altos = new int[64];
+
+		/**
+		 * Indica si existe el archivo de la portada de cada registro. Se llena después de leer todo el rango.
+		 */
+		boolean[] conPortada;
+
+		private int cantidad;
+
+		/**
+		 * Diccionario para que los autores y categorías repetidos dentro del bloque compartan el mismo String
+		 */
+		private DiccionarioCadenas cadenas = new DiccionarioCadenas();
+
+		/**
+		 * Consulta la cantidad de registros del bloque
+		 *
+		 * @return cantidad
+		 */
+		int darCantidad()
+		{
+			return cantidad;
+		}
+
+		/**
+		 * Agrega el registro actual de un lector al final del bloque
+		 *
+		 * @param lector El lector que tiene el registro
+		 */
+		private void agregar(LectorCSV lector)
+		{
+			if (cantidad == titulos.length)
+				crecer();
+
+			titulos[cantidad] = lector.darCampo(0);
+			autores[cantidad] = lector.darCampo(1, cadenas);
+			calificaciones[cantidad] = lector.darDouble(2);
+			categorias[cantidad] = lector.darCampo(3, cadenas);
+			portadas[cantidad] = lector.darCampo(4);
+			anchos[cantidad] = lector.darEntero(5);
+			altos[cantidad] = lector.darEntero(6);
+			cantidad++;
+		}
+
+		private void crecer()
+		{
+			int nuevoTamano = titulos.length * 2;
+			titulos = Arrays.copyOf(titulos, nuevoTamano);
+			autores = Arrays.copyOf(autores, nuevoTamano);
+			calificaciones = Arrays.copyOf(calificaciones, nuevoTamano);
+			categorias = Arrays.copyOf(categorias, nuevoTamano);
+			portadas = Arrays.copyOf(portadas, nuevoTamano);
+			anchos = Arrays.copyOf(anchos, nuevoTamano);
+			altos = Arrays.copyOf(altos, nuevoTamano);
+		}
+	}
+
+	/**
+	 * Tarea que lee los registros de un rango del archivo
+	 */
+	@SuppressWarnings("serial")
+	private static final class TareaRango extends RecursiveTask<BloqueLibros>
+	{
+		private final FileChannel canal;
+
+		private final long inicio;
+
+		private final long fin;
+
+		private final IndicePortadas indicePortadas;
+
+		TareaRango(FileChannel canal, long inicio, long fin, IndicePortadas indicePortadas)
+		{
+			this.indicePortadas = indicePortadas;
+			this.canal = canal;
+			this.inicio = inicio;
+			this.fin = fin;
+		}
+
+		@Override
+		protected BloqueLibros compute()
+		{
+			BloqueLibros bloque = new BloqueLibros();
+			try (LectorCSV lector = new LectorCSV(new InputStreamReader(new FlujoRango(canal, inicio, fin), StandardCharsets.UTF_8)))
+			{
+				while (lector.siguienteRegistro())
+				{
+					if (lector.darNumeroCampos() < CAMPOS_POR_LIBRO)
+						throw new IOException("Hay un registro con " + lector.darNumeroCampos() + " campos cerca del byte " + inicio);
+					bloque.agregar(lector);
+				}
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+			bloque.conPortada = indicePortadas.existen(Arrays.asList(bloque.portadas).subList(0, bloque.darCantidad()));
+			return bloque;
+		}
+	}
+
+	/**
+	 * Flujo de bytes que lee un rango de un FileChannel usando lecturas posicionales, para que varios hilos puedan compartir el mismo canal
+	 */
+	private static final class FlujoRango extends InputStream
+	{
+		private final FileChannel canal;
+
+		private final ByteBuffer buffer;
+
+		private long posicion;
+
+		private final long fin;
+
+		FlujoRango(FileChannel canal, long inicio, long fin)
+		{
+			this.canal = canal;
+			this.posicion = inicio;
+			this.fin = fin;
+			this.buffer = ByteBuffer.allocate(64 * 1024);
+			this.buffer.flip();
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			if (!buffer.hasRemaining() && !llenar())
+				return -1;
+			return buffer.get() & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] destino, int desde, int cantidad) throws IOException
+		{
+			if (!buffer.hasRemaining() && !llenar())
+				return -1;
+			int n = Math.min(cantidad, buffer.remaining());
+			buffer.get(destino, desde, n);
+			return n;
+		}
+
+		private boolean llenar() throws IOException
+		{
+			if (posicion >= fin)
+				return false;
+
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), fin - posicion));
+			int leidos = canal.read(buffer, posicion);
+			buffer.flip();
+			if (leidos <= 0)
+				return false;
+			posicion += leidos;
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CargadorParaleloTest
+{
+	@TempDir
+	Path carpeta;
+
+	@Test
+	void testMismoResultadoQueSecuencial() throws IOException
+	{
+		String libros = generarLibros(40_000, true);
+		assertTrue(libros.length() > 3 * 1024 * 1024);
+
+		// Cada carga usa su propia carpeta, para que la segunda no salga de la instantánea de la primera
+		Libreria secuencial = cargar("secuencial", libros, 1);
+		Libreria paralela = cargar("paralela", libros, 4);
+		String archivoParalelo = CatalogoPrueba.darArchivoLibros(carpeta.resolve("paralela"));
+		assertTrue(new CargadorParalelo(archivoParalelo, 4, paralela.darIndicePortadas()).cargar().size() > 1);
+
+		compararLibrerias(secuencial, paralela);
+		assertEquals(40_000, paralela.darLibros().size());
+		secuencial.cerrar();
+		paralela.cerrar();
+	}
+
+	@Test
+	void testArchivoSinCambioDeLineaFinal() throws IOException
+	{
+		// El último rango termina en el último registro, sin un cambio de línea después
+		String libros = generarLibros(40_000, false);
+		Libreria secuencial = cargar("secuencial", libros, 1);
+		Libreria paralela = cargar("paralela", libros, 4);
+		compararLibrerias(secuencial, paralela);
+		Libro ultimo = paralela.darLibros().get(paralela.darLibros().size() - 1);
+		assertEquals("Libro 39999", ultimo.darTitulo());
+		assertEquals(39_999 % 400, ultimo.darPortadaArchivo().darAlto());
+		secuencial.cerrar();
+		paralela.cerrar();
+
+		// Un archivo pequeño, que se lee en un solo rango
+		Libreria pequena = cargar("pequena", "Rayuela,Julio Cortázar,4.2,Novela,./imagenes/a.jpg,1,2", 4);
+		assertEquals(1, pequena.darLibros().size());
+		assertEquals("Julio Cortázar", pequena.darLibros().get(0).darAutor());
+		assertEquals(4.2, pequena.darLibros().get(0).darCalificacion());
+		pequena.cerrar();
+	}
+
+	/**
+	 * Escribe los archivos de una librería en una carpeta nueva y la carga
+	 */
+	private Libreria cargar(String nombreCarpeta, String libros, int paralelismo) throws IOException
+	{
+		Path destino = Files.createDirectories(carpeta.resolve(nombreCarpeta));
+		CatalogoPrueba.escribirCatalogo(destino, "Novela,true\n" + "Poesía,false\n", libros);
+		return Libreria.cargar(CatalogoPrueba.darArchivoCategorias(destino), CatalogoPrueba.darArchivoLibros(destino), paralelismo);
+	}
+
+	/**
+	 * Genera un archivo de libros con títulos entre comillas, calificaciones con decimales y una categoría que no está en el archivo de categorías
+	 */
+	private static String generarLibros(int cantidad, boolean cambioDeLineaFinal)
+	{
+		StringBuilder libros = new StringBuilder();
+		for (int i = 0; i < cantidad; i++)
+		{
+			String titulo = i % 7 == 0 ? "\"Libro " + i + ", segunda parte\"" : "Libro " + i;
+			String categoria = i % 3 == 0 ? "Novela" : i % 3 == 1 ? "Poesía" : "Ensayo";
+			libros.append(titulo).append(",Autor de prueba número ").append(i % 101).append(',').append(i % 50 / 10.0).append(',').append(categoria);
+			libros.append(",./imagenes/portada-").append(i).append(".jpg,").append(i % 300).append(',').append(i % 400);
+			if (cambioDeLineaFinal || i + 1 < cantidad)
+				libros.append('\n');
+		}
+		return libros.toString();
+	}
+
+	private static void compararLibrerias(Libreria esperada, Libreria obtenida)
+	{
+		Categoria[] categoriasEsperadas = esperada.darCategorias();
+		Categoria[] categoriasObtenidas = obtenida.darCategorias();
+		assertEquals(categoriasEsperadas.length, categoriasObtenidas.length);
+		for (int i = 0; i < categoriasEsperadas.length; i++)
+		{
+			assertEquals(categoriasEsperadas[i].darNombre(), categoriasObtenidas[i].darNombre());
+		}
+
+		ArrayList<Libro> librosEsperados = esperada.darLibros();
+		ArrayList<Libro> librosObtenidos = obtenida.darLibros();
+		assertEquals(librosEsperados.size(), librosObtenidos.size());
+		for (int i = 0; i < librosEsperados.size(); i++)
+		{
+			Libro libroEsperado = librosEsperados.get(i);
+			Libro libroObtenido = librosObtenidos.get(i);
+			assertEquals(libroEsperado.darTitulo(), libroObtenido.darTitulo());
+			assertEquals(libroEsperado.darAutor(), libroObtenido.darAutor());
+			assertEquals(libroEsperado.darCalificacion(), libroObtenido.darCalificacion());
+			assertEquals(libroEsperado.darCategoria().darNombre(), libroObtenido.darCategoria().darNombre());
+			assertEquals(libroEsperado.tienePortada(), libroObtenido.tienePortada());
+			assertEquals(libroEsperado.darPortadaArchivo().darRutaArchivo(), libroObtenido.darPortadaArchivo().darRutaArchivo());
+			assertEquals(libroEsperado.darPortadaArchivo().darAncho(), libroObtenido.darPortadaArchivo().darAncho());
+			assertEquals(libroEsperado.darPortadaArchivo().darAlto(), libroObtenido.darPortadaArchivo().darAlto());
+		}
+	}
+}
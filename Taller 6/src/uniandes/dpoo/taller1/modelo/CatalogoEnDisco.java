@@ -0,0 +1,641 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Esta clase permite consultar un catálogo que está en un archivo paginado, sin cargarlo en memoria. Sirve para catálogos que no caben en la memoria del programa; la librería normal (Libreria)
+ * sigue cargando todo el catálogo en memoria.
+ *
+ * El archivo se construye una vez a partir de los archivos CSV con el método construir, y después sólo se lee. Está dividido en páginas de ArchivoPaginado.TAMANO_PAGINA bytes:
+ * <ul>
+ * <li>La página 0 tiene el encabezado con la ubicación de todo lo demás.</li>
+ * <li>Las páginas de libros tienen los registros de los libros en el orden del archivo CSV. Un registro nunca queda partido entre dos páginas, así que su posición en el archivo lo identifica.</li>
+ * <li>Un árbol B+ (ArbolB) asocia cada título con la posición de sus libros.</li>
+ * <li>Otros dos árboles asocian cada categoría y cada autor con una lista de posiciones de libros, guardada en la zona de listas.</li>
+ * <li>Al final está la tabla de categorías.</li>
+ * </ul>
+ *
+ * Las consultas sólo leen las páginas que necesitan, y las páginas leídas se guardan en un cache de tamaño fijo. Los libros que retornan las consultas se leen del archivo en cada consulta: no están
+ * en las listas de sus categorías.
+ *
+ * Los métodos de consulta se pueden llamar desde varios hilos a la vez.
+ */
+public class CatalogoEnDisco implements Closeable
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * El número con el que empieza el archivo
+	 */
+	public static final int MAGIA = 0x4C494244;
+
+	/**
+	 * La versión del formato del archivo
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * La cantidad de páginas que se guardan en memoria si no se indica otra cosa (4 MB)
+	 */
+	public static final int PAGINAS_EN_CACHE = 1024;
+
+	private static final int TAMANO_BUFFER = 1 << 20;
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	private ArchivoPaginado archivo;
+
+	private long cantidadLibros;
+
+	/**
+	 * Las categorías del catálogo. El número con el que los registros de libros identifican su categoría es su posición en el registro.
+	 */
+	private RegistroCategorias categorias;
+
+	private ArbolB arbolTitulos;
+
+	private ArbolB arbolCategorias;
+
+	private ArbolB arbolAutores;
+
+	/**
+	 * La posición en el archivo donde empieza la zona de listas. Los árboles de categorías y autores guardan posiciones relativas a esta.
+	 */
+	private long inicioListas;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Abre un catálogo en disco con un cache de PAGINAS_EN_CACHE páginas
+	 *
+	 * @param nombreArchivo El nombre del archivo construido con el método construir
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo o si no es un catálogo en disco
+	 */
+	public CatalogoEnDisco(String nombreArchivo) throws IOException
+	{
+		this(nombreArchivo, PAGINAS_EN_CACHE);
+	}
+
+	/**
+	 * Abre un catálogo en disco
+	 *
+	 * @param nombreArchivo    El nombre del archivo construido con el método construir
+	 * @param paginasEnCache La mayor cantidad de páginas del archivo que se guardan en memoria
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo o si no es un catálogo en disco
+	 */
+	public CatalogoEnDisco(String nombreArchivo, int paginasEnCache) throws IOException
+	{
+		archivo = new ArchivoPaginado(Paths.get(nombreArchivo), paginasEnCache);
+		try
+		{
+			ByteBuffer encabezado = archivo.leerPagina(0);
+			if (encabezado.getInt() != MAGIA)
+				throw new IOException(nombreArchivo + " no es un catálogo en disco");
+			if (encabezado.getInt() != VERSION || encabezado.getInt() != ArchivoPaginado.TAMANO_PAGINA)
+				throw new IOException("El catálogo " + nombreArchivo + " tiene una versión que no se puede leer");
+			cantidadLibros = encabezado.getLong();
+			arbolTitulos = new ArbolB(archivo, encabezado.getInt());
+			arbolCategorias = new ArbolB(archivo, encabezado.getInt());
+			arbolAutores = new ArbolB(archivo, encabezado.getInt());
+			inicioListas = encabezado.getLong();
+			long inicioTabla = encabezado.getLong();
+			int largoTabla = encabezado.getInt();
+
+			ByteBuffer tabla = ByteBuffer.wrap(archivo.leer(inicioTabla, largoTabla));
+			categorias = new RegistroCategorias();
+			int cantidad = tabla.getInt();
+			for (int i = 0; i < cantidad; i++)
+			{
+				String nombre = leerTexto(tabla);
+				categorias.agregar(new Categoria(nombre, tabla.get() != 0));
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			archivo.close();
+			throw e;
+		}
+	}
+
+	// ************************************************************************
+	// Consultas
+	// ************************************************************************
+
+	/**
+	 * Consulta cuántos libros tiene el catálogo
+	 *
+	 * @return cantidadLibros
+	 */
+	public long contarLibros()
+	{
+		return cantidadLibros;
+	}
+
+	/**
+	 * Retorna las categorías del catálogo, en el orden del archivo de categorías seguidas de las que sólo aparecían en el archivo de libros. Las categorías no tienen libros: los libros se consultan
+	 * con darLibros.
+	 *
+	 * @return Un arreglo con las categorías
+	 */
+	public Categoria[] darCategorias()
+	{
+		return categorias.darArreglo();
+	}
+
+	/**
+	 * Consulta cuántas páginas se han tenido que leer del disco
+	 *
+	 * @return La cantidad de páginas leídas
+	 */
+	public long darPaginasLeidas()
+	{
+		return archivo.darLecturas();
+	}
+
+	/**
+	 * Consulta cuántas veces una página que necesitaba una consulta ya estaba en memoria
+	 *
+	 * @return La cantidad de aciertos del cache
+	 */
+	public long darAciertosCache()
+	{
+		return archivo.darAciertos();
+	}
+
+	/**
+	 * Consulta la mayor cantidad de páginas que se guardan en memoria
+	 *
+	 * @return La capacidad del cache, en páginas
+	 */
+	public int darCapacidadCache()
+	{
+		return archivo.darCapacidad();
+	}
+
+	/**
+	 * Cambia la mayor cantidad de páginas que se guardan en memoria
+	 *
+	 * @param paginas La nueva capacidad, en páginas. Debe ser al menos 1.
+	 */
+	public void cambiarCapacidadCache(int paginas)
+	{
+		archivo.cambiarCapacidad(paginas);
+	}
+
+	// ************************************************************************
+	// Consultas sobre los libros
+	// ************************************************************************
+
+	/**
+	 * Retorna los libros de una categoría
+	 *
+	 * @param nombreCategoria El nombre de la categoría
+	 * @return Una lista con los libros de la categoría, en el orden del catálogo. Si la categoría no existe, la lista es vacía.
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo
+	 */
+	public ArrayList<Libro> darLibros(String nombreCategoria) throws IOException
+	{
+		ArrayList<Libro> libros = leerLibros(leerListas(arbolCategorias.buscar(nombreCategoria, Integer.MAX_VALUE)));
+		libros.removeIf(libro -> !libro.darCategoria().darNombre().equals(nombreCategoria));
+		return libros;
+	}
+
+	/**
+	 * Busca un libro a partir de su título. Si hay varios libros con ese título, retorna el primero del catálogo.
+	 *
+	 * @param tituloLibro Título del libro buscado
+	 * @return Retorna un libro con el título indicado o null si no se encontró un libro con ese título
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo
+	 */
+	public Libro buscarLibro(String tituloLibro) throws IOException
+	{
+		for (long posicion : arbolTitulos.buscar(tituloLibro, Integer.MAX_VALUE))
+		{
+			Libro libro = leerLibro(posicion);
+			if (libro.darTitulo().equals(tituloLibro))
+				return libro;
+		}
+		return null;
+	}
+
+	/**
+	 * Busca todos los libros que tienen el título indicado
+	 *
+	 * @param tituloLibro Título de los libros buscados
+	 * @return Una lista con los libros que tienen ese título, en el orden del catálogo. Si no hay ninguno, la lista es vacía.
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo
+	 */
+	public ArrayList<Libro> buscarLibros(String tituloLibro) throws IOException
+	{
+		ArrayList<Long> posiciones = arbolTitulos.buscar(tituloLibro, Integer.MAX_VALUE);
+		long[] arreglo = new long[posiciones.size()];
+		for (int i = 0; i < arreglo.length; i++)
+		{
+			arreglo[i] = posiciones.get(i);
+		}
+		ArrayList<Libro> libros = leerLibros(arreglo);
+		libros.removeIf(libro -> !libro.darTitulo().equals(tituloLibro));
+		return libros;
+	}
+
+	/**
+	 * Busca los libros de un autor. El nombre del autor debe ser exacto.
+	 *
+	 * @param nombreAutor El nombre del autor
+	 * @return Una lista con los libros del autor, en el orden del catálogo. Si no hay ninguno, la lista es vacía.
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo
+	 */
+	public ArrayList<Libro> darLibrosAutor(String nombreAutor) throws IOException
+	{
+		ArrayList<Libro> libros = leerLibros(leerListas(arbolAutores.buscar(nombreAutor, Integer.MAX_VALUE)));
+		libros.removeIf(libro -> !libro.darAutor().equals(nombreAutor));
+		return libros;
+	}
+
+	/**
+	 * Busca los libros cuyo autor contiene la cadena indicada, sin tener en cuenta mayúsculas y minúsculas.
+	 *
+	 * La búsqueda recorre las hojas del árbol de autores, donde cada autor aparece una sola vez, y sólo lee los libros de los autores que coinciden. Para los autores cuyo nombre ocupa más de
+	 * ArbolB.LARGO_MAXIMO_LLAVE bytes sólo se revisa el principio del nombre.
+	 *
+	 * @param cadenaAutor La cadena que se usará para consultar el autor
+	 * @return Una lista con los libros encontrados, agrupados por categoría en el orden de las categorías del catálogo
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo
+	 */
+	public ArrayList<Libro> buscarLibrosAutor(String cadenaAutor) throws IOException
+	{
+		String cadena = cadenaAutor.toLowerCase();
+		ArrayList<Long> listas = new ArrayList<Long>();
+		arbolAutores.recorrer((autor, lista) -> {
+			if (autor.toLowerCase().contains(cadena))
+				listas.add(lista);
+		});
+		ArrayList<Libro> libros = leerLibros(leerListas(listas));
+		libros.sort(Libro.ORDEN_CATEGORIAS);
+		return libros;
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Cierra el archivo del catálogo
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		archivo.close();
+	}
+
+	/**
+	 * Lee las listas de posiciones indicadas y las une
+	 *
+	 * @param listas Las posiciones de las listas, relativas al inicio de la zona de listas
+	 * @return Las posiciones de los libros de todas las listas, de menor a mayor
+	 */
+	private long[] leerListas(ArrayList<Long> listas) throws IOException
+	{
+		long[][] leidas = new long[listas.size()][];
+		int total = 0;
+		for (int i = 0; i < leidas.length; i++)
+		{
+			long inicio = inicioListas + listas.get(i);
+			int cantidad = ByteBuffer.wrap(archivo.leer(inicio, 4)).getInt();
+			leidas[i] = new long[cantidad];
+			ByteBuffer.wrap(archivo.leer(inicio + 4, 8 * cantidad)).asLongBuffer().get(leidas[i]);
+			total += cantidad;
+		}
+
+		long[] posiciones = new long[total];
+		int siguiente = 0;
+		for (long[] lista : leidas)
+		{
+			System.arraycopy(lista, 0, posiciones, siguiente, lista.length);
+			siguiente += lista.length;
+		}
+		if (leidas.length > 1)
+			Arrays.sort(posiciones);
+		return posiciones;
+	}
+
+	/**
+	 * Lee los libros que están en las posiciones indicadas. Las posiciones deben estar ordenadas, así que los libros se leen en el orden del catálogo y los que están en la misma página se leen
+	 * seguidos.
+	 */
+	private ArrayList<Libro> leerLibros(long[] posiciones) throws IOException
+	{
+		ArrayList<Libro> libros = new ArrayList<Libro>(posiciones.length);
+		for (long posicion : posiciones)
+		{
+			libros.add(leerLibro(posicion));
+		}
+		return libros;
+	}
+
+	/**
+	 * Lee el registro del libro que está en una posición del archivo
+	 */
+	private Libro leerLibro(long posicion) throws IOException
+	{
+		ByteBuffer pagina = archivo.leerPagina((int) (posicion / ArchivoPaginado.TAMANO_PAGINA));
+		pagina.position((int) (posicion % ArchivoPaginado.TAMANO_PAGINA));
+		String titulo = leerTexto(pagina);
+		String autor = leerTexto(pagina);
+		double calificacion = pagina.getDouble();
+		Categoria categoria = categorias.darCategoria(pagina.getInt());
+		boolean conPortada = pagina.get() != 0;
+		String rutaPortada = leerTexto(pagina);
+		int ancho = pagina.getInt();
+		int alto = pagina.getInt();
+		return new Libro(titulo, autor, calificacion, categoria, conPortada ? new Imagen(rutaPortada, ancho, alto) : null);
+	}
+
+	private static String leerTexto(ByteBuffer datos)
+	{
+		byte[] bytes = new byte[Short.toUnsignedInt(datos.getShort())];
+		datos.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void escribirTexto(ByteBuffer datos, byte[] texto)
+	{
+		datos.putShort((short) texto.length);
+		datos.put(texto);
+	}
+
+	// ************************************************************************
+	// Construcción del archivo
+	// ************************************************************************
+
+	/**
+	 * Construye el archivo de un catálogo en disco a partir de los archivos CSV de una librería.
+	 *
+	 * Los archivos se leen una sola vez, y los índices se arman ordenando las llaves con un OrdenadorExterno, así que la memoria que se usa no depende del tamaño del catálogo. El archivo se escribe
+	 * primero con la extensión .tmp y al final reemplaza al anterior.
+	 *
+	 * Los cambios que están en la bitácora de los archivos (BitacoraCambios) no están en los archivos CSV, así que no se puede construir el catálogo mientras la bitácora tenga registros: primero
+	 * se debe compactar, por ejemplo con Libreria.compactarBitacora. Abrir la bitácora también termina una compactación que se haya interrumpido.
+	 *
+	 * @param nombreArchivoCategorias El nombre del archivo CSV con las categorías
+	 * @param nombreArchivoLibros     El nombre del archivo CSV con los libros
+	 * @param nombreArchivoDestino    El nombre del archivo que se va a construir
+	 * @param indicePortadas          El índice con el que se averigua cuáles portadas existen
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo o escribiendo los archivos, si algún libro no cabe en una página o si la bitácora tiene cambios que no están en
+	 *                     los archivos CSV
+	 */
+	public static void construir(String nombreArchivoCategorias, String nombreArchivoLibros, String nombreArchivoDestino, IndicePortadas indicePortadas) throws IOException
+	{
+		// Si no hay bitácora ni una compactación a medias, no se crea una
+		String nombreBitacora = BitacoraCambios.darNombreArchivo(nombreArchivoLibros);
+		if (Files.exists(Paths.get(nombreBitacora)) || Files.exists(Paths.get(nombreBitacora + ".nueva")))
+		{
+			try (BitacoraCambios bitacora = new BitacoraCambios(nombreArchivoCategorias, nombreArchivoLibros))
+			{
+				if (bitacora.darCantidadRegistros() > 0)
+					throw new IOException("La bitácora tiene " + bitacora.darCantidadRegistros() + " cambios que no están en los archivos CSV. Se debe compactar antes de construir el catálogo.");
+			}
+		}
+
+		Path destino = Paths.get(nombreArchivoDestino).toAbsolutePath();
+		Path carpeta = destino.getParent();
+		Path temporal = Paths.get(destino + ".tmp");
+		Path listas = Files.createTempFile(carpeta, "listas", ".tmp");
+		final int tamanoPagina = ArchivoPaginado.TAMANO_PAGINA;
+
+		try (EscritorPaginas escritor = new EscritorPaginas(temporal))
+		{
+			escritor.reservar(1); // El encabezado se escribe al final
+
+			// Las categorías, identificadas por su posición
+			ArrayList<String> nombres = new ArrayList<String>();
+			ArrayList<Boolean> ficcion = new ArrayList<Boolean>();
+			HashMap<String, Integer> posiciones = new HashMap<String, Integer>();
+			try (LectorCSV lector = new LectorCSV(nombreArchivoCategorias))
+			{
+				lector.siguienteRegistro(); // Ignorar la primera línea porque tiene los títulos
+				while (lector.siguienteRegistro())
+				{
+					String nombre = lector.darCampo(0);
+					if (!posiciones.containsKey(nombre))
+					{
+						posiciones.put(nombre, nombres.size());
+						nombres.add(nombre);
+						ficcion.add(lector.campoIgual(1, "true"));
+					}
+				}
+			}
+
+			// Los tres ordenadores reciben las llaves en la misma pasada por los libros, pero cada uno se cierra, y borra sus archivos, apenas se arma su árbol. Por eso están anidados en el orden
+			// contrario al de los árboles. Las listas de categorías y autores se escriben primero en un archivo temporal.
+			long cantidadLibros = 0;
+			int raizTitulos;
+			int raizCategorias;
+			int raizAutores;
+			long[] largo = new long[1];
+			try (OrdenadorExterno porAutor = new OrdenadorExterno(carpeta, "autores");
+					DataOutputStream salidaListas = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(listas), TAMANO_BUFFER)))
+			{
+				try (OrdenadorExterno porCategoria = new OrdenadorExterno(carpeta, "categorias"))
+				{
+					try (OrdenadorExterno porTitulo = new OrdenadorExterno(carpeta, "titulos"))
+					{
+						// Las páginas de libros
+						int numeroPagina = escritor.reservar(1);
+						ByteBuffer pagina = ByteBuffer.allocate(tamanoPagina);
+						try (LectorCSV lector = new LectorCSV(nombreArchivoLibros))
+						{
+							lector.siguienteRegistro(); // Ignorar la primera línea porque tiene los títulos
+							while (lector.siguienteRegistro())
+							{
+								String titulo = lector.darCampo(0);
+								String autor = lector.darCampo(1);
+								double calificacion = lector.darDouble(2);
+								String nombreCategoria = lector.darCampo(3);
+								String rutaPortada = lector.darCampo(4);
+								int ancho = lector.darEntero(5);
+								int alto = lector.darEntero(6);
+
+								Integer categoria = posiciones.get(nombreCategoria);
+								if (categoria == null)
+								{
+									// Igual que en la librería, las categorías desconocidas se agregan como no ficción
+									categoria = nombres.size();
+									posiciones.put(nombreCategoria, categoria);
+									nombres.add(nombreCategoria);
+									ficcion.add(false);
+								}
+
+								byte[] bytesTitulo = titulo.getBytes(StandardCharsets.UTF_8);
+								byte[] bytesAutor = autor.getBytes(StandardCharsets.UTF_8);
+								byte[] bytesPortada = rutaPortada.getBytes(StandardCharsets.UTF_8);
+								int largoLibro = 2 + bytesTitulo.length + 2 + bytesAutor.length + 8 + 4 + 1 + 2 + bytesPortada.length + 4 + 4;
+								if (largoLibro > tamanoPagina)
+									throw new IOException("El libro de la línea " + lector.darNumeroLinea() + " no cabe en una página del catálogo");
+								if (pagina.remaining() < largoLibro)
+								{
+									escritor.escribirPagina(numeroPagina, pagina);
+									numeroPagina = escritor.reservar(1);
+									pagina = ByteBuffer.allocate(tamanoPagina);
+								}
+
+								long posicion = (long) numeroPagina * tamanoPagina + pagina.position();
+								escribirTexto(pagina, bytesTitulo);
+								escribirTexto(pagina, bytesAutor);
+								pagina.putDouble(calificacion);
+								pagina.putInt(categoria);
+								pagina.put((byte) (indicePortadas.existe(rutaPortada) ? 1 : 0));
+								escribirTexto(pagina, bytesPortada);
+								pagina.putInt(ancho);
+								pagina.putInt(alto);
+								cantidadLibros++;
+
+								porTitulo.agregar(ArbolB.recortar(titulo), posicion);
+								porCategoria.agregar(ArbolB.recortar(nombreCategoria), posicion);
+								porAutor.agregar(ArbolB.recortar(autor), posicion);
+							}
+						}
+						escritor.escribirPagina(numeroPagina, pagina);
+
+						// Los árboles
+						ArbolB.Constructor titulos = new ArbolB.Constructor(escritor);
+						OrdenadorExterno.Recorrido recorrido = porTitulo.ordenar();
+						while (recorrido.siguiente())
+						{
+							titulos.agregar(recorrido.darLlave(), recorrido.darValor());
+						}
+						raizTitulos = titulos.terminar();
+					}
+					raizCategorias = construirArbolListas(escritor, porCategoria.ordenar(), salidaListas, largo);
+				}
+				raizAutores = construirArbolListas(escritor, porAutor.ordenar(), salidaListas, largo);
+			}
+			long largoListas = largo[0];
+
+			// La zona de listas, copiada del archivo temporal
+			long inicioListas = (long) escritor.reservar(contarPaginas(largoListas)) * tamanoPagina;
+			try (FileChannel entrada = FileChannel.open(listas, StandardOpenOption.READ))
+			{
+				ByteBuffer bloque = ByteBuffer.allocate(TAMANO_BUFFER);
+				long copiados = 0;
+				while (copiados < largoListas)
+				{
+					bloque.clear();
+					entrada.read(bloque, copiados);
+					bloque.flip();
+					long posicion = inicioListas + copiados;
+					copiados += bloque.remaining();
+					escritor.escribir(posicion, bloque);
+				}
+			}
+
+			// La tabla de categorías
+			int largoTabla = 4;
+			byte[][] bytesNombres = new byte[nombres.size()][];
+			for (int i = 0; i < bytesNombres.length; i++)
+			{
+				bytesNombres[i] = nombres.get(i).getBytes(StandardCharsets.UTF_8);
+				largoTabla += 2 + bytesNombres[i].length + 1;
+			}
+			ByteBuffer tabla = ByteBuffer.allocate(largoTabla);
+			tabla.putInt(bytesNombres.length);
+			for (int i = 0; i < bytesNombres.length; i++)
+			{
+				escribirTexto(tabla, bytesNombres[i]);
+				tabla.put((byte) (ficcion.get(i) ? 1 : 0));
+			}
+			tabla.flip();
+			long inicioTabla = (long) escritor.reservar(contarPaginas(largoTabla)) * tamanoPagina;
+			escritor.escribir(inicioTabla, tabla);
+
+			ByteBuffer encabezado = ByteBuffer.allocate(tamanoPagina);
+			encabezado.putInt(MAGIA);
+			encabezado.putInt(VERSION);
+			encabezado.putInt(tamanoPagina);
+			encabezado.putLong(cantidadLibros);
+			encabezado.putInt(raizTitulos);
+			encabezado.putInt(raizCategorias);
+			encabezado.putInt(raizAutores);
+			encabezado.putLong(inicioListas);
+			encabezado.putLong(inicioTabla);
+			encabezado.putInt(largoTabla);
+			escritor.escribirPagina(0, encabezado);
+			escritor.terminar();
+		}
+		catch (IOException | RuntimeException e)
+		{
+			Files.deleteIfExists(temporal);
+			throw e;
+		}
+		finally
+		{
+			Files.deleteIfExists(listas);
+		}
+		Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Construye un árbol que asocia cada llave distinta con la lista de sus valores. Cada lista se escribe en la salida como la cantidad de valores seguida de los valores.
+	 *
+	 * @param escritor  El escritor del archivo del árbol
+	 * @param recorrido Las parejas ordenadas
+	 * @param salida    La salida donde se escriben las listas
+	 * @param largo     Un arreglo con una posición que tiene la cantidad de bytes escritos en la salida. Se actualiza con las listas nuevas.
+	 * @return El número de la página de la raíz del árbol
+	 */
+	private static int construirArbolListas(EscritorPaginas escritor, OrdenadorExterno.Recorrido recorrido, DataOutputStream salida, long[] largo) throws IOException
+	{
+		ArbolB.Constructor arbol = new ArbolB.Constructor(escritor);
+		long[] valores = new long[16];
+		int cantidad = 0;
+		String llave = null;
+		boolean hay = recorrido.siguiente();
+		while (hay)
+		{
+			llave = recorrido.darLlave();
+			cantidad = 0;
+			do
+			{
+				if (cantidad == valores.length)
+					valores = Arrays.copyOf(valores, cantidad * 2);
+				valores[cantidad++] = recorrido.darValor();
+				hay = recorrido.siguiente();
+			}
+			while (hay && recorrido.darLlave().equals(llave));
+
+			arbol.agregar(llave, largo[0]);
+			salida.writeInt(cantidad);
+			for (int i = 0; i < cantidad; i++)
+			{
+				salida.writeLong(valores[i]);
+			}
+			largo[0] += 4 + 8L * cantidad;
+		}
+		return arbol.terminar();
+	}
+
+	private static int contarPaginas(long bytes)
+	{
+		return (int) ((bytes + ArchivoPaginado.TAMANO_PAGINA - 1) / ArchivoPaginado.TAMANO_PAGINA);
+	}
+}
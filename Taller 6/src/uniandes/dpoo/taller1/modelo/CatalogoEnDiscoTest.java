@@ -0,0 +1,143 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CatalogoEnDiscoTest
+{
+	/**
+	 * Los registros del archivo de categorías de todas las pruebas
+	 */
+	private static final String CATEGORIAS = "Novela,true\n" + "Poesía,false\n";
+
+	@TempDir
+	Path carpeta;
+
+	private String archivoCategorias;
+
+	private String archivoLibros;
+
+	private String archivoCatalogo;
+
+	@BeforeEach
+	void setUp() throws IOException
+	{
+		archivoCategorias = CatalogoPrueba.darArchivoCategorias(carpeta);
+		archivoLibros = CatalogoPrueba.darArchivoLibros(carpeta);
+		archivoCatalogo = carpeta.resolve("libreria.catalogo").toString();
+	}
+
+	@Test
+	void testConsultasIgualesALaLibreria() throws Exception
+	{
+		CatalogoPrueba.escribirCatalogo(carpeta, CATEGORIAS, "Cien años de soledad,Gabriel García Márquez,4.5,Novela,./imagenes/a.jpg,100,150\n"
+				+ "Rayuela,Julio Cortázar,4.2,Novela,./imagenes/b.jpg,100,150\n" + "Veinte poemas de amor,Pablo Neruda,4.0,Poesía,./imagenes/c.jpg,100,150\n"
+				+ "Rayuela,Julio Cortázar,3.9,Poesía,./imagenes/d.jpg,100,150\n" + "Bestiario,Julio Cortázar,4.1,Cuento,./imagenes/e.jpg,100,150\n");
+		CatalogoEnDisco.construir(archivoCategorias, archivoLibros, archivoCatalogo, new IndicePortadas(carpeta.toString(), IndicePortadas.LISTADO));
+		Libreria libreria = CatalogoPrueba.cargar(carpeta);
+		CatalogoEnDisco catalogo = new CatalogoEnDisco(archivoCatalogo, 1);
+
+		assertEquals(5, catalogo.contarLibros());
+		assertEquals(3, catalogo.darCategorias().length);
+		assertEquals("Cuento", catalogo.darCategorias()[2].darNombre());
+		assertEquals(descripciones(libreria.darLibros("Novela")), descripciones(catalogo.darLibros("Novela")));
+		assertEquals(descripciones(libreria.buscarLibros("Rayuela")), descripciones(catalogo.buscarLibros("Rayuela")));
+		assertEquals(descripciones(libreria.darLibrosAutor("Julio Cortázar")), descripciones(catalogo.darLibrosAutor("Julio Cortázar")));
+		assertEquals(descripciones(libreria.buscarLibrosAutor("CORT")), descripciones(catalogo.buscarLibrosAutor("CORT")));
+		assertEquals(4.2, catalogo.buscarLibro("Rayuela").darCalificacion());
+		assertNull(catalogo.buscarLibro("Rayuel"));
+		assertTrue(catalogo.darLibros("Ensayo").isEmpty());
+
+		// Los libros del catálogo en disco no quedan en sus categorías
+		assertEquals(0, catalogo.darCategorias()[0].contarLibrosEnCategoria());
+		catalogo.close();
+		libreria.cerrar();
+	}
+
+	@Test
+	void testVariasPaginas() throws Exception
+	{
+		StringBuilder libros = new StringBuilder();
+		for (int i = 0; i < 20000; i++)
+		{
+			libros.append("Libro ").append(i * 7919 % 20000).append(",Autor ").append(i % 500).append(',').append(i % 5).append(',').append(i % 3 == 0 ? "Poesía" : "Novela")
+					.append(",./imagenes/x.jpg,1,1\n");
+		}
+		CatalogoPrueba.escribirCatalogo(carpeta, CATEGORIAS, libros.toString());
+		CatalogoEnDisco.construir(archivoCategorias, archivoLibros, archivoCatalogo, new IndicePortadas(carpeta.toString(), IndicePortadas.LISTADO));
+		CatalogoEnDisco catalogo = new CatalogoEnDisco(archivoCatalogo, 8);
+
+		for (int i = 0; i < 20000; i += 997)
+		{
+			assertEquals("Libro " + i, catalogo.buscarLibro("Libro " + i).darTitulo());
+		}
+		assertEquals(40, catalogo.darLibrosAutor("Autor 7").size());
+		assertEquals(6667, catalogo.darLibros("Poesía").size());
+
+		// Una búsqueda por título sólo lee la ruta del árbol y la página del libro
+		long antes = catalogo.darPaginasLeidas();
+		catalogo.buscarLibro("Libro 12345");
+		assertTrue(catalogo.darPaginasLeidas() - antes <= 5);
+		catalogo.close();
+	}
+
+	@Test
+	void testLibroInvalido() throws Exception
+	{
+		CatalogoPrueba.escribirCatalogo(carpeta, CATEGORIAS,
+				"Rayuela,Julio Cortázar,4.2,Novela,./imagenes/b.jpg,100,150\n" + "Bestiario,Julio Cortázar,cuatro,Cuento,./imagenes/e.jpg,100,150\n");
+		assertThrows(NumberFormatException.class,
+				() -> CatalogoEnDisco.construir(archivoCategorias, archivoLibros, archivoCatalogo, new IndicePortadas(carpeta.toString(), IndicePortadas.LISTADO)));
+
+		// No queda el catálogo a medio construir ni los archivos temporales
+		try (Stream<Path> archivos = Files.list(carpeta))
+		{
+			assertEquals(2, archivos.count());
+		}
+	}
+
+	@Test
+	void testBitacoraConCambios() throws Exception
+	{
+		CatalogoPrueba.escribirCatalogo(carpeta, CATEGORIAS,
+				"Rayuela,Julio Cortázar,4.2,Novela,./imagenes/b.jpg,100,150\n" + "Veinte poemas de amor,Pablo Neruda,4.0,Poesía,./imagenes/c.jpg,100,150\n");
+		Libreria libreria = CatalogoPrueba.cargar(carpeta);
+		libreria.cambiarCategoria("Poesía", "Poemas");
+		libreria.cerrar();
+
+		// El cambio sólo está en la bitácora
+		assertThrows(IOException.class,
+				() -> CatalogoEnDisco.construir(archivoCategorias, archivoLibros, archivoCatalogo, new IndicePortadas(carpeta.toString(), IndicePortadas.LISTADO)));
+		assertFalse(Files.exists(Path.of(archivoCatalogo)));
+
+		libreria = CatalogoPrueba.cargar(carpeta);
+		libreria.compactarBitacora();
+		libreria.darBitacora().sincronizar();
+		libreria.cerrar();
+		CatalogoEnDisco.construir(archivoCategorias, archivoLibros, archivoCatalogo, new IndicePortadas(carpeta.toString(), IndicePortadas.LISTADO));
+		try (CatalogoEnDisco catalogo = new CatalogoEnDisco(archivoCatalogo, 1))
+		{
+			assertEquals(1, catalogo.darLibros("Poemas").size());
+			assertEquals(0, catalogo.darLibros("Poesía").size());
+		}
+	}
+
+	private static ArrayList<String> descripciones(ArrayList<Libro> libros)
+	{
+		ArrayList<String> descripciones = new ArrayList<String>();
+		for (Libro libro : libros)
+		{
+			descripciones.add(libro.darTitulo() + "|" + libro.darAutor() + "|" + libro.darCalificacion() + "|" + libro.darCategoria().darNombre());
+		}
+		return descripciones;
+	}
+}
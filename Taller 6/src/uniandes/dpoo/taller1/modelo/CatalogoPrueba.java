@@ -0,0 +1,97 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Escribe los archivos CSV de una librería de prueba en una carpeta, normalmente la carpeta temporal de un test, y carga la librería a partir de ellos.
+ */
+final class CatalogoPrueba
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	static final String ENCABEZADO_CATEGORIAS = "Categoria,ficcion\n";
+
+	static final String ENCABEZADO_LIBROS = "Titulo,Autor,Calificacion,Categoria,Portada,Ancho,Alto\n";
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	private CatalogoPrueba()
+	{
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Retorna el nombre del archivo de categorías de una carpeta
+	 *
+	 * @param carpeta La carpeta
+	 * @return El nombre del archivo categorias.csv de la carpeta
+	 */
+	static String darArchivoCategorias(Path carpeta)
+	{
+		return carpeta.resolve("categorias.csv").toString();
+	}
+
+	/**
+	 * Retorna el nombre del archivo de libros de una carpeta
+	 *
+	 * @param carpeta La carpeta
+	 * @return El nombre del archivo libreria.csv de la carpeta
+	 */
+	static String darArchivoLibros(Path carpeta)
+	{
+		return carpeta.resolve("libreria.csv").toString();
+	}
+
+	/**
+	 * Escribe los archivos de categorías y de libros de una carpeta, reemplazando los que hubiera
+	 *
+	 * @param carpeta    La carpeta
+	 * @param categorias Los registros del archivo de categorías, sin el encabezado
+	 * @param libros     Los registros del archivo de libros, sin el encabezado
+	 * @throws IOException Se lanza esta excepción si no se pueden escribir los archivos
+	 */
+	static void escribirCatalogo(Path carpeta, String categorias, String libros) throws IOException
+	{
+		escribir(darArchivoCategorias(carpeta), ENCABEZADO_CATEGORIAS + categorias);
+		escribirLibros(carpeta, libros);
+	}
+
+	/**
+	 * Reemplaza el archivo de libros de una carpeta
+	 *
+	 * @param carpeta La carpeta
+	 * @param libros  Los registros del archivo de libros, sin el encabezado
+	 * @throws IOException Se lanza esta excepción si no se puede escribir el archivo
+	 */
+	static void escribirLibros(Path carpeta, String libros) throws IOException
+	{
+		escribir(darArchivoLibros(carpeta), ENCABEZADO_LIBROS + libros);
+	}
+
+	/**
+	 * Carga con un solo hilo la librería de los archivos de una carpeta
+	 *
+	 * @param carpeta La carpeta
+	 * @return La librería
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo los archivos
+	 */
+	static Libreria cargar(Path carpeta) throws IOException
+	{
+		return Libreria.cargar(darArchivoCategorias(carpeta), darArchivoLibros(carpeta), 1);
+	}
+
+	private static void escribir(String archivo, String contenido) throws IOException
+	{
+		Files.write(Path.of(archivo), contenido.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -1,6 +1,8 @@
 package uniandes.dpoo.taller1.modelo;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Set;
 
 /**
  * Esta clase representa a una categoría de libros dentro de la librería. Cada
@@ -28,6 +30,41 @@ public class Categoria
 	 */
 	private ArrayList<Libro> libros;
 
+	/**
+	 * Cantidad de libros de la categoría que tiene cada autor
+	 */
+	private HashMap<String, Integer> librosPorAutor;
+
+	/**
+	 * Posición de la categoría dentro del registro de categorías de la librería
+	 */
+	private int ordinal;
+
+	/**
+	 * El registro de categorías al que pertenece la categoría, o null si no está en ninguno. Se le avisa cada vez que cambian los totales de la categoría.
+	 */
+	private RegistroCategorias registro;
+
+	/**
+	 * Los totales de los libros de la categoría: suma de calificaciones, cantidad y libros sin portada
+	 */
+	private Acumulado acumulado;
+
+	/**
+	 * Las calificaciones de los libros de la categoría, guardadas de forma contigua
+	 */
+	private ColumnaCalificaciones calificaciones;
+
+	/**
+	 * Los libros de la categoría ordenados por calificación. Se construye la primera vez que se consulta y desde entonces se mantiene al día.
+	 */
+	private IndiceCalificaciones ordenCalificaciones;
+
+	/**
+	 * La cantidad de veces que han cambiado la categoría o sus libros. VersionCatalogo lo usa para saber cuáles categorías tiene que volver a copiar.
+	 */
+	private int modificaciones;
+
 	// ************************************************************************
 	// Constructores
 	// ************************************************************************
@@ -37,6 +74,9 @@ public class Categoria
 		this.nombre = nombre;
 		this.ficcion = ficcion;
 		this.libros = new ArrayList<Libro>();
+		this.librosPorAutor = new HashMap<String, Integer>();
+		this.acumulado = new Acumulado();
+		this.calificaciones = new ColumnaCalificaciones();
 	}
 
 	// ************************************************************************
@@ -74,6 +114,48 @@ public class Categoria
 		return libros;
 	}
 
+	/**
+	 * Retorna la columna con las calificaciones de los libros de la categoría. La columna se actualiza a medida que cambian los libros.
+	 * 
+	 * @return calificaciones
+	 */
+	public ColumnaCalificaciones darCalificaciones()
+	{
+		return calificaciones;
+	}
+
+	/**
+	 * Retorna el índice con los libros de la categoría ordenados por calificación. La primera vez se construye a partir de los libros, y desde entonces se actualiza a medida que cambian.
+	 * 
+	 * @return ordenCalificaciones
+	 */
+	public IndiceCalificaciones darIndiceCalificaciones()
+	{
+		if (ordenCalificaciones == null)
+			ordenCalificaciones = new IndiceCalificaciones(libros);
+		return ordenCalificaciones;
+	}
+
+	/**
+	 * Consulta la posición de la categoría dentro del registro de categorías de la librería. Es 0 si la categoría no está en un registro.
+	 * 
+	 * @return ordinal
+	 */
+	int darOrdinal()
+	{
+		return ordinal;
+	}
+
+	/**
+	 * Consulta cuántas veces han cambiado la categoría o sus libros
+	 * 
+	 * @return modificaciones
+	 */
+	int darModificaciones()
+	{
+		return modificaciones;
+	}
+
 	// ************************************************************************
 	// Otros métodos
 	// ************************************************************************
@@ -85,7 +167,175 @@ public class Categoria
 	 */
 	public void agregarLibro(Libro nuevoLibro)
 	{
+		modificaciones++;
+		avisarCambio();
 		libros.add(nuevoLibro);
+		calificaciones.agregar(nuevoLibro);
+		if (ordenCalificaciones != null)
+			ordenCalificaciones.agregar(nuevoLibro);
+		librosPorAutor.merge(nuevoLibro.darAutor(), 1, Integer::sum);
+		contar(nuevoLibro.darCalificacion(), nuevoLibro.tienePortada(), true);
+	}
+
+	/**
+	 * Retira un libro de la categoría. El libro se busca por identidad y no por título, porque puede haber varios libros con el mismo título.
+	 * 
+	 * @param libro El libro que se va a retirar
+	 */
+	void retirarLibro(Libro libro)
+	{
+		for (int i = libros.size() - 1; i >= 0; i--)
+		{
+			if (libros.get(i) == libro)
+			{
+				modificaciones++;
+				avisarCambio();
+				libros.remove(i);
+				calificaciones.retirar(libro);
+				if (ordenCalificaciones != null)
+					ordenCalificaciones.retirar(libro.darCalificacion(), libro.darSecuencia());
+				descontarAutor(libro.darAutor());
+				contar(libro.darCalificacion(), libro.tienePortada(), false);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Retira de la categoría todos los libros del conjunto, recorriendo la lista una sola vez
+	 * 
+	 * @param retirados Los libros que se van a retirar. Debe ser un conjunto por identidad.
+	 */
+	void retirarLibros(Set<Libro> retirados)
+	{
+		modificaciones++;
+		avisarCambio();
+		libros.removeIf(libro -> {
+			boolean retirado = retirados.contains(libro);
+			if (retirado)
+			{
+				calificaciones.retirar(libro);
+				if (ordenCalificaciones != null)
+					ordenCalificaciones.retirar(libro.darCalificacion(), libro.darSecuencia());
+				descontarAutor(libro.darAutor());
+				contar(libro.darCalificacion(), libro.tienePortada(), false);
+			}
+			return retirado;
+		});
+	}
+
+	/**
+	 * Actualiza los totales de la categoría cuando cambia la calificación o la portada de uno de sus libros
+	 * 
+	 * @param calificacionAnterior La calificación que tenía el libro
+	 * @param teniaPortada         Indica si el libro tenía portada
+	 * @param libro                El libro, ya con sus valores nuevos
+	 */
+	void libroCambiado(double calificacionAnterior, boolean teniaPortada, Libro libro)
+	{
+		modificaciones++;
+		// Si sólo cambió la portada, la posición de la categoría en las clasificaciones sigue igual
+		boolean cambiaPromedio = Double.compare(calificacionAnterior, libro.darCalificacion()) != 0;
+		if (cambiaPromedio)
+		{
+			avisarCambio();
+			calificaciones.actualizar(libro);
+			if (ordenCalificaciones != null)
+			{
+				ordenCalificaciones.retirar(calificacionAnterior, libro.darSecuencia());
+				ordenCalificaciones.agregar(libro);
+			}
+		}
+		acumulado.cambiar(calificacionAnterior, teniaPortada, libro.darCalificacion(), libro.tienePortada());
+		if (registro != null)
+			registro.darAcumulado().cambiar(calificacionAnterior, teniaPortada, libro.darCalificacion(), libro.tienePortada());
+	}
+
+	/**
+	 * Cuenta o descuenta un libro en los totales de la categoría y en los del registro
+	 */
+	private void contar(double calificacion, boolean tienePortada, boolean agregar)
+	{
+		if (agregar)
+			acumulado.agregar(calificacion, tienePortada);
+		else
+			acumulado.retirar(calificacion, tienePortada);
+
+		if (registro != null)
+		{
+			if (agregar)
+				registro.darAcumulado().agregar(calificacion, tienePortada);
+			else
+				registro.darAcumulado().retirar(calificacion, tienePortada);
+		}
+	}
+
+	/**
+	 * Registra que cambió algún dato de un libro de la categoría que no afecta sus totales, como la ruta de la portada
+	 */
+	void libroModificado()
+	{
+		modificaciones++;
+	}
+
+	/**
+	 * Le avisa al registro que van a cambiar los totales de la categoría, para que la saque de las clasificaciones mientras su posición todavía corresponde a los totales anteriores
+	 */
+	private void avisarCambio()
+	{
+		if (registro != null)
+			registro.marcarCambio(this);
+	}
+
+	/**
+	 * Actualiza la cuenta de libros por autor cuando cambia el autor de un libro de la categoría
+	 * 
+	 * @param autorAnterior El autor que tenía el libro
+	 * @param autorNuevo    El autor que tiene ahora el libro
+	 */
+	void cambiarAutor(String autorAnterior, String autorNuevo)
+	{
+		modificaciones++;
+		descontarAutor(autorAnterior);
+		librosPorAutor.merge(autorNuevo, 1, Integer::sum);
+	}
+
+	private void descontarAutor(String autor)
+	{
+		librosPorAutor.computeIfPresent(autor, (nombre, cantidad) -> cantidad == 1 ? null : cantidad - 1);
+	}
+
+	/**
+	 * Indica a cuál registro pertenece la categoría y en qué posición
+	 * 
+	 * @param elRegistro   El registro de categorías
+	 * @param nuevoOrdinal La posición de la categoría dentro del registro
+	 */
+	void registrar(RegistroCategorias elRegistro, int nuevoOrdinal)
+	{
+		this.registro = elRegistro;
+		this.ordinal = nuevoOrdinal;
+	}
+
+	/**
+	 * Retorna los totales de los libros de la categoría
+	 * 
+	 * @return acumulado
+	 */
+	Acumulado darAcumulado()
+	{
+		return acumulado;
+	}
+
+	/**
+	 * Cambia el tipo de la categoría
+	 * 
+	 * @param esFiccion Indica si la categoría corresponde a libros de ficción
+	 */
+	void cambiarFiccion(boolean esFiccion)
+	{
+		modificaciones++;
+		this.ficcion = esFiccion;
 	}
 
 	/**
@@ -99,27 +349,32 @@ public class Categoria
 	}
 
 	/**
-	 * Calcula la calificación promedio de los libros que pertenecen a la categoría
+	 * Consulta la calificación promedio de los libros que pertenecen a la categoría. La categoría lleva la suma de las calificaciones a medida que cambian sus libros, así que no hace falta
+	 * recorrerlos.
 	 * 
-	 * @return Calificación promedio
+	 * @return Calificación promedio, o 0 si la categoría no tiene libros
 	 */
 	public double calificacionPromedio()
 	{
-		double total = 0;
-
-		for (Libro libro : libros)
-		{
-			total += libro.darCalificacion();
-		}
+		return acumulado.darPromedio();
+	}
 
-		return total / (double) libros.size();
+	/**
+	 * Cuenta cuántos libros de la categoría no tienen portada
+	 * 
+	 * @return Cantidad de libros sin portada
+	 */
+	public int contarLibrosSinPortada()
+	{
+		return acumulado.darSinPortada();
 	}
 
 	/**
 	 * Consulta si en la categoría hay algún libro escrito por el autor indicado.
 	 * 
 	 * La búsqueda del autor se hace de forma exacta (tiene que ser idéntico al
-	 * valor indicado en el parámetro nombreAutor).
+	 * valor indicado en el parámetro nombreAutor). La categoría lleva la cuenta de
+	 * libros por autor, así que no hace falta recorrer los libros.
 	 * 
 	 * @param nombreAutor El nombre del autor para el que se quiere hacer la
 	 *                    búsqueda.
@@ -128,16 +383,7 @@ public class Categoria
 	 */
 	public boolean hayLibroDeAutor(String nombreAutor)
 	{
-		boolean hayLibro = false;
-
-		int i = 0;
-		while (i < libros.size() && !hayLibro)
-		{
-			hayLibro = libros.get(i).darAutor().equals(nombreAutor);
-			i++;
-		}
-
-		return hayLibro;
+		return librosPorAutor.containsKey(nombreAutor);
 	}
 
 	/**
@@ -181,9 +427,17 @@ public class Categoria
 	{
 		return nombre;
 	}
-	
+
+	/**
+	 * Cambia el nombre de la categoría.
+	 * 
+	 * Si la categoría hace parte de una librería, el cambio se debe hacer con Libreria.cambiarCategoria para que el registro de categorías quede actualizado.
+	 * 
+	 * @param nuevoNombre El nuevo nombre de la categoría
+	 */
 	public void cambiarNombre(String nuevoNombre)
 	{
+		modificaciones++;
 		this.nombre = nuevoNombre;
 	}
 
@@ -0,0 +1,273 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.util.Arrays;
+
+/**
+ * Esta clase guarda las calificaciones de los libros de una categoría en un arreglo contiguo de double, para que los cálculos que recorren todas las calificaciones (suma, mínimo, máximo,
+ * histogramas) lean la memoria en orden en lugar de visitar cada objeto Libro.
+ *
+ * Las calificaciones no están en el mismo orden que los libros de la categoría: cada libro sabe en qué posición de la columna está su calificación, y cuando se retira un libro su posición se
+ * ocupa con la última calificación de la columna, así que retirar un libro no desplaza las demás.
+ *
+ * Los cálculos recorren el arreglo de a 4 posiciones con acumuladores independientes, para que el compilador JIT los pueda ejecutar en paralelo dentro del procesador.
+ */
+public class ColumnaCalificaciones
+{
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * Las calificaciones. Sólo las primeras posiciones (tantas como indique cantidad) son válidas.
+	 */
+	private double[] valores;
+
+	/**
+	 * El libro al que corresponde cada calificación, para poder actualizar su posición cuando se mueve dentro de la columna
+	 */
+	private Libro[] libros;
+
+	/**
+	 * Cantidad de calificaciones en la columna
+	 */
+	private int cantidad;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye una columna vacía
+	 */
+	ColumnaCalificaciones()
+	{
+		valores = new double[8];
+		libros = new Libro[8];
+	}
+
+	// ************************************************************************
+	// Métodos para modificar la columna
+	// ************************************************************************
+
+	/**
+	 * Agrega la calificación de un libro al final de la columna
+	 *
+	 * @param libro El libro
+	 */
+	void agregar(Libro libro)
+	{
+		if (cantidad == valores.length)
+		{
+			valores = Arrays.copyOf(valores, cantidad * 2);
+			libros = Arrays.copyOf(libros, cantidad * 2);
+		}
+		valores[cantidad] = libro.darCalificacion();
+		libros[cantidad] = libro;
+		libro.posicionColumna = cantidad;
+		cantidad++;
+	}
+
+	/**
+	 * Retira la calificación de un libro, moviendo la última calificación a su posición
+	 *
+	 * @param libro El libro. Debe estar en la columna.
+	 */
+	void retirar(Libro libro)
+	{
+		int posicion = libro.posicionColumna;
+		cantidad--;
+		if (posicion != cantidad)
+		{
+			valores[posicion] = valores[cantidad];
+			libros[posicion] = libros[cantidad];
+			libros[posicion].posicionColumna = posicion;
+		}
+		libros[cantidad] = null;
+	}
+
+	/**
+	 * Copia a la columna la calificación actual de un libro que ya está en ella
+	 *
+	 * @param libro El libro
+	 */
+	void actualizar(Libro libro)
+	{
+		valores[libro.posicionColumna] = libro.darCalificacion();
+	}
+
+	// ************************************************************************
+	// Consultas
+	// ************************************************************************
+
+	/**
+	 * Consulta la cantidad de calificaciones de la columna
+	 *
+	 * @return cantidad
+	 */
+	public int darCantidad()
+	{
+		return cantidad;
+	}
+
+	/**
+	 * Retorna una copia de las calificaciones, en el orden en el que están en la columna
+	 *
+	 * @return Un arreglo nuevo con las calificaciones
+	 */
+	public double[] darValores()
+	{
+		return Arrays.copyOf(valores, cantidad);
+	}
+
+	/**
+	 * Suma las calificaciones
+	 *
+	 * @return La suma, o 0 si la columna está vacía
+	 */
+	public double sumar()
+	{
+		return sumar(valores, cantidad);
+	}
+
+	/**
+	 * Calcula el promedio de las calificaciones
+	 *
+	 * @return El promedio, o 0 si la columna está vacía
+	 */
+	public double calcularPromedio()
+	{
+		return cantidad == 0 ? 0 : sumar() / cantidad;
+	}
+
+	/**
+	 * Busca la menor calificación
+	 *
+	 * @return La menor calificación, o Double.NaN si la columna está vacía
+	 */
+	public double darMinimo()
+	{
+		return cantidad == 0 ? Double.NaN : darMinimo(valores, cantidad);
+	}
+
+	/**
+	 * Busca la mayor calificación
+	 *
+	 * @return La mayor calificación, o Double.NaN si la columna está vacía
+	 */
+	public double darMaximo()
+	{
+		return cantidad == 0 ? Double.NaN : darMaximo(valores, cantidad);
+	}
+
+	/**
+	 * Cuenta las calificaciones mayores que un umbral
+	 *
+	 * @param umbral El umbral
+	 * @return Cantidad de calificaciones estrictamente mayores que el umbral
+	 */
+	public int contarMayores(double umbral)
+	{
+		return contarMayores(valores, cantidad, umbral);
+	}
+
+	/**
+	 * Cuenta las calificaciones en intervalos del mismo tamaño y suma las cuentas a un histograma
+	 *
+	 * @param histograma El histograma al que se suman las cuentas. Cada posición es un intervalo.
+	 * @param minimo     El límite inferior del primer intervalo
+	 * @param maximo     El límite superior del último intervalo. Las calificaciones iguales a este límite se cuentan en el último intervalo.
+	 */
+	public void contarEnHistograma(int[] histograma, double minimo, double maximo)
+	{
+		contarEnHistograma(valores, cantidad, histograma, minimo, maximo);
+	}
+
+	// ************************************************************************
+	// Cálculos sobre arreglos
+	// ************************************************************************
+
+	static double sumar(double[] datos, int cantidad)
+	{
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		int i = 0;
+		for (; i + 4 <= cantidad; i += 4)
+		{
+			s0 += datos[i];
+			s1 += datos[i + 1];
+			s2 += datos[i + 2];
+			s3 += datos[i + 3];
+		}
+		for (; i < cantidad; i++)
+		{
+			s0 += datos[i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	static double darMinimo(double[] datos, int cantidad)
+	{
+		double m0 = datos[0], m1 = m0, m2 = m0, m3 = m0;
+		int i = 0;
+		for (; i + 4 <= cantidad; i += 4)
+		{
+			m0 = Math.min(m0, datos[i]);
+			m1 = Math.min(m1, datos[i + 1]);
+			m2 = Math.min(m2, datos[i + 2]);
+			m3 = Math.min(m3, datos[i + 3]);
+		}
+		for (; i < cantidad; i++)
+		{
+			m0 = Math.min(m0, datos[i]);
+		}
+		return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+	}
+
+	static double darMaximo(double[] datos, int cantidad)
+	{
+		double m0 = datos[0], m1 = m0, m2 = m0, m3 = m0;
+		int i = 0;
+		for (; i + 4 <= cantidad; i += 4)
+		{
+			m0 = Math.max(m0, datos[i]);
+			m1 = Math.max(m1, datos[i + 1]);
+			m2 = Math.max(m2, datos[i + 2]);
+			m3 = Math.max(m3, datos[i + 3]);
+		}
+		for (; i < cantidad; i++)
+		{
+			m0 = Math.max(m0, datos[i]);
+		}
+		return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+	}
+
+	static int contarMayores(double[] datos, int cantidad, double umbral)
+	{
+		// Las comparaciones se suman como 0 o 1 para que el ciclo no tenga saltos que dependan de los datos
+		int c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+		int i = 0;
+		for (; i + 4 <= cantidad; i += 4)
+		{
+			c0 += datos[i] > umbral ? 1 : 0;
+			c1 += datos[i + 1] > umbral ? 1 : 0;
+			c2 += datos[i + 2] > umbral ? 1 : 0;
+			c3 += datos[i + 3] > umbral ? 1 : 0;
+		}
+		for (; i < cantidad; i++)
+		{
+			c0 += datos[i] > umbral ? 1 : 0;
+		}
+		return c0 + c1 + c2 + c3;
+	}
+
+	static void contarEnHistograma(double[] datos, int cantidad, int[] histograma, double minimo, double maximo)
+	{
+		int intervalos = histograma.length;
+		double escala = intervalos / (maximo - minimo);
+		for (int i = 0; i < cantidad; i++)
+		{
+			double valor = datos[i];
+			if (valor >= minimo && valor <= maximo)
+				histograma[Math.min((int) ((valor - minimo) * escala), intervalos - 1)]++;
+		}
+	}
+}
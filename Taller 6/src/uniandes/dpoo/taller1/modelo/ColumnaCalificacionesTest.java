@@ -0,0 +1,40 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class ColumnaCalificacionesTest
+{
+
+	@Test
+	void testCalculosConRetiros()
+	{
+		Categoria categoria = new Categoria("Ciencia", false);
+		Libro[] libros = new Libro[7];
+		for (int i = 0; i < libros.length; i++)
+		{
+			libros[i] = new Libro("Libro " + i, "Autor", i * 0.75, categoria);
+		}
+		ColumnaCalificaciones columna = categoria.darCalificaciones();
+		assertEquals(7, columna.darCantidad());
+		assertEquals(15.75, columna.sumar(), 1e-9);
+		assertEquals(0, columna.darMinimo());
+		assertEquals(4.5, columna.darMaximo());
+		assertEquals(3, columna.contarMayores(2.5));
+
+		// Al retirar un libro, la última calificación ocupa su posición
+		categoria.retirarLibro(libros[0]);
+		categoria.retirarLibro(libros[6]);
+		assertEquals(5, columna.darCantidad());
+		assertEquals(0.75, columna.darMinimo());
+		assertEquals(3.75, columna.darMaximo());
+
+		libros[3].actualizar("Autor", 5, categoria);
+		assertEquals(5, columna.darMaximo());
+
+		int[] histograma = new int[5];
+		columna.contarEnHistograma(histograma, 0, 5);
+		assertArrayEquals(new int[] { 1, 1, 0, 2, 1 }, histograma);
+	}
+}
@@ -0,0 +1,577 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Esta clase representa una consulta sobre los libros de la librería, formada por varios filtros que se deben cumplir al mismo tiempo: título exacto, categoría, autor exacto, parte del nombre del
+ * autor, rango de calificaciones y si el libro tiene portada.
+ *
+ * Al ejecutar la consulta, los libros candidatos salen del índice que se espera que entregue menos libros (el de títulos, el de autores, el de calificaciones o la lista de una categoría), y
+ * sobre cada candidato se revisan los demás filtros, empezando por los más baratos. Sólo si ningún filtro tiene índice se recorren todas las categorías.
+ *
+ * Cuando hay que revisar muchos libros de varias categorías, el trabajo se reparte entre los hilos del ForkJoinPool común: cada categoría (o cada tramo de una categoría grande) se revisa por
+ * separado y los resultados se unen en el orden de las categorías, así que quedan iguales a los de una ejecución secuencial.
+ *
+ * Las consultas también se pueden escribir como texto, por ejemplo <code>autor:verne cat:Fiction rating&gt;=4</code>. Ver el método interpretar.
+ */
+public class ConsultaLibros
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * Cuántas veces más cuesta un candidato que sale del índice de calificaciones que un libro revisado al recorrer una categoría, porque los candidatos del índice se deben volver a ordenar. El
+	 * índice sólo se usa si entrega al menos esta cantidad de veces menos libros.
+	 */
+	private static final int COSTO_CALIFICACIONES = 4;
+
+	/**
+	 * La cantidad de libros por revisar a partir de la cual la consulta se ejecuta en paralelo, si no se indica otra
+	 */
+	public static final int UMBRAL_PARALELO = 100_000;
+
+	/**
+	 * La mayor cantidad de libros de una categoría que se revisan en una misma tarea cuando la consulta se ejecuta en paralelo
+	 */
+	private static final int TAMANO_TRAMO = 16_384;
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * El título exacto de los libros, o null si no se filtra por título
+	 */
+	private String titulo;
+
+	/**
+	 * El nombre de la categoría de los libros, o null si no se filtra por categoría
+	 */
+	private String categoria;
+
+	/**
+	 * El nombre exacto del autor, o null si no se filtra por autor exacto
+	 */
+	private String autorExacto;
+
+	/**
+	 * La cadena que debe aparecer en el nombre del autor, o null si no se filtra por parte del autor
+	 */
+	private String cadenaAutor;
+
+	/**
+	 * La menor calificación aceptada
+	 */
+	private double calificacionMinima;
+
+	/**
+	 * La mayor calificación aceptada
+	 */
+	private double calificacionMaxima;
+
+	/**
+	 * Indica si los libros deben tener portada (TRUE), no tenerla (FALSE), o si no se filtra por portada (null)
+	 */
+	private Boolean portada;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye una consulta sin filtros, que encuentra todos los libros
+	 */
+	public ConsultaLibros()
+	{
+		calificacionMinima = Double.NEGATIVE_INFINITY;
+		calificacionMaxima = Double.POSITIVE_INFINITY;
+	}
+
+	// ************************************************************************
+	// Métodos para agregar filtros
+	// ************************************************************************
+
+	/**
+	 * Filtra los libros que tienen exactamente el título indicado. Si la librería usa títulos normalizados, el título se normaliza igual que en buscarLibro.
+	 *
+	 * @param elTitulo El título
+	 * @return Esta misma consulta
+	 */
+	public ConsultaLibros filtrarTitulo(String elTitulo)
+	{
+		titulo = elTitulo;
+		return this;
+	}
+
+	/**
+	 * Filtra los libros de una categoría
+	 *
+	 * @param nombreCategoria El nombre de la categoría
+	 * @return Esta misma consulta
+	 */
+	public ConsultaLibros filtrarCategoria(String nombreCategoria)
+	{
+		categoria = nombreCategoria;
+		return this;
+	}
+
+	/**
+	 * Filtra los libros de un autor
+	 *
+	 * @param nombreAutor El nombre exacto del autor
+	 * @return Esta misma consulta
+	 */
+	public ConsultaLibros filtrarAutorExacto(String nombreAutor)
+	{
+		autorExacto = nombreAutor;
+		return this;
+	}
+
+	/**
+	 * Filtra los libros cuyo autor contiene la cadena indicada, sin tener en cuenta mayúsculas y minúsculas, igual que buscarLibrosAutor
+	 *
+	 * @param laCadenaAutor La cadena que se busca dentro del nombre del autor
+	 * @return Esta misma consulta
+	 */
+	public ConsultaLibros filtrarAutor(String laCadenaAutor)
+	{
+		cadenaAutor = laCadenaAutor.toLowerCase();
+		return this;
+	}
+
+	/**
+	 * Filtra los libros con una calificación dentro del rango indicado. Si ya había un rango, se conserva la parte común de los dos.
+	 *
+	 * @param minima La menor calificación aceptada
+	 * @param maxima La mayor calificación aceptada
+	 * @return Esta misma consulta
+	 */
+	public ConsultaLibros filtrarCalificacion(double minima, double maxima)
+	{
+		calificacionMinima = Math.max(calificacionMinima, minima);
+		calificacionMaxima = Math.min(calificacionMaxima, maxima);
+		return this;
+	}
+
+	/**
+	 * Filtra los libros según si tienen portada o no
+	 *
+	 * @param conPortada Indica si los libros deben tener portada
+	 * @return Esta misma consulta
+	 */
+	public ConsultaLibros filtrarPortada(boolean conPortada)
+	{
+		portada = conPortada;
+		return this;
+	}
+
+	// ************************************************************************
+	// Interpretación del texto de una consulta
+	// ************************************************************************
+
+	/**
+	 * Construye una consulta a partir de un texto. El texto es una lista de filtros separados por espacios:
+	 * <ul>
+	 * <li><code>titulo=valor</code>: título exacto</li>
+	 * <li><code>cat:valor</code> o <code>categoria:valor</code>: nombre de la categoría</li>
+	 * <li><code>autor:valor</code>: parte del nombre del autor</li>
+	 * <li><code>autor=valor</code>: nombre exacto del autor</li>
+	 * <li><code>rating</code> o <code>calificacion</code> seguido de <code>&gt;=</code>, <code>&gt;</code>, <code>&lt;=</code>, <code>&lt;</code> o <code>=</code> y un número</li>
+	 * <li><code>portada:si</code> o <code>portada:no</code></li>
+	 * </ul>
+	 * Los valores con espacios se escriben entre comillas dobles. Las palabras que no son filtros, incluidas las que tienen un operador pero no empiezan con una de estas claves (como
+	 * <code>O:Brien</code>), se buscan como parte del nombre del autor con los espacios tal como se escribieron, así que un texto sin filtros se interpreta igual que en buscarLibrosAutor.
+	 *
+	 * @param texto El texto de la consulta
+	 * @return La consulta
+	 * @throws IllegalArgumentException Se lanza esta excepción si el texto tiene un filtro con un operador o un valor inválido
+	 */
+	public static ConsultaLibros interpretar(String texto)
+	{
+		ConsultaLibros consulta = new ConsultaLibros();
+		StringBuilder palabras = new StringBuilder();
+		boolean hayPalabras = false;
+		boolean ultimoEsPalabra = true;
+		int finAnterior = 0;
+		for (int[] limites : separarTerminos(texto))
+		{
+			String termino = texto.substring(limites[0], limites[1]);
+			int operador = buscarOperador(termino);
+			if (operador >= 0 && consulta.agregarFiltro(termino, operador))
+			{
+				ultimoEsPalabra = false;
+			}
+			else
+			{
+				// Se conservan los espacios que separan la palabra de la anterior, pero no los que la separan de un filtro al comienzo
+				if (hayPalabras || finAnterior == 0)
+					palabras.append(texto, finAnterior, limites[0]);
+				palabras.append(termino);
+				hayPalabras = true;
+				ultimoEsPalabra = true;
+			}
+			finAnterior = limites[1];
+		}
+		if (ultimoEsPalabra)
+			palabras.append(texto, finAnterior, texto.length());
+
+		if (hayPalabras)
+		{
+			if (consulta.cadenaAutor != null)
+				throw new IllegalArgumentException("La consulta tiene palabras sueltas y también un filtro autor:");
+			consulta.filtrarAutor(quitarComillas(palabras.toString()));
+		}
+		return consulta;
+	}
+
+	/**
+	 * Agrega a la consulta el filtro de un término de la forma clave, operador y valor
+	 *
+	 * @param termino  El término
+	 * @param operador La posición del operador dentro del término
+	 * @return true si la clave es la de un filtro, o false si el término se debe tratar como texto
+	 */
+	private boolean agregarFiltro(String termino, int operador)
+	{
+		String clave = termino.substring(0, operador).toLowerCase();
+		int inicioValor = operador + 1;
+		if (inicioValor < termino.length() && termino.charAt(inicioValor) == '=' && termino.charAt(operador) != ':')
+			inicioValor++;
+		String simbolo = termino.substring(operador, inicioValor);
+		String valor = quitarComillas(termino.substring(inicioValor));
+
+		switch (clave)
+		{
+		case "titulo":
+		case "título":
+			exigirIgualdad(clave, simbolo);
+			filtrarTitulo(valor);
+			break;
+		case "cat":
+		case "categoria":
+		case "categoría":
+			exigirIgualdad(clave, simbolo);
+			filtrarCategoria(valor);
+			break;
+		case "autor":
+			if (simbolo.equals(":"))
+				filtrarAutor(valor);
+			else if (simbolo.equals("="))
+				filtrarAutorExacto(valor);
+			else
+				throw new IllegalArgumentException("El filtro autor sólo acepta : o =");
+			break;
+		case "rating":
+		case "calificacion":
+		case "calificación":
+			agregarRango(simbolo, valor);
+			break;
+		case "portada":
+			exigirIgualdad(clave, simbolo);
+			if (valor.equalsIgnoreCase("si") || valor.equalsIgnoreCase("sí"))
+				filtrarPortada(true);
+			else if (valor.equalsIgnoreCase("no"))
+				filtrarPortada(false);
+			else
+				throw new IllegalArgumentException("El filtro portada sólo acepta si o no");
+			break;
+		default:
+			return false;
+		}
+		return true;
+	}
+
+	private void agregarRango(String simbolo, String valor)
+	{
+		double numero;
+		try
+		{
+			numero = Double.parseDouble(valor);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IllegalArgumentException("La calificación " + valor + " no es un número");
+		}
+
+		switch (simbolo)
+		{
+		case ">=":
+			filtrarCalificacion(numero, Double.POSITIVE_INFINITY);
+			break;
+		case ">":
+			filtrarCalificacion(Math.nextUp(numero), Double.POSITIVE_INFINITY);
+			break;
+		case "<=":
+			filtrarCalificacion(Double.NEGATIVE_INFINITY, numero);
+			break;
+		case "<":
+			filtrarCalificacion(Double.NEGATIVE_INFINITY, Math.nextDown(numero));
+			break;
+		case "=":
+		case ":":
+			filtrarCalificacion(numero, numero);
+			break;
+		default:
+			throw new IllegalArgumentException("No se reconoce el operador " + simbolo);
+		}
+	}
+
+	/**
+	 * Verifica que un filtro que no compara números use : o =, que se aceptan indistintamente
+	 */
+	private static void exigirIgualdad(String clave, String simbolo)
+	{
+		if (!simbolo.equals(":") && !simbolo.equals("="))
+			throw new IllegalArgumentException("El filtro " + clave + " sólo acepta : o =");
+	}
+
+	/**
+	 * Separa el texto en términos separados por espacios. Los espacios entre comillas dobles no separan términos.
+	 *
+	 * @return La posición de inicio y la posición siguiente al final de cada término dentro del texto
+	 */
+	private static List<int[]> separarTerminos(String texto)
+	{
+		List<int[]> terminos = new ArrayList<int[]>();
+		int inicio = -1;
+		boolean entreComillas = false;
+		for (int i = 0; i < texto.length(); i++)
+		{
+			char c = texto.charAt(i);
+			if (c == '"')
+				entreComillas = !entreComillas;
+			if (Character.isWhitespace(c) && !entreComillas)
+			{
+				if (inicio >= 0)
+					terminos.add(new int[] { inicio, i });
+				inicio = -1;
+			}
+			else if (inicio < 0)
+			{
+				inicio = i;
+			}
+		}
+		if (inicio >= 0)
+			terminos.add(new int[] { inicio, texto.length() });
+		return terminos;
+	}
+
+	/**
+	 * Retorna la posición del primer operador (:, =, &lt; o &gt;) que está antes de las comillas, o -1 si el término no es un filtro
+	 */
+	private static int buscarOperador(String termino)
+	{
+		for (int i = 0; i < termino.length() && termino.charAt(i) != '"'; i++)
+		{
+			char c = termino.charAt(i);
+			if (c == ':' || c == '=' || c == '<' || c == '>')
+				return i > 0 ? i : -1;
+		}
+		return -1;
+	}
+
+	private static String quitarComillas(String valor)
+	{
+		return valor.replace("\"", "");
+	}
+
+	// ************************************************************************
+	// Ejecución
+	// ************************************************************************
+
+	/**
+	 * Ejecuta la consulta sobre los libros de una librería
+	 *
+	 * @param registro      Las categorías de la librería
+	 * @param indiceTitulos El índice de títulos de la librería
+	 * @param indiceAutores El índice de autores de la librería
+	 * @return Los libros que cumplen todos los filtros, agrupados por categoría en el orden de las categorías de la librería
+	 */
+	ArrayList<Libro> ejecutar(RegistroCategorias registro, IndiceTitulos indiceTitulos, IndiceAutores indiceAutores)
+	{
+		return ejecutar(registro, indiceTitulos, indiceAutores, UMBRAL_PARALELO);
+	}
+
+	/**
+	 * Ejecuta la consulta sobre los libros de una librería
+	 *
+	 * @param registro       Las categorías de la librería
+	 * @param indiceTitulos  El índice de títulos de la librería
+	 * @param indiceAutores  El índice de autores de la librería
+	 * @param umbralParalelo La cantidad de libros por revisar en varias categorías a partir de la cual la consulta se ejecuta en paralelo. Con Integer.MAX_VALUE siempre es secuencial.
+	 * @return Los libros que cumplen todos los filtros, agrupados por categoría en el orden de las categorías de la librería
+	 */
+	ArrayList<Libro> ejecutar(RegistroCategorias registro, IndiceTitulos indiceTitulos, IndiceAutores indiceAutores, int umbralParalelo)
+	{
+		ArrayList<Libro> encontrados = new ArrayList<Libro>();
+		Categoria laCategoria = categoria == null ? null : registro.buscar(categoria);
+		if ((categoria != null && laCategoria == null) || calificacionMinima > calificacionMaxima)
+			return encontrados;
+
+		// Se elige la fuente de candidatos que debería entregar menos libros
+		Fuente fuente = Fuente.TODOS;
+		int estimado = registro.darAcumulado().darCantidad();
+		if (titulo != null)
+		{
+			fuente = Fuente.TITULO;
+			estimado = 0;
+		}
+		if (autorExacto != null && estimado > 0)
+		{
+			int cantidad = indiceAutores.contarLibrosAutorExacto(autorExacto);
+			if (cantidad < estimado)
+			{
+				fuente = Fuente.AUTOR_EXACTO;
+				estimado = cantidad;
+			}
+		}
+		if (laCategoria != null && laCategoria.contarLibrosEnCategoria() < estimado)
+		{
+			fuente = Fuente.CATEGORIA;
+			estimado = laCategoria.contarLibrosEnCategoria();
+		}
+		boolean hayRango = calificacionMinima > Double.NEGATIVE_INFINITY || calificacionMaxima < Double.POSITIVE_INFINITY;
+		if (hayRango && estimado > 0)
+		{
+			int cantidad = laCategoria != null ? laCategoria.darIndiceCalificaciones().contarEnRango(calificacionMinima, calificacionMaxima)
+					: IndiceCalificaciones.contarEnRango(registro.darIndicesCalificaciones(), calificacionMinima, calificacionMaxima);
+			if (cantidad * (long) COSTO_CALIFICACIONES < estimado)
+			{
+				fuente = Fuente.CALIFICACION;
+				estimado = cantidad;
+			}
+		}
+		if (cadenaAutor != null && estimado > 0 && indiceAutores.estimarLibros(cadenaAutor) < estimado)
+		{
+			fuente = Fuente.AUTOR;
+		}
+
+		// Los demás filtros se revisan sobre cada candidato, de los más baratos a los más costosos
+		List<Predicate<Libro>> filtros = new ArrayList<Predicate<Libro>>();
+		// Los candidatos por calificación de una categoría sólo tienen libros de esa categoría
+		if (laCategoria != null && fuente != Fuente.CATEGORIA && fuente != Fuente.CALIFICACION)
+			filtros.add(libro -> libro.darCategoria() == laCategoria);
+		if (portada != null)
+			filtros.add(libro -> libro.tienePortada() == portada.booleanValue());
+		if (hayRango && fuente != Fuente.CALIFICACION)
+			filtros.add(libro -> libro.darCalificacion() >= calificacionMinima && libro.darCalificacion() <= calificacionMaxima);
+		if (autorExacto != null && fuente != Fuente.AUTOR_EXACTO)
+			filtros.add(libro -> libro.darAutor().equals(autorExacto));
+		if (cadenaAutor != null && fuente != Fuente.AUTOR)
+			filtros.add(libro -> libro.darAutor().toLowerCase().contains(cadenaAutor));
+
+		switch (fuente)
+		{
+		case TITULO:
+			filtrar(indiceTitulos.buscarTodos(titulo), filtros, encontrados);
+			encontrados.sort(Libro.ORDEN_CATEGORIAS);
+			break;
+		case AUTOR_EXACTO:
+			filtrar(indiceAutores.buscarLibrosAutorExacto(autorExacto), filtros, encontrados);
+			encontrados.sort(Libro.ORDEN_CATEGORIAS);
+			break;
+		case CATEGORIA:
+			filtrar(laCategoria.darLibros(), filtros, encontrados);
+			break;
+		case AUTOR:
+			filtrar(indiceAutores.buscarLibros(cadenaAutor), filtros, encontrados);
+			break;
+		case CALIFICACION:
+			// Cada categoría se ordena por separado, así que los resultados quedan agrupados por categoría sin mezclarlas
+			List<Categoria> conRango = laCategoria != null ? Arrays.asList(laCategoria) : Arrays.asList(registro.darArreglo());
+			reunir(conRango, (otra, deCategoria) -> {
+				int desde = deCategoria.size();
+				filtrar(otra.darIndiceCalificaciones().buscarEnRango(calificacionMinima, calificacionMaxima), filtros, deCategoria);
+				deCategoria.subList(desde, deCategoria.size()).sort(Libro.ORDEN_CATEGORIAS);
+			}, estimado >= umbralParalelo, encontrados);
+			break;
+		default:
+			boolean paralelo = estimado >= umbralParalelo;
+			reunir(partirCategorias(registro.darArreglo(), paralelo ? TAMANO_TRAMO : Integer.MAX_VALUE), (tramo, deTramo) -> filtrar(tramo, filtros, deTramo), paralelo,
+					encontrados);
+		}
+		return encontrados;
+	}
+
+	/**
+	 * Divide los libros de las categorías en tramos de a lo sumo el tamaño indicado, en el orden de las categorías
+	 */
+	private static List<List<Libro>> partirCategorias(Categoria[] lasCategorias, int tamanoTramo)
+	{
+		List<List<Libro>> tramos = new ArrayList<List<Libro>>();
+		for (Categoria otra : lasCategorias)
+		{
+			ArrayList<Libro> libros = otra.darLibros();
+			for (int desde = 0; desde < libros.size(); desde += tamanoTramo)
+			{
+				tramos.add(libros.subList(desde, (int) Math.min((long) desde + tamanoTramo, libros.size())));
+			}
+		}
+		return tramos;
+	}
+
+	/**
+	 * Procesa varias partes de la consulta y agrega los libros que encuentra cada una, en el orden de las partes.
+	 *
+	 * @param partes      Las partes, por ejemplo categorías o tramos de categorías
+	 * @param procesar    Agrega a la lista que recibe los libros encontrados en una parte
+	 * @param paralelo    Indica si las partes se pueden procesar en paralelo. En ese caso cada parte agrega sus libros a una lista propia, y las listas se unen al final.
+	 * @param encontrados La lista a la que se agregan los libros
+	 */
+	private static <T> void reunir(List<T> partes, BiConsumer<T, ArrayList<Libro>> procesar, boolean paralelo, ArrayList<Libro> encontrados)
+	{
+		if (!paralelo || partes.size() < 2 || ForkJoinPool.getCommonPoolParallelism() < 2)
+		{
+			for (T parte : partes)
+			{
+				procesar.accept(parte, encontrados);
+			}
+			return;
+		}
+
+		List<ArrayList<Libro>> resultados = partes.parallelStream().map(parte -> {
+			ArrayList<Libro> deParte = new ArrayList<Libro>();
+			procesar.accept(parte, deParte);
+			return deParte;
+		}).collect(Collectors.toList());
+		int total = 0;
+		for (ArrayList<Libro> deParte : resultados)
+		{
+			total += deParte.size();
+		}
+		encontrados.ensureCapacity(encontrados.size() + total);
+		for (ArrayList<Libro> deParte : resultados)
+		{
+			encontrados.addAll(deParte);
+		}
+	}
+
+	private static void filtrar(List<Libro> candidatos, List<Predicate<Libro>> filtros, ArrayList<Libro> encontrados)
+	{
+		for (Libro libro : candidatos)
+		{
+			boolean cumple = true;
+			for (int i = 0; i < filtros.size() && cumple; i++)
+			{
+				cumple = filtros.get(i).test(libro);
+			}
+			if (cumple)
+				encontrados.add(libro);
+		}
+	}
+
+	/**
+	 * Los lugares de donde pueden salir los libros candidatos de una consulta
+	 */
+	private enum Fuente
+	{
+		TODOS, TITULO, AUTOR_EXACTO, CATEGORIA, CALIFICACION, AUTOR
+	}
+}
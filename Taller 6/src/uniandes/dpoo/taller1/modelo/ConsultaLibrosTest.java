@@ -0,0 +1,119 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+class ConsultaLibrosTest
+{
+
+	@Test
+	void testConsultaEscrita()
+	{
+		RegistroCategorias registro = new RegistroCategorias();
+		Categoria aventura = new Categoria("Aventura", true);
+		Categoria ciencia = new Categoria("Ciencia ficción", true);
+		registro.agregar(aventura);
+		registro.agregar(ciencia);
+
+		Libro viaje = new Libro("Viaje al centro de la Tierra", "Julio Verne", 4, ciencia);
+		Libro vueltas = new Libro("La vuelta al mundo en 80 días", "Julio Verne", 5, aventura);
+		Libro islas = new Libro("La isla del tesoro", "Robert Louis Stevenson", 3.5, aventura);
+		IndiceTitulos indiceTitulos = new IndiceTitulos(false);
+		IndiceAutores indiceAutores = new IndiceAutores();
+		for (Libro libro : new Libro[] { viaje, vueltas, islas })
+		{
+			indiceTitulos.agregar(libro);
+			indiceAutores.agregar(libro);
+		}
+
+		ArrayList<Libro> encontrados = ConsultaLibros.interpretar("autor:verne rating>=4").ejecutar(registro, indiceTitulos, indiceAutores);
+		assertEquals(2, encontrados.size());
+		assertSame(vueltas, encontrados.get(0));
+		assertSame(viaje, encontrados.get(1));
+
+		encontrados = ConsultaLibros.interpretar("cat:\"Ciencia ficción\" autor=\"Julio Verne\"").ejecutar(registro, indiceTitulos, indiceAutores);
+		assertEquals(1, encontrados.size());
+		assertSame(viaje, encontrados.get(0));
+
+		// Las palabras sueltas se buscan en el nombre del autor
+		encontrados = ConsultaLibros.interpretar("louis rating<4").ejecutar(registro, indiceTitulos, indiceAutores);
+		assertEquals(1, encontrados.size());
+		assertSame(islas, encontrados.get(0));
+
+		assertTrue(ConsultaLibros.interpretar("cat:Poesía").ejecutar(registro, indiceTitulos, indiceAutores).isEmpty());
+		assertTrue(ConsultaLibros.interpretar("editorial:Norma").ejecutar(registro, indiceTitulos, indiceAutores).isEmpty());
+		assertThrows(IllegalArgumentException.class, () -> ConsultaLibros.interpretar("rating>=alta"));
+		assertThrows(IllegalArgumentException.class, () -> ConsultaLibros.interpretar("titulo>Dune"));
+	}
+
+	@Test
+	void testTextoLiteral()
+	{
+		RegistroCategorias registro = new RegistroCategorias();
+		Categoria novela = new Categoria("Novela", true);
+		registro.agregar(novela);
+		Libro dosPuntos = new Libro("At Swim-Two-Birds", "Flann O:Brien", 4, novela);
+		Libro espacios = new Libro("Cuentos", "Ana  María Matute", 3, novela);
+		Libro unEspacio = new Libro("Poemas", "Ana María Shua", 5, novela);
+		IndiceTitulos indiceTitulos = new IndiceTitulos(false);
+		IndiceAutores indiceAutores = new IndiceAutores();
+		for (Libro libro : new Libro[] { dosPuntos, espacios, unEspacio })
+		{
+			indiceTitulos.agregar(libro);
+			indiceAutores.agregar(libro);
+		}
+
+		// Un término cuya clave no es la de un filtro se busca como parte del autor
+		ArrayList<Libro> encontrados = ConsultaLibros.interpretar("O:Brien").ejecutar(registro, indiceTitulos, indiceAutores);
+		assertEquals(1, encontrados.size());
+		assertSame(dosPuntos, encontrados.get(0));
+
+		// Los espacios del texto se conservan tal como se escribieron, también alrededor de los filtros
+		encontrados = ConsultaLibros.interpretar("ana  maría").ejecutar(registro, indiceTitulos, indiceAutores);
+		assertEquals(1, encontrados.size());
+		assertSame(espacios, encontrados.get(0));
+		encontrados = ConsultaLibros.interpretar("rating>=4 ana maría").ejecutar(registro, indiceTitulos, indiceAutores);
+		assertEquals(1, encontrados.size());
+		assertSame(unEspacio, encontrados.get(0));
+		encontrados = ConsultaLibros.interpretar("ana rating<4  maría").ejecutar(registro, indiceTitulos, indiceAutores);
+		assertEquals(1, encontrados.size());
+		assertSame(espacios, encontrados.get(0));
+	}
+
+	@Test
+	void testEjecucionParalela()
+	{
+		RegistroCategorias registro = new RegistroCategorias();
+		IndiceTitulos indiceTitulos = new IndiceTitulos(false);
+		IndiceAutores indiceAutores = new IndiceAutores();
+		for (int c = 0; c < 5; c++)
+		{
+			Categoria categoria = new Categoria("Categoría " + c, false);
+			registro.agregar(categoria);
+			for (int i = 0; i < 40_000 / (c + 1); i++)
+			{
+				Libro libro = new Libro("Libro " + c + "-" + i, "Autor " + (i % 7), (i * 7 % 11) / 2.0, categoria);
+				libro.cambiarPortada(i % 3 == 0 ? new Imagen("portada.jpg", 100, 150) : null);
+				indiceTitulos.agregar(libro);
+				indiceAutores.agregar(libro);
+			}
+		}
+
+		// Con umbral 0 la consulta se reparte entre hilos, y el resultado debe ser el mismo, en el mismo orden, que el secuencial
+		for (String texto : new String[] { "portada:si", "rating>=1 rating<=3", "portada:no autor:\"autor 3\"" })
+		{
+			ConsultaLibros consulta = ConsultaLibros.interpretar(texto);
+			ArrayList<Libro> secuencial = consulta.ejecutar(registro, indiceTitulos, indiceAutores, Integer.MAX_VALUE);
+			ArrayList<Libro> paralelo = consulta.ejecutar(registro, indiceTitulos, indiceAutores, 0);
+			assertFalse(secuencial.isEmpty());
+			assertEquals(secuencial.size(), paralelo.size());
+			for (int i = 0; i < secuencial.size(); i++)
+			{
+				assertSame(secuencial.get(i), paralelo.get(i));
+			}
+		}
+	}
+}
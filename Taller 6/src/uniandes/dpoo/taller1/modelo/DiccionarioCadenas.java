@@ -0,0 +1,174 @@
+package uniandes.dpoo.taller1.modelo;
+
+/**
+ * Esta clase guarda una sola copia de cada cadena, para que los valores que se repiten muchas veces en los archivos (autores, nombres de categorías) compartan el mismo String en lugar de ocupar
+ * memoria una vez por cada libro.
+ *
+ * Las cadenas se pueden buscar directamente a partir de un pedazo de un arreglo de caracteres, así que cuando la cadena ya está en el diccionario no se construye ningún objeto. La tabla usa
+ * direccionamiento abierto y el mismo código de hash que String, para poder buscar también a partir de un String sin volver a calcularlo.
+ *
+ * Las instancias no se pueden usar desde varios hilos al mismo tiempo.
+ */
+public class DiccionarioCadenas
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * Capacidad inicial de la tabla. Debe ser una potencia de 2.
+	 */
+	private static final int CAPACIDAD_INICIAL = 1024;
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * Las cadenas guardadas, en la casilla que les corresponde según su código de hash. Las casillas libres son null.
+	 */
+	private String[] cadenas;
+
+	/**
+	 * El código de hash de la cadena de cada casilla
+	 */
+	private int[] hashes;
+
+	/**
+	 * Cantidad de cadenas guardadas
+	 */
+	private int cantidad;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye un diccionario vacío
+	 */
+	public DiccionarioCadenas()
+	{
+		cadenas = new String[CAPACIDAD_INICIAL];
+		hashes = new int[CAPACIDAD_INICIAL];
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Consulta la cantidad de cadenas distintas que hay en el diccionario
+	 *
+	 * @return cantidad
+	 */
+	public int darCantidad()
+	{
+		return cantidad;
+	}
+
+	/**
+	 * Retorna la copia guardada de la cadena formada por los caracteres indicados. Si no hay ninguna, construye la cadena y la guarda.
+	 *
+	 * @param caracteres El arreglo que contiene los caracteres
+	 * @param inicio     La posición del primer caracter
+	 * @param longitud   La cantidad de caracteres
+	 * @return La cadena guardada en el diccionario
+	 */
+	public String internar(char[] caracteres, int inicio, int longitud)
+	{
+		int hash = 0;
+		for (int i = inicio; i < inicio + longitud; i++)
+		{
+			hash = 31 * hash + caracteres[i];
+		}
+
+		int mascara = cadenas.length - 1;
+		int casilla = mezclar(hash) & mascara;
+		while (cadenas[casilla] != null)
+		{
+			if (hashes[casilla] == hash && sonIguales(cadenas[casilla], caracteres, inicio, longitud))
+				return cadenas[casilla];
+			casilla = (casilla + 1) & mascara;
+		}
+
+		String nueva = new String(caracteres, inicio, longitud);
+		guardar(casilla, nueva, hash);
+		return nueva;
+	}
+
+	/**
+	 * Retorna la copia guardada de una cadena igual a la indicada. Si no hay ninguna, guarda la cadena recibida.
+	 *
+	 * @param cadena La cadena buscada
+	 * @return La cadena guardada en el diccionario
+	 */
+	public String internar(String cadena)
+	{
+		int hash = cadena.hashCode();
+		int mascara = cadenas.length - 1;
+		int casilla = mezclar(hash) & mascara;
+		while (cadenas[casilla] != null)
+		{
+			if (hashes[casilla] == hash && cadenas[casilla].equals(cadena))
+				return cadenas[casilla];
+			casilla = (casilla + 1) & mascara;
+		}
+
+		guardar(casilla, cadena, hash);
+		return cadena;
+	}
+
+	/**
+	 * Guarda una cadena en una casilla libre y agranda la tabla si quedó muy llena
+	 */
+	private void guardar(int casilla, String cadena, int hash)
+	{
+		cadenas[casilla] = cadena;
+		hashes[casilla] = hash;
+		cantidad++;
+
+		// La tabla se mantiene llena a lo sumo hasta la mitad para que las búsquedas sean cortas
+		if (cantidad * 2 > cadenas.length)
+		{
+			String[] anteriores = cadenas;
+			int[] hashesAnteriores = hashes;
+			cadenas = new String[anteriores.length * 2];
+			hashes = new int[anteriores.length * 2];
+			int mascara = cadenas.length - 1;
+			for (int i = 0; i < anteriores.length; i++)
+			{
+				if (anteriores[i] != null)
+				{
+					int nueva = mezclar(hashesAnteriores[i]) & mascara;
+					while (cadenas[nueva] != null)
+					{
+						nueva = (nueva + 1) & mascara;
+					}
+					cadenas[nueva] = anteriores[i];
+					hashes[nueva] = hashesAnteriores[i];
+				}
+			}
+		}
+	}
+
+	private static boolean sonIguales(String cadena, char[] caracteres, int inicio, int longitud)
+	{
+		if (cadena.length() != longitud)
+			return false;
+
+		for (int i = 0; i < longitud; i++)
+		{
+			if (cadena.charAt(i) != caracteres[inicio + i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reparte los bits altos del código de hash, porque la casilla sólo usa los bits bajos
+	 */
+	private static int mezclar(int hash)
+	{
+		return hash ^ (hash >>> 16);
+	}
+}
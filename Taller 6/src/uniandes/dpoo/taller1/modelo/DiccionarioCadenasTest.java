@@ -0,0 +1,38 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class DiccionarioCadenasTest
+{
+
+	@Test
+	void testMismaCopia()
+	{
+		DiccionarioCadenas diccionario = new DiccionarioCadenas();
+		char[] caracteres = "xxJulio Vernexx".toCharArray();
+		String primera = diccionario.internar(caracteres, 2, 11);
+		assertEquals("Julio Verne", primera);
+		assertSame(primera, diccionario.internar(caracteres, 2, 11));
+		assertSame(primera, diccionario.internar(new String("Julio Verne")));
+		assertEquals(1, diccionario.darCantidad());
+	}
+
+	@Test
+	void testCrecimiento()
+	{
+		DiccionarioCadenas diccionario = new DiccionarioCadenas();
+		String[] guardadas = new String[5000];
+		for (int i = 0; i < guardadas.length; i++)
+		{
+			guardadas[i] = diccionario.internar("autor " + i);
+		}
+		for (int i = 0; i < guardadas.length; i++)
+		{
+			char[] caracteres = ("autor " + i).toCharArray();
+			assertSame(guardadas[i], diccionario.internar(caracteres, 0, caracteres.length));
+		}
+		assertEquals(guardadas.length, diccionario.darCantidad());
+	}
+}
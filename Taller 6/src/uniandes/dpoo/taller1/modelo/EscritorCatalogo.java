@@ -0,0 +1,309 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Esta clase escribe los archivos CSV de una librería en un hilo aparte, para que quien modifica la librería (normalmente el hilo de la interfaz) no tenga que esperar a que se escriban.
+ *
+ * Las escrituras se agrupan: cuando se pide escribir un archivo, se espera ESPERA milisegundos (u otra espera indicada al construir el escritor) antes de hacerlo, y si mientras tanto se
+ * vuelve a pedir, sólo se escribe la foto más reciente. Así, varios cambios seguidos cuestan una sola escritura. Cada archivo se escribe primero con otro nombre, se sincroniza con el disco y al
+ * final reemplaza al anterior, así que si el programa se interrumpe a la mitad el archivo queda con su contenido anterior completo.
+ */
+public class EscritorCatalogo implements Closeable
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * Milisegundos que se esperan después de pedir una escritura, para agrupar las que se pidan mientras tanto
+	 */
+	public static final long ESPERA = 50;
+
+	/**
+	 * La cantidad de caracteres que se acumulan antes de pasarlos al canal del archivo
+	 */
+	private static final int TAMANO_BUFFER = 1 << 20;
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	private Path archivoCategorias;
+
+	private Path archivoLibros;
+
+	/**
+	 * Milisegundos que se esperan después de pedir una escritura, para agrupar las que se pidan mientras tanto
+	 */
+	private long espera;
+
+	/**
+	 * El hilo en el que se escriben los archivos
+	 */
+	private ScheduledExecutorService hilo;
+
+	/**
+	 * La foto con la que se debe escribir el archivo de categorías, o null si no hay que escribirlo
+	 */
+	private FotoCatalogo categoriasPendientes;
+
+	/**
+	 * La foto con la que se debe escribir el archivo de libros, o null si no hay que escribirlo
+	 */
+	private FotoCatalogo librosPendientes;
+
+	/**
+	 * Indica si ya hay una escritura programada para las fotos pendientes
+	 */
+	private boolean escrituraProgramada;
+
+	/**
+	 * El error de la última escritura que falló y que todavía no se ha informado, o null si no hay ninguno
+	 */
+	private IOException error;
+
+	private int solicitudes;
+
+	private volatile int escrituras;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye un escritor para los archivos indicados
+	 *
+	 * @param nombreArchivoCategorias El nombre del archivo CSV con las categorías
+	 * @param nombreArchivoLibros     El nombre del archivo CSV con los libros
+	 */
+	public EscritorCatalogo(String nombreArchivoCategorias, String nombreArchivoLibros)
+	{
+		this(nombreArchivoCategorias, nombreArchivoLibros, ESPERA);
+	}
+
+	/**
+	 * Construye un escritor para los archivos indicados, que espera el tiempo indicado antes de escribir para agrupar las solicitudes
+	 *
+	 * @param nombreArchivoCategorias El nombre del archivo CSV con las categorías
+	 * @param nombreArchivoLibros     El nombre del archivo CSV con los libros
+	 * @param laEspera                Milisegundos que se esperan después de pedir una escritura
+	 */
+	EscritorCatalogo(String nombreArchivoCategorias, String nombreArchivoLibros, long laEspera)
+	{
+		this.archivoCategorias = Paths.get(nombreArchivoCategorias);
+		this.archivoLibros = Paths.get(nombreArchivoLibros);
+		this.espera = laEspera;
+		hilo = Executors.newSingleThreadScheduledExecutor(tarea -> {
+			Thread nuevo = new Thread(tarea, "Escritor " + archivoLibros.getFileName());
+			nuevo.setDaemon(true);
+			return nuevo;
+		});
+	}
+
+	// ************************************************************************
+	// Consultas
+	// ************************************************************************
+
+	/**
+	 * Consulta cuántas veces se ha pedido escribir algún archivo
+	 *
+	 * @return solicitudes
+	 */
+	public synchronized int darSolicitudes()
+	{
+		return solicitudes;
+	}
+
+	/**
+	 * Consulta cuántos archivos se han escrito
+	 *
+	 * @return escrituras
+	 */
+	public int darEscrituras()
+	{
+		return escrituras;
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Pide escribir el archivo de categorías. Si ya había una escritura pendiente de ese archivo, se reemplaza por esta.
+	 *
+	 * @param foto La foto con las categorías
+	 * @throws IOException Se lanza esta excepción si falló una escritura anterior. El error se informa una sola vez, y esta escritura igual se programa.
+	 */
+	synchronized void programarCategorias(FotoCatalogo foto) throws IOException
+	{
+		categoriasPendientes = foto;
+		programar();
+	}
+
+	/**
+	 * Pide escribir el archivo de libros. Si ya había una escritura pendiente de ese archivo, se reemplaza por esta.
+	 *
+	 * @param foto La foto con los libros
+	 * @throws IOException Se lanza esta excepción si falló una escritura anterior. El error se informa una sola vez, y esta escritura igual se programa.
+	 */
+	synchronized void programarLibros(FotoCatalogo foto) throws IOException
+	{
+		librosPendientes = foto;
+		programar();
+	}
+
+	private void programar() throws IOException
+	{
+		solicitudes++;
+		if (!escrituraProgramada)
+		{
+			escrituraProgramada = true;
+			hilo.schedule(this::escribirPendientes, espera, TimeUnit.MILLISECONDS);
+		}
+		informarError();
+	}
+
+	/**
+	 * Escribe los archivos pendientes sin esperar a que se cumpla la espera, y espera a que queden en el disco
+	 *
+	 * @throws IOException Se lanza esta excepción si falló alguna escritura
+	 */
+	public void esperar() throws IOException
+	{
+		try
+		{
+			hilo.submit(this::escribirPendientes).get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Se interrumpió la escritura de los archivos", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IOException("No se pudieron escribir los archivos", e.getCause());
+		}
+		synchronized (this)
+		{
+			informarError();
+		}
+	}
+
+	/**
+	 * Escribe los archivos pendientes y termina el hilo del escritor
+	 *
+	 * @throws IOException Se lanza esta excepción si falló alguna escritura
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			esperar();
+		}
+		finally
+		{
+			hilo.shutdown();
+		}
+	}
+
+	/**
+	 * Escribe los archivos que estén pendientes. Se ejecuta en el hilo del escritor.
+	 */
+	private void escribirPendientes()
+	{
+		FotoCatalogo categorias;
+		FotoCatalogo libros;
+		synchronized (this)
+		{
+			categorias = categoriasPendientes;
+			libros = librosPendientes;
+			categoriasPendientes = null;
+			librosPendientes = null;
+			escrituraProgramada = false;
+		}
+
+		try
+		{
+			if (categorias != null)
+			{
+				reemplazar(archivoCategorias, categorias, true);
+				escrituras++;
+			}
+			if (libros != null)
+			{
+				reemplazar(archivoLibros, libros, false);
+				escrituras++;
+			}
+		}
+		catch (IOException e)
+		{
+			synchronized (this)
+			{
+				error = e;
+			}
+		}
+	}
+
+	private void informarError() throws IOException
+	{
+		IOException anterior = error;
+		error = null;
+		if (anterior != null)
+			throw new IOException("No se pudieron escribir los archivos de la librería", anterior);
+	}
+
+	/**
+	 * Reemplaza un archivo CSV por el contenido de una foto. El archivo nuevo se escribe con la extensión .tmp y luego se renombra.
+	 *
+	 * @param destino    El archivo
+	 * @param foto       La foto
+	 * @param categorias Indica si se escribe el archivo de categorías o el de libros
+	 * @throws IOException Se lanza esta excepción si hay algún problema escribiendo el archivo
+	 */
+	static void reemplazar(Path destino, FotoCatalogo foto, boolean categorias) throws IOException
+	{
+		Path temporal = Paths.get(destino + ".tmp");
+		escribir(temporal, foto, categorias);
+		Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Escribe uno de los archivos CSV de una foto y lo sincroniza con el disco
+	 *
+	 * @param destino    El archivo
+	 * @param foto       La foto
+	 * @param categorias Indica si se escribe el archivo de categorías o el de libros
+	 * @throws IOException Se lanza esta excepción si hay algún problema escribiendo el archivo
+	 */
+	static void escribir(Path destino, FotoCatalogo foto, boolean categorias) throws IOException
+	{
+		try (FileChannel salida = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+		{
+			Writer escritor = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(salida), StandardCharsets.UTF_8), TAMANO_BUFFER);
+			if (categorias)
+				foto.escribirCategorias(escritor);
+			else
+				foto.escribirLibros(escritor);
+			escritor.flush();
+			salida.force(true);
+		}
+	}
+}
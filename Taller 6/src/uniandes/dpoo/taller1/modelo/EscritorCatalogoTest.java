@@ -0,0 +1,50 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EscritorCatalogoTest
+{
+	@TempDir
+	Path carpeta;
+
+	@Test
+	void testEscriturasAgrupadas() throws IOException
+	{
+		Path categorias = carpeta.resolve("categorias.csv");
+		Path libros = carpeta.resolve("libreria.csv");
+		Files.write(categorias, "Categoria,ficcion\nNovela,true\n".getBytes(StandardCharsets.UTF_8));
+
+		Categoria novela = new Categoria("Novela", true);
+		ArrayList<Libro> catalogo = new ArrayList<Libro>();
+		catalogo.add(new Libro("Rayuela", "Julio Cortázar", 4.2, novela));
+
+		// Con una espera de un minuto, la escritura programada no alcanza a ocurrir antes de esperar()
+		EscritorCatalogo escritor = new EscritorCatalogo(categorias.toString(), libros.toString(), 60_000);
+		for (int i = 1; i <= 5; i++)
+		{
+			novela.cambiarNombre("Novela " + i);
+			escritor.programarCategorias(new FotoCatalogo(new Categoria[] { novela }));
+		}
+		escritor.programarLibros(new FotoCatalogo(new Categoria[] { novela }, catalogo));
+		escritor.esperar();
+
+		// Las cinco solicitudes del archivo de categorías se escriben una sola vez, con la última foto
+		assertEquals(6, escritor.darSolicitudes());
+		assertEquals(2, escritor.darEscrituras());
+		assertEquals("Categoria,ficcion\nNovela 5,true\n", new String(Files.readAllBytes(categorias), StandardCharsets.UTF_8));
+		assertTrue(new String(Files.readAllBytes(libros), StandardCharsets.UTF_8).contains("Rayuela,Julio Cortázar,4.2,Novela 5,"));
+		assertFalse(Files.exists(carpeta.resolve("categorias.csv.tmp")));
+
+		escritor.close();
+		assertEquals(2, escritor.darEscrituras());
+	}
+}
@@ -0,0 +1,117 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Esta clase escribe un archivo dividido en páginas de ArchivoPaginado.TAMANO_PAGINA bytes.
+ *
+ * Las páginas se reservan antes de escribirlas, y se pueden escribir en cualquier orden. Esto permite, por ejemplo, que una hoja de un árbol sepa cuál es la hoja siguiente antes de que se haya
+ * escrito.
+ */
+class EscritorPaginas implements Closeable
+{
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	private FileChannel canal;
+
+	/**
+	 * La cantidad de páginas reservadas hasta ahora
+	 */
+	private int paginas;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Crea el archivo indicado. Si ya existía, se reemplaza su contenido.
+	 *
+	 * @param archivo El archivo
+	 * @throws IOException Se lanza esta excepción si no se puede crear el archivo
+	 */
+	EscritorPaginas(Path archivo) throws IOException
+	{
+		this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Consulta cuántas páginas se han reservado
+	 *
+	 * @return paginas
+	 */
+	int darPaginas()
+	{
+		return paginas;
+	}
+
+	/**
+	 * Reserva páginas seguidas al final del archivo
+	 *
+	 * @param cantidad La cantidad de páginas
+	 * @return El número de la primera página reservada
+	 */
+	int reservar(int cantidad)
+	{
+		int primera = paginas;
+		paginas += cantidad;
+		return primera;
+	}
+
+	/**
+	 * Escribe una página completa
+	 *
+	 * @param numero    El número de la página, que debe estar reservada
+	 * @param contenido El contenido de la página. Se escribe completo, sin importar su posición actual.
+	 * @throws IOException Se lanza esta excepción si hay algún problema escribiendo el archivo
+	 */
+	void escribirPagina(int numero, ByteBuffer contenido) throws IOException
+	{
+		contenido.clear();
+		escribir((long) numero * ArchivoPaginado.TAMANO_PAGINA, contenido);
+	}
+
+	/**
+	 * Escribe bytes a partir de una posición del archivo. Las páginas que ocupan deben estar reservadas.
+	 *
+	 * @param posicion  La posición del primer byte
+	 * @param contenido Los bytes, entre la posición actual del buffer y su límite
+	 * @throws IOException Se lanza esta excepción si hay algún problema escribiendo el archivo
+	 */
+	void escribir(long posicion, ByteBuffer contenido) throws IOException
+	{
+		while (contenido.hasRemaining())
+		{
+			posicion += canal.write(contenido, posicion);
+		}
+	}
+
+	/**
+	 * Completa el archivo hasta la última página reservada y lo sincroniza con el disco
+	 *
+	 * @throws IOException Se lanza esta excepción si hay algún problema escribiendo el archivo
+	 */
+	void terminar() throws IOException
+	{
+		long tamano = (long) paginas * ArchivoPaginado.TAMANO_PAGINA;
+		if (canal.size() < tamano)
+			escribir(tamano - 1, ByteBuffer.allocate(1));
+		canal.force(true);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		canal.close();
+	}
+}
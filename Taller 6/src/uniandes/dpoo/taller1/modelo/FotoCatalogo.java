@@ -0,0 +1,209 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/**
+ * Una copia de las categorías y los libros de una librería, tomada en el hilo que es dueño de la librería para poder escribir los archivos CSV o compararlos con la librería en otro hilo. Sólo
+ * guarda los valores, no los objetos, porque los libros pueden cambiar mientras se usa la foto.
+ */
+public class FotoCatalogo
+{
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	private String[] nombresCategorias;
+
+	private boolean[] ficcion;
+
+	private String[] titulos;
+
+	private String[] autores;
+
+	private double[] calificaciones;
+
+	private String[] categorias;
+
+	private Imagen[] portadas;
+
+	/**
+	 * Las portadas que indica el archivo de libros (Libro.darPortadaArchivo), y si existe cada una
+	 */
+	private Imagen[] portadasArchivo;
+
+	private boolean[] conPortada;
+
+	/**
+	 * Los libros de los que se tomó la foto, en el mismo orden. Sólo sirven para identificarlos en el hilo dueño de la librería: en otro hilo no se debe consultar su información.
+	 */
+	private Libro[] libros;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Toma una foto sólo de las categorías
+	 *
+	 * @param lasCategorias Las categorías, en el orden en que se escriben
+	 */
+	FotoCatalogo(Categoria[] lasCategorias)
+	{
+		this(lasCategorias, new ArrayList<Libro>());
+	}
+
+	/**
+	 * Toma una foto de las categorías y los libros
+	 *
+	 * @param lasCategorias Las categorías, en el orden en que se escriben
+	 * @param libros        Los libros, en el orden en que se escriben
+	 */
+	FotoCatalogo(Categoria[] lasCategorias, ArrayList<Libro> libros)
+	{
+		nombresCategorias = new String[lasCategorias.length];
+		ficcion = new boolean[lasCategorias.length];
+		for (int i = 0; i < lasCategorias.length; i++)
+		{
+			nombresCategorias[i] = lasCategorias[i].darNombre();
+			ficcion[i] = lasCategorias[i].esFiccion();
+		}
+
+		int cantidad = libros.size();
+		titulos = new String[cantidad];
+		autores = new String[cantidad];
+		calificaciones = new double[cantidad];
+		categorias = new String[cantidad];
+		portadas = new Imagen[cantidad];
+		portadasArchivo = new Imagen[cantidad];
+		conPortada = new boolean[cantidad];
+		this.libros = libros.toArray(new Libro[cantidad]);
+		for (int i = 0; i < cantidad; i++)
+		{
+			Libro libro = this.libros[i];
+			titulos[i] = libro.darTitulo();
+			autores[i] = libro.darAutor();
+			calificaciones[i] = libro.darCalificacion();
+			categorias[i] = libro.darCategoria().darNombre();
+			portadas[i] = libro.darPortada();
+			portadasArchivo[i] = libro.darPortadaArchivo();
+			conPortada[i] = libro.tienePortada();
+		}
+	}
+
+	// ************************************************************************
+	// Consultas
+	// ************************************************************************
+
+	int contarCategorias()
+	{
+		return nombresCategorias.length;
+	}
+
+	String darNombreCategoria(int categoria)
+	{
+		return nombresCategorias[categoria];
+	}
+
+	boolean esFiccion(int categoria)
+	{
+		return ficcion[categoria];
+	}
+
+	int contarLibros()
+	{
+		return titulos.length;
+	}
+
+	String darTitulo(int libro)
+	{
+		return titulos[libro];
+	}
+
+	String darAutor(int libro)
+	{
+		return autores[libro];
+	}
+
+	double darCalificacion(int libro)
+	{
+		return calificaciones[libro];
+	}
+
+	String darCategoria(int libro)
+	{
+		return categorias[libro];
+	}
+
+	/**
+	 * Consulta la portada que indica el archivo de libros para un libro de la foto
+	 *
+	 * @param libro La posición del libro en la foto
+	 * @return La portada, o null si no se conoce
+	 */
+	Imagen darPortadaArchivo(int libro)
+	{
+		return portadasArchivo[libro];
+	}
+
+	boolean tienePortada(int libro)
+	{
+		return conPortada[libro];
+	}
+
+	/**
+	 * Retorna el libro del que se tomó una posición de la foto. Sólo se debe usar en el hilo dueño de la librería.
+	 *
+	 * @param libro La posición del libro en la foto
+	 * @return El libro
+	 */
+	Libro darLibro(int libro)
+	{
+		return libros[libro];
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Escribe las categorías con el formato del archivo de categorías
+	 */
+	void escribirCategorias(Writer escritor) throws IOException
+	{
+		escritor.write("Categoria,ficcion\n");
+		for (int i = 0; i < nombresCategorias.length; i++)
+		{
+			escritor.write(LectorCSV.escaparCampo(nombresCategorias[i]));
+			escritor.write(',');
+			escritor.write(Boolean.toString(ficcion[i]));
+			escritor.write('\n');
+		}
+	}
+
+	/**
+	 * Escribe los libros con el formato del archivo de libros. Los campos se escriben directamente, sin armar un String por cada línea.
+	 */
+	void escribirLibros(Writer escritor) throws IOException
+	{
+		escritor.write("Titulo,Autor,Calificacion,Categoria,Portada,Ancho,Alto\n");
+		for (int i = 0; i < titulos.length; i++)
+		{
+			escritor.write(LectorCSV.escaparCampo(titulos[i]));
+			escritor.write(',');
+			escritor.write(LectorCSV.escaparCampo(autores[i]));
+			escritor.write(',');
+			escritor.write(Double.toString(calificaciones[i]));
+			escritor.write(',');
+			escritor.write(LectorCSV.escaparCampo(categorias[i]));
+			escritor.write(',');
+			escritor.write(LectorCSV.escaparCampo(portadas[i].darRutaArchivo()));
+			escritor.write(',');
+			escritor.write(Integer.toString(portadas[i].darAncho()));
+			escritor.write(',');
+			escritor.write(Integer.toString(portadas[i].darAlto()));
+			escritor.write('\n');
+		}
+	}
+}
@@ -0,0 +1,391 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+/**
+ * Esta clase permite buscar libros a partir de una parte del nombre de su autor, sin recorrer todo el catálogo.
+ *
+ * Cada autor distinto se guarda una sola vez, en minúsculas, junto con la lista de sus libros. Además, para cada trigrama (cadena de 3 caracteres) se guarda la lista de los autores en los que
+ * aparece. Para buscar una cadena de 3 o más caracteres basta revisar los autores de su trigrama menos frecuente, y verificar en cada uno que la cadena completa sí aparezca. Las cadenas más cortas
+ * se verifican contra todos los autores distintos, que son muchos menos que los libros.
+ *
+ * Para cada autor también se lleva la cuenta de sus libros en cada categoría y un conjunto de bits con las categorías en las que tiene libros, para saber en qué categorías tiene libros sin
+ * recorrerlos. El índice lleva además el conjunto de los autores que tienen libros en más de una categoría, que se actualiza cada vez que un autor gana o pierde una categoría.
+ *
+ * Los autores que se quedan sin libros se conservan en el índice, pero no aparecen en los resultados.
+ */
+public class IndiceAutores
+{
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * Los autores distintos, en el orden en el que aparecieron. La posición de cada autor es su identificador en las listas de trigramas.
+	 */
+	private ArrayList<Autor> autores;
+
+	/**
+	 * Los autores indexados por su nombre exacto
+	 */
+	private HashMap<String, Autor> porNombre;
+
+	/**
+	 * Para cada trigrama, los identificadores de los autores en cuyo nombre en minúsculas aparece
+	 */
+	private HashMap<Long, ListaEnteros> trigramas;
+
+	/**
+	 * Los identificadores de los autores que tienen libros en más de una categoría
+	 */
+	private BitSet enVariasCategorias;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye un índice vacío
+	 */
+	public IndiceAutores()
+	{
+		autores = new ArrayList<Autor>();
+		porNombre = new HashMap<String, Autor>();
+		trigramas = new HashMap<Long, ListaEnteros>();
+		enVariasCategorias = new BitSet();
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Consulta la cantidad de autores distintos que se han indexado
+	 *
+	 * @return Cantidad de autores
+	 */
+	public int darCantidadAutores()
+	{
+		return autores.size();
+	}
+
+	/**
+	 * Agrega un libro al índice, bajo su autor actual
+	 *
+	 * @param libro El libro que se va a agregar
+	 */
+	public void agregar(Libro libro)
+	{
+		Autor autor = porNombre.get(libro.darAutor());
+		if (autor == null)
+		{
+			autor = new Autor(libro.darAutor(), autores.size());
+			autores.add(autor);
+			porNombre.put(autor.nombre, autor);
+			indexarTrigramas(autor);
+		}
+		autor.libros.add(libro);
+		contar(autor, libro, 1);
+	}
+
+	/**
+	 * Retira un libro del índice. Se debe invocar antes de cambiarle el autor al libro.
+	 *
+	 * @param libro El libro que se va a retirar
+	 */
+	public void retirar(Libro libro)
+	{
+		Autor autor = porNombre.get(libro.darAutor());
+		if (autor != null && autor.libros.removeIf(otro -> otro == libro))
+			contar(autor, libro, -1);
+	}
+
+	/**
+	 * Retira varios libros del índice, recorriendo una sola vez la lista de cada autor afectado
+	 *
+	 * @param retirados Los libros que se van a retirar. Debe ser un conjunto por identidad.
+	 */
+	public void retirarTodos(Set<Libro> retirados)
+	{
+		HashMap<String, Autor> afectados = new HashMap<String, Autor>();
+		for (Libro libro : retirados)
+		{
+			Autor autor = porNombre.get(libro.darAutor());
+			if (autor != null)
+				afectados.put(autor.nombre, autor);
+		}
+		for (Autor autor : afectados.values())
+		{
+			autor.libros.removeIf(libro -> {
+				boolean retirado = retirados.contains(libro);
+				if (retirado)
+					contar(autor, libro, -1);
+				return retirado;
+			});
+		}
+	}
+
+	/**
+	 * Busca los libros de un autor
+	 *
+	 * @param nombreAutor El nombre exacto del autor
+	 * @return Una lista nueva con los libros del autor, en el orden en el que se agregaron al índice. Si no hay ninguno, la lista es vacía.
+	 */
+	public ArrayList<Libro> buscarLibrosAutorExacto(String nombreAutor)
+	{
+		Autor autor = porNombre.get(nombreAutor);
+		return autor == null ? new ArrayList<Libro>() : new ArrayList<Libro>(autor.libros);
+	}
+
+	/**
+	 * Cuenta los libros de un autor
+	 *
+	 * @param nombreAutor El nombre exacto del autor
+	 * @return Cantidad de libros del autor
+	 */
+	public int contarLibrosAutorExacto(String nombreAutor)
+	{
+		Autor autor = porNombre.get(nombreAutor);
+		return autor == null ? 0 : autor.libros.size();
+	}
+
+	/**
+	 * Calcula un límite superior para la cantidad de libros que encontraría buscarLibros, sin construir la lista. Para las cadenas de 3 o más caracteres se suman los libros de los autores del
+	 * trigrama menos frecuente, así que no hace falta verificar cada autor.
+	 *
+	 * @param cadenaAutor La cadena que se busca dentro del nombre de los autores
+	 * @return Un número mayor o igual que la cantidad de libros que se encontrarían
+	 */
+	public int estimarLibros(String cadenaAutor)
+	{
+		String cadena = cadenaAutor.toLowerCase();
+		int cantidad = 0;
+		if (cadena.length() < 3)
+		{
+			for (Autor autor : autores)
+			{
+				if (autor.minusculas.contains(cadena))
+					cantidad += autor.libros.size();
+			}
+		}
+		else
+		{
+			ListaEnteros candidatos = buscarTrigramaMenosFrecuente(cadena);
+			for (int i = 0; candidatos != null && i < candidatos.cantidad; i++)
+			{
+				cantidad += autores.get(candidatos.datos[i]).libros.size();
+			}
+		}
+		return cantidad;
+	}
+
+	/**
+	 * Busca las categorías en las que hay libros de un autor
+	 *
+	 * @param nombreAutor El nombre exacto del autor
+	 * @param categorias  Las categorías de la librería, en el orden del registro (la posición de cada una es su ordinal)
+	 * @return Una lista con las categorías en las que hay al menos un libro del autor, en el orden del registro
+	 */
+	public ArrayList<Categoria> buscarCategorias(String nombreAutor, Categoria[] categorias)
+	{
+		ArrayList<Categoria> encontradas = new ArrayList<Categoria>();
+		Autor autor = porNombre.get(nombreAutor);
+		if (autor != null)
+		{
+			for (int i = autor.categorias.nextSetBit(0); i >= 0; i = autor.categorias.nextSetBit(i + 1))
+			{
+				encontradas.add(categorias[i]);
+			}
+		}
+		return encontradas;
+	}
+
+	/**
+	 * Consulta si hay algún autor con libros en más de una categoría
+	 *
+	 * @return Retorna true si hay al menos un autor con libros en dos categorías diferentes
+	 */
+	public boolean hayAutorEnVariasCategorias()
+	{
+		return !enVariasCategorias.isEmpty();
+	}
+
+	/**
+	 * Busca los autores que tienen libros en más de una categoría
+	 *
+	 * @param categorias Las categorías de la librería, en el orden del registro (la posición de cada una es su ordinal)
+	 * @return Un mapa con las categorías en las que tiene libros cada uno de esos autores. Los autores están en el orden en el que aparecieron y sus categorías en el orden del registro.
+	 */
+	public LinkedHashMap<String, ArrayList<Categoria>> buscarAutoresEnVariasCategorias(Categoria[] categorias)
+	{
+		LinkedHashMap<String, ArrayList<Categoria>> encontrados = new LinkedHashMap<String, ArrayList<Categoria>>();
+		for (int id = enVariasCategorias.nextSetBit(0); id >= 0; id = enVariasCategorias.nextSetBit(id + 1))
+		{
+			String nombre = autores.get(id).nombre;
+			encontrados.put(nombre, buscarCategorias(nombre, categorias));
+		}
+		return encontrados;
+	}
+
+	/**
+	 * Busca los libros cuyo autor contiene la cadena indicada, sin tener en cuenta mayúsculas y minúsculas
+	 *
+	 * @param cadenaAutor La cadena que se busca dentro del nombre de los autores
+	 * @return Una lista con los libros encontrados, agrupados por categoría en el orden de las categorías de la librería
+	 */
+	public ArrayList<Libro> buscarLibros(String cadenaAutor)
+	{
+		String cadena = cadenaAutor.toLowerCase();
+
+		ArrayList<Libro> encontrados = new ArrayList<Libro>();
+		if (cadena.length() < 3)
+		{
+			for (Autor autor : autores)
+			{
+				if (autor.minusculas.contains(cadena))
+					encontrados.addAll(autor.libros);
+			}
+		}
+		else
+		{
+			ListaEnteros candidatos = buscarTrigramaMenosFrecuente(cadena);
+			for (int i = 0; candidatos != null && i < candidatos.cantidad; i++)
+			{
+				Autor autor = autores.get(candidatos.datos[i]);
+				if (autor.minusculas.contains(cadena))
+					encontrados.addAll(autor.libros);
+			}
+		}
+
+		encontrados.sort(Libro.ORDEN_CATEGORIAS);
+		return encontrados;
+	}
+
+	/**
+	 * Retorna la lista de autores del trigrama de la cadena que aparece en menos autores, o null si alguno de los trigramas no aparece en ningún autor
+	 */
+	private ListaEnteros buscarTrigramaMenosFrecuente(String cadena)
+	{
+		ListaEnteros menor = null;
+		for (int i = 0; i + 3 <= cadena.length(); i++)
+		{
+			ListaEnteros lista = trigramas.get(trigrama(cadena, i));
+			if (lista == null)
+				return null;
+			if (menor == null || lista.cantidad < menor.cantidad)
+				menor = lista;
+		}
+		return menor;
+	}
+
+	/**
+	 * Actualiza la cuenta de libros del autor en la categoría del libro y, si el autor ganó o perdió una categoría, el conjunto de autores en varias categorías
+	 */
+	private void contar(Autor autor, Libro libro, int cambio)
+	{
+		if (autor.contar(libro.darCategoria().darOrdinal(), cambio))
+			enVariasCategorias.set(autor.id, autor.cantidadCategorias > 1);
+	}
+
+	private void indexarTrigramas(Autor autor)
+	{
+		String minusculas = autor.minusculas;
+		for (int i = 0; i + 3 <= minusculas.length(); i++)
+		{
+			Long llave = trigrama(minusculas, i);
+			ListaEnteros lista = trigramas.get(llave);
+			if (lista == null)
+			{
+				lista = new ListaEnteros();
+				trigramas.put(llave, lista);
+			}
+
+			// Un trigrama que se repite dentro del mismo nombre sólo se guarda una vez
+			if (lista.cantidad == 0 || lista.datos[lista.cantidad - 1] != autor.id)
+				lista.agregar(autor.id);
+		}
+	}
+
+	/**
+	 * Empaca en un long los 3 caracteres que empiezan en la posición indicada
+	 */
+	private static long trigrama(String cadena, int inicio)
+	{
+		return ((long) cadena.charAt(inicio) << 32) | ((long) cadena.charAt(inicio + 1) << 16) | cadena.charAt(inicio + 2);
+	}
+
+	// ************************************************************************
+	// Clases anidadas
+	// ************************************************************************
+
+	/**
+	 * Un autor distinto, con sus libros
+	 */
+	private static final class Autor
+	{
+		private final String nombre;
+
+		private final String minusculas;
+
+		private final int id;
+
+		private final ArrayList<Libro> libros;
+
+		/**
+		 * Cantidad de libros del autor en cada categoría, según el ordinal de la categoría
+		 */
+		private int[] porCategoria;
+
+		/**
+		 * Los ordinales de las categorías en las que el autor tiene al menos un libro
+		 */
+		private final BitSet categorias;
+
+		/**
+		 * Cantidad de categorías en las que el autor tiene al menos un libro
+		 */
+		private int cantidadCategorias;
+
+		private Autor(String nombre, int id)
+		{
+			this.nombre = nombre;
+			this.minusculas = nombre.toLowerCase();
+			this.id = id;
+			this.libros = new ArrayList<Libro>(2);
+			this.porCategoria = new int[0];
+			this.categorias = new BitSet();
+		}
+
+		/**
+		 * Suma el cambio a la cuenta de libros del autor en una categoría
+		 *
+		 * @return Retorna true si el autor ganó o perdió la categoría
+		 */
+		private boolean contar(int ordinal, int cambio)
+		{
+			if (ordinal >= porCategoria.length)
+				porCategoria = Arrays.copyOf(porCategoria, ordinal + 1);
+			int anterior = porCategoria[ordinal];
+			porCategoria[ordinal] += cambio;
+
+			if (anterior == 0 && porCategoria[ordinal] > 0)
+			{
+				categorias.set(ordinal);
+				cantidadCategorias++;
+				return true;
+			}
+			if (anterior > 0 && porCategoria[ordinal] == 0)
+			{
+				categorias.clear(ordinal);
+				cantidadCategorias--;
+				return true;
+			}
+			return false;
+		}
+	}
+}
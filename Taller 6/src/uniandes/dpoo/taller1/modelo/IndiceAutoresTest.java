@@ -0,0 +1,70 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class IndiceAutoresTest
+{
+
+	@Test
+	void testBusquedaParcial()
+	{
+		RegistroCategorias registro = new RegistroCategorias();
+		Categoria aventura = new Categoria("Aventura", true);
+		Categoria ciencia = new Categoria("Ciencia", false);
+		registro.agregar(aventura);
+		registro.agregar(ciencia);
+
+		Libro viaje = new Libro("Viaje al centro de la Tierra", "Julio Verne", 4, ciencia);
+		Libro vueltas = new Libro("La vuelta al mundo en 80 días", "Julio Verne", 5, aventura);
+		Libro cosmos = new Libro("Cosmos", "Carl Sagan", 5, ciencia);
+		IndiceAutores indice = new IndiceAutores();
+		indice.agregar(viaje);
+		indice.agregar(vueltas);
+		indice.agregar(cosmos);
+
+		ArrayList<Libro> encontrados = indice.buscarLibros("ULIO V");
+		assertEquals(2, encontrados.size());
+		assertSame(vueltas, encontrados.get(0)); // Aventura va antes que Ciencia
+		assertSame(viaje, encontrados.get(1));
+		assertEquals(3, indice.buscarLibros("l").size());
+		assertTrue(indice.buscarLibros("borges").isEmpty());
+
+		indice.retirar(viaje);
+		assertEquals(1, indice.buscarLibros("verne").size());
+		assertEquals(2, indice.darCantidadAutores());
+	}
+
+	@Test
+	void testAutoresEnVariasCategorias()
+	{
+		RegistroCategorias registro = new RegistroCategorias();
+		Categoria aventura = new Categoria("Aventura", true);
+		Categoria ciencia = new Categoria("Ciencia", false);
+		registro.agregar(aventura);
+		registro.agregar(ciencia);
+
+		Libro viaje = new Libro("Viaje al centro de la Tierra", "Julio Verne", 4, ciencia);
+		Libro vueltas = new Libro("La vuelta al mundo en 80 días", "Julio Verne", 5, aventura);
+		Libro cosmos = new Libro("Cosmos", "Carl Sagan", 5, ciencia);
+		IndiceAutores indice = new IndiceAutores();
+		indice.agregar(viaje);
+		indice.agregar(cosmos);
+		assertFalse(indice.hayAutorEnVariasCategorias());
+
+		indice.agregar(vueltas);
+		assertTrue(indice.hayAutorEnVariasCategorias());
+		Map<String, ArrayList<Categoria>> autores = indice.buscarAutoresEnVariasCategorias(registro.darArreglo());
+		assertEquals(1, autores.size());
+		assertEquals(Arrays.asList(aventura, ciencia), autores.get("Julio Verne"));
+
+		indice.retirar(viaje);
+		assertFalse(indice.hayAutorEnVariasCategorias());
+		assertTrue(indice.buscarAutoresEnVariasCategorias(registro.darArreglo()).isEmpty());
+	}
+}
@@ -0,0 +1,564 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Esta clase mantiene los libros de una categoría ordenados por calificación, de la mejor a la peor, para responder en tiempo O(log n + k) consultas como los k mejores libros, los libros con una
+ * calificación en un rango o cuántos libros tienen una calificación mayor que otra.
+ *
+ * Los libros se guardan en un treap: un árbol binario de búsqueda en el que cada nodo tiene además una prioridad aleatoria, y los nodos con mayor prioridad quedan más arriba. Así el árbol queda
+ * balanceado con alta probabilidad sin importar el orden en el que lleguen los libros. Cada nodo sabe cuántos nodos hay en su subárbol, para poder encontrar el libro en una posición dada o contar
+ * los libros que van antes de una calificación sin recorrerlos.
+ *
+ * Los libros con la misma calificación se ordenan por su secuencia, es decir, en el orden en el que entraron a la categoría. El índice guarda la calificación y la secuencia con las que se agregó
+ * cada libro, así que se le debe avisar antes de cambiarlas.
+ *
+ * Los métodos estáticos combinan los índices de varias categorías para responder las mismas consultas sobre toda la librería, sin tener un segundo árbol con todos los libros.
+ */
+public class IndiceCalificaciones
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * Orden de los libros de toda la librería: de la mejor a la peor calificación, y los empates en el orden de las categorías
+	 */
+	public static final Comparator<Libro> MEJOR_PRIMERO = Comparator.comparingDouble(Libro::darCalificacion).reversed().thenComparing(Libro.ORDEN_CATEGORIAS);
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * La raíz del árbol, o null si no hay libros
+	 */
+	private Nodo raiz;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye el índice con los libros de una categoría
+	 *
+	 * @param libros Los libros de la categoría
+	 */
+	IndiceCalificaciones(Collection<Libro> libros)
+	{
+		Nodo[] nodos = new Nodo[libros.size()];
+		int i = 0;
+		for (Libro libro : libros)
+		{
+			nodos[i++] = new Nodo(libro, libro.darCalificacion(), libro.darSecuencia());
+		}
+		Arrays.sort(nodos, (a, b) -> comparar(a, b.calificacion, b.secuencia));
+		raiz = construir(nodos);
+	}
+
+	// ************************************************************************
+	// Métodos para mantener el índice
+	// ************************************************************************
+
+	/**
+	 * Agrega un libro con su calificación y su secuencia actuales
+	 *
+	 * @param libro El libro
+	 */
+	void agregar(Libro libro)
+	{
+		raiz = insertar(raiz, new Nodo(libro, libro.darCalificacion(), libro.darSecuencia()));
+	}
+
+	/**
+	 * Retira el libro que se agregó con la calificación y la secuencia indicadas
+	 *
+	 * @param calificacion La calificación con la que se agregó el libro
+	 * @param secuencia    La secuencia con la que se agregó el libro
+	 */
+	void retirar(double calificacion, long secuencia)
+	{
+		raiz = eliminar(raiz, calificacion, secuencia);
+	}
+
+	// ************************************************************************
+	// Consultas
+	// ************************************************************************
+
+	/**
+	 * Consulta la cantidad de libros del índice
+	 *
+	 * @return Cantidad de libros
+	 */
+	public int darCantidad()
+	{
+		return tamano(raiz);
+	}
+
+	/**
+	 * Busca los k libros con mejor calificación
+	 *
+	 * @param k La cantidad de libros
+	 * @return Una lista con a lo sumo k libros, de la mejor a la peor calificación
+	 */
+	public ArrayList<Libro> darMejores(int k)
+	{
+		return recorrer(new Recorrido(raiz, 0, false), k, Double.NEGATIVE_INFINITY);
+	}
+
+	/**
+	 * Busca los k libros con peor calificación
+	 *
+	 * @param k La cantidad de libros
+	 * @return Una lista con a lo sumo k libros, de la peor a la mejor calificación
+	 */
+	public ArrayList<Libro> darPeores(int k)
+	{
+		return recorrer(new Recorrido(raiz, tamano(raiz) - 1, true), k, Double.NEGATIVE_INFINITY);
+	}
+
+	/**
+	 * Busca los libros con una calificación dentro de un rango
+	 *
+	 * @param minima La menor calificación aceptada
+	 * @param maxima La mayor calificación aceptada
+	 * @return Una lista con los libros encontrados, de la mejor a la peor calificación
+	 */
+	public ArrayList<Libro> buscarEnRango(double minima, double maxima)
+	{
+		return recorrer(new Recorrido(raiz, contarMejores(maxima), false), Integer.MAX_VALUE, minima);
+	}
+
+	/**
+	 * Cuenta los libros con una calificación estrictamente mayor que la indicada
+	 *
+	 * @param calificacion La calificación
+	 * @return Cantidad de libros mejor calificados. Es también la posición, empezando en 0, del primer libro con esa calificación o una menor.
+	 */
+	public int contarMejores(double calificacion)
+	{
+		int cantidad = 0;
+		Nodo actual = raiz;
+		while (actual != null)
+		{
+			if (actual.calificacion > calificacion)
+			{
+				cantidad += tamano(actual.izquierdo) + 1;
+				actual = actual.derecho;
+			}
+			else
+			{
+				actual = actual.izquierdo;
+			}
+		}
+		return cantidad;
+	}
+
+	/**
+	 * Cuenta los libros con una calificación dentro de un rango
+	 *
+	 * @param minima La menor calificación aceptada
+	 * @param maxima La mayor calificación aceptada
+	 * @return Cantidad de libros en el rango
+	 */
+	public int contarEnRango(double minima, double maxima)
+	{
+		if (minima > maxima)
+			return 0;
+		return contarMejores(Math.nextDown(minima)) - contarMejores(maxima);
+	}
+
+	/**
+	 * Busca la posición de un libro en el orden del índice
+	 *
+	 * @param libro El libro. Debe estar en el índice.
+	 * @return La posición del libro, empezando en 0 para el libro con mejor calificación
+	 */
+	public int darPosicion(Libro libro)
+	{
+		int posicion = 0;
+		Nodo actual = raiz;
+		while (actual != null)
+		{
+			int comparacion = comparar(actual, libro.darCalificacion(), libro.darSecuencia());
+			if (comparacion < 0)
+			{
+				posicion += tamano(actual.izquierdo) + 1;
+				actual = actual.derecho;
+			}
+			else if (comparacion > 0)
+			{
+				actual = actual.izquierdo;
+			}
+			else
+			{
+				return posicion + tamano(actual.izquierdo);
+			}
+		}
+		return -1;
+	}
+
+	// ************************************************************************
+	// Consultas sobre varias categorías
+	// ************************************************************************
+
+	/**
+	 * Busca los k libros con mejor calificación entre los de varias categorías
+	 *
+	 * @param indices Los índices de las categorías
+	 * @param k       La cantidad de libros
+	 * @return Una lista con a lo sumo k libros, en el orden de MEJOR_PRIMERO
+	 */
+	public static ArrayList<Libro> darMejores(IndiceCalificaciones[] indices, int k)
+	{
+		ArrayList<Recorrido> recorridos = new ArrayList<Recorrido>();
+		for (IndiceCalificaciones indice : indices)
+		{
+			recorridos.add(new Recorrido(indice.raiz, 0, false));
+		}
+		return combinar(recorridos, MEJOR_PRIMERO, k, Double.NEGATIVE_INFINITY);
+	}
+
+	/**
+	 * Busca los k libros con peor calificación entre los de varias categorías
+	 *
+	 * @param indices Los índices de las categorías
+	 * @param k       La cantidad de libros
+	 * @return Una lista con a lo sumo k libros, en el orden contrario a MEJOR_PRIMERO
+	 */
+	public static ArrayList<Libro> darPeores(IndiceCalificaciones[] indices, int k)
+	{
+		ArrayList<Recorrido> recorridos = new ArrayList<Recorrido>();
+		for (IndiceCalificaciones indice : indices)
+		{
+			recorridos.add(new Recorrido(indice.raiz, tamano(indice.raiz) - 1, true));
+		}
+		return combinar(recorridos, MEJOR_PRIMERO.reversed(), k, Double.NEGATIVE_INFINITY);
+	}
+
+	/**
+	 * Busca los libros con una calificación dentro de un rango entre los de varias categorías
+	 *
+	 * @param indices Los índices de las categorías
+	 * @param minima  La menor calificación aceptada
+	 * @param maxima  La mayor calificación aceptada
+	 * @return Una lista con los libros encontrados, en el orden de MEJOR_PRIMERO
+	 */
+	public static ArrayList<Libro> buscarEnRango(IndiceCalificaciones[] indices, double minima, double maxima)
+	{
+		ArrayList<Recorrido> recorridos = new ArrayList<Recorrido>();
+		for (IndiceCalificaciones indice : indices)
+		{
+			recorridos.add(new Recorrido(indice.raiz, indice.contarMejores(maxima), false));
+		}
+		return combinar(recorridos, MEJOR_PRIMERO, Integer.MAX_VALUE, minima);
+	}
+
+	/**
+	 * Cuenta los libros con una calificación dentro de un rango entre los de varias categorías
+	 *
+	 * @param indices Los índices de las categorías
+	 * @param minima  La menor calificación aceptada
+	 * @param maxima  La mayor calificación aceptada
+	 * @return Cantidad de libros en el rango
+	 */
+	public static int contarEnRango(IndiceCalificaciones[] indices, double minima, double maxima)
+	{
+		int cantidad = 0;
+		for (IndiceCalificaciones indice : indices)
+		{
+			cantidad += indice.contarEnRango(minima, maxima);
+		}
+		return cantidad;
+	}
+
+	/**
+	 * Toma libros de un recorrido hasta completar k o hasta encontrar una calificación menor que la mínima
+	 */
+	private static ArrayList<Libro> recorrer(Recorrido recorrido, int k, double minima)
+	{
+		ArrayList<Libro> encontrados = new ArrayList<Libro>();
+		while (encontrados.size() < k && recorrido.actual != null && recorrido.actual.calificacion >= minima)
+		{
+			encontrados.add(recorrido.actual.libro);
+			recorrido.avanzar();
+		}
+		return encontrados;
+	}
+
+	/**
+	 * Mezcla varios recorridos en el orden indicado, usando una cola de prioridad con el libro actual de cada uno
+	 */
+	private static ArrayList<Libro> combinar(ArrayList<Recorrido> recorridos, Comparator<Libro> orden, int k, double minima)
+	{
+		PriorityQueue<Recorrido> cola = new PriorityQueue<Recorrido>(Math.max(1, recorridos.size()), (a, b) -> orden.compare(a.actual.libro, b.actual.libro));
+		for (Recorrido recorrido : recorridos)
+		{
+			if (recorrido.actual != null && recorrido.actual.calificacion >= minima)
+				cola.add(recorrido);
+		}
+
+		ArrayList<Libro> encontrados = new ArrayList<Libro>();
+		while (encontrados.size() < k && !cola.isEmpty())
+		{
+			Recorrido recorrido = cola.poll();
+			encontrados.add(recorrido.actual.libro);
+			recorrido.avanzar();
+			if (recorrido.actual != null && recorrido.actual.calificacion >= minima)
+				cola.add(recorrido);
+		}
+		return encontrados;
+	}
+
+	// ************************************************************************
+	// Operaciones del árbol
+	// ************************************************************************
+
+	/**
+	 * Compara la llave de un nodo con una calificación y una secuencia
+	 *
+	 * @return Un número negativo si el nodo va antes, 0 si es la misma llave o un número positivo si el nodo va después
+	 */
+	private static int comparar(Nodo nodo, double calificacion, long secuencia)
+	{
+		int comparacion = Double.compare(calificacion, nodo.calificacion);
+		return comparacion != 0 ? comparacion : Long.compare(nodo.secuencia, secuencia);
+	}
+
+	private static int tamano(Nodo nodo)
+	{
+		return nodo == null ? 0 : nodo.tamano;
+	}
+
+	private static void actualizar(Nodo nodo)
+	{
+		nodo.tamano = tamano(nodo.izquierdo) + tamano(nodo.derecho) + 1;
+	}
+
+	private static Nodo insertar(Nodo arbol, Nodo nuevo)
+	{
+		if (arbol == null)
+			return nuevo;
+
+		if (comparar(nuevo, arbol.calificacion, arbol.secuencia) < 0)
+		{
+			arbol.izquierdo = insertar(arbol.izquierdo, nuevo);
+			if (arbol.izquierdo.prioridad > arbol.prioridad)
+				arbol = rotarDerecha(arbol);
+		}
+		else
+		{
+			arbol.derecho = insertar(arbol.derecho, nuevo);
+			if (arbol.derecho.prioridad > arbol.prioridad)
+				arbol = rotarIzquierda(arbol);
+		}
+		actualizar(arbol);
+		return arbol;
+	}
+
+	private static Nodo eliminar(Nodo arbol, double calificacion, long secuencia)
+	{
+		if (arbol == null)
+			return null;
+
+		int comparacion = comparar(arbol, calificacion, secuencia);
+		if (comparacion < 0)
+		{
+			arbol.derecho = eliminar(arbol.derecho, calificacion, secuencia);
+		}
+		else if (comparacion > 0)
+		{
+			arbol.izquierdo = eliminar(arbol.izquierdo, calificacion, secuencia);
+		}
+		else
+		{
+			return unir(arbol.izquierdo, arbol.derecho);
+		}
+		actualizar(arbol);
+		return arbol;
+	}
+
+	/**
+	 * Une dos árboles, sabiendo que todos los nodos del primero van antes que los del segundo
+	 */
+	private static Nodo unir(Nodo primero, Nodo segundo)
+	{
+		if (primero == null)
+			return segundo;
+		if (segundo == null)
+			return primero;
+
+		if (primero.prioridad > segundo.prioridad)
+		{
+			primero.derecho = unir(primero.derecho, segundo);
+			actualizar(primero);
+			return primero;
+		}
+		segundo.izquierdo = unir(primero, segundo.izquierdo);
+		actualizar(segundo);
+		return segundo;
+	}
+
+	private static Nodo rotarDerecha(Nodo nodo)
+	{
+		Nodo izquierdo = nodo.izquierdo;
+		nodo.izquierdo = izquierdo.derecho;
+		izquierdo.derecho = nodo;
+		actualizar(nodo);
+		return izquierdo;
+	}
+
+	private static Nodo rotarIzquierda(Nodo nodo)
+	{
+		Nodo derecho = nodo.derecho;
+		nodo.derecho = derecho.izquierdo;
+		derecho.izquierdo = nodo;
+		actualizar(nodo);
+		return derecho;
+	}
+
+	/**
+	 * Construye el árbol con nodos que ya están ordenados, en tiempo lineal. Se recorren los nodos en orden manteniendo en una pila el camino más a la derecha del árbol: cada nodo nuevo se cuelga
+	 * debajo del último nodo del camino con mayor prioridad, y los nodos de menor prioridad que se sacan del camino quedan como su hijo izquierdo.
+	 */
+	private static Nodo construir(Nodo[] ordenados)
+	{
+		ArrayDeque<Nodo> camino = new ArrayDeque<Nodo>();
+		for (Nodo nodo : ordenados)
+		{
+			Nodo ultimoRetirado = null;
+			while (!camino.isEmpty() && camino.peek().prioridad < nodo.prioridad)
+			{
+				ultimoRetirado = camino.pop();
+			}
+			nodo.izquierdo = ultimoRetirado;
+			if (!camino.isEmpty())
+				camino.peek().derecho = nodo;
+			camino.push(nodo);
+		}
+
+		Nodo raiz = camino.peekLast();
+		if (raiz != null)
+			calcularTamanos(raiz);
+		return raiz;
+	}
+
+	/**
+	 * Calcula el tamaño de todos los subárboles, en posorden y sin recursión
+	 */
+	private static void calcularTamanos(Nodo raiz)
+	{
+		ArrayDeque<Nodo> pendientes = new ArrayDeque<Nodo>();
+		ArrayList<Nodo> preorden = new ArrayList<Nodo>();
+		pendientes.push(raiz);
+		while (!pendientes.isEmpty())
+		{
+			Nodo nodo = pendientes.pop();
+			preorden.add(nodo);
+			if (nodo.izquierdo != null)
+				pendientes.push(nodo.izquierdo);
+			if (nodo.derecho != null)
+				pendientes.push(nodo.derecho);
+		}
+		for (int i = preorden.size() - 1; i >= 0; i--)
+		{
+			actualizar(preorden.get(i));
+		}
+	}
+
+	// ************************************************************************
+	// Clases anidadas
+	// ************************************************************************
+
+	/**
+	 * Un nodo del árbol, con la llave con la que se agregó el libro
+	 */
+	private static final class Nodo
+	{
+		private final Libro libro;
+
+		private final double calificacion;
+
+		private final long secuencia;
+
+		private final int prioridad;
+
+		private int tamano;
+
+		private Nodo izquierdo;
+
+		private Nodo derecho;
+
+		private Nodo(Libro libro, double calificacion, long secuencia)
+		{
+			this.libro = libro;
+			this.calificacion = calificacion;
+			this.secuencia = secuencia;
+			this.prioridad = ThreadLocalRandom.current().nextInt();
+			this.tamano = 1;
+		}
+	}
+
+	/**
+	 * Un recorrido del árbol en orden, hacia adelante (de la mejor a la peor calificación) o hacia atrás, que empieza en una posición dada. La pila guarda los nodos que faltan por visitar en el
+	 * camino desde la raíz, así que cada paso toma en promedio tiempo constante.
+	 */
+	private static final class Recorrido
+	{
+		private final boolean haciaAtras;
+
+		private final ArrayDeque<Nodo> pila;
+
+		private Nodo actual;
+
+		private Recorrido(Nodo raiz, int posicion, boolean haciaAtras)
+		{
+			this.haciaAtras = haciaAtras;
+			this.pila = new ArrayDeque<Nodo>();
+
+			// Se baja hasta el nodo de la posición, guardando los ancestros que se visitan después de él
+			Nodo nodo = raiz;
+			while (nodo != null && posicion >= 0)
+			{
+				int antes = tamano(nodo.izquierdo);
+				if (posicion < antes)
+				{
+					if (!haciaAtras)
+						pila.push(nodo);
+					nodo = nodo.izquierdo;
+				}
+				else if (posicion > antes)
+				{
+					if (haciaAtras)
+						pila.push(nodo);
+					posicion -= antes + 1;
+					nodo = nodo.derecho;
+				}
+				else
+				{
+					actual = nodo;
+					break;
+				}
+			}
+			if (actual == null)
+				pila.clear();
+		}
+
+		private void avanzar()
+		{
+			Nodo nodo = haciaAtras ? actual.izquierdo : actual.derecho;
+			while (nodo != null)
+			{
+				pila.push(nodo);
+				nodo = haciaAtras ? nodo.derecho : nodo.izquierdo;
+			}
+			actual = pila.poll();
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class IndiceCalificacionesTest
+{
+
+	@Test
+	void testConsultasPorCategoriaYGlobales()
+	{
+		RegistroCategorias registro = new RegistroCategorias();
+		Categoria aventura = new Categoria("Aventura", true);
+		Categoria ciencia = new Categoria("Ciencia", false);
+		registro.agregar(aventura);
+		registro.agregar(ciencia);
+
+		Libro viaje = new Libro("Viaje al centro de la Tierra", "Julio Verne", 4, aventura);
+		Libro vueltas = new Libro("La vuelta al mundo en 80 días", "Julio Verne", 5, aventura);
+		Libro islas = new Libro("La isla del tesoro", "Robert Louis Stevenson", 3.5, aventura);
+		Libro cosmos = new Libro("Cosmos", "Carl Sagan", 4, ciencia);
+
+		IndiceCalificaciones indice = aventura.darIndiceCalificaciones();
+		assertEquals(Arrays.asList(vueltas, viaje), indice.darMejores(2));
+		assertEquals(Arrays.asList(islas, viaje), indice.darPeores(2));
+		assertEquals(Arrays.asList(viaje, islas), indice.buscarEnRango(3.5, 4.2));
+		assertEquals(1, indice.contarMejores(4));
+		assertEquals(2, indice.darPosicion(islas));
+
+		// El índice ya construido se mantiene al día
+		Libro tesoro = new Libro("Veinte mil leguas de viaje submarino", "Julio Verne", 4.5, aventura);
+		islas.actualizar(islas.darAutor(), 5, aventura);
+		assertEquals(Arrays.asList(vueltas, islas, tesoro, viaje), indice.darMejores(10));
+
+		// Los empates entre categorías quedan en el orden de las categorías
+		IndiceCalificaciones[] indices = registro.darIndicesCalificaciones();
+		assertEquals(Arrays.asList(viaje, cosmos), IndiceCalificaciones.buscarEnRango(indices, 4, 4));
+		assertEquals(Arrays.asList(cosmos, viaje), IndiceCalificaciones.darPeores(indices, 2));
+		assertEquals(5, IndiceCalificaciones.contarEnRango(indices, 0, 5));
+	}
+}
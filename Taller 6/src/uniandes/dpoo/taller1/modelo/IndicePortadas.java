@@ -0,0 +1,164 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Esta clase permite saber cuáles archivos de portadas existen dentro de la carpeta de datos, sin tener que consultar al sistema de archivos una vez por cada libro.
+ *
+ * Tiene dos modos de funcionamiento:
+ * <ul>
+ * <li>LISTADO: la primera vez que se pregunta por un archivo de una carpeta, se lista la carpeta completa una sola vez y se guardan los nombres en memoria. Es el modo adecuado cuando se buscan casi
+ * todos los archivos de la carpeta, como al cargar el catálogo.</li>
+ * <li>CONSULTA_PARALELA: se consulta cada archivo directamente, pero las consultas de un lote se hacen en paralelo. Es el modo adecuado cuando se buscan pocos archivos en carpetas muy grandes.</li>
+ * </ul>
+ *
+ * Las instancias se pueden usar desde varios hilos al mismo tiempo.
+ */
+public class IndicePortadas
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * Modo en el que se lista cada carpeta una sola vez
+	 */
+	public static final int LISTADO = 0;
+
+	/**
+	 * Modo en el que se consulta cada archivo, con los lotes en paralelo
+	 */
+	public static final int CONSULTA_PARALELA = 1;
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * Carpeta a partir de la cual se interpretan las rutas de las portadas
+	 */
+	private Path carpetaBase;
+
+	/**
+	 * Modo de funcionamiento: LISTADO o CONSULTA_PARALELA
+	 */
+	private int modo;
+
+	/**
+	 * Nombres de los archivos de cada carpeta que ya se listó. La llave es la carpeta tal como aparece en las rutas de las portadas (por ejemplo "./imagenes"), para no tener que construir un Path en
+	 * cada consulta.
+	 */
+	private ConcurrentHashMap<String, Set<String>> carpetas;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye un nuevo índice de portadas
+	 *
+	 * @param carpetaBase La carpeta a partir de la cual se interpretan las rutas de las portadas (normalmente "./data")
+	 * @param modo        El modo de funcionamiento: LISTADO o CONSULTA_PARALELA
+	 */
+	public IndicePortadas(String carpetaBase, int modo)
+	{
+		this.carpetaBase = Paths.get(carpetaBase).toAbsolutePath().normalize();
+		this.modo = modo;
+		this.carpetas = new ConcurrentHashMap<String, Set<String>>();
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Consulta si existe el archivo indicado
+	 *
+	 * @param rutaArchivo La ruta del archivo, relativa a la carpeta base
+	 * @return Retorna true si el archivo existe. Retorna false en caso contrario.
+	 */
+	public boolean existe(String rutaArchivo)
+	{
+		if (modo == CONSULTA_PARALELA)
+			return Files.exists(carpetaBase.resolve(rutaArchivo));
+
+		int separador = Math.max(rutaArchivo.lastIndexOf('/'), rutaArchivo.lastIndexOf('\\'));
+		String carpeta = separador < 0 ? "" : rutaArchivo.substring(0, separador);
+		String nombre = rutaArchivo.substring(separador + 1);
+		return !nombre.isEmpty() && darNombres(carpeta).contains(nombre);
+	}
+
+	/**
+	 * Consulta cuáles de los archivos indicados existen
+	 *
+	 * @param rutasArchivos Las rutas de los archivos, relativas a la carpeta base
+	 * @return Un arreglo donde la posición i indica si existe el archivo de la posición i de la lista
+	 */
+	public boolean[] existen(List<String> rutasArchivos)
+	{
+		boolean[] existen = new boolean[rutasArchivos.size()];
+		if (modo == CONSULTA_PARALELA)
+		{
+			IntStream.range(0, existen.length).parallel().forEach(i -> existen[i] = existe(rutasArchivos.get(i)));
+		}
+		else
+		{
+			for (int i = 0; i < existen.length; i++)
+			{
+				existen[i] = existe(rutasArchivos.get(i));
+			}
+		}
+		return existen;
+	}
+
+	/**
+	 * Olvida los listados de carpetas que se tenían en memoria, para que la siguiente consulta vuelva a leer el disco
+	 */
+	public void olvidar()
+	{
+		carpetas.clear();
+	}
+
+	/**
+	 * Retorna los nombres de los archivos de una carpeta, listándola si es la primera vez que se necesita
+	 */
+	private Set<String> darNombres(String carpeta)
+	{
+		Set<String> nombres = carpetas.get(carpeta);
+		if (nombres == null)
+			nombres = carpetas.computeIfAbsent(carpeta, c -> listar(carpetaBase.resolve(c).normalize()));
+		return nombres;
+	}
+
+	private static Set<String> listar(Path carpeta)
+	{
+		Set<String> nombres = new HashSet<String>();
+		if (Files.isDirectory(carpeta))
+		{
+			try (DirectoryStream<Path> contenido = Files.newDirectoryStream(carpeta))
+			{
+				for (Path archivo : contenido)
+				{
+					nombres.add(archivo.getFileName().toString());
+				}
+			}
+			catch (IOException e)
+			{
+				// Una carpeta que no se puede leer se trata como una carpeta vacía
+				return Collections.emptySet();
+			}
+		}
+		return nombres;
+	}
+
+}
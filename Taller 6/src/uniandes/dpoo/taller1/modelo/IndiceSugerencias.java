@@ -0,0 +1,140 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Esta clase guarda los títulos, autores y nombres de categorías de una librería en árboles de prefijos, para sugerirle al usuario cómo completar lo que está escribiendo.
+ *
+ * Los títulos pesan la suma de las calificaciones de sus libros, así que se sugieren primero los títulos mejor calificados. Los autores y las categorías pesan la cantidad de libros que tienen.
+ */
+class IndiceSugerencias
+{
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	private ArbolPrefijos titulos;
+
+	private ArbolPrefijos autores;
+
+	private ArbolPrefijos categorias;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye el índice con los libros y las categorías indicados
+	 *
+	 * @param libros        Los libros
+	 * @param lasCategorias Las categorías. Se incluyen también las que no tienen libros.
+	 */
+	IndiceSugerencias(Collection<Libro> libros, Categoria[] lasCategorias)
+	{
+		titulos = new ArbolPrefijos();
+		autores = new ArbolPrefijos();
+		categorias = new ArbolPrefijos();
+		for (Categoria categoria : lasCategorias)
+		{
+			categorias.agregar(categoria.darNombre(), categoria.contarLibrosEnCategoria());
+		}
+		for (Libro libro : libros)
+		{
+			titulos.agregar(libro.darTitulo(), libro.darCalificacion());
+			autores.agregar(libro.darAutor(), 1);
+		}
+	}
+
+	// ************************************************************************
+	// Métodos para mantener el índice
+	// ************************************************************************
+
+	/**
+	 * Agrega un libro al índice. Su categoría ya debe estar en el índice.
+	 *
+	 * @param libro El libro
+	 */
+	void libroAgregado(Libro libro)
+	{
+		titulos.agregar(libro.darTitulo(), libro.darCalificacion());
+		autores.agregar(libro.darAutor(), 1);
+		categorias.cambiarPeso(libro.darCategoria().darNombre(), 1);
+	}
+
+	/**
+	 * Retira un libro del índice
+	 *
+	 * @param libro El libro, todavía con su categoría
+	 */
+	void libroRetirado(Libro libro)
+	{
+		titulos.retirar(libro.darTitulo(), libro.darCalificacion());
+		autores.retirar(libro.darAutor(), 1);
+		categorias.cambiarPeso(libro.darCategoria().darNombre(), -1);
+	}
+
+	/**
+	 * Actualiza el índice cuando cambian el autor, la calificación o la categoría de un libro
+	 *
+	 * @param libro                El libro, ya con sus valores nuevos
+	 * @param autorAnterior        El autor que tenía el libro
+	 * @param calificacionAnterior La calificación que tenía el libro
+	 * @param categoriaAnterior    La categoría en la que estaba el libro
+	 */
+	void libroCambiado(Libro libro, String autorAnterior, double calificacionAnterior, Categoria categoriaAnterior)
+	{
+		titulos.cambiarPeso(libro.darTitulo(), libro.darCalificacion() - calificacionAnterior);
+		if (!autorAnterior.equals(libro.darAutor()))
+		{
+			autores.retirar(autorAnterior, 1);
+			autores.agregar(libro.darAutor(), 1);
+		}
+		if (categoriaAnterior != libro.darCategoria())
+		{
+			categorias.cambiarPeso(categoriaAnterior.darNombre(), -1);
+			categorias.cambiarPeso(libro.darCategoria().darNombre(), 1);
+		}
+	}
+
+	/**
+	 * Agrega una categoría nueva al índice, con los libros que ya tenga
+	 *
+	 * @param categoria La categoría
+	 */
+	void categoriaAgregada(Categoria categoria)
+	{
+		categorias.agregar(categoria.darNombre(), categoria.contarLibrosEnCategoria());
+	}
+
+	/**
+	 * Actualiza el índice cuando cambia el nombre de una categoría
+	 *
+	 * @param nombreAnterior El nombre que tenía la categoría
+	 * @param categoria      La categoría, ya con su nombre nuevo
+	 */
+	void categoriaRenombrada(String nombreAnterior, Categoria categoria)
+	{
+		categorias.retirar(nombreAnterior, categoria.contarLibrosEnCategoria());
+		categorias.agregar(categoria.darNombre(), categoria.contarLibrosEnCategoria());
+	}
+
+	// ************************************************************************
+	// Consultas
+	// ************************************************************************
+
+	ArrayList<String> completarTitulo(String prefijo, int cantidad)
+	{
+		return titulos.completar(prefijo, cantidad);
+	}
+
+	ArrayList<String> completarAutor(String prefijo, int cantidad)
+	{
+		return autores.completar(prefijo, cantidad);
+	}
+
+	ArrayList<String> completarCategoria(String prefijo, int cantidad)
+	{
+		return categorias.completar(prefijo, cantidad);
+	}
+}
@@ -0,0 +1,267 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Esta clase permite encontrar los libros a partir de su título en tiempo constante.
+ *
+ * El índice puede usar los títulos exactos o títulos normalizados. Un título normalizado no tiene en cuenta mayúsculas y minúsculas, ni los espacios al principio y al final, ni si las palabras
+ * están separadas por uno o varios espacios. Usar títulos normalizados ocupa un String adicional por cada libro cuyo título cambia al normalizarse.
+ *
+ * Puede haber varios libros con el mismo título: en ese caso se guardan todos, en el orden en el que se agregaron.
+ */
+public class IndiceTitulos
+{
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * Indica si las llaves del índice son los títulos normalizados
+	 */
+	private boolean normalizar;
+
+	/**
+	 * Los libros de cada título. Para no crear una lista por cada libro, el valor es el libro mismo cuando sólo hay uno con ese título, o un ArrayList&lt;Libro&gt; cuando hay varios.
+	 */
+	private HashMap<String, Object> libros;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye un índice vacío
+	 *
+	 * @param normalizar Indica si se deben usar los títulos normalizados en lugar de los exactos
+	 */
+	public IndiceTitulos(boolean normalizar)
+	{
+		this.normalizar = normalizar;
+		this.libros = new HashMap<String, Object>();
+	}
+
+	// ************************************************************************
+	// Métodos para consultar los atributos
+	// ************************************************************************
+
+	/**
+	 * Consulta si el índice usa títulos normalizados
+	 *
+	 * @return normalizar
+	 */
+	public boolean usaTitulosNormalizados()
+	{
+		return normalizar;
+	}
+
+	/**
+	 * Consulta la cantidad de títulos distintos que hay en el índice
+	 *
+	 * @return Cantidad de títulos
+	 */
+	public int darCantidadTitulos()
+	{
+		return libros.size();
+	}
+
+	// ************************************************************************
+	// Otros métodos
+	// ************************************************************************
+
+	/**
+	 * Busca el primer libro que se agregó con el título indicado
+	 *
+	 * @param titulo El título buscado. Si el índice usa títulos normalizados, se normaliza antes de buscar.
+	 * @return El libro encontrado, o null si no hay ninguno con ese título
+	 */
+	@SuppressWarnings("unchecked")
+	public Libro buscar(String titulo)
+	{
+		Object valor = libros.get(darLlave(titulo));
+		if (valor instanceof ArrayList)
+			return ((ArrayList<Libro>) valor).get(0);
+		return (Libro) valor;
+	}
+
+	/**
+	 * Busca todos los libros con el título indicado
+	 *
+	 * @param titulo El título buscado. Si el índice usa títulos normalizados, se normaliza antes de buscar.
+	 * @return Una lista nueva con los libros encontrados, en el orden en el que se agregaron. Si no hay ninguno, la lista es vacía.
+	 */
+	@SuppressWarnings("unchecked")
+	public ArrayList<Libro> buscarTodos(String titulo)
+	{
+		ArrayList<Libro> encontrados = new ArrayList<Libro>();
+		Object valor = libros.get(darLlave(titulo));
+		if (valor instanceof ArrayList)
+			encontrados.addAll((ArrayList<Libro>) valor);
+		else if (valor != null)
+			encontrados.add((Libro) valor);
+		return encontrados;
+	}
+
+	/**
+	 * Agrega un libro al índice
+	 *
+	 * @param libro El libro que se va a agregar
+	 */
+	@SuppressWarnings("unchecked")
+	public void agregar(Libro libro)
+	{
+		String llave = darLlave(libro.darTitulo());
+		Object valor = libros.putIfAbsent(llave, libro);
+		if (valor instanceof ArrayList)
+		{
+			((ArrayList<Libro>) valor).add(libro);
+		}
+		else if (valor != null)
+		{
+			ArrayList<Libro> repetidos = new ArrayList<Libro>(2);
+			repetidos.add((Libro) valor);
+			repetidos.add(libro);
+			libros.put(llave, repetidos);
+		}
+	}
+
+	/**
+	 * Agrega varios libros al índice, en orden
+	 *
+	 * @param nuevos Los libros que se van a agregar
+	 */
+	public void agregarTodos(Collection<Libro> nuevos)
+	{
+		for (Libro libro : nuevos)
+		{
+			agregar(libro);
+		}
+	}
+
+	/**
+	 * Retira un libro del índice. El libro se busca por identidad, así que los demás libros con el mismo título se conservan.
+	 *
+	 * @param libro El libro que se va a retirar
+	 */
+	@SuppressWarnings("unchecked")
+	public void retirar(Libro libro)
+	{
+		String llave = darLlave(libro.darTitulo());
+		Object valor = libros.get(llave);
+		if (valor == libro)
+		{
+			libros.remove(llave);
+		}
+		else if (valor instanceof ArrayList)
+		{
+			ArrayList<Libro> repetidos = (ArrayList<Libro>) valor;
+			repetidos.removeIf(otro -> otro == libro);
+			if (repetidos.size() == 1)
+				libros.put(llave, repetidos.get(0));
+		}
+	}
+
+	/**
+	 * Retira varios libros del índice, recorriendo una sola vez la lista de cada título afectado
+	 *
+	 * @param retirados Los libros que se van a retirar. Debe ser un conjunto por identidad.
+	 */
+	@SuppressWarnings("unchecked")
+	public void retirarTodos(Set<Libro> retirados)
+	{
+		HashSet<String> afectadas = new HashSet<String>();
+		for (Libro libro : retirados)
+		{
+			afectadas.add(darLlave(libro.darTitulo()));
+		}
+		for (String llave : afectadas)
+		{
+			Object valor = libros.get(llave);
+			if (valor instanceof ArrayList)
+			{
+				ArrayList<Libro> repetidos = (ArrayList<Libro>) valor;
+				repetidos.removeIf(retirados::contains);
+				if (repetidos.size() <= 1)
+					actualizarLlave(llave, repetidos);
+			}
+			else if (valor != null && retirados.contains(valor))
+			{
+				libros.remove(llave);
+			}
+		}
+	}
+
+	/**
+	 * Deja en la llave el único libro que le queda, o la retira si no le queda ninguno
+	 */
+	private void actualizarLlave(String llave, ArrayList<Libro> repetidos)
+	{
+		if (repetidos.isEmpty())
+			libros.remove(llave);
+		else
+			libros.put(llave, repetidos.get(0));
+	}
+
+	/**
+	 * Retira todos los libros del índice
+	 */
+	public void limpiar()
+	{
+		libros.clear();
+	}
+
+	/**
+	 * Normaliza un título: lo pasa a minúsculas, quita los espacios al principio y al final y reemplaza cada grupo de espacios por un solo espacio
+	 *
+	 * @param titulo El título que se va a normalizar
+	 * @return El título normalizado. Si el título ya estaba normalizado, se retorna el mismo objeto.
+	 */
+	public static String normalizarTitulo(String titulo)
+	{
+		if (estaNormalizado(titulo))
+			return titulo;
+
+		StringBuilder normalizado = new StringBuilder(titulo.length());
+		boolean espacioPendiente = false;
+		for (int i = 0; i < titulo.length(); i++)
+		{
+			char c = titulo.charAt(i);
+			if (Character.isWhitespace(c))
+			{
+				espacioPendiente = normalizado.length() > 0;
+			}
+			else
+			{
+				if (espacioPendiente)
+					normalizado.append(' ');
+				normalizado.append(Character.toLowerCase(c));
+				espacioPendiente = false;
+			}
+		}
+		return normalizado.toString();
+	}
+
+	private static boolean estaNormalizado(String titulo)
+	{
+		int longitud = titulo.length();
+		if (longitud > 0 && (titulo.charAt(0) == ' ' || titulo.charAt(longitud - 1) == ' '))
+			return false;
+
+		for (int i = 0; i < longitud; i++)
+		{
+			char c = titulo.charAt(i);
+			if (c == ' ' ? titulo.charAt(i - 1) == ' ' : Character.isWhitespace(c) || Character.toLowerCase(c) != c)
+				return false;
+		}
+		return true;
+	}
+
+	private String darLlave(String titulo)
+	{
+		return normalizar ? normalizarTitulo(titulo) : titulo;
+	}
+}
@@ -0,0 +1,407 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Esta clase permite buscar libros por un título escrito con errores: encuentra los títulos que están a una distancia de edición (de Levenshtein) de a lo sumo k del título buscado, sin calcular la
+ * distancia contra todos los títulos.
+ *
+ * Los títulos se comparan normalizados (ver IndiceTitulos.normalizarTitulo), y cada título distinto se guarda una sola vez. Para cada trigrama se guarda la lista de los títulos en los que
+ * aparece, contando como trigramas también los que tocan el principio y el final del título. Una edición destruye a lo sumo 3 trigramas del título buscado, así que de cualquier grupo de 3k+1
+ * trigramas del título buscado, al menos uno tiene que aparecer en cada título a distancia k o menos. Por eso basta con tomar como candidatos los títulos de los trigramas menos frecuentes que
+ * cubran 3k+1 posiciones. Para descartar más candidatos se toman trigramas hasta cubrir el doble de posiciones: si cubren P posiciones, un título a distancia k o menos tiene que contener los
+ * trigramas de al menos P-3k de ellas. La distancia sólo se calcula para los candidatos que pasan ese filtro, y limitada a una franja de ancho 2k+1 alrededor de la diagonal.
+ *
+ * Los títulos que se quedan sin libros se conservan en el índice, pero no aparecen en los resultados.
+ */
+public class IndiceTitulosAproximado
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * Caracter con el que se marcan el principio y el final de los títulos al partirlos en trigramas
+	 */
+	private static final char BORDE = '\u0000';
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * Los títulos normalizados distintos. La posición de cada título es su identificador en las listas de trigramas.
+	 */
+	private ArrayList<String> titulos;
+
+	/**
+	 * Los libros de cada título: el libro mismo cuando hay uno solo, un ArrayList&lt;Libro&gt; cuando hay varios, o null cuando no queda ninguno
+	 */
+	private ArrayList<Object> libros;
+
+	/**
+	 * Los identificadores de los títulos normalizados
+	 */
+	private HashMap<String, Integer> identificadores;
+
+	/**
+	 * Para cada trigrama, los identificadores de los títulos en los que aparece, de menor a mayor
+	 */
+	private HashMap<Long, ListaEnteros> trigramas;
+
+	/**
+	 * Para cada identificador de título, el número de la última búsqueda en la que fue candidato. Sirve para no revisar dos veces un candidato sin tener que limpiar el arreglo en cada búsqueda.
+	 */
+	private int[] revisados;
+
+	/**
+	 * Para cada identificador de título, cuántas posiciones del título buscado cubren los trigramas que comparte con él. Sólo es válido si revisados tiene el número de la búsqueda actual.
+	 */
+	private int[] coincidencias;
+
+	/**
+	 * Número de la búsqueda actual
+	 */
+	private int busqueda;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye el índice con los libros indicados
+	 *
+	 * @param libros Los libros
+	 */
+	public IndiceTitulosAproximado(Collection<Libro> libros)
+	{
+		this.titulos = new ArrayList<String>();
+		this.libros = new ArrayList<Object>();
+		this.identificadores = new HashMap<String, Integer>();
+		this.trigramas = new HashMap<Long, ListaEnteros>();
+		this.revisados = new int[0];
+		this.coincidencias = new int[0];
+		for (Libro libro : libros)
+		{
+			agregar(libro);
+		}
+	}
+
+	// ************************************************************************
+	// Métodos para mantener el índice
+	// ************************************************************************
+
+	/**
+	 * Agrega un libro al índice
+	 *
+	 * @param libro El libro
+	 */
+	@SuppressWarnings("unchecked")
+	public void agregar(Libro libro)
+	{
+		String titulo = IndiceTitulos.normalizarTitulo(libro.darTitulo());
+		Integer id = identificadores.get(titulo);
+		if (id == null)
+		{
+			id = titulos.size();
+			titulos.add(titulo);
+			libros.add(libro);
+			identificadores.put(titulo, id);
+			indexarTrigramas(titulo, id);
+			return;
+		}
+
+		Object valor = libros.get(id);
+		if (valor == null)
+		{
+			libros.set(id, libro);
+		}
+		else if (valor instanceof ArrayList)
+		{
+			((ArrayList<Libro>) valor).add(libro);
+		}
+		else
+		{
+			ArrayList<Libro> repetidos = new ArrayList<Libro>(2);
+			repetidos.add((Libro) valor);
+			repetidos.add(libro);
+			libros.set(id, repetidos);
+		}
+	}
+
+	/**
+	 * Retira un libro del índice. El libro se busca por identidad.
+	 *
+	 * @param libro El libro
+	 */
+	@SuppressWarnings("unchecked")
+	public void retirar(Libro libro)
+	{
+		Integer id = identificadores.get(IndiceTitulos.normalizarTitulo(libro.darTitulo()));
+		if (id == null)
+			return;
+
+		Object valor = libros.get(id);
+		if (valor == libro)
+		{
+			libros.set(id, null);
+		}
+		else if (valor instanceof ArrayList)
+		{
+			ArrayList<Libro> repetidos = (ArrayList<Libro>) valor;
+			repetidos.removeIf(otro -> otro == libro);
+			if (repetidos.size() == 1)
+				libros.set(id, repetidos.get(0));
+		}
+	}
+
+	/**
+	 * Retira varios libros del índice, recorriendo una sola vez la lista de cada título afectado
+	 *
+	 * @param retirados Los libros que se van a retirar. Debe ser un conjunto por identidad.
+	 */
+	@SuppressWarnings("unchecked")
+	public void retirarTodos(Set<Libro> retirados)
+	{
+		HashSet<Integer> afectados = new HashSet<Integer>();
+		for (Libro libro : retirados)
+		{
+			Integer id = identificadores.get(IndiceTitulos.normalizarTitulo(libro.darTitulo()));
+			if (id != null)
+				afectados.add(id);
+		}
+		for (int id : afectados)
+		{
+			Object valor = libros.get(id);
+			if (valor instanceof ArrayList)
+			{
+				ArrayList<Libro> repetidos = (ArrayList<Libro>) valor;
+				repetidos.removeIf(retirados::contains);
+				if (repetidos.size() <= 1)
+					libros.set(id, repetidos.isEmpty() ? null : repetidos.get(0));
+			}
+			else if (valor != null && retirados.contains(valor))
+			{
+				libros.set(id, null);
+			}
+		}
+	}
+
+	// ************************************************************************
+	// Búsqueda
+	// ************************************************************************
+
+	/**
+	 * Busca los libros cuyo título está a una distancia de edición de a lo sumo distanciaMaxima del título indicado
+	 *
+	 * @param titulo          El título buscado. Se normaliza antes de buscar.
+	 * @param distanciaMaxima La mayor cantidad de caracteres insertados, borrados o cambiados que se aceptan
+	 * @param cantidad        La mayor cantidad de títulos que se retornan
+	 * @return Una lista con los libros de a lo sumo esa cantidad de títulos, de los más parecidos a los menos parecidos. Los libros con el mismo título quedan juntos.
+	 */
+	@SuppressWarnings("unchecked")
+	public ArrayList<Libro> buscar(String titulo, int distanciaMaxima, int cantidad)
+	{
+		String buscado = IndiceTitulos.normalizarTitulo(titulo);
+		ArrayList<long[]> encontrados = new ArrayList<long[]>();
+		busqueda++;
+		if (revisados.length < titulos.size())
+		{
+			revisados = Arrays.copyOf(revisados, titulos.size() + titulos.size() / 2);
+			coincidencias = new int[revisados.length];
+		}
+
+		ArrayList<ListaEnteros> listas = new ArrayList<ListaEnteros>();
+		ListaEnteros pesos = new ListaEnteros();
+		int minimo = elegirListas(buscado, distanciaMaxima, listas, pesos);
+		if (minimo <= 0)
+		{
+			// El título es tan corto que cualquier otro título corto podría estar a distancia k: se revisan todos
+			for (int id = 0; id < titulos.size(); id++)
+			{
+				revisar(buscado, id, distanciaMaxima, encontrados);
+			}
+		}
+		else
+		{
+			ListaEnteros candidatos = new ListaEnteros();
+			for (int l = 0; l < listas.size(); l++)
+			{
+				ListaEnteros lista = listas.get(l);
+				int peso = pesos.datos[l];
+				for (int i = 0; i < lista.cantidad; i++)
+				{
+					int id = lista.datos[i];
+					if (revisados[id] != busqueda)
+					{
+						revisados[id] = busqueda;
+						coincidencias[id] = 0;
+						candidatos.agregar(id);
+					}
+					coincidencias[id] += peso;
+				}
+			}
+			for (int i = 0; i < candidatos.cantidad; i++)
+			{
+				int id = candidatos.datos[i];
+				if (coincidencias[id] >= minimo)
+					revisar(buscado, id, distanciaMaxima, encontrados);
+			}
+		}
+
+		// Cada resultado es {distancia, diferencia de longitud, identificador}, y se ordenan en ese orden
+		encontrados.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : a[1] != b[1] ? Long.compare(a[1], b[1]) : Long.compare(a[2], b[2]));
+
+		ArrayList<Libro> resultado = new ArrayList<Libro>();
+		for (int i = 0; i < encontrados.size() && i < cantidad; i++)
+		{
+			Object valor = libros.get((int) encontrados.get(i)[2]);
+			if (valor instanceof ArrayList)
+				resultado.addAll((ArrayList<Libro>) valor);
+			else
+				resultado.add((Libro) valor);
+		}
+		return resultado;
+	}
+
+	/**
+	 * Calcula la distancia de edición entre dos cadenas, si es a lo sumo el límite indicado. Sólo se calculan las casillas de la tabla que están a lo sumo a limite posiciones de la diagonal, y el
+	 * cálculo se detiene en cuanto una fila entera supera el límite.
+	 *
+	 * @param a      La primera cadena
+	 * @param b      La segunda cadena
+	 * @param limite La mayor distancia que interesa
+	 * @return La distancia entre las cadenas, o limite + 1 si es mayor que el límite
+	 */
+	public static int calcularDistancia(String a, String b, int limite)
+	{
+		int n = a.length();
+		int m = b.length();
+		if (Math.abs(n - m) > limite)
+			return limite + 1;
+
+		int fuera = limite + 1;
+		int[] anterior = new int[m + 1];
+		int[] actual = new int[m + 1];
+		for (int j = 0; j <= m; j++)
+		{
+			anterior[j] = j <= limite ? j : fuera;
+		}
+
+		for (int i = 1; i <= n; i++)
+		{
+			int desde = Math.max(1, i - limite);
+			int hasta = Math.min(m, i + limite);
+			actual[desde - 1] = desde == 1 && i <= limite ? i : fuera;
+			int menorDeLaFila = actual[desde - 1];
+			char c = a.charAt(i - 1);
+			for (int j = desde; j <= hasta; j++)
+			{
+				int valor = anterior[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+				valor = Math.min(valor, anterior[j] + 1);
+				valor = Math.min(valor, actual[j - 1] + 1);
+				actual[j] = Math.min(valor, fuera);
+				menorDeLaFila = Math.min(menorDeLaFila, actual[j]);
+			}
+			if (hasta < m)
+				actual[hasta + 1] = fuera;
+			if (menorDeLaFila > limite)
+				return fuera;
+
+			int[] temporal = anterior;
+			anterior = actual;
+			actual = temporal;
+		}
+		return Math.min(anterior[m], fuera);
+	}
+
+	/**
+	 * Calcula la distancia de un título del índice y, si está dentro del límite y todavía tiene libros, lo agrega a los encontrados
+	 */
+	private void revisar(String buscado, int id, int distanciaMaxima, ArrayList<long[]> encontrados)
+	{
+		if (libros.get(id) == null)
+			return;
+
+		String titulo = titulos.get(id);
+		int distancia = calcularDistancia(buscado, titulo, distanciaMaxima);
+		if (distancia <= distanciaMaxima)
+			encontrados.add(new long[] { distancia, Math.abs(titulo.length() - buscado.length()), id });
+	}
+
+	/**
+	 * Elige las listas de los trigramas menos frecuentes del título buscado, hasta cubrir el doble de 3k+1 posiciones del título (o todas, si son menos)
+	 *
+	 * @param listas Lista en la que se dejan las listas elegidas
+	 * @param pesos  Lista en la que se deja cuántas posiciones cubre cada lista elegida
+	 * @return Cuántas de las posiciones cubiertas debe compartir un título para poder estar a distancia k o menos. Si es 0 o menos, el título es tan corto que cualquier título podría estarlo.
+	 */
+	private int elegirListas(String buscado, int distanciaMaxima, ArrayList<ListaEnteros> listas, ListaEnteros pesos)
+	{
+		String conBordes = BORDE + "" + BORDE + buscado + BORDE + BORDE;
+		int posiciones = conBordes.length() - 2;
+		int necesarias = 3 * distanciaMaxima + 1;
+		if (posiciones < necesarias)
+			return 0;
+
+		// Cada trigrama distinto cubre las posiciones en las que aparece
+		HashMap<Long, int[]> apariciones = new HashMap<Long, int[]>();
+		for (int i = 0; i < posiciones; i++)
+		{
+			apariciones.computeIfAbsent(trigrama(conBordes, i), llave -> new int[1])[0]++;
+		}
+		Long[] llaves = apariciones.keySet().toArray(new Long[0]);
+		Arrays.sort(llaves, (x, y) -> Integer.compare(tamano(trigramas.get(x)), tamano(trigramas.get(y))));
+
+		int cubiertas = 0;
+		for (int i = 0; i < llaves.length && cubiertas < 2 * necesarias; i++)
+		{
+			ListaEnteros lista = trigramas.get(llaves[i]);
+			int peso = apariciones.get(llaves[i])[0];
+			if (lista != null)
+			{
+				listas.add(lista);
+				pesos.agregar(peso);
+			}
+			cubiertas += peso;
+		}
+		return cubiertas - 3 * distanciaMaxima;
+	}
+
+	private void indexarTrigramas(String titulo, int id)
+	{
+		String conBordes = BORDE + "" + BORDE + titulo + BORDE + BORDE;
+		for (int i = 0; i + 3 <= conBordes.length(); i++)
+		{
+			Long llave = trigrama(conBordes, i);
+			ListaEnteros lista = trigramas.get(llave);
+			if (lista == null)
+			{
+				lista = new ListaEnteros();
+				trigramas.put(llave, lista);
+			}
+
+			// Un trigrama que se repite dentro del mismo título sólo se guarda una vez
+			if (lista.cantidad == 0 || lista.datos[lista.cantidad - 1] != id)
+				lista.agregar(id);
+		}
+	}
+
+	private static int tamano(ListaEnteros lista)
+	{
+		return lista == null ? 0 : lista.cantidad;
+	}
+
+	/**
+	 * Empaca en un long los 3 caracteres que empiezan en la posición indicada
+	 */
+	private static long trigrama(String cadena, int inicio)
+	{
+		return ((long) cadena.charAt(inicio) << 32) | ((long) cadena.charAt(inicio + 1) << 16) | cadena.charAt(inicio + 2);
+	}
+}
@@ -0,0 +1,46 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class IndiceTitulosAproximadoTest
+{
+
+	@Test
+	void testCalcularDistancia()
+	{
+		assertEquals(0, IndiceTitulosAproximado.calcularDistancia("dune", "dune", 2));
+		assertEquals(1, IndiceTitulosAproximado.calcularDistancia("dune", "dun", 2));
+		assertEquals(2, IndiceTitulosAproximado.calcularDistancia("kitten", "sitteng", 2));
+		// Cuando la distancia supera el límite basta con que el resultado lo supere
+		assertTrue(IndiceTitulosAproximado.calcularDistancia("kitten", "sitting", 2) > 2);
+		assertTrue(IndiceTitulosAproximado.calcularDistancia("a", "abcd", 2) > 2);
+	}
+
+	@Test
+	void testBuscarConErrores()
+	{
+		Categoria categoria = new Categoria("Novela", true);
+		Libro dune = new Libro("Dune", "Frank Herbert", 4.5, categoria);
+		Libro viaje = new Libro("Viaje al centro de la Tierra", "Julio Verne", 4, categoria);
+		Libro otroViaje = new Libro("viaje al centro de la tierra", "Otro", 3, categoria);
+		Libro vuelta = new Libro("La vuelta al mundo en 80 días", "Julio Verne", 4, categoria);
+		IndiceTitulosAproximado indice = new IndiceTitulosAproximado(Arrays.asList(dune, viaje, otroViaje, vuelta));
+
+		ArrayList<Libro> encontrados = indice.buscar("Viaje al cnetro de la  tierra", 2, 5);
+		assertEquals(2, encontrados.size());
+		assertTrue(encontrados.contains(viaje) && encontrados.contains(otroViaje));
+
+		assertEquals(1, indice.buscar("Dume", 1, 5).size());
+		assertTrue(indice.buscar("La vuelta al mundo en 90 noches", 2, 5).isEmpty());
+
+		indice.retirar(dune);
+		assertTrue(indice.buscar("Dune", 1, 5).isEmpty());
+		indice.agregar(dune);
+		assertSame(dune, indice.buscar("Dnue", 2, 5).get(0));
+	}
+}
@@ -0,0 +1,72 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class IndiceTitulosTest
+{
+
+	@Test
+	void testTitulosRepetidos()
+	{
+		Categoria categoria = new Categoria("Novela", true);
+		Libro primero = new Libro("Emma", "Jane Austen", 4, categoria);
+		Libro segundo = new Libro("Emma", "Otra Autora", 3, categoria);
+		IndiceTitulos indice = new IndiceTitulos(false);
+		indice.agregar(primero);
+		indice.agregar(segundo);
+
+		assertSame(primero, indice.buscar("Emma"));
+		assertEquals(2, indice.buscarTodos("Emma").size());
+		assertNull(indice.buscar("emma"));
+
+		indice.retirar(primero);
+		assertSame(segundo, indice.buscar("Emma"));
+		indice.retirar(segundo);
+		assertTrue(indice.buscarTodos("Emma").isEmpty());
+	}
+
+	@Test
+	void testRetirarVarios()
+	{
+		Categoria categoria = new Categoria("Novela", true);
+		Libro[] emmas = new Libro[4];
+		IndiceTitulos indice = new IndiceTitulos(false);
+		for (int i = 0; i < emmas.length; i++)
+		{
+			emmas[i] = new Libro("Emma", "Autora " + i, 4, categoria);
+			indice.agregar(emmas[i]);
+		}
+		Libro persuasion = new Libro("Persuasión", "Jane Austen", 4, categoria);
+		indice.agregar(persuasion);
+
+		Set<Libro> retirados = Collections.newSetFromMap(new IdentityHashMap<Libro, Boolean>());
+		retirados.add(emmas[0]);
+		retirados.add(emmas[1]);
+		retirados.add(emmas[3]);
+		retirados.add(persuasion);
+		indice.retirarTodos(retirados);
+
+		assertEquals(1, indice.darCantidadTitulos());
+		assertSame(emmas[2], indice.buscar("Emma"));
+		assertEquals(1, indice.buscarTodos("Emma").size());
+	}
+
+	@Test
+	void testTitulosNormalizados()
+	{
+		Libro libro = new Libro("  El   Principito ", "Saint-Exupéry", 5, new Categoria("Infantil", true));
+		IndiceTitulos indice = new IndiceTitulos(true);
+		indice.agregar(libro);
+
+		assertSame(libro, indice.buscar("el principito"));
+		assertSame(libro, indice.buscar("EL PRINCIPITO"));
+		String normalizado = "ya normalizado";
+		assertSame(normalizado, IndiceTitulos.normalizarTitulo(normalizado));
+	}
+}
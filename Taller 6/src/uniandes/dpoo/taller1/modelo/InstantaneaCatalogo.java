@@ -0,0 +1,336 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Esta clase guarda una librería ya cargada en un archivo binario (una instantánea) y la vuelve a construir a partir de ese archivo, sin tener que leer otra vez los archivos CSV.
+ *
+ * La instantánea guarda la información por columnas: primero las categorías y los autores (cada uno una sola vez, como un diccionario) y luego, para todos los libros, los títulos, los identificadores
+ * de autor y de categoría, las calificaciones, las portadas y sus dimensiones. También guarda una suma de verificación de los archivos CSV de los que salió, para saber cuándo ya no corresponde a ellos.
+ *
+ * Las portadas se guardan tal como aparecen en el archivo de libros, aunque la imagen no exista. Como las imágenes pueden aparecer o desaparecer sin que cambien los archivos CSV, al cargar la
+ * instantánea se vuelve a averiguar cuáles existen con un IndicePortadas.
+ *
+ * Formato (todos los números en big-endian):
+ *
+ * <pre>
+ * int MAGIA, int VERSION, long sumaCSV
+ * int #categorias, {texto nombre, byte ficcion, byte nueva}*
+ * int #autores, {texto autor}*
+ * int #libros
+ * {texto titulo}*, {int autor}*, {int categoria}*, {double calificacion}*, {texto portada o -1}*, {int ancho}*, {int alto}*
+ * long CRC32C de todo lo anterior
+ * </pre>
+ *
+ * Cada texto se guarda como un int con la cantidad de bytes seguido de los bytes en UTF-8.
+ */
+public class InstantaneaCatalogo
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * Valor con el que empieza todo archivo de instantánea ("LIBR")
+	 */
+	private static final int MAGIA = 0x4C494252;
+
+	/**
+	 * Versión del formato. Se debe cambiar cada vez que cambie el formato.
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * Extensión de los archivos de instantánea
+	 */
+	public static final String EXTENSION = ".snap";
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Calcula el nombre del archivo de instantánea que corresponde a un archivo de libros. La instantánea queda en la misma carpeta, con el mismo nombre y la extensión EXTENSION.
+	 *
+	 * @param nombreArchivoLibros El nombre del archivo CSV con los libros
+	 * @return El nombre del archivo de instantánea
+	 */
+	public static String darNombreArchivo(String nombreArchivoLibros)
+	{
+		String base = nombreArchivoLibros;
+		if (base.toLowerCase().endsWith(".csv"))
+			base = base.substring(0, base.length() - 4);
+		return base + EXTENSION;
+	}
+
+	/**
+	 * Calcula una suma de verificación (CRC32C y tamaño) del contenido de los archivos indicados
+	 *
+	 * @param nombresArchivos Los nombres de los archivos
+	 * @return La suma de verificación
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo los archivos
+	 */
+	public static long calcularSumaVerificacion(String... nombresArchivos) throws IOException
+	{
+		CRC32C crc = new CRC32C();
+		long tamanoTotal = 0;
+		for (String nombre : nombresArchivos)
+		{
+			try (FileChannel canal = FileChannel.open(Paths.get(nombre), StandardOpenOption.READ))
+			{
+				long tamano = canal.size();
+				for (long posicion = 0; posicion < tamano; posicion += Integer.MAX_VALUE)
+				{
+					crc.update(canal.map(FileChannel.MapMode.READ_ONLY, posicion, Math.min(Integer.MAX_VALUE, tamano - posicion)));
+				}
+				tamanoTotal = tamanoTotal * 31 + tamano;
+			}
+		}
+		return (tamanoTotal << 32) ^ crc.getValue();
+	}
+
+	/**
+	 * Guarda la librería en un archivo de instantánea. El archivo se escribe primero con otro nombre y al final se reemplaza el anterior, para que nunca quede una instantánea a medio escribir.
+	 *
+	 * @param libreria           La librería que se va a guardar
+	 * @param archivoInstantanea El nombre del archivo de instantánea
+	 * @param sumaCSV            La suma de verificación de los archivos CSV de los que salió la librería
+	 * @throws IOException Se lanza esta excepción si hay algún problema escribiendo el archivo
+	 */
+	public static void guardar(Libreria libreria, String archivoInstantanea, long sumaCSV) throws IOException
+	{
+		Path destino = Paths.get(archivoInstantanea);
+		Path temporal = Paths.get(archivoInstantanea + ".tmp");
+
+		Categoria[] categorias = libreria.darCategorias();
+		ArrayList<Libro> libros = libreria.darLibros();
+		ArrayList<Categoria> nuevas = libreria.darCategoriasNuevas();
+
+		HashMap<Categoria, Integer> idsCategorias = new HashMap<Categoria, Integer>();
+		for (int i = 0; i < categorias.length; i++)
+		{
+			idsCategorias.put(categorias[i], i);
+		}
+
+		// Diccionario de autores: cada autor se guarda una sola vez
+		HashMap<String, Integer> idsAutores = new HashMap<String, Integer>();
+		ArrayList<String> autores = new ArrayList<String>();
+		int[] autorDeLibro = new int[libros.size()];
+		for (int i = 0; i < libros.size(); i++)
+		{
+			String autor = libros.get(i).darAutor();
+			Integer id = idsAutores.get(autor);
+			if (id == null)
+			{
+				id = autores.size();
+				idsAutores.put(autor, id);
+				autores.add(autor);
+			}
+			autorDeLibro[i] = id;
+		}
+
+		CRC32C crc = new CRC32C();
+		OutputStream archivo = Files.newOutputStream(temporal);
+		try (DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(archivo, crc), 1 << 16)))
+		{
+			salida.writeInt(MAGIA);
+			salida.writeInt(VERSION);
+			salida.writeLong(sumaCSV);
+
+			salida.writeInt(categorias.length);
+			for (Categoria categoria : categorias)
+			{
+				escribirTexto(salida, categoria.darNombre());
+				salida.writeByte(categoria.esFiccion() ? 1 : 0);
+				salida.writeByte(nuevas.contains(categoria) ? 1 : 0);
+			}
+
+			salida.writeInt(autores.size());
+			for (String autor : autores)
+			{
+				escribirTexto(salida, autor);
+			}
+
+			salida.writeInt(libros.size());
+			for (Libro libro : libros)
+				escribirTexto(salida, libro.darTitulo());
+			for (int id : autorDeLibro)
+				salida.writeInt(id);
+			for (Libro libro : libros)
+				salida.writeInt(idsCategorias.get(libro.darCategoria()));
+			for (Libro libro : libros)
+				salida.writeDouble(libro.darCalificacion());
+			Imagen[] portadas = new Imagen[libros.size()];
+			for (int i = 0; i < portadas.length; i++)
+				portadas[i] = libros.get(i).darPortadaArchivo();
+			for (Imagen portada : portadas)
+				escribirTexto(salida, portada != null ? portada.darRutaArchivo() : null);
+			for (Imagen portada : portadas)
+				salida.writeInt(portada != null ? portada.darAncho() : 0);
+			for (Imagen portada : portadas)
+				salida.writeInt(portada != null ? portada.darAlto() : 0);
+
+			salida.flush();
+			new DataOutputStream(archivo).writeLong(crc.getValue());
+		}
+
+		Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Construye una librería a partir de un archivo de instantánea. El archivo se lee con un MappedByteBuffer. Cuáles portadas existen se averigua otra vez en la carpeta ./data.
+	 *
+	 * @param archivoInstantanea El nombre del archivo de instantánea
+	 * @param sumaCSV            La suma de verificación actual de los archivos CSV
+	 * @return La librería guardada en la instantánea, o null si el archivo no existe, está dañado, es de otra versión o no corresponde a la suma de verificación indicada
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo el archivo
+	 */
+	public static Libreria cargar(String archivoInstantanea, long sumaCSV) throws IOException
+	{
+		Path ruta = Paths.get(archivoInstantanea);
+		if (!Files.isRegularFile(ruta))
+			return null;
+
+		try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ))
+		{
+			long tamano = canal.size();
+			if (tamano < 24 || tamano > Integer.MAX_VALUE)
+				return null;
+
+			MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano);
+			if (buffer.getInt() != MAGIA || buffer.getInt() != VERSION || buffer.getLong() != sumaCSV)
+				return null;
+
+			CRC32C crc = new CRC32C();
+			ByteBuffer contenido = buffer.duplicate();
+			contenido.position(0);
+			contenido.limit((int) tamano - 8);
+			crc.update(contenido);
+			if (buffer.getLong((int) tamano - 8) != crc.getValue())
+				return null;
+
+			return leerLibreria(buffer);
+		}
+		catch (RuntimeException e)
+		{
+			// Un archivo truncado o con valores inválidos se trata igual que uno que no existe
+			return null;
+		}
+	}
+
+	/**
+	 * Lee las categorías y los libros, a partir de la posición actual del buffer
+	 */
+	private static Libreria leerLibreria(ByteBuffer buffer)
+	{
+		IndicePortadas indicePortadas = new IndicePortadas("./data", IndicePortadas.LISTADO);
+		byte[] temporal = new byte[256];
+		DiccionarioCadenas cadenas = new DiccionarioCadenas();
+
+		int numeroCategorias = buffer.getInt();
+		RegistroCategorias registro = new RegistroCategorias();
+		ArrayList<Categoria> nuevas = new ArrayList<Categoria>();
+		Categoria[] categorias = new Categoria[numeroCategorias];
+		for (int i = 0; i < numeroCategorias; i++)
+		{
+			String nombre = cadenas.internar(leerTexto(buffer, temporal));
+			boolean ficcion = buffer.get() != 0;
+			boolean nueva = buffer.get() != 0;
+			categorias[i] = new Categoria(nombre, ficcion);
+			registro.agregar(categorias[i]);
+			if (nueva)
+				nuevas.add(categorias[i]);
+		}
+
+		int numeroAutores = buffer.getInt();
+		String[] autores = new String[numeroAutores];
+		for (int i = 0; i < numeroAutores; i++)
+		{
+			autores[i] = cadenas.internar(leerTexto(buffer, temporal));
+		}
+
+		int numeroLibros = buffer.getInt();
+		String[] titulos = new String[numeroLibros];
+		for (int i = 0; i < numeroLibros; i++)
+		{
+			titulos[i] = leerTexto(buffer, temporal);
+		}
+
+		int inicioAutores = buffer.position();
+		int inicioCategorias = inicioAutores + 4 * numeroLibros;
+		int inicioCalificaciones = inicioCategorias + 4 * numeroLibros;
+		buffer.position(inicioCalificaciones + 8 * numeroLibros);
+
+		String[] portadas = new String[numeroLibros];
+		ArrayList<String> rutas = new ArrayList<String>();
+		for (int i = 0; i < numeroLibros; i++)
+		{
+			portadas[i] = leerTexto(buffer, temporal);
+			if (portadas[i] != null)
+				rutas.add(portadas[i]);
+		}
+		boolean[] existen = indicePortadas.existen(rutas);
+		int inicioAnchos = buffer.position();
+		int inicioAltos = inicioAnchos + 4 * numeroLibros;
+
+		ArrayList<Libro> catalogo = new ArrayList<Libro>(numeroLibros);
+		int siguienteRuta = 0;
+		for (int i = 0; i < numeroLibros; i++)
+		{
+			String autor = autores[buffer.getInt(inicioAutores + 4 * i)];
+			Categoria categoria = categorias[buffer.getInt(inicioCategorias + 4 * i)];
+			double calificacion = buffer.getDouble(inicioCalificaciones + 8 * i);
+
+			Libro libro = new Libro(titulos[i], autor, calificacion, categoria);
+			if (portadas[i] != null)
+			{
+				libro.registrarPortada(new Imagen(portadas[i], buffer.getInt(inicioAnchos + 4 * i), buffer.getInt(inicioAltos + 4 * i)), existen[siguienteRuta++]);
+			}
+			catalogo.add(libro);
+		}
+
+		return new Libreria(registro, catalogo, nuevas, cadenas, indicePortadas);
+	}
+
+	private static void escribirTexto(DataOutputStream salida, String texto) throws IOException
+	{
+		if (texto == null)
+		{
+			salida.writeInt(-1);
+		}
+		else
+		{
+			byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+			salida.writeInt(bytes.length);
+			salida.write(bytes);
+		}
+	}
+
+	private static String leerTexto(ByteBuffer buffer, byte[] temporal)
+	{
+		int longitud = buffer.getInt();
+		if (longitud < 0)
+			return null;
+
+		byte[] bytes = longitud <= temporal.length ? temporal : new byte[longitud];
+		buffer.get(bytes, 0, longitud);
+		return new String(bytes, 0, longitud, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,53 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InstantaneaCatalogoTest
+{
+	@TempDir
+	Path carpeta;
+
+	@Test
+	void testPortadasSeRevisanAlCargar() throws Exception
+	{
+		Path imagenes = Files.createDirectories(carpeta.resolve("imagenes"));
+		Path portadaA = Files.createFile(imagenes.resolve("a.jpg"));
+		Path portadaB = imagenes.resolve("b.jpg");
+		String archivoCategorias = CatalogoPrueba.darArchivoCategorias(carpeta);
+		String archivoLibros = CatalogoPrueba.darArchivoLibros(carpeta);
+		CatalogoPrueba.escribirCatalogo(carpeta, "Novela,true\n", "Ficciones,Jorge Luis Borges,4.8,Novela," + portadaA + ",100,150\n" + "Rayuela,Julio Cortázar,4.2,Novela," + portadaB + ",120,180\n");
+
+		Libreria libreria = CatalogoPrueba.cargar(carpeta);
+		assertEquals(1, libreria.contarLibrosSinPortada());
+		libreria.cerrar();
+
+		// Las imágenes cambian pero los archivos CSV no, así que la instantánea sigue sirviendo
+		Files.delete(portadaA);
+		Files.createFile(portadaB);
+		long suma = InstantaneaCatalogo.calcularSumaVerificacion(archivoCategorias, archivoLibros);
+		Libreria instantanea = InstantaneaCatalogo.cargar(InstantaneaCatalogo.darNombreArchivo(archivoLibros), suma);
+		assertNotNull(instantanea);
+
+		Libro ficciones = instantanea.buscarLibros("Ficciones").get(0);
+		Libro rayuela = instantanea.buscarLibros("Rayuela").get(0);
+		assertFalse(ficciones.tienePortada());
+		assertTrue(rayuela.tienePortada());
+		assertEquals(portadaB.toString(), rayuela.darPortada().darRutaArchivo());
+		assertEquals(180, rayuela.darPortada().darAlto());
+		assertEquals(1, instantanea.contarLibrosSinPortada());
+		assertEquals(1, instantanea.darCategorias()[0].contarLibrosSinPortada());
+
+		// La ruta de la portada que falta se conserva en la instantánea siguiente
+		InstantaneaCatalogo.guardar(instantanea, InstantaneaCatalogo.darNombreArchivo(archivoLibros), suma);
+		Files.createFile(portadaA);
+		Libreria otra = InstantaneaCatalogo.cargar(InstantaneaCatalogo.darNombreArchivo(archivoLibros), suma);
+		assertTrue(otra.buscarLibros("Ficciones").get(0).tienePortada());
+		assertEquals(0, otra.contarLibrosSinPortada());
+	}
+}
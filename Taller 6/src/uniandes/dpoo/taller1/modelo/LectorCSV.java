@@ -0,0 +1,531 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Esta clase lee un archivo CSV registro por registro, siguiendo el formato descrito en el RFC 4180: los campos pueden estar entre comillas dobles, y dentro de un campo entre comillas pueden
+ * aparecer comas, saltos de línea y comillas escapadas ("").
+ *
+ * El lector reutiliza siempre los mismos arreglos: el texto de cada registro queda en un buffer interno y sólo se construye un String cuando se pide un campo con darCampo. Los campos numéricos se
+ * pueden convertir directamente desde el buffer con darDouble y darEntero.
+ */
+public class LectorCSV implements Closeable
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * Cantidad de caracteres que se leen del archivo en cada operación
+	 */
+	private static final int TAMANO_BUFFER = 64 * 1024;
+
+	/**
+	 * Potencias de 10 que se pueden representar exactamente como double
+	 */
+	private static final double[] POTENCIAS_10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/**
+	 * Mayor mantisa que se puede representar exactamente como double (2^53)
+	 */
+	private static final long MAXIMA_MANTISA_EXACTA = 1L << 53;
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * El lector del que se obtienen los caracteres
+	 */
+	private Reader lector;
+
+	/**
+	 * Buffer con los caracteres leídos del archivo que aún no se han procesado
+	 */
+	private char[] buffer;
+
+	/**
+	 * Posición del siguiente caracter por procesar dentro del buffer
+	 */
+	private int posicion;
+
+	/**
+	 * Cantidad de caracteres válidos dentro del buffer
+	 */
+	private int limite;
+
+	/**
+	 * Texto del registro actual, ya sin comillas ni separadores
+	 */
+	private char[] registro;
+
+	/**
+	 * Cantidad de caracteres usados dentro del arreglo registro
+	 */
+	private int longitudRegistro;
+
+	/**
+	 * Posición dentro de registro en la que empieza cada campo
+	 */
+	private int[] inicios;
+
+	/**
+	 * Posición dentro de registro en la que termina cada campo (exclusiva)
+	 */
+	private int[] fines;
+
+	/**
+	 * Cantidad de campos del registro actual
+	 */
+	private int numeroCampos;
+
+	/**
+	 * Número de la línea del archivo en la que empieza el registro actual
+	 */
+	private int numeroLinea;
+
+	/**
+	 * Número de la línea del archivo que se está leyendo
+	 */
+	private int lineaActual;
+
+	/**
+	 * Cantidad de caracteres que se han leído del archivo hasta el momento
+	 */
+	private long caracteresLeidos;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye un lector para el archivo indicado. El archivo se lee con la codificación UTF-8.
+	 *
+	 * @param nombreArchivo El nombre del archivo CSV que se va a leer
+	 * @throws IOException Se lanza esta excepción si no se puede abrir el archivo
+	 */
+	public LectorCSV(String nombreArchivo) throws IOException
+	{
+		this(new InputStreamReader(new FileInputStream(nombreArchivo), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Construye un lector que obtiene los caracteres del lector indicado
+	 *
+	 * @param lector El lector del que se van a obtener los caracteres
+	 */
+	public LectorCSV(Reader lector)
+	{
+		this.lector = lector;
+		this.buffer = new char[TAMANO_BUFFER];
+		this.registro = new char[256];
+		this.inicios = new int[16];
+		this.fines = new int[16];
+		this.lineaActual = 1;
+	}
+
+	// ************************************************************************
+	// Métodos para consultar el registro actual
+	// ************************************************************************
+
+	/**
+	 * Consulta la cantidad de campos que tiene el registro actual
+	 *
+	 * @return numeroCampos
+	 */
+	public int darNumeroCampos()
+	{
+		return numeroCampos;
+	}
+
+	/**
+	 * Consulta el número de la línea del archivo en la que empieza el registro actual
+	 *
+	 * @return numeroLinea
+	 */
+	public int darNumeroLinea()
+	{
+		return numeroLinea;
+	}
+
+	/**
+	 * Consulta la cantidad de caracteres que se han leído del archivo. Sirve para estimar el avance de la lectura.
+	 *
+	 * @return caracteresLeidos
+	 */
+	public long darCaracteresLeidos()
+	{
+		return caracteresLeidos;
+	}
+
+	/**
+	 * Retorna el valor de un campo del registro actual
+	 *
+	 * @param campo La posición del campo, empezando en 0
+	 * @return El texto del campo, sin las comillas que lo delimitaban
+	 */
+	public String darCampo(int campo)
+	{
+		verificarCampo(campo);
+		return new String(registro, inicios[campo], fines[campo] - inicios[campo]);
+	}
+
+	/**
+	 * Retorna el valor de un campo del registro actual, usando la copia que ya esté guardada en el diccionario. Si el valor ya está en el diccionario no se construye ningún String.
+	 *
+	 * @param campo       La posición del campo, empezando en 0
+	 * @param diccionario El diccionario donde se buscan y se guardan los valores
+	 * @return El texto del campo, sin las comillas que lo delimitaban
+	 */
+	public String darCampo(int campo, DiccionarioCadenas diccionario)
+	{
+		verificarCampo(campo);
+		return diccionario.internar(registro, inicios[campo], fines[campo] - inicios[campo]);
+	}
+
+	/**
+	 * Compara el valor de un campo del registro actual con una cadena, sin construir un String con el valor del campo
+	 *
+	 * @param campo  La posición del campo, empezando en 0
+	 * @param cadena La cadena con la que se va a comparar
+	 * @return Retorna true si el campo es idéntico a la cadena. Retorna false en caso contrario.
+	 */
+	public boolean campoIgual(int campo, String cadena)
+	{
+		verificarCampo(campo);
+		int inicio = inicios[campo];
+		int longitud = fines[campo] - inicio;
+		if (longitud != cadena.length())
+			return false;
+
+		for (int i = 0; i < longitud; i++)
+		{
+			if (registro[inicio + i] != cadena.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Convierte un campo del registro actual en un número entero, leyendo directamente del buffer
+	 *
+	 * @param campo La posición del campo, empezando en 0
+	 * @return El valor del campo
+	 * @throws NumberFormatException Se lanza esta excepción si el campo no es un número entero válido
+	 */
+	public int darEntero(int campo)
+	{
+		verificarCampo(campo);
+		int i = saltarEspacios(inicios[campo], fines[campo]);
+		int fin = recortarEspacios(i, fines[campo]);
+
+		boolean negativo = false;
+		if (i < fin && (registro[i] == '-' || registro[i] == '+'))
+		{
+			negativo = registro[i] == '-';
+			i++;
+		}
+		if (i == fin)
+			throw new NumberFormatException(mensajeError(campo, "no es un número entero"));
+
+		long valor = 0;
+		for (; i < fin; i++)
+		{
+			int digito = registro[i] - '0';
+			if (digito < 0 || digito > 9)
+				throw new NumberFormatException(mensajeError(campo, "no es un número entero"));
+			valor = valor * 10 + digito;
+			if (valor > (long) Integer.MAX_VALUE + 1)
+				throw new NumberFormatException(mensajeError(campo, "está fuera de rango"));
+		}
+
+		if (negativo)
+			valor = -valor;
+		if (valor > Integer.MAX_VALUE)
+			throw new NumberFormatException(mensajeError(campo, "está fuera de rango"));
+		return (int) valor;
+	}
+
+	/**
+	 * Convierte un campo del registro actual en un número real.
+	 *
+	 * Los números decimales sencillos (como "4.5" o "-12.75") se convierten directamente desde el buffer; el resultado es el mismo que el de Double.parseDouble porque tanto la mantisa como la potencia
+	 * de 10 se representan exactamente. Los demás casos (exponentes, demasiados dígitos) se delegan a Double.parseDouble.
+	 *
+	 * @param campo La posición del campo, empezando en 0
+	 * @return El valor del campo
+	 * @throws NumberFormatException Se lanza esta excepción si el campo no es un número válido
+	 */
+	public double darDouble(int campo)
+	{
+		verificarCampo(campo);
+		int i = saltarEspacios(inicios[campo], fines[campo]);
+		int fin = recortarEspacios(i, fines[campo]);
+
+		boolean negativo = false;
+		if (i < fin && (registro[i] == '-' || registro[i] == '+'))
+		{
+			negativo = registro[i] == '-';
+			i++;
+		}
+
+		long mantisa = 0;
+		int digitos = 0;
+		int decimales = 0;
+		boolean punto = false;
+		boolean rapido = true;
+		for (; i < fin && rapido; i++)
+		{
+			char c = registro[i];
+			if (c >= '0' && c <= '9')
+			{
+				mantisa = mantisa * 10 + (c - '0');
+				digitos++;
+				if (punto)
+					decimales++;
+				rapido = mantisa < MAXIMA_MANTISA_EXACTA;
+			}
+			else if (c == '.' && !punto)
+			{
+				punto = true;
+			}
+			else
+			{
+				rapido = false;
+			}
+		}
+
+		if (!rapido || digitos == 0 || decimales >= POTENCIAS_10.length)
+		{
+			try
+			{
+				return Double.parseDouble(darCampo(campo));
+			}
+			catch (NumberFormatException e)
+			{
+				throw new NumberFormatException(mensajeError(campo, "no es un número"));
+			}
+		}
+
+		double valor = mantisa / POTENCIAS_10[decimales];
+		return negativo ? -valor : valor;
+	}
+
+	// ************************************************************************
+	// Otros métodos
+	// ************************************************************************
+
+	/**
+	 * Avanza al siguiente registro del archivo. Las líneas vacías se ignoran.
+	 *
+	 * @return Retorna true si se pudo leer un registro. Retorna false si ya no hay más registros en el archivo.
+	 * @throws IOException Se lanza esta excepción si hay un problema leyendo o si el archivo termina dentro de un campo entre comillas
+	 */
+	public boolean siguienteRegistro() throws IOException
+	{
+		boolean leido = false;
+		boolean finArchivo = false;
+
+		while (!leido && !finArchivo)
+		{
+			longitudRegistro = 0;
+			numeroCampos = 0;
+			numeroLinea = lineaActual;
+
+			int c = leer();
+			if (c == -1)
+			{
+				finArchivo = true;
+			}
+			else
+			{
+				boolean finRegistro = false;
+				boolean hayComillas = false;
+				while (!finRegistro)
+				{
+					int inicio = longitudRegistro;
+					if (c == '"')
+					{
+						hayComillas = true;
+						c = leerCampoEntreComillas();
+					}
+
+					// Caracteres sin comillas: van hasta la siguiente coma o el final de la línea
+					while (c != ',' && c != '\n' && c != -1)
+					{
+						if (c != '\r')
+							agregarCaracter((char) c);
+						c = leer();
+					}
+					agregarCampo(inicio, longitudRegistro);
+
+					if (c == ',')
+						c = leer();
+					else
+						finRegistro = true;
+				}
+
+				// Una línea vacía no es un registro
+				leido = hayComillas || numeroCampos > 1 || longitudRegistro > 0;
+			}
+		}
+
+		return leido;
+	}
+
+	/**
+	 * Cierra el archivo que se está leyendo
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		lector.close();
+	}
+
+	/**
+	 * Escapa un valor para que se pueda escribir como un campo de un archivo CSV. Si el valor tiene comas, comillas o saltos de línea, se pone entre comillas y se duplican las comillas internas.
+	 *
+	 * @param valor El valor que se va a escribir
+	 * @return El valor listo para escribirse en el archivo
+	 */
+	public static String escaparCampo(String valor)
+	{
+		boolean requiereComillas = false;
+		for (int i = 0; i < valor.length() && !requiereComillas; i++)
+		{
+			char c = valor.charAt(i);
+			requiereComillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+
+		String escapado = valor;
+		if (requiereComillas)
+		{
+			escapado = "\"" + valor.replace("\"", "\"\"") + "\"";
+		}
+		return escapado;
+	}
+
+	/**
+	 * Lee el contenido de un campo entre comillas, a partir del caracter siguiente a la comilla de apertura
+	 *
+	 * @return El primer caracter después de la comilla de cierre
+	 * @throws IOException Se lanza esta excepción si el archivo termina antes de cerrar las comillas
+	 */
+	private int leerCampoEntreComillas() throws IOException
+	{
+		int c = leer();
+		boolean cerrado = false;
+		while (!cerrado)
+		{
+			if (c == -1)
+			{
+				throw new IOException("Línea " + numeroLinea + ": hay un campo con comillas que no se cerraron");
+			}
+			else if (c == '"')
+			{
+				c = leer();
+				if (c == '"')
+				{
+					agregarCaracter('"');
+					c = leer();
+				}
+				else
+				{
+					cerrado = true;
+				}
+			}
+			else
+			{
+				agregarCaracter((char) c);
+				c = leer();
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Retorna el siguiente caracter del archivo, recargando el buffer cuando es necesario
+	 *
+	 * @return El caracter leído o -1 si se llegó al final del archivo
+	 * @throws IOException Se lanza esta excepción si hay un problema leyendo
+	 */
+	private int leer() throws IOException
+	{
+		if (posicion == limite)
+		{
+			int leidos = lector.read(buffer, 0, buffer.length);
+			while (leidos == 0)
+			{
+				leidos = lector.read(buffer, 0, buffer.length);
+			}
+			if (leidos == -1)
+				return -1;
+			posicion = 0;
+			limite = leidos;
+			caracteresLeidos += leidos;
+		}
+
+		char c = buffer[posicion++];
+		if (c == '\n')
+			lineaActual++;
+		return c;
+	}
+
+	private void agregarCaracter(char c)
+	{
+		if (longitudRegistro == registro.length)
+		{
+			char[] nuevo = new char[registro.length * 2];
+			System.arraycopy(registro, 0, nuevo, 0, longitudRegistro);
+			registro = nuevo;
+		}
+		registro[longitudRegistro++] = c;
+	}
+
+	private void agregarCampo(int inicio, int fin)
+	{
+		if (numeroCampos == inicios.length)
+		{
+			int[] nuevosInicios = new int[inicios.length * 2];
+			int[] nuevosFines = new int[fines.length * 2];
+			System.arraycopy(inicios, 0, nuevosInicios, 0, numeroCampos);
+			System.arraycopy(fines, 0, nuevosFines, 0, numeroCampos);
+			inicios = nuevosInicios;
+			fines = nuevosFines;
+		}
+		inicios[numeroCampos] = inicio;
+		fines[numeroCampos] = fin;
+		numeroCampos++;
+	}
+
+	private void verificarCampo(int campo)
+	{
+		if (campo < 0 || campo >= numeroCampos)
+			throw new IndexOutOfBoundsException("Línea " + numeroLinea + ": el registro tiene " + numeroCampos + " campos y se pidió el campo " + campo);
+	}
+
+	private int saltarEspacios(int inicio, int fin)
+	{
+		while (inicio < fin && Character.isWhitespace(registro[inicio]))
+			inicio++;
+		return inicio;
+	}
+
+	private int recortarEspacios(int inicio, int fin)
+	{
+		while (fin > inicio && Character.isWhitespace(registro[fin - 1]))
+			fin--;
+		return fin;
+	}
+
+	private String mensajeError(int campo, String problema)
+	{
+		return "Línea " + numeroLinea + ": el campo " + campo + " (\"" + darCampo(campo) + "\") " + problema;
+	}
+
+}
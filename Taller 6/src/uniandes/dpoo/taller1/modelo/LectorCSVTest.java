@@ -0,0 +1,77 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+class LectorCSVTest
+{
+
+	@Test
+	void testCamposSencillos() throws IOException
+	{
+		LectorCSV lector = new LectorCSV(new StringReader("Titulo,Autor\nHygge,Marie\n"));
+		assertTrue(lector.siguienteRegistro());
+		assertEquals(2, lector.darNumeroCampos());
+		assertTrue(lector.siguienteRegistro());
+		assertEquals("Hygge", lector.darCampo(0));
+		assertTrue(lector.campoIgual(1, "Marie"));
+		assertFalse(lector.siguienteRegistro());
+	}
+
+	@Test
+	void testCamposEntreComillas() throws IOException
+	{
+		LectorCSV lector = new LectorCSV(new StringReader("\"Uno, dos\",\"Dice \"\"hola\"\"\",\"varias\nlíneas\"\r\nfin,x,y"));
+		assertTrue(lector.siguienteRegistro());
+		assertEquals("Uno, dos", lector.darCampo(0));
+		assertEquals("Dice \"hola\"", lector.darCampo(1));
+		assertEquals("varias\nlíneas", lector.darCampo(2));
+		assertTrue(lector.siguienteRegistro());
+		assertEquals("fin", lector.darCampo(0));
+		assertEquals(3, lector.darNumeroLinea());
+	}
+
+	@Test
+	void testLineasVacias() throws IOException
+	{
+		LectorCSV lector = new LectorCSV(new StringReader("a,b\n\n\r\nc,d\n"));
+		assertTrue(lector.siguienteRegistro());
+		assertTrue(lector.siguienteRegistro());
+		assertEquals("c", lector.darCampo(0));
+		assertFalse(lector.siguienteRegistro());
+	}
+
+	@Test
+	void testNumeros() throws IOException
+	{
+		LectorCSV lector = new LectorCSV(new StringReader("4.5,-0.1,3,1e3, 220 ,abc"));
+		assertTrue(lector.siguienteRegistro());
+		assertEquals(4.5, lector.darDouble(0));
+		assertEquals(-0.1, lector.darDouble(1));
+		assertEquals(3.0, lector.darDouble(2));
+		assertEquals(1000.0, lector.darDouble(3));
+		assertEquals(220, lector.darEntero(4));
+		assertThrows(NumberFormatException.class, () -> lector.darEntero(5));
+		assertThrows(NumberFormatException.class, () -> lector.darDouble(5));
+	}
+
+	@Test
+	void testComillasSinCerrar()
+	{
+		LectorCSV lector = new LectorCSV(new StringReader("\"abierto,sin cerrar"));
+		assertThrows(IOException.class, () -> lector.siguienteRegistro());
+	}
+
+	@Test
+	void testEscaparCampo()
+	{
+		assertEquals("Hygge", LectorCSV.escaparCampo("Hygge"));
+		assertEquals("\"Uno, dos\"", LectorCSV.escaparCampo("Uno, dos"));
+		assertEquals("\"Dice \"\"hola\"\"\"", LectorCSV.escaparCampo("Dice \"hola\""));
+	}
+
+}
@@ -1,17 +1,16 @@
 package uniandes.dpoo.taller1.modelo;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
-
-import javax.sound.sampled.Port;
-
-import java.io.FileWriter;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 /**
  * Esta clase agrupa toda la información de una librería: las categorías que se usan para clasificar los libros, y del catálogo de libros.
@@ -20,20 +19,84 @@ import java.io.FileWriter;
  */
 public class Libreria
 {
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * Cantidad de libros que se leen antes de resolver sus portadas e informar el avance de la carga
+	 */
+	private static final int TAMANO_LOTE = 500;
+
 	// ************************************************************************
 	// Atributos
 	// ************************************************************************
 
 	/**
-	 * El arreglo con las categorías que hay en la librería
+	 * El registro con las categorías que hay en la librería
 	 */
-	private Categoria[] categorias;
+	private RegistroCategorias categorias;
 
 	/**
 	 * Una lista con los libros disponibles en la librería
 	 */
 	private ArrayList<Libro> catalogo;
 
+	/**
+	 * El índice que se usa para saber cuáles archivos de portadas existen
+	 */
+	private IndicePortadas indicePortadas;
+
+	/**
+	 * El diccionario con el que los autores y los nombres de categorías repetidos comparten el mismo String
+	 */
+	private DiccionarioCadenas cadenas = new DiccionarioCadenas();
+
+	/**
+	 * El índice para buscar los libros del catálogo por su título
+	 */
+	private IndiceTitulos indiceTitulos = new IndiceTitulos(false);
+
+	/**
+	 * El índice para buscar los libros del catálogo por una parte del nombre de su autor
+	 */
+	private IndiceAutores indiceAutores = new IndiceAutores();
+
+	/**
+	 * El índice para buscar los libros por un título con errores. Se construye la primera vez que se usa y desde entonces se mantiene al día.
+	 */
+	private IndiceTitulosAproximado indiceAproximado;
+
+	/**
+	 * Los títulos, autores y categorías para sugerir cómo completar lo que escribe el usuario. Se construye la primera vez que se usa y desde entonces se mantiene al día.
+	 */
+	private IndiceSugerencias sugerencias;
+
+	/**
+	 * Los resultados guardados de las consultas por autor y por categoría
+	 */
+	private CacheConsultas cache = new CacheConsultas(CacheConsultas.LIMITE_POR_DEFECTO);
+
+	/**
+	 * La cantidad de libros por revisar a partir de la cual las consultas que recorren varias categorías se ejecutan en paralelo
+	 */
+	private int umbralParalelo = ConsultaLibros.UMBRAL_PARALELO;
+
+	/**
+	 * La bitácora en la que se registran los cambios en lugar de reescribir los archivos CSV, o null si la librería no se construyó con cargar
+	 */
+	private BitacoraCambios bitacora;
+
+	/**
+	 * El escritor que guarda los archivos CSV en otro hilo cuando la librería no tiene bitácora. Se crea la primera vez que se usa.
+	 */
+	private EscritorCatalogo escritor;
+
+	/**
+	 * La versión inmutable más reciente del catálogo. Se publica al terminar cada cambio, y la pueden consultar otros hilos mientras la librería cambia.
+	 */
+	private volatile VersionCatalogo version;
+
 	// ************************************************************************
 	// Constructores
 	// ************************************************************************
@@ -46,320 +109,1105 @@ public class Libreria
 	 * @param nombreArchivoLibros     El nombre del archivo CSV que tiene la información sobre los libros
 	 * @throws IOException Lanza esta excepción si hay algún problema leyendo un archivo
 	 */
-	public Libreria(String nombreArchivoCategorias, String nombreArchivoLibros) throws IOException
+	public Libreria(String nombreArchivoCategorias, String nombreArchivoLibros) throws IOException
+	{
+		this(nombreArchivoCategorias, nombreArchivoLibros, 1);
+	}
+
+	/**
+	 * Construye una nueva librería a partir de los archivos, leyendo el archivo de libros con varios hilos.
+	 * 
+	 * El archivo de libros se divide en rangos de bytes que empiezan y terminan en un cambio de línea, y cada rango se procesa en un ForkJoinPool. Los resultados se unen en el orden del archivo, así
+	 * que el catálogo y las listas de libros de cada categoría quedan exactamente en el mismo orden que con una carga secuencial.
+	 * 
+	 * @param nombreArchivoCategorias El nombre del archivo CSV que tiene la información sobre las categorías de libros
+	 * @param nombreArchivoLibros     El nombre del archivo CSV que tiene la información sobre los libros
+	 * @param paralelismo             La cantidad de hilos que se usarán para leer el archivo de libros. Si es 1 o menos, el archivo se lee de forma secuencial.
+	 * @throws IOException Lanza esta excepción si hay algún problema leyendo un archivo
+	 */
+	public Libreria(String nombreArchivoCategorias, String nombreArchivoLibros, int paralelismo) throws IOException
+	{
+		this(nombreArchivoCategorias, nombreArchivoLibros, paralelismo, new IndicePortadas("./data", IndicePortadas.LISTADO));
+	}
+
+	/**
+	 * Construye una nueva librería a partir de los archivos, usando el índice de portadas indicado para saber cuáles portadas existen.
+	 * 
+	 * @param nombreArchivoCategorias El nombre del archivo CSV que tiene la información sobre las categorías de libros
+	 * @param nombreArchivoLibros     El nombre del archivo CSV que tiene la información sobre los libros
+	 * @param paralelismo             La cantidad de hilos que se usarán para leer el archivo de libros. Si es 1 o menos, el archivo se lee de forma secuencial.
+	 * @param indicePortadas          El índice con el que se resuelven las rutas de las portadas
+	 * @throws IOException Lanza esta excepción si hay algún problema leyendo un archivo
+	 */
+	public Libreria(String nombreArchivoCategorias, String nombreArchivoLibros, int paralelismo, IndicePortadas indicePortadas) throws IOException
+	{
+		this.indicePortadas = indicePortadas;
+		this.categorias = cargarCategorias(nombreArchivoCategorias);
+		if (paralelismo > 1)
+			this.catalogo = cargarCatalogoParalelo(nombreArchivoLibros, paralelismo, null);
+		else
+			this.catalogo = cargarCatalogo(nombreArchivoLibros, null);
+		indexarCatalogo();
+		publicarVersion();
+	}
+
+	/**
+	 * Construye una nueva librería a partir de los archivos, informándole al observador el avance de la carga.
+	 * 
+	 * Primero se le entregan al observador las categorías y luego los libros, en lotes y en el orden del archivo, a medida que se van leyendo. El archivo de libros se lee de forma secuencial.
+	 * 
+	 * @param nombreArchivoCategorias El nombre del archivo CSV que tiene la información sobre las categorías de libros
+	 * @param nombreArchivoLibros     El nombre del archivo CSV que tiene la información sobre los libros
+	 * @param observador              El objeto al que se le informa el avance de la carga
+	 * @throws IOException           Lanza esta excepción si hay algún problema leyendo un archivo
+	 * @throws CancellationException Lanza esta excepción si el observador pidió cancelar la carga
+	 */
+	public Libreria(String nombreArchivoCategorias, String nombreArchivoLibros, ObservadorCarga observador) throws IOException
+	{
+		this(nombreArchivoCategorias, nombreArchivoLibros, observador, 1);
+	}
+
+	/**
+	 * Construye una nueva librería a partir de los archivos, informándole al observador el avance de la carga.
+	 * 
+	 * Si se usan varios hilos, cada lote que recibe el observador es un rango completo del archivo: los rangos se le entregan en el orden del archivo a medida que se unen, mientras los hilos
+	 * siguen leyendo los siguientes.
+	 * 
+	 * @param nombreArchivoCategorias El nombre del archivo CSV que tiene la información sobre las categorías de libros
+	 * @param nombreArchivoLibros     El nombre del archivo CSV que tiene la información sobre los libros
+	 * @param observador              El objeto al que se le informa el avance de la carga
+	 * @param paralelismo             La cantidad de hilos que se usarán para leer el archivo de libros. Si es 1 o menos, el archivo se lee de forma secuencial.
+	 * @throws IOException           Lanza esta excepción si hay algún problema leyendo un archivo
+	 * @throws CancellationException Lanza esta excepción si el observador pidió cancelar la carga
+	 */
+	private Libreria(String nombreArchivoCategorias, String nombreArchivoLibros, ObservadorCarga observador, int paralelismo) throws IOException
+	{
+		this.indicePortadas = new IndicePortadas("./data", IndicePortadas.LISTADO);
+		this.categorias = cargarCategorias(nombreArchivoCategorias);
+		observador.categoriasCargadas(categorias.darArreglo());
+		if (paralelismo > 1)
+			this.catalogo = cargarCatalogoParalelo(nombreArchivoLibros, paralelismo, observador);
+		else
+			this.catalogo = cargarCatalogo(nombreArchivoLibros, observador);
+		indexarCatalogo();
+		publicarVersion();
+	}
+
+	/**
+	 * Construye una librería con categorías y libros que ya se cargaron. Se usa para reconstruir una librería a partir de una instantánea.
+	 * 
+	 * @param categorias     El registro con las categorías
+	 * @param catalogo       Los libros del catálogo, que ya deben estar agregados a sus categorías
+	 * @param nuevas         Las categorías que no estaban en el archivo de categorías
+	 * @param cadenas        El diccionario con los autores y nombres de categorías que usan los libros
+	 * @param indicePortadas El índice con el que se averiguó cuáles portadas existen
+	 */
+	Libreria(RegistroCategorias categorias, ArrayList<Libro> catalogo, ArrayList<Categoria> nuevas, DiccionarioCadenas cadenas, IndicePortadas indicePortadas)
+	{
+		this.categorias = categorias;
+		this.catalogo = catalogo;
+		this.nombreLibroCategoriaNueva = nuevas;
+		this.cadenas = cadenas;
+		this.indicePortadas = indicePortadas;
+		indexarCatalogo();
+		publicarVersion();
+	}
+
+	/**
+	 * Construye una librería a partir de los archivos, usando la instantánea binaria que corresponde al archivo de libros si existe y fue creada a partir de los mismos archivos CSV.
+	 * 
+	 * Si no hay una instantánea válida, se leen los archivos CSV y se guarda una instantánea nueva para el siguiente arranque. Al final se abre la bitácora que corresponde a los archivos y se
+	 * vuelven a aplicar los cambios que tenga: desde ese momento los cambios de la librería se registran en la bitácora en lugar de reescribir los archivos CSV.
+	 * 
+	 * @param nombreArchivoCategorias El nombre del archivo CSV que tiene la información sobre las categorías de libros
+	 * @param nombreArchivoLibros     El nombre del archivo CSV que tiene la información sobre los libros
+	 * @param paralelismo             La cantidad de hilos que se usarán si hay que leer el archivo de libros
+	 * @return La librería cargada
+	 * @throws IOException Lanza esta excepción si hay algún problema leyendo un archivo
+	 */
+	public static Libreria cargar(String nombreArchivoCategorias, String nombreArchivoLibros, int paralelismo) throws IOException
+	{
+		return cargar(nombreArchivoCategorias, nombreArchivoLibros, paralelismo, null);
+	}
+
+	/**
+	 * Construye una librería igual que cargar(String, String, int), pero informándole al observador el avance de la carga.
+	 * 
+	 * Si la librería sale de una instantánea, el observador recibe todos los libros en un solo lote. Si hay que leer los archivos CSV, el observador recibe los libros en el orden del archivo, en
+	 * lotes de TAMANO_LOTE si la lectura es secuencial o de un rango del archivo si se usan varios hilos. La cancelación se revisa antes de abrir la bitácora, después de cada lote y antes de
+	 * retornar; si la carga se cancela, la bitácora queda cerrada.
+	 * 
+	 * @param nombreArchivoCategorias El nombre del archivo CSV que tiene la información sobre las categorías de libros
+	 * @param nombreArchivoLibros     El nombre del archivo CSV que tiene la información sobre los libros
+	 * @param paralelismo             La cantidad de hilos que se usarán si hay que leer el archivo de libros
+	 * @param observador              El objeto al que se le informa el avance de la carga. Puede ser null.
+	 * @return La librería cargada
+	 * @throws IOException           Lanza esta excepción si hay algún problema leyendo un archivo
+	 * @throws CancellationException Lanza esta excepción si el observador pidió cancelar la carga
+	 */
+	public static Libreria cargar(String nombreArchivoCategorias, String nombreArchivoLibros, int paralelismo, ObservadorCarga observador) throws IOException
+	{
+		// La bitácora se abre antes de leer los archivos, por si hay que terminar una compactación interrumpida. Una carga que ya se canceló no la abre, para no recuperarla al mismo tiempo que
+		// la carga que la reemplazó.
+		revisarCancelacion(observador);
+		BitacoraCambios laBitacora = new BitacoraCambios(nombreArchivoCategorias, nombreArchivoLibros);
+		try
+		{
+			long suma = InstantaneaCatalogo.calcularSumaVerificacion(nombreArchivoCategorias, nombreArchivoLibros);
+			Libreria libreria = cargarArchivos(nombreArchivoCategorias, nombreArchivoLibros, suma, paralelismo, observador);
+			laBitacora.cambiarSumaBase(suma);
+			libreria.bitacora = laBitacora;
+			for (BitacoraCambios.Registro registro : laBitacora.darRegistros())
+			{
+				libreria.aplicarRegistro(registro);
+			}
+			libreria.publicarVersion();
+			revisarCancelacion(observador);
+			return libreria;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			laBitacora.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Construye la librería a partir de la instantánea, si corresponde a los archivos CSV, o a partir de los archivos CSV
+	 * 
+	 * @param suma La suma de verificación actual de los archivos CSV
+	 */
+	private static Libreria cargarArchivos(String nombreArchivoCategorias, String nombreArchivoLibros, long suma, int paralelismo, ObservadorCarga observador) throws IOException
+	{
+		String archivoInstantanea = InstantaneaCatalogo.darNombreArchivo(nombreArchivoLibros);
+
+		Libreria libreria = InstantaneaCatalogo.cargar(archivoInstantanea, suma);
+		if (libreria != null && observador != null)
+		{
+			revisarCancelacion(observador);
+			observador.categoriasCargadas(libreria.darCategorias());
+			observador.librosCargados(new ArrayList<Libro>(libreria.darLibros()), 1);
+		}
+		else if (libreria == null)
+		{
+			if (observador != null)
+				libreria = new Libreria(nombreArchivoCategorias, nombreArchivoLibros, observador, paralelismo);
+			else
+				libreria = new Libreria(nombreArchivoCategorias, nombreArchivoLibros, paralelismo);
+			try
+			{
+				InstantaneaCatalogo.guardar(libreria, archivoInstantanea, suma);
+			}
+			catch (IOException e)
+			{
+				// La instantánea sólo sirve para acelerar el siguiente arranque: si no se puede escribir, la librería igual queda cargada
+			}
+		}
+		return libreria;
+	}
+
+	// ************************************************************************
+	// Métodos para consultar los atributos
+	// ************************************************************************
+
+	/**
+	 * Retorna las categorías de la librería
+	 * 
+	 * @return categorias
+	 */
+	public Categoria[] darCategorias()
+	{
+		return categorias.darArreglo();
+	}
+
+	/**
+	 * Retorna el catálogo completo de libros de la librería
+	 * 
+	 * @return catalogo
+	 */
+	public ArrayList<Libro> darLibros()
+	{
+		return catalogo;
+	}
+
+	/**
+	 * Retorna la versión más reciente del catálogo. La versión no cambia aunque después cambie la librería, así que se puede consultar desde cualquier hilo sin sincronizarse con el que modifica
+	 * la librería.
+	 * 
+	 * @return version
+	 */
+	public VersionCatalogo darVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * Retorna el índice que usa la librería para saber cuáles portadas existen
+	 * 
+	 * @return indicePortadas
+	 */
+	public IndicePortadas darIndicePortadas()
+	{
+		return indicePortadas;
+	}
+
+	/**
+	 * Retorna las categorías que aparecieron en el archivo de libros pero no estaban en el archivo de categorías
+	 * 
+	 * @return nombreLibroCategoriaNueva
+	 */
+	ArrayList<Categoria> darCategoriasNuevas()
+	{
+		return nombreLibroCategoriaNueva;
+	}
+
+	// ************************************************************************
+	// Otros métodos
+	// ************************************************************************
+
+	/**
+	 * Carga la información sobre las categorías disponibles a partir de un archivo
+	 * 
+	 * @param nombreArchivoCategorias El nombre del archivo CSV que contiene la información de las categorías
+	 * @return Un registro con las categorías que se encontraron en el archivo
+	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo del archivo
+	 */
+	private RegistroCategorias cargarCategorias(String nombreArchivoCategorias) throws IOException
+	{
+		RegistroCategorias registro = new RegistroCategorias();
+
+		try (LectorCSV lector = new LectorCSV(nombreArchivoCategorias))
+		{
+			lector.siguienteRegistro(); // Ignorar la primera línea porque tiene los títulos
+
+			while (lector.siguienteRegistro())
+			{
+				String nombreCat = lector.darCampo(0, cadenas);
+				boolean esFiccion = lector.campoIgual(1, "true");
+
+				// Crear una nueva categoría y agregarla al registro
+				registro.agregar(new Categoria(nombreCat, esFiccion));
+			}
+		}
+
+		return registro;
+	}
+
+	/**
+	 * Carga la información sobre los libros disponibles en la librería.
+	 * 
+	 * Se deben haber cargado antes las categorías e inicializado el atributo 'categorias'.
+	 * 
+	 * Los libros se procesan en lotes de TAMANO_LOTE: al terminar cada lote se averigua cuáles portadas existen y se le informa el lote al observador, si lo hay.
+	 * 
+	 * @param nombreArchivoLibros El nombre del archivo CSV que contiene la información de los libros
+	 * @param observador          El objeto al que se le informa el avance de la carga. Puede ser null.
+	 * @return Una lista con los libros que se cargaron a partir del archivo
+	 * @throws IOException           Se lanza esta excepción si hay algún problema leyendo del archivo
+	 * @throws CancellationException Se lanza esta excepción si el observador pidió cancelar la carga
+	 */
+	private ArrayList<Libro> cargarCatalogo(String nombreArchivoLibros, ObservadorCarga observador) throws IOException
+	{
+		ArrayList<Libro> libros = new ArrayList<Libro>();
+		ArrayList<Imagen> portadas = new ArrayList<Imagen>(TAMANO_LOTE);
+		long tamanoArchivo = Math.max(1, new File(nombreArchivoLibros).length());
+		int inicioLote = 0;
+
+		try (LectorCSV lector = new LectorCSV(nombreArchivoLibros))
+		{
+			lector.siguienteRegistro(); // Ignorar la primera línea porque tiene los títulos:
+										// Titulo,Autor,Calificacion,Categoria,Portada,Ancho,Alto
+
+			while (lector.siguienteRegistro())
+			{
+				String elTitulo = lector.darCampo(0);
+				String elAutor = lector.darCampo(1, cadenas);
+				double laCalificacion = lector.darDouble(2);
+				String nombreCategoria = lector.darCampo(3, cadenas);
+				String archivoPortada = lector.darCampo(4);
+				int ancho = lector.darEntero(5);
+				int alto = lector.darEntero(6);
+
+				libros.add(crearLibro(elTitulo, elAutor, laCalificacion, nombreCategoria));
+				portadas.add(new Imagen(archivoPortada, ancho, alto));
+
+				if (portadas.size() == TAMANO_LOTE)
+				{
+					terminarLote(libros, inicioLote, portadas, observador, Math.min(1, lector.darCaracteresLeidos() / (double) tamanoArchivo));
+					inicioLote = libros.size();
+				}
+			}
+		}
+
+		terminarLote(libros, inicioLote, portadas, observador, 1);
+
+		return libros;
+	}
+
+	/**
+	 * Termina de procesar un lote de libros: averigua de una vez cuáles portadas existen, se las pone a los libros y le informa el lote al observador.
+	 * 
+	 * @param libros     La lista con todos los libros leídos hasta ahora
+	 * @param inicioLote La posición en la lista del primer libro del lote
+	 * @param portadas   Las portadas de los libros del lote, en el mismo orden. La lista se vacía al terminar.
+	 * @param observador El objeto al que se le informa el avance de la carga. Puede ser null.
+	 * @param progreso   Fracción del archivo que ya se leyó
+	 * @throws CancellationException Se lanza esta excepción si el observador pidió cancelar la carga
+	 */
+	private void terminarLote(ArrayList<Libro> libros, int inicioLote, ArrayList<Imagen> portadas, ObservadorCarga observador, double progreso)
+	{
+		ArrayList<String> rutas = new ArrayList<String>(portadas.size());
+		for (Imagen portada : portadas)
+		{
+			rutas.add(portada.darRutaArchivo());
+		}
+		boolean[] existen = indicePortadas.existen(rutas);
+		for (int i = 0; i < existen.length; i++)
+		{
+			libros.get(inicioLote + i).registrarPortada(portadas.get(i), existen[i]);
+		}
+		portadas.clear();
+
+		informarLote(libros, inicioLote, observador, progreso);
+	}
+
+	/**
+	 * Le informa al observador, si lo hay, los libros de un lote que ya tienen su portada
+	 * 
+	 * @param libros     La lista con todos los libros leídos hasta ahora
+	 * @param inicioLote La posición en la lista del primer libro del lote
+	 * @param observador El objeto al que se le informa el avance de la carga. Puede ser null.
+	 * @param progreso   Fracción del archivo que ya se leyó
+	 * @throws CancellationException Se lanza esta excepción si el observador pidió cancelar la carga
+	 */
+	private static void informarLote(ArrayList<Libro> libros, int inicioLote, ObservadorCarga observador, double progreso)
+	{
+		if (observador != null)
+		{
+			observador.librosCargados(new ArrayList<Libro>(libros.subList(inicioLote, libros.size())), progreso);
+			revisarCancelacion(observador);
+		}
+	}
+
+	/**
+	 * Revisa si el observador, si lo hay, pidió cancelar la carga
+	 * 
+	 * @param observador El objeto al que se le informa el avance de la carga. Puede ser null.
+	 * @throws CancellationException Se lanza esta excepción si el observador pidió cancelar la carga
+	 */
+	private static void revisarCancelacion(ObservadorCarga observador)
+	{
+		if (observador != null && observador.cancelado())
+			throw new CancellationException("Se canceló la carga de la librería");
+	}
+
+	/**
+	 * Carga la información sobre los libros disponibles en la librería usando varios hilos.
+	 * 
+	 * Los hilos leen y convierten los registros y averiguan cuáles portadas existen; los libros se crean después, en el orden del archivo, para que las categorías nuevas y las listas de libros queden igual que en la carga
+	 * secuencial. Cada rango se une apenas están listos él y los anteriores, y se le informa al observador como un lote.
+	 * 
+	 * @param nombreArchivoLibros El nombre del archivo CSV que contiene la información de los libros
+	 * @param paralelismo         La cantidad de hilos que se usarán
+	 * @param observador          El objeto al que se le informa el avance de la carga. Puede ser null.
+	 * @return Una lista con los libros que se cargaron a partir del archivo
+	 * @throws IOException           Se lanza esta excepción si hay algún problema leyendo del archivo
+	 * @throws CancellationException Se lanza esta excepción si el observador pidió cancelar la carga
+	 */
+	private ArrayList<Libro> cargarCatalogoParalelo(String nombreArchivoLibros, int paralelismo, ObservadorCarga observador) throws IOException
+	{
+		ArrayList<Libro> libros = new ArrayList<Libro>();
+		CargadorParalelo cargador = new CargadorParalelo(nombreArchivoLibros, paralelismo, indicePortadas);
+		cargador.cargar((bloque, progreso) -> {
+			int inicioLote = libros.size();
+			for (int i = 0; i < bloque.darCantidad(); i++)
+			{
+				Libro nuevo = crearLibro(bloque.titulos[i], bloque.autores[i], bloque.calificaciones[i], bloque.categorias[i]);
+				nuevo.registrarPortada(new Imagen(bloque.portadas[i], bloque.anchos[i], bloque.altos[i]), bloque.conPortada[i]);
+				libros.add(nuevo);
+			}
+			informarLote(libros, inicioLote, observador, progreso);
+		});
+
+		return libros;
+	}
+
+	/**
+	 * Crea un libro a partir de la información de un registro del archivo de libros.
+	 * 
+	 * Si la categoría del libro no existe, se crea y se agrega a la lista de categorías nuevas. El libro se crea sin portada.
+	 * 
+	 * El autor se guarda en el diccionario de la librería, así que los libros del mismo autor comparten un solo String.
+	 * 
+	 * @param elTitulo        Título del libro
+	 * @param elAutor         Autor o autores del libro
+	 * @param laCalificacion  Calificación del libro
+	 * @param nombreCategoria Nombre de la categoría a la que pertenece el libro
+	 * @return El libro creado
+	 */
+	private Libro crearLibro(String elTitulo, String elAutor, double laCalificacion, String nombreCategoria)
+	{
+		Categoria laCategoria = darCategoriaLibro(nombreCategoria);
+
+		// Crear un nuevo libro. El autor se comparte con los demás libros del mismo autor.
+		return new Libro(elTitulo, cadenas.internar(elAutor), laCalificacion, laCategoria);
+	}
+
+	/**
+	 * Busca la categoría que corresponde a un libro del archivo de libros. Si no existe, la crea y la agrega a la lista de categorías nuevas.
+	 * 
+	 * @param nombreCategoria Nombre de la categoría del libro
+	 * @return La categoría con ese nombre
+	 */
+	private Categoria darCategoriaLibro(String nombreCategoria)
+	{
+		Categoria laCategoria = categorias.buscar(nombreCategoria);
+		if (laCategoria == null) // Cambios para el taller.
+		{
+			laCategoria = new Categoria(nombreCategoria, false);
+			categorias.agregar(laCategoria);
+			nombreLibroCategoriaNueva.add(laCategoria);
+			if (sugerencias != null)
+				sugerencias.categoriaAgregada(laCategoria);
+			cache.nombresCambiados();
+		}
+		return laCategoria;
+	}
+
+	/**
+	 * Aplica a la librería las diferencias calculadas con CambiosCatalogo.calcular: agrega las categorías nuevas, retira los libros eliminados, actualiza los modificados y agrega los nuevos al final
+	 * del catálogo y de sus categorías. Los demás libros no se tocan.
+	 * 
+	 * Los libros eliminados o modificados que ya no estén en el catálogo (por ejemplo, porque el usuario los eliminó mientras se calculaban las diferencias) simplemente se ignoran.
+	 * 
+	 * Si la librería tiene cambios en la bitácora que todavía no se han llevado a los archivos, se vuelven a aplicar después de las diferencias.
+	 * 
+	 * Al terminar, las categorías afectadas y las agregadas quedan registradas en el objeto de cambios.
+	 * 
+	 * @param cambios Las diferencias que se van a aplicar
+	 */
+	public void aplicarCambios(CambiosCatalogo cambios)
+	{
+		Set<Categoria> afectadas = new LinkedHashSet<Categoria>();
+		int categoriasAntes = categorias.darCantidad();
+
+		for (Map.Entry<String, Boolean> entrada : cambios.darCategorias().entrySet())
+		{
+			Categoria laCategoria = categorias.buscar(entrada.getKey());
+			if (laCategoria == null)
+			{
+				Categoria nueva = new Categoria(entrada.getKey(), entrada.getValue());
+				categorias.agregar(nueva);
+				if (sugerencias != null)
+					sugerencias.categoriaAgregada(nueva);
+				cache.nombresCambiados();
+			}
+			else
+			{
+				// Una categoría que llegó sólo por el archivo de libros ya no es nueva si aparece en el archivo de categorías
+				laCategoria.cambiarFiccion(entrada.getValue());
+				nombreLibroCategoriaNueva.remove(laCategoria);
+			}
+		}
+
+		Set<Libro> retirados = Collections.newSetFromMap(new IdentityHashMap<Libro, Boolean>());
+		retirados.addAll(cambios.darEliminados());
+		afectadas.addAll(retirarLibros(retirados));
+
+		ArrayList<Libro> modificados = cambios.darModificados();
+		ArrayList<CambiosCatalogo.FilaLibro> filas = cambios.darFilasModificadas();
+		for (int i = 0; i < modificados.size(); i++)
+		{
+			Libro libro = modificados.get(i);
+			if (!estaEnCatalogo(libro))
+				continue;
+			CambiosCatalogo.FilaLibro fila = filas.get(i);
+			afectadas.add(libro.darCategoria());
+			actualizarLibro(libro, cadenas.internar(fila.autor), fila.calificacion, darCategoriaLibro(fila.categoria));
+			libro.registrarPortada(fila.portadaArchivo, fila.portada != null);
+			afectadas.add(libro.darCategoria());
+		}
+
+		for (CambiosCatalogo.FilaLibro fila : cambios.darInsertados())
+		{
+			Libro nuevo = crearLibro(fila.titulo, fila.autor, fila.calificacion, fila.categoria);
+			nuevo.registrarPortada(fila.portadaArchivo, fila.portada != null);
+			agregarAlCatalogo(nuevo);
+			afectadas.add(nuevo.darCategoria());
+		}
+
+		// Los archivos no tienen los cambios que siguen en la bitácora, así que las diferencias los deshicieron
+		if (bitacora != null)
+		{
+			for (BitacoraCambios.Registro registro : bitacora.darRegistros())
+			{
+				afectadas.addAll(aplicarRegistro(registro));
+			}
+		}
+
+		cambios.darCategoriasAfectadas().addAll(afectadas);
+		publicarVersion();
+		for (int i = categoriasAntes; i < categorias.darCantidad(); i++)
+		{
+			cambios.darCategoriasAgregadas().add(categorias.darCategoria(i));
+		}
+	}
+
+	/**
+	 * Cambia el autor, la calificación o la categoría de un libro del catálogo, y actualiza los índices
+	 * 
+	 * @param libro          El libro
+	 * @param elAutor        El autor nuevo
+	 * @param laCalificacion La calificación nueva
+	 * @param laCategoria    La categoría nueva
+	 */
+	private void actualizarLibro(Libro libro, String elAutor, double laCalificacion, Categoria laCategoria)
+	{
+		indiceAutores.retirar(libro);
+		String autorAnterior = libro.darAutor();
+		double calificacionAnterior = libro.darCalificacion();
+		Categoria categoriaAnterior = libro.darCategoria();
+		libro.actualizar(elAutor, laCalificacion, laCategoria);
+		indiceAutores.agregar(libro);
+		if (sugerencias != null)
+			sugerencias.libroCambiado(libro, autorAnterior, calificacionAnterior, categoriaAnterior);
+		if (categoriaAnterior != libro.darCategoria() || !autorAnterior.equals(libro.darAutor()))
+		{
+			// El libro puede haber entrado en los resultados de otro autor, o cambiado de posición en los de su autor
+			cache.categoriaCambiada(categoriaAnterior);
+			cache.categoriaCambiada(libro.darCategoria());
+			cache.librosAgregados();
+		}
+	}
+
+	/**
+	 * Vuelve a aplicar un cambio de la bitácora. Los cambios que ya no se pueden aplicar (porque la categoría no existe, o el libro ya no está) se ignoran.
+	 * 
+	 * Un libro eliminado se identifica por su título y su autor: si hay varios iguales, se elimina uno por cada vez que aparezca en el registro. Si al renombrar una categoría ya existe una con el
+	 * nombre nuevo (porque otro programa modificó los archivos), sus libros se pasan a esa categoría.
+	 * 
+	 * @param registro El cambio
+	 * @return Las categorías que cambiaron
+	 */
+	private Set<Categoria> aplicarRegistro(BitacoraCambios.Registro registro)
+	{
+		Set<Categoria> afectadas = new LinkedHashSet<Categoria>();
+		if (registro.tipo == BitacoraCambios.RENOMBRAR_CATEGORIA)
+		{
+			Categoria anterior = categorias.buscar(registro.nombreAnterior);
+			Categoria nueva = categorias.buscar(registro.nombreNuevo);
+			if (anterior != null && nueva == null)
+			{
+				renombrarCategoria(anterior, registro.nombreNuevo);
+				afectadas.add(anterior);
+			}
+			else if (anterior != null && anterior != nueva)
+			{
+				for (Libro libro : new ArrayList<Libro>(anterior.darLibros()))
+				{
+					actualizarLibro(libro, libro.darAutor(), libro.darCalificacion(), nueva);
+				}
+				afectadas.add(anterior);
+				afectadas.add(nueva);
+			}
+		}
+		else
+		{
+			Set<Libro> retirados = Collections.newSetFromMap(new IdentityHashMap<Libro, Boolean>());
+			for (int i = 0; i < registro.titulos.length; i++)
+			{
+				for (Libro libro : indiceTitulos.buscarTodos(registro.titulos[i]))
+				{
+					if (libro.darTitulo().equals(registro.titulos[i]) && libro.darAutor().equals(registro.autores[i]) && retirados.add(libro))
+						break;
+				}
+			}
+			afectadas.addAll(retirarLibros(retirados));
+		}
+		return afectadas;
+	}
+
+	/**
+	 * Agrega un libro al final del catálogo y a los índices. El libro ya debe estar en su categoría.
+	 * 
+	 * @param libro El libro que se va a agregar
+	 */
+	private void agregarAlCatalogo(Libro libro)
+	{
+		catalogo.add(libro);
+		indiceTitulos.agregar(libro);
+		indiceAutores.agregar(libro);
+		if (indiceAproximado != null)
+			indiceAproximado.agregar(libro);
+		if (sugerencias != null)
+			sugerencias.libroAgregado(libro);
+		cache.categoriaCambiada(libro.darCategoria());
+		cache.librosAgregados();
+	}
+
+	/**
+	 * Publica una versión nueva del catálogo, que reutiliza de la anterior las categorías que no cambiaron. Se llama al terminar cada cambio, para que las consultas de otros hilos nunca vean un
+	 * cambio a medias.
+	 */
+	private void publicarVersion()
+	{
+		version = VersionCatalogo.siguiente(version, categorias);
+	}
+
+	/**
+	 * Indica si un libro sigue en el catálogo. El libro se busca por identidad entre los que tienen su título, así que no hace falta recorrer el catálogo.
+	 * 
+	 * @param libro El libro
+	 * @return Retorna true si el libro está en el catálogo. Retorna false si se retiró.
+	 */
+	private boolean estaEnCatalogo(Libro libro)
+	{
+		for (Libro otro : indiceTitulos.buscarTodos(libro.darTitulo()))
+		{
+			if (otro == libro)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Construye los índices a partir de todos los libros del catálogo
+	 */
+	private void indexarCatalogo()
+	{
+		for (Libro libro : catalogo)
+		{
+			indiceTitulos.agregar(libro);
+			indiceAutores.agregar(libro);
+		}
+	}
+
+	/**
+	 * Retira varios libros del catálogo, de sus categorías y de los índices, recorriendo cada lista una sola vez. Los libros que ya no estén en el catálogo se ignoran.
+	 * 
+	 * @param retirados Los libros que se van a retirar. Debe ser un conjunto por identidad, porque puede haber varios libros con el mismo título.
+	 * @return Las categorías de las que se retiraron libros
+	 */
+	private Set<Categoria> retirarLibros(Set<Libro> retirados)
+	{
+		Set<Categoria> afectadas = new LinkedHashSet<Categoria>();
+		if (!retirados.isEmpty())
+		{
+			catalogo.removeIf(libro -> {
+				boolean retirado = retirados.contains(libro);
+				if (retirado && sugerencias != null)
+					sugerencias.libroRetirado(libro);
+				return retirado;
+			});
+			indiceAutores.retirarTodos(retirados);
+			indiceTitulos.retirarTodos(retirados);
+			if (indiceAproximado != null)
+				indiceAproximado.retirarTodos(retirados);
+			for (Libro libro : retirados)
+			{
+				afectadas.add(libro.darCategoria());
+			}
+			for (Categoria laCategoria : afectadas)
+			{
+				laCategoria.retirarLibros(retirados);
+				cache.categoriaCambiada(laCategoria);
+			}
+		}
+		return afectadas;
+	}
+
+	/**
+	 * Cambia el tipo de llaves del índice de títulos, y lo reconstruye con los libros del catálogo
+	 * 
+	 * @param normalizar Indica si las búsquedas por título deben ignorar mayúsculas, minúsculas y espacios repetidos
+	 */
+	public void normalizarTitulos(boolean normalizar)
+	{
+		if (indiceTitulos.usaTitulosNormalizados() != normalizar)
+		{
+			indiceTitulos = new IndiceTitulos(normalizar);
+			indiceTitulos.agregarTodos(catalogo);
+		}
+	}
+
+	/**
+	 * Retorna una lista con los libros que pertenecen a la categoría indicada en el parámetro
+	 * 
+	 * @param nombreCategoria El nombre de la categoría de interés
+	 * @return Una lista donde todos los libros pertenecen a la categoría indicada
+	 */
+	public ArrayList<Libro> darLibros(String nombreCategoria)
+	{
+		String llave = "categoria:" + nombreCategoria;
+		ArrayList<Libro> seleccionados = cache.buscar(llave);
+		if (seleccionados != null)
+			return seleccionados;
+
+		seleccionados = new ArrayList<Libro>();
+		int[] dependencias = new int[0];
+		Categoria laCategoria = categorias.buscar(nombreCategoria);
+		if (laCategoria != null)
+		{
+			seleccionados.addAll(laCategoria.darLibros());
+			dependencias = new int[] { laCategoria.darOrdinal() };
+		}
+
+		cache.guardar(llave, seleccionados, dependencias, false, true);
+		return seleccionados;
+	}
+
+	/**
+	 * Busca un libro a partir de su título, usando el índice de títulos. Si hay varios libros con ese título, retorna el primero del catálogo.
+	 * 
+	 * @param tituloLibro Título del libro buscado
+	 * @return Retorna un libro con el título indicado o null si no se encontró un libro con ese título
+	 */
+	public Libro buscarLibro(String tituloLibro)
+	{
+		return indiceTitulos.buscar(tituloLibro);
+	}
+
+	/**
+	 * Busca todos los libros que tienen el título indicado
+	 * 
+	 * @param tituloLibro Título de los libros buscados
+	 * @return Una lista con los libros que tienen ese título, en el orden del catálogo. Si no hay ninguno, la lista es vacía.
+	 */
+	public ArrayList<Libro> buscarLibros(String tituloLibro)
+	{
+		return indiceTitulos.buscarTodos(tituloLibro);
+	}
+
+	/**
+	 * Busca los libros cuyo título se parece al indicado, para encontrarlos aunque el título tenga errores de escritura. Los títulos se comparan sin tener en cuenta mayúsculas, minúsculas ni
+	 * espacios repetidos.
+	 * 
+	 * @param tituloLibro     El título buscado
+	 * @param distanciaMaxima La mayor cantidad de caracteres insertados, borrados o cambiados que se aceptan entre el título buscado y el de un libro
+	 * @param cantidad        La mayor cantidad de títulos distintos que se retornan
+	 * @return Una lista con los libros encontrados, de los títulos más parecidos a los menos parecidos. Si no hay ninguno, la lista es vacía.
+	 */
+	public ArrayList<Libro> buscarLibrosAproximados(String tituloLibro, int distanciaMaxima, int cantidad)
+	{
+		if (indiceAproximado == null)
+			indiceAproximado = new IndiceTitulosAproximado(catalogo);
+		return indiceAproximado.buscar(tituloLibro, distanciaMaxima, cantidad);
+	}
+
+	/**
+	 * Busca los títulos de libros que empiezan por el texto indicado, para sugerirle al usuario cómo completar lo que está escribiendo. Los títulos se comparan sin tener en cuenta mayúsculas,
+	 * minúsculas ni espacios repetidos.
+	 * 
+	 * @param prefijo  El principio del título
+	 * @param cantidad La mayor cantidad de títulos que se retornan
+	 * @return Los títulos, primero los de mejor calificación
+	 */
+	public ArrayList<String> completarTitulo(String prefijo, int cantidad)
+	{
+		return darSugerencias().completarTitulo(prefijo, cantidad);
+	}
+
+	/**
+	 * Busca los autores que empiezan por el texto indicado, para sugerirle al usuario cómo completar lo que está escribiendo
+	 * 
+	 * @param prefijo  El principio del nombre del autor
+	 * @param cantidad La mayor cantidad de autores que se retornan
+	 * @return Los nombres de los autores, primero los que tienen más libros
+	 */
+	public ArrayList<String> completarAutor(String prefijo, int cantidad)
+	{
+		return darSugerencias().completarAutor(prefijo, cantidad);
+	}
+
+	/**
+	 * Busca las categorías cuyo nombre empieza por el texto indicado, para sugerirle al usuario cómo completar lo que está escribiendo
+	 * 
+	 * @param prefijo  El principio del nombre de la categoría
+	 * @param cantidad La mayor cantidad de categorías que se retornan
+	 * @return Los nombres de las categorías, primero las que tienen más libros
+	 */
+	public ArrayList<String> completarCategoria(String prefijo, int cantidad)
+	{
+		return darSugerencias().completarCategoria(prefijo, cantidad);
+	}
+
+	private IndiceSugerencias darSugerencias()
+	{
+		if (sugerencias == null)
+			sugerencias = new IndiceSugerencias(catalogo, categorias.darArreglo());
+		return sugerencias;
+	}
+
+	/**
+	 * Busca en la librería los libros escritos por el autor indicado.
+	 * 
+	 * El nombre del autor puede estar incompleto, y la búsqueda no debe tener en cuenta mayúsculas y minúsculas. Por ejemplo, si se buscara por "ulio v" deberían encontrarse los libros donde el autor
+	 * sea "Julio Verne".
+	 * 
+	 * La búsqueda se hace con el índice de trigramas de autores, así que sólo se revisan los autores que pueden contener la cadena. Los libros quedan agrupados por categoría, en el mismo orden que si
+	 * se recorrieran las categorías una por una.
+	 * 
+	 * @param cadenaAutor La cadena que se usará para consultar el autor. No necesariamente corresponde al nombre completo de un autor.
+	 * @return Una lista con todos los libros cuyo autor coincida con la cadena indicada
+	 */
+	public ArrayList<Libro> buscarLibrosAutor(String cadenaAutor)
 	{
-		this.categorias = cargarCategorias(nombreArchivoCategorias);
-		this.catalogo = cargarCatalogo(nombreArchivoLibros);
+		String llave = "autor:" + cadenaAutor;
+		ArrayList<Libro> encontrados = cache.buscar(llave);
+		if (encontrados == null)
+		{
+			encontrados = indiceAutores.buscarLibros(cadenaAutor);
+			BitSet dependencias = new BitSet();
+			for (Libro libro : encontrados)
+			{
+				dependencias.set(libro.darCategoria().darOrdinal());
+			}
+			cache.guardar(llave, encontrados, dependencias.stream().toArray(), true, false);
+		}
+		return encontrados;
 	}
 
-	// ************************************************************************
-	// Métodos para consultar los atributos
-	// ************************************************************************
-
 	/**
-	 * Retorna las categorías de la librería
+	 * Busca los libros que cumplen todos los filtros de una consulta. Los candidatos salen del índice más selectivo que tenga la consulta, y sobre ellos se revisan los demás filtros.
 	 * 
-	 * @return categorias
+	 * @param consulta La consulta
+	 * @return Una lista con los libros encontrados, agrupados por categoría en el orden de las categorías de la librería
 	 */
-	public Categoria[] darCategorias()
+	public ArrayList<Libro> consultar(ConsultaLibros consulta)
 	{
-		return categorias;
+		return consulta.ejecutar(categorias, indiceTitulos, indiceAutores, umbralParalelo);
 	}
 
 	/**
-	 * Retorna el catálogo completo de libros de la librería
+	 * Busca los libros que cumplen una consulta escrita como texto, por ejemplo <code>autor:verne cat:Fiction rating&gt;=4</code>. La sintaxis se describe en ConsultaLibros.interpretar.
 	 * 
-	 * @return catalogo
+	 * @param textoConsulta El texto de la consulta
+	 * @return Una lista con los libros encontrados, agrupados por categoría en el orden de las categorías de la librería
+	 * @throws IllegalArgumentException Se lanza esta excepción si el texto de la consulta no es válido
 	 */
-	public ArrayList<Libro> darLibros()
+	public ArrayList<Libro> consultar(String textoConsulta)
 	{
-		return catalogo;
+		return consultar(ConsultaLibros.interpretar(textoConsulta));
 	}
 
-	// ************************************************************************
-	// Otros métodos
-	// ************************************************************************
-
 	/**
-	 * Carga la información sobre las categorías disponibles a partir de un archivo
+	 * Cambia la cantidad de libros por revisar a partir de la cual las consultas que recorren varias categorías reparten el trabajo entre varios hilos. Los resultados son los mismos en los dos
+	 * casos.
 	 * 
-	 * @param nombreArchivoCategorias El nombre del archivo CSV que contiene la información de las categorías
-	 * @return Un arreglo con las categorías que se encontraron en el archivo
-	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo del archivo
+	 * @param umbral El nuevo umbral. Con Integer.MAX_VALUE las consultas siempre se ejecutan en un solo hilo.
 	 */
-	private Categoria[] cargarCategorias(String nombreArchivoCategorias) throws IOException
+	public void cambiarUmbralParalelo(int umbral)
 	{
-		ArrayList<Categoria> listaCategorias = new ArrayList<Categoria>();
-
-		BufferedReader br = new BufferedReader(new FileReader(nombreArchivoCategorias));
-		String linea = br.readLine(); // Ignorar la primera línea porque tiene los títulos
-
-		linea = br.readLine();
-		while (linea != null)
-		{
-			String[] partes = linea.trim().split(",");
-			String nombreCat = partes[0];
-			boolean esFiccion = partes[1].equals("true");
-
-			// Crear una nueva categoría y agregarla a la lista
-			listaCategorias.add(new Categoria(nombreCat, esFiccion));
-
-			linea = br.readLine();
-		}
-
-		br.close();
-
-		// Convertir la lista de categorías a un arreglo
-		Categoria[] arregloCategorias = new Categoria[listaCategorias.size()];
-		for (int i = 0; i < listaCategorias.size(); i++)
-		{
-			arregloCategorias[i] = listaCategorias.get(i);
-		}
-
-		return arregloCategorias;
+		this.umbralParalelo = umbral;
 	}
 
 	/**
-	 * Carga la información sobre los libros disponibles en la librería.
+	 * Busca en qué categorías hay libros del autor indicado.
 	 * 
-	 * Se deben haber cargado antes las categorías e inicializado el atributo 'categorias'.
+	 * Este método busca libros cuyo autor coincida exactamente con el valor indicado en el parámetro nombreAutor. La respuesta sale del índice de autores, que sabe cuántos libros tiene cada autor en
+	 * cada categoría.
 	 * 
-	 * @param nombreArchivoLibros El nombre del archivo CSV que contiene la información de los libros
-	 * @return Una lista con los libros que se cargaron a partir del archivo
-	 * @throws IOException Se lanza esta excepción si hay algún problema leyendo del archivo
+	 * @param nombreAutor El nombre del autor
+	 * @return Una lista con las categorías en las cuales hay al menos un libro del autor indicado. Si no hay un libro del autor en ninguna categoría, retorna una lista vacía.
 	 */
-	private ArrayList<Libro> cargarCatalogo(String nombreArchivoLibros) throws IOException
+	public ArrayList<Categoria> buscarCategoriasAutor(String nombreAutor)
 	{
-		ArrayList<Libro> libros = new ArrayList<Libro>();
-
-		BufferedReader br = new BufferedReader(new FileReader(nombreArchivoLibros));
-		String linea = br.readLine(); // Ignorar la primera línea porque tiene los títulos:
-										// Titulo,Autor,Calificacion,Categoria,Portada,Ancho,Alto
-
-		linea = br.readLine();
-		while (linea != null)
+		String llave = "categoriasAutor:" + nombreAutor;
+		ArrayList<Categoria> encontradas = cache.buscar(llave);
+		if (encontradas == null)
 		{
-			String[] partes = linea.trim().split(",");
-			String elTitulo = partes[0];
-			String elAutor = partes[1];
-			double laCalificacion = Double.parseDouble(partes[2]);
-			String nombreCategoria = partes[3];
-
-			if (buscarCategoria(nombreCategoria) == null) // Cambios para el taller.
-			{
-				Categoria categoriaNueva = new Categoria(nombreCategoria, false);
-				int size = categorias.length;
-				Categoria[] categoriasActualizadas = Arrays.copyOf(categorias, size + 1);
-				categorias = categoriasActualizadas;
-				categorias[size] = categoriaNueva;
-				nombreLibroCategoriaNueva.add(categoriaNueva);
-			}
-
-			Categoria laCategoria = buscarCategoria(nombreCategoria); // TODO puede ser acá el cambio
-			String archivoPortada = partes[4];
-			int ancho = Integer.parseInt(partes[5]);
-			int alto = Integer.parseInt(partes[6]);
-
-			// Crear un nuevo libro
-			Libro nuevo = new Libro(elTitulo, elAutor, laCalificacion, laCategoria);
-			libros.add(nuevo);
-
-			// Si existe el archivo de la portada, ponérselo al libro
-			if (existeArchivo(archivoPortada))
+			encontradas = indiceAutores.buscarCategorias(nombreAutor, categorias.darArreglo());
+			int[] dependencias = new int[encontradas.size()];
+			for (int i = 0; i < dependencias.length; i++)
 			{
-				Imagen portada = new Imagen(archivoPortada, ancho, alto);
-				nuevo.cambiarPortada(portada);
+				dependencias[i] = encontradas.get(i).darOrdinal();
 			}
-
-			linea = br.readLine();
+			cache.guardar(llave, encontradas, dependencias, true, false);
 		}
-
-		br.close();
-
-		return libros;
+		return encontradas;
 	}
 
 	/**
-	 * Busca una categoría a partir de su nombre
+	 * Retorna el cache con los resultados de las consultas por autor y por categoría (darLibros, buscarLibrosAutor y buscarCategoriasAutor), para consultar sus estadísticas o cambiar su límite de
+	 * memoria
 	 * 
-	 * @param nombreCategoria El nombre de la categoría buscada
-	 * @return La categoría que tiene el nombre dado
+	 * @return cache
 	 */
-	private Categoria buscarCategoria(String nombreCategoria)
+	public CacheConsultas darCache()
 	{
-		Categoria laCategoria = null;
-		for (int i = 0; i < categorias.length && laCategoria == null; i++)
-		{
-			if (categorias[i].darNombre().equals(nombreCategoria))
-				laCategoria = categorias[i];
-		}
-		return laCategoria;
+		return cache;
 	}
 
 	/**
-	 * Verifica si existe el archivo con el nombre indicado dentro de la carpeta "data".
+	 * Busca los libros de un autor. El nombre del autor debe ser exacto.
 	 * 
-	 * @param nombreArchivo El nombre del archivo que se va a buscar.
-	 * @return
+	 * @param nombreAutor El nombre del autor
+	 * @return Una lista con los libros del autor. Si no hay ninguno, la lista es vacía.
 	 */
-	private boolean existeArchivo(String nombreArchivo)
+	public ArrayList<Libro> darLibrosAutor(String nombreAutor)
 	{
-		File archivo = new File("./data/" + nombreArchivo);
-		return archivo.exists();
+		return indiceAutores.buscarLibrosAutorExacto(nombreAutor);
 	}
 
 	/**
-	 * Retorna una lista con los libros que pertenecen a la categoría indicada en el parámetro
+	 * Consulta la calificación promedio entre todos los libros del catálogo. El promedio sale de los totales que lleva el registro de categorías, sin recorrer el catálogo.
 	 * 
-	 * @param nombreCategoria El nombre de la categoría de interés
-	 * @return Una lista donde todos los libros pertenecen a la categoría indicada
+	 * @return Calificación promedio del catálogo, o 0 si no hay libros
 	 */
-	public ArrayList<Libro> darLibros(String nombreCategoria)
+	public double calificacionPromedio()
 	{
-		boolean encontreCategoria = false;
-
-		ArrayList<Libro> seleccionados = new ArrayList<Libro>();
-
-		for (int i = 0; i < categorias.length && !encontreCategoria; i++)
-		{
-			if (categorias[i].darNombre().equals(nombreCategoria))
-			{
-				encontreCategoria = true;
-				seleccionados.addAll(categorias[i].darLibros());
-			}
-		}
-
-		return seleccionados;
+		return categorias.darAcumulado().darPromedio();
 	}
 
 	/**
-	 * Busca un libro a partir de su título
+	 * Cuenta cuántos libros del catálogo tienen una calificación mayor que un umbral, recorriendo las columnas de calificaciones de las categorías
 	 * 
-	 * @param tituloLibro Título del libro buscado
-	 * @return Retorna un libro con el título indicado o null si no se encontró un libro con ese título
+	 * @param umbral El umbral
+	 * @return Cantidad de libros con calificación estrictamente mayor que el umbral
 	 */
-	public Libro buscarLibro(String tituloLibro)
+	public int contarLibrosConCalificacionMayor(double umbral)
 	{
-		Libro libroBuscado = null;
-
-		for (int i = 0; i < catalogo.size() && libroBuscado == null; i++)
+		int cantidad = 0;
+		for (Categoria categoria : categorias)
 		{
-			Libro unLibro = catalogo.get(i);
-			if (unLibro.darTitulo().equals(tituloLibro))
-				libroBuscado = unLibro;
+			cantidad += categoria.darCalificaciones().contarMayores(umbral);
 		}
-
-		return libroBuscado;
+		return cantidad;
 	}
 
 	/**
-	 * Busca en la librería los libros escritos por el autor indicado.
-	 * 
-	 * El nombre del autor puede estar incompleto, y la búsqueda no debe tener en cuenta mayúsculas y minúsculas. Por ejemplo, si se buscara por "ulio v" deberían encontrarse los libros donde el autor
-	 * sea "Julio Verne".
+	 * Construye un histograma de las calificaciones de todos los libros del catálogo, con intervalos del mismo tamaño
 	 * 
-	 * @param cadenaAutor La cadena que se usará para consultar el autor. No necesariamente corresponde al nombre completo de un autor.
-	 * @return Una lista con todos los libros cuyo autor coincida con la cadena indicada
+	 * @param minimo     El límite inferior del primer intervalo
+	 * @param maximo     El límite superior del último intervalo. Las calificaciones iguales a este límite se cuentan en el último intervalo.
+	 * @param intervalos La cantidad de intervalos
+	 * @return Un arreglo con la cantidad de libros en cada intervalo. Los libros con calificaciones fuera de los límites no se cuentan.
 	 */
-	public ArrayList<Libro> buscarLibrosAutor(String cadenaAutor)
+	public int[] darHistogramaCalificaciones(double minimo, double maximo, int intervalos)
 	{
-		ArrayList<Libro> librosAutor = new ArrayList<Libro>();
-
-		for (int i = 0; i < categorias.length; i++)
+		int[] histograma = new int[intervalos];
+		for (Categoria categoria : categorias)
 		{
-			ArrayList<Libro> librosCategoria = categorias[i].buscarLibrosDeAutor(cadenaAutor);
-			if (!librosCategoria.isEmpty())
-			{
-				librosAutor.addAll(librosCategoria);
-			}
+			categoria.darCalificaciones().contarEnHistograma(histograma, minimo, maximo);
 		}
-
-		return librosAutor;
+		return histograma;
 	}
 
 	/**
-	 * Busca en qué categorías hay libros del autor indicado.
+	 * Busca los libros del catálogo con mejor calificación. Los libros salen de los índices de calificaciones de las categorías, sin ordenar el catálogo.
 	 * 
-	 * Este método busca libros cuyo autor coincida exactamente con el valor indicado en el parámetro nombreAutor.
+	 * @param cantidad La cantidad de libros
+	 * @return Una lista con a lo sumo esa cantidad de libros, de la mejor a la peor calificación. Los empates quedan en el orden de las categorías.
+	 */
+	public ArrayList<Libro> darMejoresLibros(int cantidad)
+	{
+		return IndiceCalificaciones.darMejores(categorias.darIndicesCalificaciones(), cantidad);
+	}
+
+	/**
+	 * Busca los libros de una categoría con mejor calificación
 	 * 
-	 * @param nombreAutor El nombre del autor
-	 * @return Una lista con las categorías en las cuales hay al menos un libro del autor indicado. Si no hay un libro del autor en ninguna categoría, retorna una lista vacía.
+	 * @param nombreCategoria El nombre de la categoría
+	 * @param cantidad        La cantidad de libros
+	 * @return Una lista con a lo sumo esa cantidad de libros, de la mejor a la peor calificación. Si la categoría no existe, la lista es vacía.
 	 */
-	public ArrayList<Categoria> buscarCategoriasAutor(String nombreAutor)
+	public ArrayList<Libro> darMejoresLibros(String nombreCategoria, int cantidad)
 	{
-		ArrayList<Categoria> resultado = new ArrayList<Categoria>();
+		Categoria categoria = categorias.buscar(nombreCategoria);
+		return categoria == null ? new ArrayList<Libro>() : categoria.darIndiceCalificaciones().darMejores(cantidad);
+	}
 
-		for (int i = 0; i < categorias.length; i++)
-		{
-			if (categorias[i].hayLibroDeAutor(nombreAutor))
-			{
-				resultado.add(categorias[i]);
-			}
-		}
+	/**
+	 * Busca los libros del catálogo con peor calificación
+	 * 
+	 * @param cantidad La cantidad de libros
+	 * @return Una lista con a lo sumo esa cantidad de libros, de la peor a la mejor calificación
+	 */
+	public ArrayList<Libro> darPeoresLibros(int cantidad)
+	{
+		return IndiceCalificaciones.darPeores(categorias.darIndicesCalificaciones(), cantidad);
+	}
 
-		return resultado;
+	/**
+	 * Busca los libros de una categoría con peor calificación
+	 * 
+	 * @param nombreCategoria El nombre de la categoría
+	 * @param cantidad        La cantidad de libros
+	 * @return Una lista con a lo sumo esa cantidad de libros, de la peor a la mejor calificación. Si la categoría no existe, la lista es vacía.
+	 */
+	public ArrayList<Libro> darPeoresLibros(String nombreCategoria, int cantidad)
+	{
+		Categoria categoria = categorias.buscar(nombreCategoria);
+		return categoria == null ? new ArrayList<Libro>() : categoria.darIndiceCalificaciones().darPeores(cantidad);
 	}
 
 	/**
-	 * Calcula la calificación promedio calculada entre todos los libros del catálogo
+	 * Busca los libros del catálogo con una calificación dentro de un rango
 	 * 
-	 * @return Calificación promedio del catálogo
+	 * @param minima La menor calificación aceptada
+	 * @param maxima La mayor calificación aceptada
+	 * @return Una lista con los libros encontrados, de la mejor a la peor calificación
 	 */
-	public double calificacionPromedio()
+	public ArrayList<Libro> buscarLibrosPorCalificacion(double minima, double maxima)
 	{
-		double total = 0;
+		return IndiceCalificaciones.buscarEnRango(categorias.darIndicesCalificaciones(), minima, maxima);
+	}
 
-		for (Libro libro : catalogo)
+	/**
+	 * Busca la posición de un libro entre todos los libros del catálogo, ordenados de la mejor a la peor calificación. Los empates se ordenan como en darMejoresLibros.
+	 * 
+	 * @param libro Un libro del catálogo
+	 * @return La posición del libro, empezando en 0 para el libro con mejor calificación
+	 */
+	public int darPosicionPorCalificacion(Libro libro)
+	{
+		double calificacion = libro.darCalificacion();
+		int posicion = 0;
+		for (Categoria categoria : categorias)
 		{
-			total += libro.darCalificacion();
+			IndiceCalificaciones indice = categoria.darIndiceCalificaciones();
+			if (categoria == libro.darCategoria())
+				posicion += indice.darPosicion(libro);
+			else if (categoria.darOrdinal() < libro.darCategoria().darOrdinal())
+				posicion += indice.contarMejores(Math.nextDown(calificacion));
+			else
+				posicion += indice.contarMejores(calificacion);
 		}
+		return posicion;
+	}
 
-		return total / (double) catalogo.size();
+	/**
+	 * Calcula el percentil de una calificación: el porcentaje de libros del catálogo que tienen esa calificación o una menor
+	 * 
+	 * @param calificacion La calificación
+	 * @return El percentil, entre 0 y 100. Si no hay libros, retorna 0.
+	 */
+	public double calcularPercentil(double calificacion)
+	{
+		int total = categorias.darAcumulado().darCantidad();
+		if (total == 0)
+			return 0;
+		return 100.0 * IndiceCalificaciones.contarEnRango(categorias.darIndicesCalificaciones(), Double.NEGATIVE_INFINITY, calificacion) / total;
 	}
 
 	/**
 	 * Busca cuál es la categoría que tiene más libros
 	 * 
-	 * @return La categoría con más libros. Si hay empate, retorna cualquiera de las que estén empatadas en el primer lugar. Si no hay ningún libro, retorna null.
+	 * @return La categoría con más libros. Si hay empate, retorna la primera de las que estén empatadas en el primer lugar. Si no hay ninguna categoría, retorna null.
 	 */
 	public Categoria categoriaConMasLibros()
 	{
-		int mayorCantidad = -1;
-		Categoria categoriaGanadora = null;
-
-		for (int i = 0; i < categorias.length; i++)
-		{
-			Categoria cat = categorias[i];
-			if (cat.contarLibrosEnCategoria() > mayorCantidad)
-			{
-				mayorCantidad = cat.contarLibrosEnCategoria();
-				categoriaGanadora = cat;
-			}
-		}
-		return categoriaGanadora;
+		return categorias.darCategoriaConMasLibros();
 	}
 
 	/**
 	 * Busca cuál es la categoría cuyos libros tienen el mayor promedio en su calificación
 	 * 
-	 * @return Categoría con los mejores libros
+	 * @return Categoría con los mejores libros. Si hay empate, retorna la primera de las empatadas. Si ninguna categoría tiene libros, retorna null.
 	 */
 	public Categoria categoriaConMejoresLibros()
 	{
-		double mejorPromedio = -1;
-		Categoria categoriaGanadora = null;
-
-		for (int i = 0; i < categorias.length; i++)
-		{
-			Categoria cat = categorias[i];
-			double promedioCat = cat.calificacionPromedio();
-			if (promedioCat > mejorPromedio)
-			{
-				mejorPromedio = promedioCat;
-				categoriaGanadora = cat;
-			}
-		}
-		return categoriaGanadora;
+		return categorias.darCategoriaConMejorPromedio();
 	}
 
 	/**
@@ -369,15 +1217,7 @@ public class Libreria
 	 */
 	public int contarLibrosSinPortada()
 	{
-		int cantidad = 0;
-		for (Libro libro : catalogo)
-		{
-			if (!libro.tienePortada())
-			{
-				cantidad++;
-			}
-		}
-		return cantidad;
+		return categorias.darAcumulado().darSinPortada();
 	}
 
 	/**
@@ -387,33 +1227,88 @@ public class Libreria
 	 */
 	public boolean hayAutorEnVariasCategorias()
 	{
-		boolean hayAutorEnVariasCategorias = false;
+		return indiceAutores.hayAutorEnVariasCategorias();
+	}
 
-		HashMap<String, HashSet<String>> categoriasAutores = new HashMap<>();
+	/**
+	 * Busca los autores que tienen libros en más de una categoría
+	 * 
+	 * @return Un mapa con las categorías en las que tiene libros cada uno de esos autores, en el orden en el que aparecieron los autores en el catálogo. Si no hay ninguno, el mapa es vacío.
+	 */
+	public LinkedHashMap<String, ArrayList<Categoria>> darAutoresEnVariasCategorias()
+	{
+		return indiceAutores.buscarAutoresEnVariasCategorias(categorias.darArreglo());
+	}
 
-		for (int i = 0; i < catalogo.size() && !hayAutorEnVariasCategorias; i++)
-		{
-			Libro libro = catalogo.get(i);
-			String autor = libro.darAutor();
-			String nombreCategoria = libro.darCategoria().darNombre();
+	/**
+	 * Retorna la bitácora en la que se registran los cambios de la librería
+	 * 
+	 * @return La bitácora, o null si la librería no se construyó con cargar
+	 */
+	public BitacoraCambios darBitacora()
+	{
+		return bitacora;
+	}
 
-			if (!categoriasAutores.containsKey(autor))
-			{
-				HashSet<String> categoriasAutor = new HashSet<String>();
-				categoriasAutor.add(nombreCategoria);
-				categoriasAutores.put(autor, categoriasAutor);
-			} else
-			{
-				HashSet<String> categoriasAutor = categoriasAutores.get(autor);
-				if (!categoriasAutor.contains(nombreCategoria))
-				{
-					categoriasAutor.add(nombreCategoria);
-					hayAutorEnVariasCategorias = true;
-				}
-			}
+	/**
+	 * Compacta la bitácora en otro hilo: los archivos CSV se reemplazan por el contenido actual de la librería y de la bitácora se quitan los cambios que ya quedan incluidos en ellos. Si la librería
+	 * no tiene bitácora, o ya se está compactando, no hace nada.
+	 */
+	public void compactarBitacora()
+	{
+		if (bitacora != null)
+			bitacora.compactar(tomarFoto());
+	}
+
+	/**
+	 * Espera a que queden en el disco todos los cambios que se han hecho a la librería: los registros pendientes de la bitácora, o los archivos CSV pendientes del escritor
+	 * 
+	 * @throws IOException Se lanza esta excepción si hubo algún problema escribiendo la bitácora o los archivos
+	 */
+	public void esperarEscrituras() throws IOException
+	{
+		if (bitacora != null)
+			bitacora.sincronizar();
+		if (escritor != null)
+			escritor.esperar();
+	}
+
+	/**
+	 * Guarda en el disco los cambios pendientes y cierra la bitácora y el escritor. Después de llamar este método la librería ya no se debe modificar.
+	 * 
+	 * @throws IOException Se lanza esta excepción si hubo algún problema escribiendo la bitácora o los archivos
+	 */
+	public void cerrar() throws IOException
+	{
+		try
+		{
+			if (bitacora != null)
+				bitacora.close();
+		}
+		finally
+		{
+			if (escritor != null)
+				escritor.close();
 		}
+	}
+
+	/**
+	 * Compacta la bitácora si ya pasó de su límite
+	 */
+	private void revisarBitacora()
+	{
+		if (bitacora.debeCompactar())
+			compactarBitacora();
+	}
 
-		return hayAutorEnVariasCategorias;
+	/**
+	 * Copia los valores de las categorías y los libros, para escribirlos en los archivos CSV o compararlos con ellos en otro hilo. Se debe invocar desde el hilo dueño de la librería.
+	 * 
+	 * @return La foto del catálogo actual
+	 */
+	public FotoCatalogo tomarFoto()
+	{
+		return new FotoCatalogo(categorias.darArreglo(), catalogo);
 	}
 
 	public String nuevasCategorias() throws IOException
@@ -436,117 +1331,114 @@ public class Libreria
 		return resultado;
 	}
 
+	/**
+	 * Actualiza el archivo de categorías. El archivo se escribe en el hilo del escritor, así que puede no estar escrito cuando este método termina: esperarEscrituras espera a que lo esté.
+	 * 
+	 * Si la librería tiene una bitácora, en lugar de escribir sólo ese archivo se compacta la bitácora, para que los dos archivos queden de acuerdo con los nombres que tienen ahora las categorías.
+	 * 
+	 * @throws IOException Se lanza esta excepción si falló una escritura anterior
+	 */
 	public void actualizarCSV() throws IOException
 	{
-		String dataDirectory = System.getProperty("user.dir") + "/data";
-		File csvfile = new File(dataDirectory + "/categorias.csv");
-		csvfile.createNewFile();
-
-		FileWriter writeCSV = new FileWriter(csvfile);
-
-		String primeraLineaString = "Categoria,ficcion";
-
-		writeCSV.write(primeraLineaString + "\n"); // Se agrega la primera línea
-
-		for (Categoria categoria : categorias)
+		if (bitacora != null)
 		{
-			String nombre = categoria.darNombre();
-			String esFiccion = Boolean.toString(categoria.esFiccion());
-
-			String nuevaLinea = nombre + "," + esFiccion;
-			writeCSV.write(nuevaLinea + "\n");
+			if (bitacora.darCantidadRegistros() > 0 || !nombreLibroCategoriaNueva.isEmpty())
+				compactarBitacora();
+			return;
 		}
-		writeCSV.close();
+
+		darEscritor().programarCategorias(new FotoCatalogo(categorias.darArreglo()));
 	}
 	
 	
 	/**
-	 * Actualiza el CSV con los libros.
-	 * @throws IOException
+	 * Pide escribir el archivo de libros en el hilo del escritor
+	 * 
+	 * @throws IOException Se lanza esta excepción si falló una escritura anterior
 	 */
 	private void actualizarLibrosCSV() throws IOException
 	{
+		darEscritor().programarLibros(tomarFoto());
+	}
 
-		File csvfile = new File(System.getProperty("user.dir") + "/data/libreria.csv");
-		csvfile.createNewFile();
-
-		FileWriter writeCSV = new FileWriter(csvfile);
-
-		String primeraLineaString = "Titulo,Autor,Calificacion,Categoria,Portada,Ancho,Alto";
-
-		writeCSV.write(primeraLineaString + "\n"); // Se agrega la primera línea
-
-		for (Libro l : this.catalogo)
+	/**
+	 * Retorna el escritor de los archivos de la carpeta data. Se crea la primera vez que se usa.
+	 */
+	private EscritorCatalogo darEscritor()
+	{
+		if (escritor == null)
 		{
-			String titulo = l.darTitulo();
-
-			String autor = l.darAutor();
-
-			double calificacion = l.darCalificacion();
-
-			Categoria categoria = l.darCategoria();
-
-			Imagen delLibro = l.darPortada();
-
-			String portada = delLibro.darRutaArchivo();
-
-			int ancho = delLibro.darAncho();
-
-			int alto = delLibro.darAlto();
-
-			String nuevaLinea = titulo + "," + autor + "," + calificacion + "," + categoria + "," + portada + "," + ancho + "," + alto;
-			writeCSV.write(nuevaLinea + "\n");
+			String dataDirectory = System.getProperty("user.dir") + "/data";
+			escritor = new EscritorCatalogo(dataDirectory + "/categorias.csv", dataDirectory + "/libreria.csv");
 		}
-		writeCSV.close();
-
+		return escritor;
 	}
 
 	public void cambiarCategoria(String nombreCategoria, String nuevoNombre) throws Exception
 	{
-		Boolean centinela = false;
-		for (int i = 0; i < categorias.length; i++)
+		if (nuevoNombre == null || nuevoNombre.trim().isEmpty())
+		{
+			throw new Exception("Ingrese el nuevo nombre de la categoría");
+		}
+		if (categorias.buscar(nuevoNombre) != null)
 		{ // Se confirma si el nuevo nombre de la categoría ya existe.
-			Categoria categoria = categorias[i];
-			if (nuevoNombre.equals(categoria.darNombre()))
-			{
-				throw new Exception("Ya existe esta categoría"); // Si ya existe lanza el error.
-			}
+			throw new Exception("Ya existe esta categoría"); // Si ya existe lanza el error.
 		}
 
-		for (int j = 0; j < categorias.length; j++)
-		{ // Si no existe, lo cambia.
-			Categoria laCategoria = categorias[j];
-			if (nombreCategoria.equals(laCategoria.darNombre()))
-			{
-				laCategoria.cambiarNombre(nuevoNombre);
-				System.out.println(laCategoria.darNombre());
-				actualizarCSV();
-				centinela = true;
-			}
+		Categoria laCategoria = categorias.buscar(nombreCategoria);
+		if (laCategoria == null)
+		{
+			throw new Exception("La categoría ingresada no existe");
+		}
+
+		if (bitacora != null)
+		{
+			bitacora.registrarRenombre(laCategoria.darNombre(), nuevoNombre);
+			renombrarCategoria(laCategoria, nuevoNombre);
+			publicarVersion();
+			revisarBitacora();
 		}
-		if (centinela == false)
+		else
 		{
-			throw new Exception("La categoría ingresada no existe"); // Si ya existe lanza el error.
+			renombrarCategoria(laCategoria, nuevoNombre);
+			publicarVersion();
+			actualizarCSV();
 		}
+	}
 
+	private void renombrarCategoria(Categoria laCategoria, String nuevoNombre)
+	{
+		String nombreAnterior = laCategoria.darNombre();
+		categorias.renombrar(laCategoria, nuevoNombre);
+		if (sugerencias != null)
+			sugerencias.categoriaRenombrada(nombreAnterior, laCategoria);
+		cache.categoriaCambiada(laCategoria);
+		cache.nombresCambiados();
 	}
 
+	/**
+	 * Elimina de la librería todos los libros de los autores indicados, siempre que todos los autores existan, y actualiza el archivo de libros (o registra el cambio en la bitácora, si la librería
+	 * tiene una).
+	 * 
+	 * Los libros se marcan en un conjunto por identidad y se retiran del catálogo, de sus categorías y de los índices recorriendo cada lista una sola vez, así que eliminar muchos libros cuesta lo
+	 * mismo que recorrer el catálogo. Un libro que corresponda a varios de los autores indicados sólo se cuenta una vez.
+	 * 
+	 * @param autores Los nombres de los autores separados por comas. Cada nombre puede estar incompleto, igual que en buscarLibrosAutor.
+	 * @throws Exception Siempre lanza una excepción con el mensaje que se le debe mostrar al usuario: cuántos libros se eliminaron, o cuáles autores no existen y cuáles libros no se eliminaron
+	 */
 	public void eliminarLibros(String autores) throws Exception
 	{
 		if (autores.length()!=0)
 		{
 			String[] separadoStrings = autores.split(",");
 
-			ArrayList<Libro> librosPorEliminar = new ArrayList<Libro>();
+			Set<Libro> retirados = Collections.newSetFromMap(new IdentityHashMap<Libro, Boolean>());
 
-			ArrayList<String> autoresNoExisten = new ArrayList<>();
+			ArrayList<Libro> librosEncontrados = new ArrayList<Libro>();
 
+			ArrayList<String> autoresExisten = new ArrayList<String>();
 
-			String autoresExistenString = "\nLos autores que sí existen son:\n";
-
-			String librosExisten = "\nLos libros que no se pudieron eliminar son:\n";
-
-			boolean existenTodos = true;
+			ArrayList<String> autoresNoExisten = new ArrayList<String>();
 
 			for (String autor : separadoStrings)
 			{
@@ -554,51 +1446,60 @@ public class Libreria
 
 				if (librosDelAutor.size() == 0) // No existe el autor
 				{
-					existenTodos = false;
 					autoresNoExisten.add(autor);
-
 				} else
 				{
-					autoresExistenString += "- " + autor + "\n";
-					for (Libro l : librosDelAutor)
-					{
-						librosPorEliminar.add(l);
-						librosExisten += "- " + l.toString() + "\n";
-					}
+					autoresExisten.add(autor);
+					librosEncontrados.addAll(librosDelAutor);
+					retirados.addAll(librosDelAutor);
 				}
 			}
 
-			if (existenTodos == false)
+			if (!autoresNoExisten.isEmpty())
 			{
-				String mensaje = "Autores que no existen: \n";
-
+				// Si falta algún autor no se elimina nada, y el mensaje dice qué libros se habrían eliminado
+				StringBuilder mensaje = new StringBuilder("Autores que no existen: \n");
 				for (String autor : autoresNoExisten)
 				{
-					mensaje += "- " + autor + "\n"; // Se agregan los autores que no existen
+					mensaje.append("- ").append(autor).append('\n');
 				}
 
-				mensaje += autoresExistenString; // autores que sí existen
+				mensaje.append("\nLos autores que sí existen son:\n");
+				for (String autor : autoresExisten)
+				{
+					mensaje.append("- ").append(autor).append('\n');
+				}
 
-				mensaje += librosExisten; // Libros que no se borraron
+				mensaje.append("\nLos libros que no se pudieron eliminar son:\n");
+				for (Libro l : librosEncontrados)
+				{
+					mensaje.append("- ").append(l).append('\n');
+				}
 
-				throw new Exception(mensaje);
+				throw new Exception(mensaje.toString());
 			} else
 			{
-
-				for (Libro l : librosPorEliminar)
+				if (bitacora != null)
+				{
+					bitacora.registrarEliminados(retirados);
+					retirarLibros(retirados);
+					publicarVersion();
+					revisarBitacora();
+				}
+				else
 				{
-					this.catalogo.remove(l);
+					retirarLibros(retirados);
+					publicarVersion();
+					actualizarLibrosCSV();
 				}
-				
-				actualizarLibrosCSV();
-				throw new Exception("¡Se eliminarion " + librosPorEliminar.size() + " libros!");
+				throw new Exception("¡Se eliminarion " + retirados.size() + " libros!");
 			}
 		}
 		else
 		{
 			throw new Exception("Ingrese el nombre de al menos un autor!");
 		}
-		
+
 	}
 
 }
@@ -1,10 +1,32 @@
 package uniandes.dpoo.taller1.modelo;
 
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Esta clase agrupa la información sobre un libro disponible en la librería
  */
 public class Libro
 {
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * La imagen que se usa como portada de los libros que no tienen una. Como Imagen no se puede modificar, todos los libros comparten la misma.
+	 */
+	private static final Imagen SIN_PORTADA = new Imagen("./imagenes/missing.png", 85, 85);
+
+	/**
+	 * Contador con el que se numeran los libros en el orden en el que entran a sus categorías
+	 */
+	private static final AtomicLong SECUENCIAS = new AtomicLong();
+
+	/**
+	 * Orden de los libros por la posición de su categoría en la librería, y dentro de cada categoría en el orden en el que entraron a ella. Es el orden en el que quedan los libros si se recorren las
+	 * categorías una por una.
+	 */
+	static final Comparator<Libro> ORDEN_CATEGORIAS = Comparator.comparingInt((Libro libro) -> libro.darCategoria().darOrdinal()).thenComparingLong(Libro::darSecuencia);
 
 	// ************************************************************************
 	// Atributos
@@ -35,6 +57,21 @@ public class Libro
 	 */
 	private Imagen portada;
 
+	/**
+	 * La portada que indica el archivo de libros, aunque el archivo de la imagen no exista. Permite volver a averiguar más adelante si existe.
+	 */
+	private Imagen portadaArchivo;
+
+	/**
+	 * Número que indica el orden en el que el libro entró a su categoría, con respecto a los demás libros
+	 */
+	private long secuencia;
+
+	/**
+	 * Posición de la calificación del libro dentro de la columna de calificaciones de su categoría
+	 */
+	int posicionColumna;
+
 	// ************************************************************************
 	// Constructores
 	// ************************************************************************
@@ -60,9 +97,30 @@ public class Libro
 		calificacion = laCalificacion;
 		portada = null;
 		categoria = laCategoria;
+		secuencia = SECUENCIAS.getAndIncrement();
 		categoria.agregarLibro(this);
 	}
 
+	/**
+	 * Construye un libro que no se agrega a su categoría. Lo usa CatalogoEnDisco para los libros que lee del archivo en cada consulta: la categoría no los conoce, así que no se quedan en memoria ni
+	 * cambian sus totales.
+	 *
+	 * @param elTitulo       Título del libro
+	 * @param elAutor        Autor o autores del libro
+	 * @param laCalificacion Calificación del libro
+	 * @param laCategoria    Categoría a la que pertenece el libro
+	 * @param laPortada      Portada del libro, o null si no tiene
+	 */
+	Libro(String elTitulo, String elAutor, double laCalificacion, Categoria laCategoria, Imagen laPortada)
+	{
+		titulo = elTitulo;
+		autor = elAutor;
+		calificacion = laCalificacion;
+		portada = laPortada;
+		categoria = laCategoria;
+		secuencia = SECUENCIAS.getAndIncrement();
+	}
+
 	// ************************************************************************
 	// Métodos para consultar los atributos
 	// ************************************************************************
@@ -120,12 +178,32 @@ public class Libro
 		Imagen laPortada = portada;
 		if (laPortada == null)
 		{
-			laPortada = new Imagen("./imagenes/missing.png", 85, 85);
+			laPortada = SIN_PORTADA;
 		}
 
 		return laPortada;
 	}
 
+	/**
+	 * Consulta la portada que indica el archivo de libros, aunque el archivo de la imagen no exista
+	 * 
+	 * @return La portada del archivo de libros, o null si no se conoce
+	 */
+	Imagen darPortadaArchivo()
+	{
+		return portada != null ? portada : portadaArchivo;
+	}
+
+	/**
+	 * Consulta el número que indica el orden en el que el libro entró a su categoría. Sirve para ordenar libros de la misma categoría sin buscarlos en la lista de la categoría.
+	 * 
+	 * @return secuencia
+	 */
+	long darSecuencia()
+	{
+		return secuencia;
+	}
+
 	// ************************************************************************
 	// Otros métodos
 	// ************************************************************************
@@ -137,7 +215,59 @@ public class Libro
 	 */
 	public void cambiarPortada(Imagen nuevaPortada)
 	{
+		boolean teniaPortada = portada != null;
 		this.portada = nuevaPortada;
+		if (teniaPortada != (nuevaPortada != null))
+			categoria.libroCambiado(calificacion, teniaPortada, this);
+		else
+			categoria.libroModificado();
+	}
+
+	/**
+	 * Registra la portada que indica el archivo de libros. El libro sólo queda con esa portada si el archivo de la imagen existe.
+	 * 
+	 * @param laPortada La portada que indica el archivo de libros
+	 * @param existe    Indica si existe el archivo de la imagen
+	 */
+	void registrarPortada(Imagen laPortada, boolean existe)
+	{
+		portadaArchivo = laPortada;
+		if (existe || portada != null)
+			cambiarPortada(existe ? laPortada : null);
+	}
+
+	/**
+	 * Actualiza la información del libro. Si cambia la categoría, el libro se retira de la categoría anterior y se agrega al final de la nueva.
+	 * 
+	 * @param elAutor        Autor o autores del libro
+	 * @param laCalificacion Calificación del libro
+	 * @param laCategoria    Categoría a la que pertenece ahora el libro
+	 */
+	void actualizar(String elAutor, double laCalificacion, Categoria laCategoria)
+	{
+		if (laCategoria != categoria)
+		{
+			categoria.retirarLibro(this);
+			autor = elAutor;
+			calificacion = laCalificacion;
+			categoria = laCategoria;
+			secuencia = SECUENCIAS.getAndIncrement();
+			categoria.agregarLibro(this);
+		}
+		else
+		{
+			if (!elAutor.equals(autor))
+			{
+				categoria.cambiarAutor(autor, elAutor);
+				autor = elAutor;
+			}
+			if (Double.compare(laCalificacion, calificacion) != 0)
+			{
+				double anterior = calificacion;
+				calificacion = laCalificacion;
+				categoria.libroCambiado(anterior, tienePortada(), this);
+			}
+		}
 	}
 
 	/**
@@ -160,9 +290,21 @@ public class Libro
 	@Override
 	public boolean equals(Object obj)
 	{
+		if (!(obj instanceof Libro))
+			return false;
+
 		Libro otroLibro = (Libro) obj;
 				
 		return this.titulo.equals(otroLibro.titulo);
 	}
+
+	/**
+	 * Como dos libros son iguales cuando tienen el mismo título, el código de hash es el del título
+	 */
+	@Override
+	public int hashCode()
+	{
+		return titulo.hashCode();
+	}
 	
 }
@@ -0,0 +1,31 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.util.Arrays;
+
+/**
+ * Lista de enteros que crece según se necesite, sin convertir los enteros en objetos. Los índices la usan para guardar listas de identificadores.
+ */
+final class ListaEnteros
+{
+	/**
+	 * Los enteros. Sólo las primeras posiciones (tantas como indique cantidad) son válidas.
+	 */
+	int[] datos = new int[4];
+
+	/**
+	 * Cantidad de enteros en la lista
+	 */
+	int cantidad;
+
+	/**
+	 * Agrega un entero al final de la lista
+	 *
+	 * @param valor El entero
+	 */
+	void agregar(int valor)
+	{
+		if (cantidad == datos.length)
+			datos = Arrays.copyOf(datos, cantidad * 2);
+		datos[cantidad++] = valor;
+	}
+}
@@ -0,0 +1,14 @@
+package uniandes.dpoo.taller1.modelo;
+
+/**
+ * Esta interfaz la implementan los objetos que quieren enterarse de que otro proceso modificó los archivos de una librería.
+ *
+ * El método se invoca desde el hilo de un VigilanteCatalogo, no desde el hilo dueño de la librería.
+ */
+public interface ObservadorArchivos
+{
+	/**
+	 * Se invoca cuando cambió el archivo de categorías o el de libros y ya pasó un momento sin que volvieran a cambiar
+	 */
+	void archivosModificados();
+}
@@ -0,0 +1,33 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.util.List;
+
+/**
+ * Esta interfaz la implementan los objetos que quieren enterarse del avance de la carga de una librería mientras ésta se lee, por ejemplo para mostrar los libros a medida que van apareciendo.
+ *
+ * Los métodos se invocan desde el hilo que está cargando la librería.
+ */
+public interface ObservadorCarga
+{
+	/**
+	 * Se invoca una vez, apenas se terminan de leer las categorías y antes de empezar a leer los libros
+	 *
+	 * @param categorias Las categorías leídas del archivo de categorías
+	 */
+	void categoriasCargadas(Categoria[] categorias);
+
+	/**
+	 * Se invoca cada vez que se termina de leer un lote de libros. Los libros del lote ya tienen su portada, si la tienen.
+	 *
+	 * @param lote     Los libros del lote, en el orden del archivo. Puede haber libros de categorías que no estaban en el archivo de categorías.
+	 * @param progreso Fracción aproximada del archivo de libros que ya se leyó, entre 0 y 1
+	 */
+	void librosCargados(List<Libro> lote, double progreso);
+
+	/**
+	 * Permite saber si se debe interrumpir la carga. Se consulta después de cada lote.
+	 *
+	 * @return Retorna true si la carga se debe cancelar. Retorna false en caso contrario.
+	 */
+	boolean cancelado();
+}
@@ -0,0 +1,278 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Esta clase ordena parejas (llave, valor) que pueden no caber en memoria. Las parejas se ordenan por llave y, si la llave se repite, por valor.
+ *
+ * Las parejas se acumulan en lotes de TAMANO_LOTE; cada lote lleno se ordena y se escribe en un archivo temporal. Al final se mezclan todos los archivos leyéndolos a la vez, así que en memoria sólo
+ * hay un lote y una pareja por archivo.
+ */
+class OrdenadorExterno implements Closeable
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * La cantidad de parejas que se ordenan en memoria antes de pasarlas a un archivo temporal
+	 */
+	static final int TAMANO_LOTE = 100000;
+
+	private static final int TAMANO_BUFFER = 1 << 16;
+
+	private static final Comparator<Pareja> ORDEN = Comparator.comparing((Pareja pareja) -> pareja.llave).thenComparingLong(pareja -> pareja.valor);
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * La carpeta donde se crean los archivos temporales
+	 */
+	private Path carpeta;
+
+	private String prefijo;
+
+	private ArrayList<Pareja> lote;
+
+	/**
+	 * Los archivos temporales con los lotes ya ordenados
+	 */
+	private ArrayList<Path> tramos;
+
+	/**
+	 * Los archivos temporales que se están leyendo durante la mezcla
+	 */
+	private ArrayList<DataInputStream> abiertos;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye un ordenador vacío
+	 *
+	 * @param carpeta La carpeta donde se crean los archivos temporales
+	 * @param prefijo El prefijo del nombre de los archivos temporales
+	 */
+	OrdenadorExterno(Path carpeta, String prefijo)
+	{
+		this.carpeta = carpeta;
+		this.prefijo = prefijo;
+		this.lote = new ArrayList<Pareja>();
+		this.tramos = new ArrayList<Path>();
+		this.abiertos = new ArrayList<DataInputStream>();
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Agrega una pareja
+	 *
+	 * @param llave La llave. Debe ocupar menos de 65535 bytes.
+	 * @param valor El valor
+	 * @throws IOException Se lanza esta excepción si hay algún problema escribiendo el archivo temporal del lote
+	 */
+	void agregar(String llave, long valor) throws IOException
+	{
+		lote.add(new Pareja(llave, valor));
+		if (lote.size() == TAMANO_LOTE)
+			escribirLote();
+	}
+
+	/**
+	 * Ordena las parejas agregadas y permite recorrerlas en orden. Después de llamar este método no se pueden agregar más parejas.
+	 *
+	 * @return Un recorrido que está antes de la primera pareja
+	 * @throws IOException Se lanza esta excepción si hay algún problema con los archivos temporales
+	 */
+	Recorrido ordenar() throws IOException
+	{
+		if (tramos.isEmpty())
+		{
+			lote.sort(ORDEN);
+			return new RecorridoLote(lote);
+		}
+
+		escribirLote();
+		PriorityQueue<Tramo> cola = new PriorityQueue<Tramo>(Comparator.comparing((Tramo tramo) -> tramo.actual, ORDEN));
+		for (Path archivo : tramos)
+		{
+			DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(archivo), TAMANO_BUFFER));
+			abiertos.add(entrada);
+			Tramo tramo = new Tramo(entrada);
+			if (tramo.avanzar())
+				cola.add(tramo);
+		}
+		return new RecorridoMezcla(cola);
+	}
+
+	/**
+	 * Ordena el lote actual y lo escribe en un archivo temporal nuevo
+	 */
+	private void escribirLote() throws IOException
+	{
+		lote.sort(ORDEN);
+		Path archivo = Files.createTempFile(carpeta, prefijo, ".tramo");
+		tramos.add(archivo);
+		try (DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archivo), TAMANO_BUFFER)))
+		{
+			for (Pareja pareja : lote)
+			{
+				salida.writeUTF(pareja.llave);
+				salida.writeLong(pareja.valor);
+			}
+		}
+		lote.clear();
+	}
+
+	/**
+	 * Cierra y borra los archivos temporales
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		for (DataInputStream entrada : abiertos)
+		{
+			entrada.close();
+		}
+		abiertos.clear();
+		for (Path archivo : tramos)
+		{
+			Files.deleteIfExists(archivo);
+		}
+		tramos.clear();
+		lote = new ArrayList<Pareja>();
+	}
+
+	// ************************************************************************
+	// Clases internas
+	// ************************************************************************
+
+	private static final class Pareja
+	{
+		private final String llave;
+
+		private final long valor;
+
+		private Pareja(String llave, long valor)
+		{
+			this.llave = llave;
+			this.valor = valor;
+		}
+	}
+
+	/**
+	 * Un archivo temporal durante la mezcla, con la pareja que sigue
+	 */
+	private static final class Tramo
+	{
+		private final DataInputStream entrada;
+
+		private Pareja actual;
+
+		private Tramo(DataInputStream entrada)
+		{
+			this.entrada = entrada;
+		}
+
+		private boolean avanzar() throws IOException
+		{
+			try
+			{
+				String llave = entrada.readUTF();
+				actual = new Pareja(llave, entrada.readLong());
+				return true;
+			}
+			catch (EOFException e)
+			{
+				actual = null;
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Permite recorrer las parejas en orden, una por una
+	 */
+	abstract static class Recorrido
+	{
+		protected Pareja actual;
+
+		/**
+		 * Avanza a la siguiente pareja
+		 *
+		 * @return Retorna true si hay una pareja. Retorna false si ya se recorrieron todas.
+		 * @throws IOException Se lanza esta excepción si hay algún problema leyendo los archivos temporales
+		 */
+		abstract boolean siguiente() throws IOException;
+
+		String darLlave()
+		{
+			return actual.llave;
+		}
+
+		long darValor()
+		{
+			return actual.valor;
+		}
+	}
+
+	private static final class RecorridoLote extends Recorrido
+	{
+		private final ArrayList<Pareja> lote;
+
+		private int posicion;
+
+		private RecorridoLote(ArrayList<Pareja> lote)
+		{
+			this.lote = lote;
+		}
+
+		@Override
+		boolean siguiente()
+		{
+			actual = posicion < lote.size() ? lote.get(posicion++) : null;
+			return actual != null;
+		}
+	}
+
+	private static final class RecorridoMezcla extends Recorrido
+	{
+		private final PriorityQueue<Tramo> cola;
+
+		private RecorridoMezcla(PriorityQueue<Tramo> cola)
+		{
+			this.cola = cola;
+		}
+
+		@Override
+		boolean siguiente() throws IOException
+		{
+			Tramo tramo = cola.poll();
+			if (tramo == null)
+			{
+				actual = null;
+				return false;
+			}
+			actual = tramo.actual;
+			if (tramo.avanzar())
+				cola.add(tramo);
+			return true;
+		}
+	}
+}
@@ -0,0 +1,269 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.TreeSet;
+
+/**
+ * Esta clase guarda las categorías de la librería. Mantiene las categorías en el orden en el que se agregaron y además tiene una tabla de hash para encontrar una categoría a partir de su nombre en
+ * tiempo constante.
+ *
+ * El registro también lleva los totales de todos los libros (suma de calificaciones, cantidad, libros sin portada) y dos clasificaciones de las categorías, por cantidad de libros y por calificación
+ * promedio. Las categorías le avisan al registro cada vez que cambian sus libros, así que las consultas sobre los totales no tienen que recorrer el catálogo,
+ * y las consultas sobre las clasificaciones sólo reubican las categorías que cambiaron.
+ */
+public class RegistroCategorias implements Iterable<Categoria>
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * Orden de la clasificación por cantidad de libros: de más a menos libros, y en caso de empate en el orden del registro
+	 */
+	private static final Comparator<Categoria> POR_CANTIDAD = Comparator.comparingInt(Categoria::contarLibrosEnCategoria).reversed().thenComparingInt(Categoria::darOrdinal);
+
+	/**
+	 * Orden de la clasificación por calificación promedio: de mayor a menor promedio, y en caso de empate en el orden del registro
+	 */
+	private static final Comparator<Categoria> POR_PROMEDIO = Comparator.comparingDouble(Categoria::calificacionPromedio).reversed().thenComparingInt(Categoria::darOrdinal);
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * Las categorías en el orden en el que se agregaron
+	 */
+	private ArrayList<Categoria> categorias;
+
+	/**
+	 * Tabla con las categorías indexadas por su nombre
+	 */
+	private HashMap<String, Categoria> porNombre;
+
+	/**
+	 * Arreglo con las categorías que se entregó la última vez en darArreglo. Es null si las categorías cambiaron desde entonces.
+	 */
+	private Categoria[] arreglo;
+
+	/**
+	 * Los totales de todos los libros de todas las categorías
+	 */
+	private Acumulado acumulado;
+
+	/**
+	 * Las categorías ordenadas por cantidad de libros. Las categorías que cambian se sacan y se vuelven a poner antes de la siguiente consulta.
+	 */
+	private TreeSet<Categoria> clasificacionCantidad;
+
+	/**
+	 * Las categorías que tienen libros, ordenadas por calificación promedio
+	 */
+	private TreeSet<Categoria> clasificacionPromedio;
+
+	/**
+	 * Las categorías cuyos totales cambiaron desde la última consulta de las clasificaciones. Mientras están aquí no están en las clasificaciones: se vuelven a poner justo antes de consultarlas, así
+	 * que una categoría que recibe muchos libros seguidos (por ejemplo, durante la carga) sólo se reubica una vez.
+	 */
+	private LinkedHashSet<Categoria> pendientes;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Construye un registro vacío
+	 */
+	public RegistroCategorias()
+	{
+		this.categorias = new ArrayList<Categoria>();
+		this.porNombre = new HashMap<String, Categoria>();
+		this.acumulado = new Acumulado();
+		this.clasificacionCantidad = new TreeSet<Categoria>(POR_CANTIDAD);
+		this.clasificacionPromedio = new TreeSet<Categoria>(POR_PROMEDIO);
+		this.pendientes = new LinkedHashSet<Categoria>();
+	}
+
+	// ************************************************************************
+	// Métodos para consultar los atributos
+	// ************************************************************************
+
+	/**
+	 * Consulta la cantidad de categorías registradas
+	 *
+	 * @return Cantidad de categorías
+	 */
+	public int darCantidad()
+	{
+		return categorias.size();
+	}
+
+	/**
+	 * Retorna la categoría que está en la posición indicada
+	 *
+	 * @param posicion La posición de la categoría, según el orden en que se agregaron
+	 * @return La categoría en esa posición
+	 */
+	public Categoria darCategoria(int posicion)
+	{
+		return categorias.get(posicion);
+	}
+
+	/**
+	 * Retorna un arreglo con las categorías, en el orden en el que se agregaron. El arreglo sólo se vuelve a construir cuando cambian las categorías, así que no debe modificarse.
+	 *
+	 * @return Arreglo con las categorías
+	 */
+	public Categoria[] darArreglo()
+	{
+		if (arreglo == null)
+		{
+			arreglo = categorias.toArray(new Categoria[categorias.size()]);
+		}
+		return arreglo;
+	}
+
+	// ************************************************************************
+	// Otros métodos
+	// ************************************************************************
+
+	/**
+	 * Busca una categoría a partir de su nombre
+	 *
+	 * @param nombreCategoria El nombre de la categoría buscada
+	 * @return La categoría que tiene el nombre dado o null si no hay ninguna
+	 */
+	public Categoria buscar(String nombreCategoria)
+	{
+		return porNombre.get(nombreCategoria);
+	}
+
+	/**
+	 * Agrega una categoría al final del registro
+	 *
+	 * @param categoria La categoría que se va a agregar
+	 * @return Retorna true si se agregó la categoría. Retorna false si ya había una categoría con el mismo nombre.
+	 */
+	public boolean agregar(Categoria categoria)
+	{
+		boolean agregada = false;
+		if (!porNombre.containsKey(categoria.darNombre()))
+		{
+			porNombre.put(categoria.darNombre(), categoria);
+			categoria.registrar(this, categorias.size());
+			categorias.add(categoria);
+			acumulado.agregarTodo(categoria.darAcumulado());
+			pendientes.add(categoria);
+			arreglo = null;
+			agregada = true;
+		}
+		return agregada;
+	}
+
+	/**
+	 * Cambia el nombre de una categoría del registro y actualiza la tabla de nombres
+	 *
+	 * @param categoria   La categoría a la que se le va a cambiar el nombre
+	 * @param nuevoNombre El nuevo nombre de la categoría
+	 * @throws IllegalArgumentException Se lanza esta excepción si ya hay otra categoría con el nuevo nombre
+	 */
+	public void renombrar(Categoria categoria, String nuevoNombre)
+	{
+		Categoria existente = porNombre.get(nuevoNombre);
+		if (existente != null && existente != categoria)
+			throw new IllegalArgumentException("Ya existe la categoría " + nuevoNombre);
+
+		porNombre.remove(categoria.darNombre());
+		categoria.cambiarNombre(nuevoNombre);
+		porNombre.put(nuevoNombre, categoria);
+	}
+
+	/**
+	 * Retorna la categoría con más libros
+	 *
+	 * @return La categoría con más libros. Si hay empate, la primera del registro. Si no hay categorías, retorna null.
+	 */
+	public Categoria darCategoriaConMasLibros()
+	{
+		clasificar();
+		return clasificacionCantidad.isEmpty() ? null : clasificacionCantidad.first();
+	}
+
+	/**
+	 * Retorna la categoría cuyos libros tienen la mayor calificación promedio
+	 *
+	 * @return La categoría con mejor promedio. Si hay empate, la primera del registro. Si ninguna categoría tiene libros, retorna null.
+	 */
+	public Categoria darCategoriaConMejorPromedio()
+	{
+		clasificar();
+		return clasificacionPromedio.isEmpty() ? null : clasificacionPromedio.first();
+	}
+
+	/**
+	 * Retorna los índices de calificaciones de todas las categorías, construyendo los que no se hayan consultado antes
+	 *
+	 * @return Un arreglo con los índices, en el orden del registro
+	 */
+	IndiceCalificaciones[] darIndicesCalificaciones()
+	{
+		IndiceCalificaciones[] indices = new IndiceCalificaciones[categorias.size()];
+		for (int i = 0; i < indices.length; i++)
+		{
+			indices[i] = categorias.get(i).darIndiceCalificaciones();
+		}
+		return indices;
+	}
+
+	/**
+	 * Retorna los totales de todos los libros de todas las categorías
+	 *
+	 * @return acumulado
+	 */
+	Acumulado darAcumulado()
+	{
+		return acumulado;
+	}
+
+	/**
+	 * Saca una categoría de las clasificaciones hasta la siguiente consulta. Se invoca justo antes de que cambien sus totales, mientras su posición todavía corresponde a los totales anteriores.
+	 *
+	 * @param categoria La categoría que va a cambiar
+	 */
+	void marcarCambio(Categoria categoria)
+	{
+		if (pendientes.add(categoria))
+		{
+			clasificacionCantidad.remove(categoria);
+			clasificacionPromedio.remove(categoria);
+		}
+	}
+
+	/**
+	 * Vuelve a poner en las clasificaciones las categorías que cambiaron, según sus totales actuales
+	 */
+	private void clasificar()
+	{
+		for (Categoria categoria : pendientes)
+		{
+			clasificacionCantidad.add(categoria);
+			if (categoria.contarLibrosEnCategoria() > 0)
+				clasificacionPromedio.add(categoria);
+		}
+		pendientes.clear();
+	}
+
+	/**
+	 * Permite recorrer las categorías en el orden en el que se agregaron
+	 */
+	@Override
+	public Iterator<Categoria> iterator()
+	{
+		return categorias.iterator();
+	}
+
+}
@@ -0,0 +1,83 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RegistroCategoriasTest
+{
+	@TempDir
+	Path carpeta;
+
+	@BeforeEach
+	void setUp() throws IOException
+	{
+		// Sólo existen las portadas a, b, e y f
+		Path imagenes = Files.createDirectories(carpeta.resolve("imagenes"));
+		for (String portada : new String[] { "a.jpg", "b.jpg", "e.jpg", "f.jpg" })
+		{
+			Files.createFile(imagenes.resolve(portada));
+		}
+		CatalogoPrueba.escribirCatalogo(carpeta, "Novela,true\n" + "Poesía,false\n" + "Cuento,true\n" + "Ensayo,false\n",
+				"Rayuela,Julio Cortázar,4.5,Novela," + imagenes.resolve("a.jpg") + ",1,1\n" + "Ficciones,Jorge Luis Borges,4.9,Cuento," + imagenes.resolve("b.jpg") + ",1,1\n"
+						+ "El Aleph,Jorge Luis Borges,4.7,Cuento," + imagenes.resolve("c.jpg") + ",1,1\n" + "Veinte poemas de amor,Pablo Neruda,3.0,Poesía," + imagenes.resolve("d.jpg") + ",1,1\n"
+						+ "Canto general,Pablo Neruda,3.5,Poesía," + imagenes.resolve("e.jpg") + ",1,1\n" + "Emma,Jane Austen,4.0,Novela," + imagenes.resolve("f.jpg") + ",1,1\n"
+						+ "Persuasión,Jane Austen,0.1,Novela," + imagenes.resolve("g.jpg") + ",1,1\n");
+	}
+
+	@Test
+	void testTotalesYClasificaciones() throws Exception
+	{
+		Libreria libreria = CatalogoPrueba.cargar(carpeta);
+		Categoria novela = libreria.darCategorias()[0];
+		Categoria poesia = libreria.darCategorias()[1];
+		Categoria cuento = libreria.darCategorias()[2];
+		Categoria ensayo = libreria.darCategorias()[3];
+
+		assertEquals(24.7 / 7, libreria.calificacionPromedio(), 1e-12);
+		assertEquals(8.6 / 3, novela.calificacionPromedio(), 1e-12);
+		assertEquals(4.8, cuento.calificacionPromedio(), 1e-12);
+		assertEquals(0, ensayo.calificacionPromedio());
+		assertEquals(3, libreria.contarLibrosSinPortada());
+		assertEquals(1, novela.contarLibrosSinPortada());
+		assertSame(novela, libreria.categoriaConMasLibros());
+		assertSame(cuento, libreria.categoriaConMejoresLibros());
+
+		// Cuento queda vacía: su promedio es 0 y sale de la clasificación por promedio
+		assertThrows(Exception.class, () -> libreria.eliminarLibros("Borges"));
+		assertEquals(0, cuento.calificacionPromedio());
+		assertFalse(Double.isNaN(cuento.calificacionPromedio()));
+		assertEquals(0, cuento.contarLibrosSinPortada());
+		assertEquals(15.1 / 5, libreria.calificacionPromedio(), 1e-12);
+		assertEquals(2, libreria.contarLibrosSinPortada());
+		assertSame(poesia, libreria.categoriaConMejoresLibros());
+		assertSame(novela, libreria.categoriaConMasLibros());
+
+		// Novela queda con un solo libro, el mejor calificado
+		assertThrows(Exception.class, () -> libreria.eliminarLibros("Austen"));
+		assertSame(novela, libreria.categoriaConMejoresLibros());
+		assertSame(poesia, libreria.categoriaConMasLibros());
+		assertEquals(1, libreria.contarLibrosSinPortada());
+
+		// Cambiar el nombre no cambia los totales ni las clasificaciones
+		libreria.cambiarCategoria("Poesía", "Poemas");
+		assertEquals("Poemas", libreria.categoriaConMasLibros().darNombre());
+		assertEquals(3.25, poesia.calificacionPromedio(), 1e-12);
+		assertEquals(11.0 / 3, libreria.calificacionPromedio(), 1e-12);
+		assertEquals(1, libreria.contarLibrosSinPortada());
+
+		// Sin libros, el promedio es 0 y ninguna categoría tiene el mejor promedio
+		assertThrows(Exception.class, () -> libreria.eliminarLibros("Cortázar,Neruda"));
+		assertEquals(0, libreria.calificacionPromedio());
+		assertEquals(0, libreria.contarLibrosSinPortada());
+		assertNull(libreria.categoriaConMejoresLibros());
+		assertSame(novela, libreria.categoriaConMasLibros());
+		libreria.cerrar();
+	}
+}
@@ -0,0 +1,551 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Esta clase es una versión inmutable del catálogo de una librería: las categorías y los libros tal como estaban cuando se publicó la versión.
+ *
+ * La librería publica una versión nueva cada vez que termina de cambiar el catálogo, y cualquier hilo puede consultar la más reciente con Libreria.darVersion, que es una sola lectura de un
+ * atributo volatile. Como una versión nunca cambia, las consultas sobre ella no necesitan candados ni ven cambios a medias, aunque la librería esté cambiando al mismo tiempo.
+ *
+ * Las versiones comparten lo que no cambió: una versión nueva sólo copia las categorías que se modificaron desde la anterior (según Categoria.darModificaciones), y reutiliza las demás.
+ *
+ * Los libros de una versión son objetos FichaLibro y no Libro, porque los objetos Libro de la librería se pueden modificar.
+ */
+public final class VersionCatalogo
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	private static final Comparator<FichaLibro> ORDEN_SECUENCIA = Comparator.comparingLong(ficha -> ficha.secuencia);
+
+	private static final Comparator<FichaLibro> ORDEN_TITULOS = Comparator.comparing((FichaLibro ficha) -> ficha.titulo).thenComparing(ORDEN_SECUENCIA);
+
+	private static final Comparator<FichaLibro> ORDEN_AUTORES = Comparator.comparing((FichaLibro ficha) -> ficha.autor).thenComparing(ORDEN_SECUENCIA);
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * El número de la versión. Cada versión publicada por una librería tiene un número mayor que la anterior.
+	 */
+	private final long numero;
+
+	/**
+	 * Las categorías, en el orden del registro de categorías de la librería
+	 */
+	private final FichaCategoria[] categorias;
+
+	private final HashMap<String, FichaCategoria> porNombre;
+
+	private final int cantidadLibros;
+
+	/**
+	 * Los totales de la librería en esta versión, copiados del registro de categorías para que el promedio sea el mismo que el de la librería
+	 */
+	private final Acumulado acumulado;
+
+	/**
+	 * Todos los libros de la versión. Se arma la primera vez que se pide: si dos hilos lo piden a la vez, los dos lo arman y obtienen lo mismo.
+	 */
+	private volatile List<FichaLibro> libros;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	private VersionCatalogo(long numero, FichaCategoria[] categorias, Acumulado acumulado)
+	{
+		this.numero = numero;
+		this.categorias = categorias;
+		this.acumulado = acumulado;
+		this.porNombre = new HashMap<String, FichaCategoria>();
+		int cantidad = 0;
+		for (FichaCategoria categoria : categorias)
+		{
+			porNombre.put(categoria.nombre, categoria);
+			cantidad += categoria.fichas.length;
+		}
+		this.cantidadLibros = cantidad;
+	}
+
+	/**
+	 * Construye la versión que sigue a otra, a partir del estado actual de las categorías de una librería. Las categorías que no han cambiado desde la versión anterior se reutilizan.
+	 *
+	 * Se debe llamar desde el hilo que modifica la librería, cuando no la está modificando.
+	 *
+	 * @param anterior La versión anterior, o null si es la primera
+	 * @param registro Las categorías de la librería
+	 * @return La versión nueva, o la anterior si ninguna categoría cambió
+	 */
+	static VersionCatalogo siguiente(VersionCatalogo anterior, RegistroCategorias registro)
+	{
+		FichaCategoria[] nuevas = new FichaCategoria[registro.darCantidad()];
+		boolean igual = anterior != null && anterior.categorias.length == nuevas.length;
+		for (int i = 0; i < nuevas.length; i++)
+		{
+			Categoria categoria = registro.darCategoria(i);
+			FichaCategoria previa = anterior != null && i < anterior.categorias.length ? anterior.categorias[i] : null;
+			if (previa != null && previa.origen == categoria && previa.modificaciones == categoria.darModificaciones())
+			{
+				nuevas[i] = previa;
+			}
+			else
+			{
+				nuevas[i] = new FichaCategoria(categoria);
+				igual = false;
+			}
+		}
+		if (igual)
+			return anterior;
+		return new VersionCatalogo(anterior == null ? 1 : anterior.numero + 1, nuevas, registro.darAcumulado().copiar());
+	}
+
+	// ************************************************************************
+	// Consultas
+	// ************************************************************************
+
+	/**
+	 * Consulta el número de la versión
+	 *
+	 * @return numero
+	 */
+	public long darNumero()
+	{
+		return numero;
+	}
+
+	/**
+	 * Retorna las categorías de la versión, en el orden de la librería
+	 *
+	 * @return Una lista que no se puede modificar
+	 */
+	public List<FichaCategoria> darCategorias()
+	{
+		return Collections.unmodifiableList(Arrays.asList(categorias));
+	}
+
+	/**
+	 * Busca una categoría por su nombre
+	 *
+	 * @param nombreCategoria El nombre de la categoría
+	 * @return La categoría, o null si no existe en esta versión
+	 */
+	public FichaCategoria buscarCategoria(String nombreCategoria)
+	{
+		return porNombre.get(nombreCategoria);
+	}
+
+	/**
+	 * Consulta cuántos libros tiene la versión
+	 *
+	 * @return cantidadLibros
+	 */
+	public int contarLibros()
+	{
+		return cantidadLibros;
+	}
+
+	/**
+	 * Consulta la calificación promedio de los libros de la versión
+	 *
+	 * @return Calificación promedio, o 0 si no hay libros
+	 */
+	public double calificacionPromedio()
+	{
+		return acumulado.darPromedio();
+	}
+
+	/**
+	 * Retorna todos los libros de la versión, en el orden en el que entraron a sus categorías. Es el orden del catálogo, salvo para los libros que cambiaron de categoría al recargar los archivos.
+	 *
+	 * @return Una lista que no se puede modificar
+	 */
+	public List<FichaLibro> darLibros()
+	{
+		List<FichaLibro> todos = libros;
+		if (todos == null)
+		{
+			FichaLibro[] arreglo = new FichaLibro[cantidadLibros];
+			int siguiente = 0;
+			for (FichaCategoria categoria : categorias)
+			{
+				System.arraycopy(categoria.fichas, 0, arreglo, siguiente, categoria.fichas.length);
+				siguiente += categoria.fichas.length;
+			}
+			// Cada categoría ya está en orden, así que el ordenamiento sólo mezcla los tramos
+			Arrays.sort(arreglo, ORDEN_SECUENCIA);
+			todos = Collections.unmodifiableList(Arrays.asList(arreglo));
+			libros = todos;
+		}
+		return todos;
+	}
+
+	/**
+	 * Retorna los libros de una categoría
+	 *
+	 * @param nombreCategoria El nombre de la categoría
+	 * @return Una lista que no se puede modificar con los libros de la categoría, en el orden de la categoría. Si la categoría no existe, la lista es vacía.
+	 */
+	public List<FichaLibro> darLibros(String nombreCategoria)
+	{
+		FichaCategoria categoria = porNombre.get(nombreCategoria);
+		return categoria == null ? Collections.<FichaLibro>emptyList() : categoria.darLibros();
+	}
+
+	/**
+	 * Busca un libro a partir de su título. Si hay varios libros con ese título, retorna el que entró primero a su categoría.
+	 *
+	 * @param tituloLibro Título del libro buscado
+	 * @return Retorna un libro con el título indicado o null si no se encontró un libro con ese título
+	 */
+	public FichaLibro buscarLibro(String tituloLibro)
+	{
+		FichaLibro primero = null;
+		for (FichaCategoria categoria : categorias)
+		{
+			FichaLibro[] porTitulo = categoria.darPorTitulo();
+			int posicion = buscarInicio(porTitulo, tituloLibro, true);
+			if (posicion < porTitulo.length && porTitulo[posicion].titulo.equals(tituloLibro) && (primero == null || porTitulo[posicion].secuencia < primero.secuencia))
+				primero = porTitulo[posicion];
+		}
+		return primero;
+	}
+
+	/**
+	 * Busca todos los libros que tienen el título indicado
+	 *
+	 * @param tituloLibro Título de los libros buscados
+	 * @return Una lista que no se puede modificar con los libros que tienen ese título, en el orden en el que entraron a sus categorías
+	 */
+	public List<FichaLibro> buscarLibros(String tituloLibro)
+	{
+		ArrayList<FichaLibro> encontrados = new ArrayList<FichaLibro>();
+		for (FichaCategoria categoria : categorias)
+		{
+			FichaLibro[] porTitulo = categoria.darPorTitulo();
+			for (int i = buscarInicio(porTitulo, tituloLibro, true); i < porTitulo.length && porTitulo[i].titulo.equals(tituloLibro); i++)
+			{
+				encontrados.add(porTitulo[i]);
+			}
+		}
+		encontrados.sort(ORDEN_SECUENCIA);
+		return Collections.unmodifiableList(encontrados);
+	}
+
+	/**
+	 * Busca los libros de un autor. El nombre del autor debe ser exacto.
+	 *
+	 * @param nombreAutor El nombre del autor
+	 * @return Una lista que no se puede modificar con los libros del autor, en el orden en el que entraron a sus categorías
+	 */
+	public List<FichaLibro> darLibrosAutor(String nombreAutor)
+	{
+		ArrayList<FichaLibro> encontrados = new ArrayList<FichaLibro>();
+		for (FichaCategoria categoria : categorias)
+		{
+			FichaLibro[] porAutor = categoria.darPorAutor();
+			for (int i = buscarInicio(porAutor, nombreAutor, false); i < porAutor.length && porAutor[i].autor.equals(nombreAutor); i++)
+			{
+				encontrados.add(porAutor[i]);
+			}
+		}
+		encontrados.sort(ORDEN_SECUENCIA);
+		return Collections.unmodifiableList(encontrados);
+	}
+
+	/**
+	 * Busca los libros cuyo autor contiene la cadena indicada, sin tener en cuenta mayúsculas y minúsculas. Cada autor distinto de una categoría se revisa una sola vez.
+	 *
+	 * @param cadenaAutor La cadena que se usará para consultar el autor
+	 * @return Una lista que no se puede modificar con los libros encontrados, agrupados por categoría en el orden de las categorías, igual que Libreria.buscarLibrosAutor
+	 */
+	public List<FichaLibro> buscarLibrosAutor(String cadenaAutor)
+	{
+		String cadena = cadenaAutor.toLowerCase();
+		ArrayList<FichaLibro> encontrados = new ArrayList<FichaLibro>();
+		ArrayList<FichaLibro> deLaCategoria = new ArrayList<FichaLibro>();
+		for (FichaCategoria categoria : categorias)
+		{
+			FichaLibro[] porAutor = categoria.darPorAutor();
+			int inicio = 0;
+			while (inicio < porAutor.length)
+			{
+				String autor = porAutor[inicio].autor;
+				int fin = inicio + 1;
+				while (fin < porAutor.length && porAutor[fin].autor.equals(autor))
+				{
+					fin++;
+				}
+				if (autor.toLowerCase().contains(cadena))
+					deLaCategoria.addAll(Arrays.asList(porAutor).subList(inicio, fin));
+				inicio = fin;
+			}
+			deLaCategoria.sort(ORDEN_SECUENCIA);
+			encontrados.addAll(deLaCategoria);
+			deLaCategoria.clear();
+		}
+		return Collections.unmodifiableList(encontrados);
+	}
+
+	/**
+	 * Busca la primera posición de un arreglo ordenado por título (o por autor) cuyo título (o autor) no es menor que la llave
+	 */
+	private static int buscarInicio(FichaLibro[] ordenadas, String llave, boolean porTitulo)
+	{
+		int bajo = 0;
+		int alto = ordenadas.length;
+		while (bajo < alto)
+		{
+			int medio = (bajo + alto) >>> 1;
+			String valor = porTitulo ? ordenadas[medio].titulo : ordenadas[medio].autor;
+			if (valor.compareTo(llave) < 0)
+				bajo = medio + 1;
+			else
+				alto = medio;
+		}
+		return bajo;
+	}
+
+	// ************************************************************************
+	// Clases internas
+	// ************************************************************************
+
+	/**
+	 * Una categoría dentro de una versión del catálogo, con sus libros. No se puede modificar.
+	 */
+	public static final class FichaCategoria
+	{
+		private final String nombre;
+
+		private final boolean ficcion;
+
+		/**
+		 * Los libros de la categoría, en el orden en el que entraron a ella
+		 */
+		private final FichaLibro[] fichas;
+
+		/**
+		 * Los totales de la categoría en esta versión, copiados de la categoría para que el promedio sea el mismo que el de ella
+		 */
+		private final Acumulado acumulado;
+
+		/**
+		 * La categoría de la librería de la que salió esta copia, y su cantidad de modificaciones en ese momento. Sólo los usa VersionCatalogo.siguiente.
+		 */
+		private final Categoria origen;
+
+		private final int modificaciones;
+
+		/**
+		 * Los libros ordenados por título y por autor. Se arman la primera vez que se necesitan.
+		 */
+		private volatile FichaLibro[] porTitulo;
+
+		private volatile FichaLibro[] porAutor;
+
+		private FichaCategoria(Categoria categoria)
+		{
+			this.nombre = categoria.darNombre();
+			this.ficcion = categoria.esFiccion();
+			this.origen = categoria;
+			this.modificaciones = categoria.darModificaciones();
+			this.acumulado = categoria.darAcumulado().copiar();
+
+			ArrayList<Libro> libros = categoria.darLibros();
+			FichaLibro[] copia = new FichaLibro[libros.size()];
+			for (int i = 0; i < copia.length; i++)
+			{
+				copia[i] = new FichaLibro(libros.get(i), this);
+			}
+			this.fichas = copia;
+		}
+
+		/**
+		 * Consulta el nombre que tenía la categoría en esta versión
+		 *
+		 * @return nombre
+		 */
+		public String darNombre()
+		{
+			return nombre;
+		}
+
+		/**
+		 * Consulta si es una categoría de libros de ficción
+		 *
+		 * @return ficcion
+		 */
+		public boolean esFiccion()
+		{
+			return ficcion;
+		}
+
+		/**
+		 * Retorna los libros de la categoría, en el orden en el que entraron a ella
+		 *
+		 * @return Una lista que no se puede modificar
+		 */
+		public List<FichaLibro> darLibros()
+		{
+			return Collections.unmodifiableList(Arrays.asList(fichas));
+		}
+
+		/**
+		 * Cuenta la cantidad de libros en la categoría
+		 *
+		 * @return Cantidad de libros
+		 */
+		public int contarLibros()
+		{
+			return fichas.length;
+		}
+
+		/**
+		 * Consulta la calificación promedio de los libros de la categoría
+		 *
+		 * @return Calificación promedio, o 0 si la categoría no tiene libros
+		 */
+		public double calificacionPromedio()
+		{
+			return acumulado.darPromedio();
+		}
+
+		private FichaLibro[] darPorTitulo()
+		{
+			FichaLibro[] ordenadas = porTitulo;
+			if (ordenadas == null)
+			{
+				ordenadas = fichas.clone();
+				Arrays.sort(ordenadas, ORDEN_TITULOS);
+				porTitulo = ordenadas;
+			}
+			return ordenadas;
+		}
+
+		private FichaLibro[] darPorAutor()
+		{
+			FichaLibro[] ordenadas = porAutor;
+			if (ordenadas == null)
+			{
+				ordenadas = fichas.clone();
+				Arrays.sort(ordenadas, ORDEN_AUTORES);
+				porAutor = ordenadas;
+			}
+			return ordenadas;
+		}
+
+		@Override
+		public String toString()
+		{
+			return nombre;
+		}
+	}
+
+	/**
+	 * Un libro dentro de una versión del catálogo. No se puede modificar.
+	 */
+	public static final class FichaLibro
+	{
+		private final String titulo;
+
+		private final String autor;
+
+		private final double calificacion;
+
+		private final FichaCategoria categoria;
+
+		/**
+		 * La portada, o null si el libro no tiene
+		 */
+		private final Imagen portada;
+
+		/**
+		 * El número que indica el orden en el que el libro entró a su categoría (Libro.darSecuencia)
+		 */
+		private final long secuencia;
+
+		private FichaLibro(Libro libro, FichaCategoria categoria)
+		{
+			this.titulo = libro.darTitulo();
+			this.autor = libro.darAutor();
+			this.calificacion = libro.darCalificacion();
+			this.categoria = categoria;
+			this.portada = libro.tienePortada() ? libro.darPortada() : null;
+			this.secuencia = libro.darSecuencia();
+		}
+
+		/**
+		 * Consulta el título del libro
+		 *
+		 * @return titulo
+		 */
+		public String darTitulo()
+		{
+			return titulo;
+		}
+
+		/**
+		 * Consulta el autor del libro
+		 *
+		 * @return autor
+		 */
+		public String darAutor()
+		{
+			return autor;
+		}
+
+		/**
+		 * Consulta la calificación del libro
+		 *
+		 * @return calificacion
+		 */
+		public double darCalificacion()
+		{
+			return calificacion;
+		}
+
+		/**
+		 * Consulta la categoría del libro en esta versión
+		 *
+		 * @return categoria
+		 */
+		public FichaCategoria darCategoria()
+		{
+			return categoria;
+		}
+
+		/**
+		 * Consulta la portada del libro
+		 *
+		 * @return La portada, o null si el libro no tiene
+		 */
+		public Imagen darPortada()
+		{
+			return portada;
+		}
+
+		/**
+		 * Permite saber si este libro tiene portada
+		 *
+		 * @return Retorna true si el libro tiene una portada. Retorna false en caso contrario.
+		 */
+		public boolean tienePortada()
+		{
+			return portada != null;
+		}
+
+		@Override
+		public String toString()
+		{
+			return titulo + " (" + autor + ")";
+		}
+	}
+}
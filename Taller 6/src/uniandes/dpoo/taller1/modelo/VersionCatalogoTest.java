@@ -0,0 +1,112 @@
+package uniandes.dpoo.taller1.modelo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class VersionCatalogoTest
+{
+	@TempDir
+	Path carpeta;
+
+	@BeforeEach
+	void setUp() throws IOException
+	{
+		StringBuilder libros = new StringBuilder();
+		for (int i = 0; i < 300; i++)
+		{
+			String categoria = i % 3 == 0 ? "Novela" : i % 3 == 1 ? "Poesía" : "Cuento";
+			libros.append("Libro ").append(i).append(",Autor ").append(i % 30).append(',').append(i % 5).append(',').append(categoria).append(",./imagenes/x.jpg,1,1\n");
+		}
+		CatalogoPrueba.escribirCatalogo(carpeta, "Novela,true\n" + "Poesía,false\n" + "Cuento,true\n", libros.toString());
+	}
+
+	@Test
+	void testVersionesInmutables() throws Exception
+	{
+		Libreria libreria = CatalogoPrueba.cargar(carpeta);
+		VersionCatalogo primera = libreria.darVersion();
+		assertEquals(300, primera.contarLibros());
+		assertEquals(libreria.buscarLibrosAutor("autor 1").size(), primera.buscarLibrosAutor("autor 1").size());
+		assertEquals("Autor 7", primera.buscarLibro("Libro 7").darAutor());
+		assertThrows(UnsupportedOperationException.class, () -> primera.darLibros().clear());
+
+		libreria.cambiarCategoria("Poesía", "Poemas");
+		VersionCatalogo segunda = libreria.darVersion();
+		assertEquals(primera.darNumero() + 1, segunda.darNumero());
+		assertEquals("Poesía", primera.buscarLibro("Libro 1").darCategoria().darNombre());
+		assertEquals("Poemas", segunda.buscarLibro("Libro 1").darCategoria().darNombre());
+		assertNull(segunda.buscarCategoria("Poesía"));
+
+		// Las categorías que no cambiaron se comparten entre las versiones
+		assertSame(primera.buscarCategoria("Novela"), segunda.buscarCategoria("Novela"));
+		assertNotSame(primera.buscarCategoria("Poesía"), segunda.buscarCategoria("Poemas"));
+
+		assertThrows(Exception.class, () -> libreria.eliminarLibros("Autor 3"));
+		VersionCatalogo tercera = libreria.darVersion();
+		assertEquals(300, segunda.contarLibros());
+		assertEquals(libreria.darLibros().size(), tercera.contarLibros());
+		assertSame(segunda.buscarCategoria("Poemas"), tercera.buscarCategoria("Poemas"));
+
+		// Los promedios son exactamente los de la librería, que usa sumas compensadas
+		assertEquals(libreria.calificacionPromedio(), tercera.calificacionPromedio(), 0);
+		assertEquals(libreria.darCategorias()[0].calificacionPromedio(), tercera.buscarCategoria("Novela").calificacionPromedio(), 0);
+		libreria.cerrar();
+	}
+
+	@Test
+	void testLectoresConcurrentes() throws Exception
+	{
+		Libreria libreria = CatalogoPrueba.cargar(carpeta);
+		AtomicBoolean terminar = new AtomicBoolean();
+		AtomicReference<String> error = new AtomicReference<String>();
+		Thread[] lectores = new Thread[4];
+		for (int i = 0; i < lectores.length; i++)
+		{
+			lectores[i] = new Thread(() -> {
+				while (!terminar.get() && error.get() == null)
+				{
+					VersionCatalogo version = libreria.darVersion();
+					List<VersionCatalogo.FichaLibro> libros = version.darLibros();
+					int enCategorias = 0;
+					for (VersionCatalogo.FichaCategoria categoria : version.darCategorias())
+					{
+						enCategorias += categoria.contarLibros();
+						for (VersionCatalogo.FichaLibro libro : categoria.darLibros())
+						{
+							if (libro.darCategoria() != categoria)
+								error.set("Un libro no está en su categoría");
+						}
+					}
+					if (libros.size() != version.contarLibros() || enCategorias != libros.size())
+						error.set("La versión " + version.darNumero() + " no es consistente");
+				}
+			});
+			lectores[i].start();
+		}
+
+		for (int i = 0; i < 30; i++)
+		{
+			libreria.cambiarCategoria(i % 2 == 0 ? "Novela" : "Narrativa", i % 2 == 0 ? "Narrativa" : "Novela");
+			final int autor = i;
+			assertThrows(Exception.class, () -> libreria.eliminarLibros("Autor " + autor + ","));
+		}
+		terminar.set(true);
+		for (Thread lector : lectores)
+		{
+			lector.join();
+		}
+
+		assertNull(error.get());
+		assertEquals(libreria.darLibros().size(), libreria.darVersion().contarLibros());
+		libreria.cerrar();
+	}
+}
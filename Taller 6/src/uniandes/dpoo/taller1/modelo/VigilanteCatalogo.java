@@ -0,0 +1,160 @@
+package uniandes.dpoo.taller1.modelo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Esta clase vigila los archivos de una librería y le avisa a un observador cuando otro proceso los modifica.
+ *
+ * Los procesos que reescriben un archivo suelen generar varios eventos seguidos, así que el aviso se da sólo cuando pasa un tiempo (ESPERA) sin eventos nuevos sobre los archivos vigilados. La
+ * vigilancia se hace en un hilo aparte, que termina cuando se cierra el vigilante.
+ */
+public class VigilanteCatalogo implements Closeable
+{
+	// ************************************************************************
+	// Constantes
+	// ************************************************************************
+
+	/**
+	 * Milisegundos sin eventos que se esperan antes de avisar que los archivos cambiaron
+	 */
+	public static final long ESPERA = 500;
+
+	// ************************************************************************
+	// Atributos
+	// ************************************************************************
+
+	/**
+	 * El servicio del sistema de archivos que entrega los eventos
+	 */
+	private WatchService servicio;
+
+	/**
+	 * El archivo de categorías vigilado
+	 */
+	private Path archivoCategorias;
+
+	/**
+	 * El archivo de libros vigilado
+	 */
+	private Path archivoLibros;
+
+	/**
+	 * El objeto al que se le avisa de los cambios
+	 */
+	private ObservadorArchivos observador;
+
+	/**
+	 * El hilo que espera los eventos
+	 */
+	private Thread hilo;
+
+	// ************************************************************************
+	// Constructores
+	// ************************************************************************
+
+	/**
+	 * Empieza a vigilar los archivos de una librería
+	 *
+	 * @param nombreArchivoCategorias El nombre del archivo CSV con las categorías
+	 * @param nombreArchivoLibros     El nombre del archivo CSV con los libros
+	 * @param observador              El objeto al que se le avisa cuando cambien los archivos
+	 * @throws IOException Se lanza esta excepción si no se pueden vigilar las carpetas de los archivos
+	 */
+	public VigilanteCatalogo(String nombreArchivoCategorias, String nombreArchivoLibros, ObservadorArchivos observador) throws IOException
+	{
+		this.archivoCategorias = Paths.get(nombreArchivoCategorias).toAbsolutePath().normalize();
+		this.archivoLibros = Paths.get(nombreArchivoLibros).toAbsolutePath().normalize();
+		this.observador = observador;
+
+		// Se vigilan las carpetas y no los archivos, porque un archivo que se reemplaza con un renombramiento deja de ser el mismo archivo
+		servicio = FileSystems.getDefault().newWatchService();
+		registrar(archivoCategorias.getParent());
+		if (!archivoLibros.getParent().equals(archivoCategorias.getParent()))
+			registrar(archivoLibros.getParent());
+
+		hilo = new Thread(this::vigilar, "vigilante-catalogo");
+		hilo.setDaemon(true);
+		hilo.start();
+	}
+
+	// ************************************************************************
+	// Métodos
+	// ************************************************************************
+
+	/**
+	 * Deja de vigilar los archivos
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		servicio.close();
+		hilo.interrupt();
+	}
+
+	private void registrar(Path carpeta) throws IOException
+	{
+		carpeta.register(servicio, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+	}
+
+	/**
+	 * Ciclo del hilo de vigilancia: espera un evento sobre alguno de los archivos, deja pasar la ráfaga de eventos y avisa
+	 */
+	private void vigilar()
+	{
+		try
+		{
+			while (true)
+			{
+				if (procesar(servicio.take()))
+				{
+					WatchKey siguiente = servicio.poll(ESPERA, TimeUnit.MILLISECONDS);
+					while (siguiente != null)
+					{
+						procesar(siguiente);
+						siguiente = servicio.poll(ESPERA, TimeUnit.MILLISECONDS);
+					}
+					observador.archivosModificados();
+				}
+			}
+		}
+		catch (InterruptedException | ClosedWatchServiceException e)
+		{
+			// Se cerró el vigilante
+		}
+	}
+
+	/**
+	 * Consume los eventos de una llave y la deja lista para recibir más
+	 *
+	 * @return Retorna true si alguno de los eventos es sobre los archivos vigilados, o si se perdieron eventos
+	 */
+	private boolean procesar(WatchKey llave)
+	{
+		boolean relevante = false;
+		Path carpeta = (Path) llave.watchable();
+		for (WatchEvent<?> evento : llave.pollEvents())
+		{
+			if (evento.kind() == StandardWatchEventKinds.OVERFLOW)
+			{
+				relevante = true;
+			}
+			else
+			{
+				Path archivo = carpeta.resolve((Path) evento.context());
+				relevante |= archivo.equals(archivoCategorias) || archivo.equals(archivoLibros);
+			}
+		}
+		llave.reset();
+		return relevante;
+	}
+}